@@ -0,0 +1,104 @@
+package benchmarks;
+
+import services.OrderIdGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Mints order IDs from several threads at once and reports throughput,
+ * how many compare-and-set races were lost and whether any ID came out
+ * twice or out of order within a thread. Then does the same for the old
+ * "ORD-" + currentTimeMillis() scheme to show how often it collided.
+ * Needs no database.
+ *
+ *   java -cp bin benchmarks.OrderIdBenchmark [threads] [idsPerThread]
+ */
+public class OrderIdBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int perThread = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        // Warm up so the JIT has compiled nextId() before timing
+        OrderIdGenerator warmup = new OrderIdGenerator(1);
+        for (int i = 0; i < 2_000_000; i++) {
+            warmup.nextId();
+        }
+
+        OrderIdGenerator generator = new OrderIdGenerator(7);
+        long[][] ids = new long[threads][perThread];
+        long millis = run(threads, t -> {
+            long[] mine = ids[t];
+            for (int i = 0; i < perThread; i++) {
+                mine[i] = generator.nextId();
+            }
+        });
+
+        long total = (long) threads * perThread;
+        int outOfOrder = 0;
+        ConcurrentHashMap<Long, Boolean> seen = new ConcurrentHashMap<>((int) Math.min(total * 2, Integer.MAX_VALUE - 8));
+        long duplicates = 0;
+        for (long[] mine : ids) {
+            for (int i = 0; i < mine.length; i++) {
+                if (i > 0 && mine[i] <= mine[i - 1]) {
+                    outOfOrder++;
+                }
+                if (seen.put(mine[i], Boolean.TRUE) != null) {
+                    duplicates++;
+                }
+            }
+        }
+        System.out.printf("generator: %d threads x %d ids in %d ms = %.1f M ids/s%n",
+                threads, perThread, millis, total / (millis * 1000.0));
+        System.out.printf("           duplicates=%d, out of order=%d, %s%n", duplicates, outOfOrder, generator);
+        System.out.println("           e.g. " + generator.nextOrderId());
+
+        // The old scheme, at a checkout-like rate: a burst of orders from a few threads
+        int oldPerThread = 10_000;
+        ConcurrentHashMap<String, Boolean> oldSeen = new ConcurrentHashMap<>();
+        long[] oldDuplicates = new long[threads];
+        run(threads, t -> {
+            for (int i = 0; i < oldPerThread; i++) {
+                if (oldSeen.put("ORD-" + System.currentTimeMillis(), Boolean.TRUE) != null) {
+                    oldDuplicates[t]++;
+                }
+            }
+        });
+        long oldTotal = 0;
+        for (long d : oldDuplicates) {
+            oldTotal += d;
+        }
+        System.out.printf("old scheme: %d of %d ids were duplicates%n", oldTotal, (long) threads * oldPerThread);
+    }
+
+    private interface Work {
+        void run(int thread);
+    }
+
+    private static long run(int threads, Work work) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int index = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                work.run(index);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return Math.max(1, (System.nanoTime() - begin) / 1_000_000);
+    }
+}
@@ -0,0 +1,107 @@
+package benchmarks;
+
+import database.ConnectionPool;
+import models.OrderItem;
+import services.DatabaseService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares loading order items one query per order (the old N+1 path)
+ * with DatabaseService's batched IN (...) loading, for growing numbers of
+ * orders taken from the configured database. Read-only.
+ *
+ * Run with the MySQL driver on the classpath:
+ *   java -cp bin:mysql-connector-j.jar benchmarks.OrderItemLoadBenchmark [maxOrders]
+ */
+public class OrderItemLoadBenchmark {
+
+    private static final int[] ORDER_COUNTS = {10, 100, 1_000, 10_000, 50_000};
+    private static final int RUNS = 3;
+
+    public static void main(String[] args) throws SQLException {
+        int maxOrders = args.length > 0 ? Integer.parseInt(args[0]) : Integer.MAX_VALUE;
+
+        DatabaseService databaseService = new DatabaseService();
+        List<String> allOrderIds = loadOrderIds(Math.min(maxOrders, ORDER_COUNTS[ORDER_COUNTS.length - 1]));
+        System.out.println("Orders available: " + allOrderIds.size());
+        System.out.printf("%8s | %14s %12s | %14s %12s | %8s%n",
+                "orders", "N+1 trips", "N+1 ms", "batched trips", "batched ms", "speedup");
+
+        for (int count : ORDER_COUNTS) {
+            if (count > allOrderIds.size()) {
+                break;
+            }
+            List<String> orderIds = allOrderIds.subList(0, count);
+
+            // Warm up both paths once so the first row isn't dominated by JIT/connection setup
+            loadPerOrder(orderIds);
+            databaseService.getOrderItemsForOrders(orderIds);
+
+            long perOrderNanos = Long.MAX_VALUE;
+            long batchedNanos = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                int perOrderItems = loadPerOrder(orderIds);
+                perOrderNanos = Math.min(perOrderNanos, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                Map<String, List<OrderItem>> batched = databaseService.getOrderItemsForOrders(orderIds);
+                batchedNanos = Math.min(batchedNanos, System.nanoTime() - start);
+
+                int batchedItems = batched.values().stream().mapToInt(List::size).sum();
+                if (batchedItems != perOrderItems) {
+                    System.err.println("Item count mismatch: " + perOrderItems + " vs " + batchedItems);
+                }
+            }
+
+            int batchSize = DatabaseService.ORDER_ITEM_BATCH_SIZE;
+            int batchedTrips = (count + batchSize - 1) / batchSize;
+            System.out.printf("%8d | %14d %12.1f | %14d %12.1f | %7.1fx%n",
+                    count, count, perOrderNanos / 1e6, batchedTrips, batchedNanos / 1e6,
+                    (double) perOrderNanos / Math.max(1, batchedNanos));
+        }
+
+        System.out.println(ConnectionPool.getInstance());
+    }
+
+    private static List<String> loadOrderIds(int limit) throws SQLException {
+        List<String> orderIds = new ArrayList<>();
+        String query = "SELECT order_id FROM orders ORDER BY order_date DESC LIMIT ?";
+        try (Connection conn = ConnectionPool.getInstance().getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            pstmt.setInt(1, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    orderIds.add(rs.getString(1));
+                }
+            }
+        }
+        return orderIds;
+    }
+
+    // The pre-batching behaviour: one round trip per order
+    private static int loadPerOrder(List<String> orderIds) throws SQLException {
+        int items = 0;
+        String query = "SELECT * FROM order_items WHERE order_id = ?";
+        try (Connection conn = ConnectionPool.getInstance().getConnection()) {
+            for (String orderId : orderIds) {
+                try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                    pstmt.setString(1, orderId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            items++;
+                        }
+                    }
+                }
+            }
+        }
+        return items;
+    }
+}
@@ -0,0 +1,97 @@
+package benchmarks;
+
+import models.Product;
+import services.ProductSearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures ProductSearchIndex build time and query latency on a synthetic
+ * catalog, next to the linear toLowerCase().contains() scan it replaced.
+ * Needs no database.
+ *
+ *   java -cp bin:javafx-base.jar benchmarks.ProductSearchBenchmark [products]
+ */
+public class ProductSearchBenchmark {
+
+    private static final String[] ADJECTIVES = {"wireless", "portable", "smart", "classic", "premium", "compact",
+            "ergonomic", "vintage", "organic", "rugged", "slim", "deluxe"};
+    private static final String[] NOUNS = {"headphones", "laptop", "keyboard", "mouse", "speaker", "camera",
+            "backpack", "watch", "lamp", "blender", "jacket", "sneakers", "monitor", "charger", "tablet"};
+    private static final String[] CATEGORIES = {"Electronics", "Clothing", "Home & Kitchen", "Sports",
+            "Books", "Toys", "Beauty", "Garden"};
+    private static final String[] QUERIES = {"lap", "wireless head", "smart watch", "premium", "zzz",
+            "vintage lamp 42", "e", "compact charger electronics"};
+    private static final int ITERATIONS = 200;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        List<Product> products = generate(count);
+
+        long start = System.nanoTime();
+        ProductSearchIndex index = ProductSearchIndex.build(products);
+        System.out.printf("Indexed %d products (%d terms) in %.1f ms%n",
+                index.size(), index.termCount(), (System.nanoTime() - start) / 1e6);
+        System.out.printf("%-30s | %8s | %12s | %12s%n", "query", "matches", "index ms", "scan ms");
+
+        for (String query : QUERIES) {
+            // Warm up
+            for (int i = 0; i < 20; i++) {
+                index.search(query);
+                scan(products, query);
+            }
+
+            int matches = 0;
+            start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                ProductSearchIndex.Result result = index.search(query);
+                matches = result.size();
+            }
+            double indexMillis = (System.nanoTime() - start) / 1e6 / ITERATIONS;
+
+            int scanIterations = Math.max(1, ITERATIONS / 20);
+            start = System.nanoTime();
+            for (int i = 0; i < scanIterations; i++) {
+                scan(products, query);
+            }
+            double scanMillis = (System.nanoTime() - start) / 1e6 / scanIterations;
+
+            System.out.printf("%-30s | %8d | %12.3f | %12.3f%n", "\"" + query + "\"", matches, indexMillis, scanMillis);
+        }
+    }
+
+    // The pre-index behaviour: substring match of the whole query on every product
+    private static int scan(List<Product> products, String query) {
+        String searchText = query.toLowerCase();
+        int matches = 0;
+        for (Product product : products) {
+            if (product.getName().toLowerCase().contains(searchText) ||
+                (product.getDescription() != null && product.getDescription().toLowerCase().contains(searchText))) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    private static List<Product> generate(int count) {
+        Random random = new Random(42);
+        List<Product> products = new ArrayList<>(count);
+        for (int id = 1; id <= count; id++) {
+            String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+            String noun = NOUNS[random.nextInt(NOUNS.length)];
+            int categoryId = random.nextInt(CATEGORIES.length);
+            String name = capitalize(adjective) + " " + capitalize(noun) + " " + random.nextInt(1000);
+            String description = "A " + adjective + " " + noun + " for everyday use, model " +
+                                 Integer.toHexString(random.nextInt()) + ".";
+            products.add(new Product(id, name, 5 + random.nextInt(995), categoryId + 1,
+                    CATEGORIES[categoryId], description, null, random.nextInt(200), random.nextInt(50)));
+        }
+        return products;
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
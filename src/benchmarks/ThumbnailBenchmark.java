@@ -0,0 +1,72 @@
+package benchmarks;
+
+import javafx.scene.image.Image;
+import services.ThumbnailCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares the time to get every product image at storefront card size by
+ * decoding the full-size files (what each launch did before), by building
+ * the thumbnail cache (first launch) and by reading the cached thumbnails
+ * (later launches). Uses a throwaway cache directory. Needs no database.
+ *
+ *   java -cp bin:javafx-base.jar:javafx-graphics.jar benchmarks.ThumbnailBenchmark [imageDir]
+ */
+public class ThumbnailBenchmark {
+    private static final int WIDTH = 200;
+    private static final int HEIGHT = 140;
+
+    public static void main(String[] args) throws IOException {
+        Path imageDir = Path.of(args.length > 0 ? args[0] : "src/images");
+        List<File> files = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(imageDir)) {
+            paths.filter(Files::isRegularFile)
+                 .filter(p -> p.toString().toLowerCase().matches(".*\\.(jpg|jpeg|png)"))
+                 .forEach(p -> files.add(p.toFile()));
+        }
+        long totalBytes = files.stream().mapToLong(File::length).sum();
+        System.out.printf("%d images, %.1f MB on disk%n", files.size(), totalBytes / (1024.0 * 1024.0));
+
+        Path cacheDir = Files.createTempDirectory("thumbnail-benchmark");
+        try {
+            long start = System.nanoTime();
+            for (File file : files) {
+                new Image(file.toURI().toString(), WIDTH, HEIGHT, true, true, false);
+            }
+            report("full decode", start, files.size());
+
+            ThumbnailCache cold = new ThumbnailCache(cacheDir);
+            start = System.nanoTime();
+            for (File file : files) {
+                cold.load(file, WIDTH, HEIGHT);
+            }
+            report("thumbnail cache, first run", start, files.size());
+
+            // A new instance over the same directory, as after a restart
+            ThumbnailCache warm = new ThumbnailCache(cacheDir);
+            start = System.nanoTime();
+            for (File file : files) {
+                warm.load(file, WIDTH, HEIGHT);
+            }
+            report("thumbnail cache, later runs", start, files.size());
+            System.out.println(warm);
+        } finally {
+            try (Stream<Path> paths = Files.walk(cacheDir)) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    private static void report(String label, long start, int count) {
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.printf("%-28s %8.1f ms total, %6.2f ms per image%n", label, millis, millis / count);
+    }
+}
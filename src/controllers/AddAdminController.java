@@ -2,6 +2,7 @@ package controllers;
 
 import models.User;
 import services.DatabaseService;
+import services.TaskExecutor;
 import utils.PasswordValidator;
 import javafx.animation.PauseTransition;
 import javafx.application.Platform;
@@ -27,8 +28,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 public class AddAdminController {
     
@@ -49,7 +49,8 @@ public class AddAdminController {
     private DatabaseService databaseService;
     private ObservableList<User> allAdmins;
     private FilteredList<User> filteredAdmins;
-    private ExecutorService executorService;
+    // Reads for this screen; cancelled when its window closes
+    private final TaskExecutor.Group tasks = TaskExecutor.getInstance().newGroup();
     private DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
     private final String PRIMARY_ADMIN_USERNAME = "admin";
     
@@ -59,7 +60,7 @@ public class AddAdminController {
         if (databaseService == null) {
             databaseService = new DatabaseService();
         }
-        executorService = Executors.newCachedThreadPool();
+        tasks.cancelWhenClosed(adminListContainer);
         allAdmins = FXCollections.observableArrayList();
         filteredAdmins = new FilteredList<>(allAdmins);
         
@@ -153,26 +154,32 @@ public class AddAdminController {
     private void loadAdminsAsync() {
         statusLabel.setText("Loading admins...");
         
-        executorService.execute(() -> {
-            try {
-                List<User> admins = databaseService.getAllUsers().stream()
-                    .filter(user -> "ADMIN".equals(user.getRole()))
-                    .toList();
-                
-                Platform.runLater(() -> {
-                    allAdmins.setAll(admins);
-                    updateAdminList();
-                    updateStats();
-                    statusLabel.setText("Loaded " + admins.size() + " admins");
-                });
-                
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    showMessage("Error loading admins: " + e.getMessage(), "error");
-                    statusLabel.setText("Error loading admins");
-                });
-            }
-        });
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                try {
+                    List<User> admins = databaseService.getAllUsers().stream()
+                        .filter(user -> "ADMIN".equals(user.getRole()))
+                        .toList();
+                    
+                    Platform.runLater(() -> {
+                        allAdmins.setAll(admins);
+                        updateAdminList();
+                        updateStats();
+                        statusLabel.setText("Loaded " + admins.size() + " admins");
+                    });
+                    
+                } catch (Exception e) {
+                    Platform.runLater(() -> {
+                        showMessage("Error loading admins: " + e.getMessage(), "error");
+                        statusLabel.setText("Error loading admins");
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Admin list load rejected: " + e.getMessage());
+            showMessage("The database is busy, please try again.", "error");
+            statusLabel.setText("Error loading admins");
+        }
     }
     
     private void updateAdminList() {
@@ -357,43 +364,49 @@ private void handleAddAdmin() {
     
     statusLabel.setText("Processing...");
     
-    executorService.execute(() -> {
-        try {
-            // FIRST: Check if username already exists in database
-            User existingUserByUsername = databaseService.getUserByUsername(username);
-            
-            Platform.runLater(() -> {
-                if (existingUserByUsername != null) {
-                    // Username exists - show promotion dialog
-                    showUsernameExistsDialog(existingUserByUsername);
-                    return;
-                }
-                
-                // If username doesn't exist, check if email exists
-                User existingUserByEmail = databaseService.getUserByEmail(email);
+    try {
+        tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+            try {
+                // FIRST: Check if username already exists in database
+                User existingUserByUsername = databaseService.getUserByUsername(username);
                 
-                if (existingUserByEmail != null) {
-                    // User exists with this email, check if they're already admin
-                    if ("ADMIN".equals(existingUserByEmail.getRole())) {
-                        showMessage("User '" + existingUserByEmail.getFullName() + "' is already an administrator!", "warning");
-                        statusLabel.setText("User already admin");
+                Platform.runLater(() -> {
+                    if (existingUserByUsername != null) {
+                        // Username exists - show promotion dialog
+                        showUsernameExistsDialog(existingUserByUsername);
+                        return;
+                    }
+                    
+                    // If username doesn't exist, check if email exists
+                    User existingUserByEmail = databaseService.getUserByEmail(email);
+                    
+                    if (existingUserByEmail != null) {
+                        // User exists with this email, check if they're already admin
+                        if ("ADMIN".equals(existingUserByEmail.getRole())) {
+                            showMessage("User '" + existingUserByEmail.getFullName() + "' is already an administrator!", "warning");
+                            statusLabel.setText("User already admin");
+                        } else {
+                            // User exists with email but not admin - show promotion dialog
+                            showPromoteConfirmationDialog(existingUserByEmail);
+                        }
                     } else {
-                        // User exists with email but not admin - show promotion dialog
-                        showPromoteConfirmationDialog(existingUserByEmail);
+                        // Neither username nor email exists - register new admin
+                        registerNewAdmin(fullName, email, username, password);
                     }
-                } else {
-                    // Neither username nor email exists - register new admin
-                    registerNewAdmin(fullName, email, username, password);
-                }
-            });
-            
-        } catch (Exception e) {
-            Platform.runLater(() -> {
-                showMessage("Error: " + e.getMessage(), "error");
-                statusLabel.setText("Error occurred");
-            });
-        }
-    });
+                });
+                
+            } catch (Exception e) {
+                Platform.runLater(() -> {
+                    showMessage("Error: " + e.getMessage(), "error");
+                    statusLabel.setText("Error occurred");
+                });
+            }
+        });
+    } catch (RejectedExecutionException e) {
+        System.err.println("Admin lookup rejected: " + e.getMessage());
+        showMessage("The database is busy, please try again.", "error");
+        statusLabel.setText("Addition failed");
+    }
 }
 
 private void showUsernameExistsDialog(User existingUser) {
@@ -470,7 +483,7 @@ private void showUsernameExistsDialog(User existingUser) {
     }
     
     private void promoteToAdmin(String email) {
-        executorService.execute(() -> {
+        executeWrite("Promotion failed", () -> {
             try {
                 boolean success = databaseService.updateUserRole(email, "ADMIN");
                 
@@ -494,8 +507,22 @@ private void showUsernameExistsDialog(User existingUser) {
         });
     }
     
+    /**
+     * Run a role change on the DB pool. If the pool refuses it (too much
+     * queued), nothing was written; say so instead of leaving it pending.
+     */
+    private void executeWrite(String failedStatus, Runnable write) {
+        try {
+            TaskExecutor.getInstance().execute(TaskExecutor.Pool.DB_IO, write);
+        } catch (RejectedExecutionException e) {
+            System.err.println("Admin change rejected: " + e.getMessage());
+            showMessage("The database is busy, please try again.", "error");
+            statusLabel.setText(failedStatus);
+        }
+    }
+    
     private void registerNewAdmin(String fullName, String email, String username, String password) {
-        executorService.execute(() -> {
+        executeWrite("Addition failed", () -> {
             try {
                 // Register new user as ADMIN
                 boolean success = databaseService.registerUser(username, email, password, fullName, "ADMIN");
@@ -590,7 +617,7 @@ private void showUsernameExistsDialog(User existingUser) {
     private void executeAdminRemoval(User admin) {
         statusLabel.setText("Removing admin privileges...");
         
-        executorService.execute(() -> {
+        executeWrite("Removal failed", () -> {
             try {
                 // Demote admin to customer
                 boolean success = databaseService.updateUserRole(admin.getEmail(), "CUSTOMER");
@@ -680,9 +707,7 @@ private void showUsernameExistsDialog(User existingUser) {
     }
     
     public void shutdown() {
-        if (executorService != null && !executorService.isShutdown()) {
-            executorService.shutdown();
-        }
+        tasks.cancelAll();
         if (databaseService != null) {
             databaseService.close();
         }
@@ -1,6 +1,12 @@
 package controllers;
 
 import services.DatabaseService;
+import services.ImageService;
+import services.TaskExecutor;
+import services.UnreadMessageCounter;
+import utils.LatestQuery;
+import models.CatalogPage;
+import models.CatalogSort;
 import models.Product;
 import models.Category;
 import javafx.fxml.FXML;
@@ -23,6 +29,7 @@ import javafx.stage.Modality;
 import javafx.event.ActionEvent;
 import javafx.scene.Node;
 import javafx.util.Callback;
+import javafx.util.Duration;
 import javafx.geometry.HPos;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
@@ -32,8 +39,12 @@ import java.io.File;
 import java.util.List;
 import java.util.Set;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 public class AdminDashboardController {
     
@@ -51,10 +62,27 @@ public class AdminDashboardController {
     @FXML private TextField searchField;
     @FXML private ComboBox<String> categoryFilter;
     @FXML private ComboBox<String> sortComboBox;
+    @FXML private Button messagesButton;
     
-    private ObservableList<Product> productList;
+    // Full product list, loaded on demand for the statistics view
+    private ObservableList<Product> productList = FXCollections.observableArrayList();
     private DatabaseService databaseService;
     
+    // Table paging: rows are fetched a page at a time as the table is scrolled
+    private static final int PRODUCT_PAGE_SIZE = 100;
+    private static final double THUMBNAIL_SIZE = 50;
+    private final ObservableList<Product> pagedProducts = FXCollections.observableArrayList();
+    private final Map<String, Integer> categoryIdsByName = new HashMap<>();
+    private CatalogPage.Cursor nextProductCursor;
+    private int productTotalCount;
+    private boolean loadingProductPage;
+    private int productQueryGeneration;
+    // Reads for this screen; cancelled when its window closes
+    private final TaskExecutor.Group tasks = TaskExecutor.getInstance().newGroup();
+    // Typing waits this long for a pause before querying; older searches are cancelled
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(250);
+    private final LatestQuery<CatalogPage> productQuery = new LatestQuery<>(tasks, TaskExecutor.Pool.DB_IO, SEARCH_DEBOUNCE);
+    
     @FXML
     public void initialize() {
         System.out.println("AdminDashboardController initialized!");
@@ -62,12 +90,11 @@ public class AdminDashboardController {
         try {
             // Initialize database service
             databaseService = new DatabaseService();
-            
-            // Load products from database
-            loadProductsFromDatabase();
+            tasks.cancelWhenClosed(productsTable);
             
             // Configure table columns
             configureTableColumns();
+            setupLazyLoading();
             
             // Initialize filters and comboboxes
             initializeComboBoxes();
@@ -75,6 +102,10 @@ public class AdminDashboardController {
             // Setup search functionality
             setupSearchFunctionality();
             
+            // Load the first page of products with the initial filters
+            loadProductsFromDatabase();
+            watchUnreadMessages();
+            
             // Debug: Check table data
             debugTableData();
             
@@ -87,17 +118,56 @@ public class AdminDashboardController {
         }
     }
     
-    private void loadProductsFromDatabase() {
+    /**
+     * Keep the unread count on the messages button current. The count is
+     * held in memory by UnreadMessageCounter, so redrawing it costs no query.
+     */
+    private void watchUnreadMessages() {
+        if (messagesButton == null) {
+            return;
+        }
+        UnreadMessageCounter counter = UnreadMessageCounter.getInstance();
+        Runnable update = () -> Platform.runLater(this::showUnreadMessageCount);
+        counter.addListener(update);
+        tasks.onClose(() -> counter.removeListener(update));
+        
+        // The very first read counts in the database, so do it off the FX thread
         try {
-            List<Product> products = databaseService.getAllProducts();
-            productList = FXCollections.observableArrayList(products);
-            productsTable.setItems(productList);
-            System.out.println("Loaded " + products.size() + " products from database");
-        } catch (Exception e) {
-            System.err.println("Error loading products: " + e.getMessage());
-            productList = FXCollections.observableArrayList();
-            productsTable.setItems(productList);
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                counter.getTotal();
+                update.run();
+            });
+        } catch (RejectedExecutionException e) {
+            // The button keeps its plain label until the counter loads with the next message change
+            System.err.println("Unread message count rejected: " + e.getMessage());
+        }
+    }
+    
+    private void showUnreadMessageCount() {
+        UnreadMessageCounter counter = UnreadMessageCounter.getInstance();
+        if (!counter.isLoaded()) {
+            return;
         }
+        int unread = counter.getTotal();
+        messagesButton.setText(unread > 0 ? "View Messages (" + unread + ")" : "View Messages");
+    }
+    
+    private void loadProductsFromDatabase() {
+        productsTable.setItems(pagedProducts);
+        filterProducts();
+    }
+    
+    private void setupLazyLoading() {
+        // Fetch the next page once the last loaded row is rendered
+        productsTable.setRowFactory(table -> new TableRow<Product>() {
+            @Override
+            protected void updateItem(Product product, boolean empty) {
+                super.updateItem(product, empty);
+                if (!empty && getIndex() == table.getItems().size() - 1) {
+                    Platform.runLater(() -> loadNextProductPage());
+                }
+            }
+        });
     }
     
     private void configureTableColumns() {
@@ -134,8 +204,8 @@ public class AdminDashboardController {
             private final Label textLabel = new Label();
             
             {
-                imageView.setFitHeight(50);
-                imageView.setFitWidth(50);
+                imageView.setFitHeight(THUMBNAIL_SIZE);
+                imageView.setFitWidth(THUMBNAIL_SIZE);
                 imageView.setPreserveRatio(true);
                 textLabel.setStyle("-fx-text-fill: #666; -fx-font-size: 11px;");
             }
@@ -149,27 +219,11 @@ public class AdminDashboardController {
                 } else {
                     Product product = getTableView().getItems().get(getIndex());
                     if (product.getImageUrl() != null && !product.getImageUrl().isEmpty()) {
-                        try {
-                            File imageFile = new File(product.getImageUrl());
-                            if (imageFile.exists()) {
-                                Image image = new Image(imageFile.toURI().toString());
-                                imageView.setImage(image);
-                                setGraphic(imageView);
-                                setText(null);
-                            } else {
-                                // Try URL
-                                try {
-                                    Image image = new Image(product.getImageUrl());
-                                    imageView.setImage(image);
-                                    setGraphic(imageView);
-                                    setText(null);
-                                } catch (Exception e) {
-                                    showTextLabel("Invalid URL");
-                                }
-                            }
-                        } catch (Exception e) {
-                            showTextLabel("No Image");
-                        }
+                        // Decoded in the background at thumbnail size; shared with the storefront
+                        setGraphic(imageView);
+                        setText(null);
+                        ImageService.getInstance().loadInto(imageView, product.getImageUrl(),
+                                THUMBNAIL_SIZE, THUMBNAIL_SIZE, () -> showTextLabel("No Image"));
                     } else {
                         showTextLabel("No Image");
                     }
@@ -327,8 +381,8 @@ public class AdminDashboardController {
             System.out.println("Table items count: " + productsTable.getItems().size());
             System.out.println("Table column count: " + productsTable.getColumns().size());
             
-            if (!productList.isEmpty()) {
-                Product first = productList.get(0);
+            if (!productsTable.getItems().isEmpty()) {
+                Product first = productsTable.getItems().get(0);
                 System.out.println("First product:");
                 System.out.println("  ID: " + first.getId());
                 System.out.println("  Name: " + first.getName());
@@ -353,8 +407,10 @@ public class AdminDashboardController {
             List<Category> categories = databaseService.getAllCategories();
             ObservableList<String> categoryOptions = FXCollections.observableArrayList("All Categories");
             
+            categoryIdsByName.clear();
             for (Category category : categories) {
                 categoryOptions.add(category.getName());
+                categoryIdsByName.put(category.getName(), category.getId());
             }
             
             categoryFilter.setItems(categoryOptions);
@@ -379,9 +435,11 @@ public class AdminDashboardController {
     }
     
     private void setupSearchFunctionality() {
+        productQuery.setOnError(error -> loadingProductPage = false);
+        
         // Search field listener
         searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-            filterProducts();
+            filterProducts(true);
         });
         
         // Category filter listener
@@ -396,48 +454,88 @@ public class AdminDashboardController {
     }
     
     private void filterProducts() {
-        String searchText = searchField.getText().toLowerCase();
-        String selectedCategory = categoryFilter.getValue();
+        filterProducts(false);
+    }
+    
+    private void filterProducts(boolean debounce) {
+        String searchText = searchField.getText() != null ? searchField.getText().trim() : "";
+        int categoryId = getSelectedCategoryId();
+        CatalogSort sort = getSelectedCatalogSort();
+        // Also makes any next-page load of the previous filters drop its result
+        ++productQueryGeneration;
+        loadingProductPage = true;
+        
+        // Filtering and sorting run in SQL; only the first page of the latest query is shown
+        Callable<CatalogPage> query = () -> databaseService.getCatalogPage(searchText, categoryId, sort, null, PRODUCT_PAGE_SIZE);
+        Consumer<CatalogPage> show = page -> {
+            loadingProductPage = false;
+            productTotalCount = page.getTotalCount();
+            nextProductCursor = page.getNextCursor();
+            pagedProducts.setAll(page.getProducts());
+            productsTable.setItems(pagedProducts);
+            productsTable.setPlaceholder(new Label("No products found"));
+            System.out.println("Loaded " + page.getProducts().size() + " of " + productTotalCount + " products from database");
+        };
+        if (debounce) {
+            productQuery.submit(query, show);
+        } else {
+            productQuery.submitNow(query, show);
+        }
+    }
+    
+    private void loadNextProductPage() {
+        if (loadingProductPage || nextProductCursor == null) {
+            return;
+        }
         
-        ObservableList<Product> filtered = FXCollections.observableArrayList();
+        String searchText = searchField.getText() != null ? searchField.getText().trim() : "";
+        int categoryId = getSelectedCategoryId();
+        CatalogSort sort = getSelectedCatalogSort();
+        CatalogPage.Cursor after = nextProductCursor;
+        int generation = productQueryGeneration;
+        loadingProductPage = true;
         
-        for (Product product : productList) {
-            boolean matchesSearch = searchText.isEmpty() ||
-                product.getName().toLowerCase().contains(searchText) ||
-                (product.getDescription() != null && product.getDescription().toLowerCase().contains(searchText));
-            
-            boolean matchesCategory = selectedCategory.equals("All Categories") ||
-                (product.getCategoryName() != null && product.getCategoryName().equals(selectedCategory));
-            
-            if (matchesSearch && matchesCategory) {
-                filtered.add(product);
-            }
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                CatalogPage page = databaseService.getCatalogPage(searchText, categoryId, sort, after, PRODUCT_PAGE_SIZE);
+                Platform.runLater(() -> {
+                    if (generation != productQueryGeneration) {
+                        return;
+                    }
+                    loadingProductPage = false;
+                    nextProductCursor = page.getNextCursor();
+                    pagedProducts.addAll(page.getProducts());
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // DB pool is saturated; the next scroll to the end tries again
+            System.err.println("Next product page rejected: " + e.getMessage());
+            loadingProductPage = false;
         }
-        
-        // Apply current sort
-        applySort(filtered);
-        productsTable.setItems(filtered);
     }
     
-    private void applySort(ObservableList<Product> list) {
+    private int getSelectedCategoryId() {
+        String selectedCategory = categoryFilter.getValue();
+        if (selectedCategory == null || selectedCategory.equals("All Categories") || selectedCategory.equals("All")) {
+            return 0;
+        }
+        return categoryIdsByName.getOrDefault(selectedCategory, 0);
+    }
+    
+    private CatalogSort getSelectedCatalogSort() {
         String sortOption = sortComboBox.getValue();
-        if (sortOption == null) return;
-        
-        Comparator<Product> comparator = switch (sortOption) {
-            case "Name A-Z" -> Comparator.comparing(Product::getName, String.CASE_INSENSITIVE_ORDER);
-            case "Name Z-A" -> Comparator.comparing(Product::getName, String.CASE_INSENSITIVE_ORDER).reversed();
-            case "Price Low-High" -> Comparator.comparingDouble(Product::getPrice);
-            case "Price High-Low" -> Comparator.comparingDouble(Product::getPrice).reversed();
-            case "Final Price Low-High" -> Comparator.comparingDouble(Product::getFinalPrice);
-            case "Final Price High-Low" -> Comparator.comparingDouble(Product::getFinalPrice).reversed();
-            case "Discount High-Low" -> Comparator.comparingDouble(Product::getDiscountPercentage).reversed();
-            case "Stock High-Low" -> Comparator.comparingInt(Product::getStockQuantity).reversed();
-            default -> null;
+        if (sortOption == null) return CatalogSort.NAME_ASC;
+        
+        return switch (sortOption) {
+            case "Name Z-A" -> CatalogSort.NAME_DESC;
+            case "Price Low-High" -> CatalogSort.PRICE_ASC;
+            case "Price High-Low" -> CatalogSort.PRICE_DESC;
+            case "Final Price Low-High" -> CatalogSort.FINAL_PRICE_ASC;
+            case "Final Price High-Low" -> CatalogSort.FINAL_PRICE_DESC;
+            case "Discount High-Low" -> CatalogSort.DISCOUNT_DESC;
+            case "Stock High-Low" -> CatalogSort.STOCK_DESC;
+            default -> CatalogSort.NAME_ASC;
         };
-        
-        if (comparator != null) {
-            FXCollections.sort(list, comparator);
-        }
     }
     
     @FXML
@@ -1460,6 +1558,8 @@ public class AdminDashboardController {
                     // Store file path as image URL
                     String imageUrl = selectedFile.getAbsolutePath();
                     selected.setImageUrl(imageUrl);
+                    // The file may have been replaced since it was last decoded
+                    ImageService.getInstance().evict(imageUrl);
                     
                     // Update in database
                     boolean success = databaseService.updateProduct(selected);
@@ -1584,6 +1684,9 @@ public class AdminDashboardController {
     @FXML
 private void viewStatistics() {
     try {
+        // The table only holds the pages loaded so far; statistics need every product
+        productList = FXCollections.observableArrayList(databaseService.getAllProducts());
+        
         // Calculate statistics
         int totalProducts = productList.size();
         double totalValue = 0;
@@ -9,6 +9,7 @@ import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.util.Duration;
 import javafx.scene.input.KeyCode;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
@@ -16,19 +17,31 @@ import javafx.scene.text.Text;
 import javafx.stage.Stage;
 import javafx.scene.image.ImageView;
 import javafx.scene.image.Image;
+import models.BulkUpdateResult;
+import models.ChangeEvent;
 import models.Message;
+import models.MessagePage;
 import models.User;
+import services.ChangeLog;
 import services.DatabaseService;
+import services.EventBus;
+import services.TaskExecutor;
+import utils.LatestQuery;
 
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 public class AdminMessagesController implements Initializable {
     
     @FXML private VBox messagesContainer;
+    @FXML private ScrollPane messagesScrollPane;
     @FXML private Label unreadCountLabel;
     @FXML private Label totalCountLabel;
     @FXML private Label summaryLabel;
@@ -40,9 +53,41 @@ public class AdminMessagesController implements Initializable {
     @FXML private Button refreshBtn;
     @FXML private Button closeBtn;
     
+    @FXML private CheckBox selectAllMatchingCheck;
+    @FXML private Label selectionLabel;
+    @FXML private Button bulkReadButton;
+    @FXML private Button bulkReplyButton;
+    @FXML private Button bulkDeleteButton;
+    @FXML private ProgressBar bulkProgress;
+    @FXML private Label bulkProgressLabel;
+    
+    private static final int PAGE_SIZE = 50;
+    // Offered in the bulk reply dialog; the text can still be edited before sending
+    private static final List<String> CANNED_REPLIES = Arrays.asList(
+        "Thanks for reaching out! We've received your message and will get back to you shortly.",
+        "Thanks for your patience. We're seeing a high volume of messages after our promotion and are working through them as fast as we can.",
+        "Your order is being processed and you'll get an update as soon as it ships.",
+        "This issue has been resolved. Please let us know if you need anything else."
+    );
+    
     private DatabaseService databaseService;
-    private List<Message> allMessages = new ArrayList<>();
+    // Messages fetched so far for the current filters; more pages load on scroll
+    private final List<Message> loadedMessages = new ArrayList<>();
+    private MessagePage.Cursor nextCursor;
+    private boolean loadingPage;
+    // -1 until counted; the first page is shown without waiting for the count
+    private int matchingMessageCount = -1;
+    // Bumped whenever the filters change so late results from an old query are dropped
+    private int queryGeneration;
     private List<User> allCustomers = new ArrayList<>();
+    // Messages ticked for a bulk action; kept across background reloads, cleared when the filters change
+    private final Set<Integer> selectedMessageIds = new LinkedHashSet<>();
+    private boolean bulkRunning;
+    // Reads for this screen; cancelled when its window closes
+    private final TaskExecutor.Group tasks = TaskExecutor.getInstance().newGroup();
+    // Typing waits this long for a pause before querying; older searches are cancelled
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(250);
+    private final LatestQuery<MessagePage> messagesQuery = new LatestQuery<>(tasks, TaskExecutor.Pool.DB_IO, SEARCH_DEBOUNCE);
     
   
     
@@ -109,6 +154,8 @@ public class AdminMessagesController implements Initializable {
         
         try {
             databaseService = new DatabaseService();
+            tasks.cancelWhenClosed(messagesContainer);
+            watchMessages();
             
             // Debug: Check messages table
             databaseService.debugMessagesTable();
@@ -124,6 +171,8 @@ public class AdminMessagesController implements Initializable {
                 System.out.println("WARNING: statusFilterCombo is null - check FXML");
             }
             
+            updateSelectionSummary();
+            
             // Check for sendMessageBtn
             if (sendMessageBtn == null) {
                 System.out.println("WARNING: sendMessageBtn is null - check FXML");
@@ -137,6 +186,7 @@ public class AdminMessagesController implements Initializable {
             
             // Setup filter listeners
             setupFilters();
+            setupLazyLoading();
             
         } catch (Exception e) {
             System.err.println("Failed to initialize AdminMessagesController: " + e.getMessage());
@@ -156,96 +206,155 @@ public class AdminMessagesController implements Initializable {
     private void setupFilters() {
         if (statusFilterCombo != null) {
             statusFilterCombo.getSelectionModel().selectedItemProperty().addListener(
-                (obs, oldVal, newVal) -> applyFilters()
+                (obs, oldVal, newVal) -> {
+                    clearSelection();
+                    applyFilters();
+                }
             );
         }
         
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal.isEmpty() || newVal.length() > 2) {
-                applyFilters();
+                clearSelection();
+                applyFilters(true);
             }
         });
+        
+        messagesQuery.setOnError(e -> {
+            loadingPage = false;
+            showErrorInUI("Database Error", "Failed to load messages: " + e.getMessage());
+        });
     }
     private void loadAllCustomers() {
-        new Thread(() -> {
-            try {
-                allCustomers = databaseService.getAllCustomers();
-                System.out.println("DEBUG: Loaded " + allCustomers.size() + " customers");
-            } catch (Exception e) {
-                System.err.println("ERROR loading customers: " + e.getMessage());
-            }
-        }).start();
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                try {
+                    allCustomers = databaseService.getAllCustomers();
+                    System.out.println("DEBUG: Loaded " + allCustomers.size() + " customers");
+                } catch (Exception e) {
+                    System.err.println("ERROR loading customers: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Customer names are only a nicety; messages still show the name stored with them
+            System.err.println("Customer load rejected: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Reload when a customer writes in, or another admin instance replies to,
+     * reads or deletes a message. Changes made from here already reload the
+     * list when they succeed, as does a bulk action when it finishes.
+     */
+    private void watchMessages() {
+        EventBus.Subscription messageEvents = EventBus.getInstance().subscribeOnFxThread(
+                EnumSet.of(ChangeEvent.Type.MESSAGE_CREATED, ChangeEvent.Type.MESSAGE_REPLIED,
+                           ChangeEvent.Type.MESSAGE_READ, ChangeEvent.Type.MESSAGE_DELETED), null, events -> {
+                    if (bulkRunning) {
+                        return;
+                    }
+                    for (ChangeEvent event : events) {
+                        if (event.getType() == ChangeEvent.Type.MESSAGE_CREATED || event.getOrigin() != ChangeLog.ORIGIN) {
+                            loadAllMessages(false);
+                            return;
+                        }
+                    }
+                });
+        tasks.onClose(messageEvents::cancel);
     }
     
     private void loadAllMessages() {
-        System.out.println("Loading all messages from database...");
+        loadAllMessages(true);
+    }
+    
+    // showLoading: replace the list with a spinner while loading (not for background updates)
+    private void loadAllMessages(boolean showLoading) {
+        System.out.println("Loading messages from database...");
         
         // Show loading state
-        showLoadingState();
+        if (showLoading) {
+            showLoadingState();
+        }
         
-        new Thread(() -> {
-            try {
-                allMessages = databaseService.getAllMessages();
-                System.out.println("DEBUG: Retrieved " + allMessages.size() + " messages from database");
-                
-                if (!allMessages.isEmpty()) {
-                    System.out.println("DEBUG: First message details:");
-                    Message firstMsg = allMessages.get(0);
-                    System.out.println("  ID: " + firstMsg.getId());
-                    System.out.println("  Customer: " + firstMsg.getCustomerName());
-                    System.out.println("  Subject: " + firstMsg.getSubject());
-                    System.out.println("  Status: " + firstMsg.getStatus());
-                }
-                
-                Platform.runLater(() -> {
-                    applyFilters();
-                    updateStatistics();
-                });
-                
-            } catch (Exception e) {
-                System.err.println("ERROR loading messages: " + e.getMessage());
-                e.printStackTrace();
-                
-                Platform.runLater(() -> {
-                    showErrorInUI("Database Error", 
-                        "Failed to load messages:\n" + e.getClass().getSimpleName() + "\n" + 
-                        "Message: " + e.getMessage());
-                });
-            }
-        }).start();
+        applyFilters();
     }
     
+    /**
+     * Restart the inbox from the first page using the current filters.
+     * Filtering, searching and paging all happen in SQL; the counts follow
+     * in a second query so the first page doesn't wait for them.
+     */
     private void applyFilters() {
-        if (allMessages.isEmpty()) {
-            System.out.println("DEBUG: No messages to filter");
+        applyFilters(false);
+    }
+    
+    private void applyFilters(boolean debounce) {
+        // Also makes any next-page load of the previous filters drop its result
+        ++queryGeneration;
+        nextCursor = null;
+        matchingMessageCount = -1;
+        loadingPage = true;
+        
+        String status = statusFilterCombo != null ? statusFilterCombo.getSelectionModel().getSelectedItem() : null;
+        String searchTerm = searchField.getText() != null ? searchField.getText().trim() : "";
+        
+        // Only the latest query's result is shown
+        Callable<MessagePage> query = () -> databaseService.getMessagesPage(status, searchTerm, null, PAGE_SIZE);
+        Consumer<MessagePage> show = page -> {
+            loadingPage = false;
+            loadedMessages.clear();
+            loadedMessages.addAll(page.getMessages());
+            nextCursor = page.getNextCursor();
+            displayMessages(loadedMessages);
+            messagesScrollPane.setVvalue(0);
+            updateStatistics(queryGeneration, status, searchTerm);
+        };
+        if (debounce) {
+            messagesQuery.submit(query, show);
+        } else {
+            messagesQuery.submitNow(query, show);
+        }
+    }
+    
+    private void setupLazyLoading() {
+        // Fetch the next page when the admin scrolls near the bottom
+        messagesScrollPane.vvalueProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal.doubleValue() >= messagesScrollPane.getVmax() * 0.9) {
+                loadNextPage();
+            }
+        });
+    }
+    
+    private void loadNextPage() {
+        if (loadingPage || nextCursor == null) {
             return;
         }
+        loadingPage = true;
         
-        List<Message> filteredMessages = new ArrayList<>(allMessages);
-        
-        // Apply status filter
-        String selectedStatus = statusFilterCombo.getSelectionModel().getSelectedItem();
-        if (selectedStatus != null && !selectedStatus.equals("ALL")) {
-            filteredMessages = filteredMessages.stream()
-                .filter(msg -> msg.getStatus() != null && 
-                        msg.getStatus().equalsIgnoreCase(selectedStatus))
-                .collect(Collectors.toList());
-        }
+        int generation = queryGeneration;
+        MessagePage.Cursor cursor = nextCursor;
+        String status = statusFilterCombo != null ? statusFilterCombo.getSelectionModel().getSelectedItem() : null;
+        String searchTerm = searchField.getText() != null ? searchField.getText().trim() : "";
         
-        // Apply search filter
-        String searchTerm = searchField.getText().trim().toLowerCase();
-        if (!searchTerm.isEmpty()) {
-            filteredMessages = filteredMessages.stream()
-                .filter(msg -> 
-                    (msg.getCustomerName() != null && msg.getCustomerName().toLowerCase().contains(searchTerm)) ||
-                    (msg.getCustomerEmail() != null && msg.getCustomerEmail().toLowerCase().contains(searchTerm)) ||
-                    (msg.getSubject() != null && msg.getSubject().toLowerCase().contains(searchTerm)) ||
-                    (msg.getMessage() != null && msg.getMessage().toLowerCase().contains(searchTerm))
-                )
-                .collect(Collectors.toList());
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                MessagePage page = databaseService.getMessagesPage(status, searchTerm, cursor, PAGE_SIZE);
+            
+                Platform.runLater(() -> {
+                    if (generation != queryGeneration) {
+                        return;
+                    }
+                    loadingPage = false;
+                    loadedMessages.addAll(page.getMessages());
+                    nextCursor = page.getNextCursor();
+                    appendMessageCards(page.getMessages());
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // DB pool is saturated; the next scroll to the end tries again
+            System.err.println("Next messages page rejected: " + e.getMessage());
+            loadingPage = false;
         }
-        
-        displayMessages(filteredMessages);
     }
     
     private void displayMessages(List<Message> messages) {
@@ -274,6 +383,13 @@ public class AdminMessagesController implements Initializable {
         
         System.out.println("DEBUG: Displaying " + messages.size() + " messages");
         
+        appendMessageCards(messages);
+    }
+    
+    private void appendMessageCards(List<Message> messages) {
+        // Drop the "load more" footer; it is re-added below if more pages remain
+        messagesContainer.getChildren().removeIf(node -> "loadMoreFooter".equals(node.getId()));
+        
         DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
         
         for (Message msg : messages) {
@@ -286,7 +402,26 @@ public class AdminMessagesController implements Initializable {
             }
         }
         
-        summaryLabel.setText("Showing " + messages.size() + " of " + allMessages.size() + " messages");
+        if (nextCursor != null) {
+            // Fallback for when the first page doesn't fill the viewport and can't be scrolled
+            Button loadMore = new Button("Load more messages");
+            loadMore.setId("loadMoreFooter");
+            loadMore.setStyle("-fx-background-color: #ecf0f1; -fx-text-fill: #2c3e50; -fx-padding: 8 20;");
+            loadMore.setMaxWidth(Double.MAX_VALUE);
+            loadMore.setOnAction(e -> loadNextPage());
+            messagesContainer.getChildren().add(loadMore);
+        }
+        
+        updateSummary();
+    }
+    
+    private void updateSummary() {
+        if (loadedMessages.isEmpty()) {
+            return;
+        }
+        summaryLabel.setText(matchingMessageCount < 0
+            ? "Showing " + loadedMessages.size() + " messages"
+            : "Showing " + loadedMessages.size() + " of " + matchingMessageCount + " messages");
     }
     
     private VBox createMessageCard(Message msg, DateTimeFormatter dateFormat) {
@@ -323,6 +458,23 @@ public class AdminMessagesController implements Initializable {
         Label statusLabel = new Label(statusIcon + " " + msg.getStatus());
         statusLabel.setStyle("-fx-font-weight: bold; -fx-text-fill: " + statusColor + ";");
         
+        // Selection for bulk actions
+        CheckBox selectBox = new CheckBox();
+        selectBox.getStyleClass().add("message-select");
+        selectBox.setSelected(selectAllMatchingCheck.isSelected() || selectedMessageIds.contains(msg.getId()));
+        selectBox.setDisable(selectAllMatchingCheck.isSelected() || bulkRunning);
+        selectBox.selectedProperty().addListener((obs, wasSelected, isSelected) -> {
+            if (selectAllMatchingCheck.isSelected()) {
+                return;
+            }
+            if (isSelected) {
+                selectedMessageIds.add(msg.getId());
+            } else {
+                selectedMessageIds.remove(msg.getId());
+            }
+            updateSelectionSummary();
+        });
+        
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
         
@@ -334,7 +486,7 @@ public class AdminMessagesController implements Initializable {
         Label dateLabel = new Label(dateStr);
         dateLabel.setStyle("-fx-text-fill: #666; -fx-font-size: 12px;");
         
-        header.getChildren().addAll(statusLabel, spacer, dateLabel);
+        header.getChildren().addAll(selectBox, statusLabel, spacer, dateLabel);
         
         // Customer info
         HBox customerRow = new HBox(10);
@@ -720,7 +872,7 @@ public class AdminMessagesController implements Initializable {
     }
     
     private void sendNewMessageToCustomer(int customerId, String subject, String message) {
-        new Thread(() -> {
+        executeWrite("The message was not sent", () -> {
             try {
                 boolean success = databaseService.sendMessageFromAdmin(customerId, subject, message);
                 
@@ -737,7 +889,7 @@ public class AdminMessagesController implements Initializable {
                     showError("Error", "Failed to send message: " + e.getMessage());
                 });
             }
-        }).start();
+        });
     }
     
     private void showReplyDialog(Message msg) {
@@ -810,7 +962,7 @@ public class AdminMessagesController implements Initializable {
     }
     
     private void sendReplyToMessage(Message msg, String reply) {
-        new Thread(() -> {
+        executeWrite("The reply was not sent", () -> {
             try {
                 boolean success = databaseService.adminReplyToMessage(msg.getId(), reply);
                 
@@ -827,11 +979,12 @@ public class AdminMessagesController implements Initializable {
                     showError("Error", "Failed to send reply: " + e.getMessage());
                 });
             }
-        }).start();
+        });
     }
     
     private void markMessageAsRead(Message msg) {
-        new Thread(() -> {
+        // Not worth an error dialog if refused; the message just stays unread
+        executeWrite(null, () -> {
             try {
                 boolean success = databaseService.markMessageAsRead(msg.getId());
                 
@@ -845,7 +998,7 @@ public class AdminMessagesController implements Initializable {
             } catch (Exception e) {
                 e.printStackTrace();
             }
-        }).start();
+        });
     }
     
     private void deleteMessage(Message msg) {
@@ -856,7 +1009,7 @@ public class AdminMessagesController implements Initializable {
         
         confirmation.showAndWait().ifPresent(response -> {
             if (response == ButtonType.OK) {
-                new Thread(() -> {
+                executeWrite("The message was not deleted", () -> {
                     try {
                         boolean success = databaseService.deleteMessage(msg.getId());
                         
@@ -873,29 +1026,227 @@ public class AdminMessagesController implements Initializable {
                             showError("Error", "Failed to delete message: " + e.getMessage());
                         });
                     }
-                }).start();
+                });
             }
         });
     }
     
-    private void updateStatistics() {
-        if (allMessages.isEmpty()) {
-            unreadCountLabel.setText("0");
-            totalCountLabel.setText("0");
+    /**
+     * Run a write on the DB pool. If the pool refuses it (too much queued),
+     * nothing was written: log it and, given a message, tell the admin.
+     */
+    private void executeWrite(String rejectedMessage, Runnable write) {
+        try {
+            TaskExecutor.getInstance().execute(TaskExecutor.Pool.DB_IO, write);
+        } catch (RejectedExecutionException e) {
+            System.err.println("Message write rejected: " + e.getMessage());
+            if (rejectedMessage != null) {
+                showError("Too Busy", rejectedMessage + ": the database is busy, please try again.");
+            }
+        }
+    }
+    
+    // ========== BULK ACTIONS ==========
+    
+    @FXML
+    private void handleSelectAllMatching() {
+        selectedMessageIds.clear();
+        boolean all = selectAllMatchingCheck.isSelected();
+        for (javafx.scene.Node node : messagesContainer.lookupAll(".message-select")) {
+            CheckBox box = (CheckBox) node;
+            box.setSelected(all);
+            box.setDisable(all || bulkRunning);
+        }
+        updateSelectionSummary();
+    }
+    
+    @FXML
+    private void handleBulkMarkRead() {
+        int count = selectedCount();
+        if (count == 0 || bulkRunning || !confirmBulkAction("Mark " + count + " messages as read?",
+                "Only selected messages that are still unread will be changed; the rest are skipped.")) {
+            return;
+        }
+        runBulkAction("marked as read", databaseService::bulkMarkMessagesRead);
+    }
+    
+    @FXML
+    private void handleBulkReply() {
+        int count = selectedCount();
+        if (count == 0 || bulkRunning) {
             return;
         }
+        showBulkReplyDialog(count).ifPresent(reply ->
+            runBulkAction("replied to", (ids, onProgress) -> databaseService.bulkReplyToMessages(ids, reply, onProgress)));
+    }
+    
+    @FXML
+    private void handleBulkDelete() {
+        int count = selectedCount();
+        if (count == 0 || bulkRunning || !confirmBulkAction("Delete " + count + " messages?",
+                "Every selected message will be deleted. This action cannot be undone.")) {
+            return;
+        }
+        runBulkAction("deleted", databaseService::bulkDeleteMessages);
+    }
+    
+    private boolean confirmBulkAction(String header, String content) {
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Bulk Action");
+        confirm.setHeaderText(header);
+        confirm.setContentText(content);
+        return confirm.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK;
+    }
+    
+    // One reply for all selected messages, started from a canned text
+    private Optional<String> showBulkReplyDialog(int count) {
+        Dialog<String> dialog = new Dialog<>();
+        dialog.setTitle("Reply to Selected Messages");
+        dialog.setHeaderText("Send the same reply to " + count + " messages");
         
-        int totalMessages = allMessages.size();
-        long unreadCount = allMessages.stream()
-            .filter(msg -> msg.getStatus() != null && msg.getStatus().equals("UNREAD"))
-            .count();
+        VBox content = new VBox(10);
+        content.setPadding(new Insets(20));
         
-        Platform.runLater(() -> {
-            unreadCountLabel.setText(String.valueOf(unreadCount));
-            totalCountLabel.setText(String.valueOf(totalMessages));
-            
-            System.out.println("DEBUG: Statistics updated - Total: " + totalMessages + ", Unread: " + unreadCount);
+        ComboBox<String> cannedCombo = new ComboBox<>(FXCollections.observableArrayList(CANNED_REPLIES));
+        cannedCombo.setPromptText("Start from a canned reply");
+        cannedCombo.setMaxWidth(Double.MAX_VALUE);
+        
+        TextArea replyArea = new TextArea();
+        replyArea.setPromptText("Type your reply here...");
+        replyArea.setWrapText(true);
+        replyArea.setPrefRowCount(6);
+        cannedCombo.valueProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal != null) {
+                replyArea.setText(newVal);
+            }
         });
+        
+        Label note = new Label("Messages that already have a reply are skipped.");
+        note.setStyle("-fx-text-fill: #7f8c8d; -fx-font-size: 12px;");
+        
+        content.getChildren().addAll(cannedCombo, replyArea, note);
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().setPrefWidth(500);
+        
+        ButtonType sendButtonType = new ButtonType("Send Replies", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(sendButtonType, ButtonType.CANCEL);
+        dialog.getDialogPane().lookupButton(sendButtonType).setDisable(true);
+        replyArea.textProperty().addListener((obs, oldVal, newVal) ->
+            dialog.getDialogPane().lookupButton(sendButtonType).setDisable(newVal.trim().isEmpty()));
+        
+        dialog.setResultConverter(button -> button == sendButtonType ? replyArea.getText().trim() : null);
+        return dialog.showAndWait();
+    }
+    
+    private void clearSelection() {
+        selectedMessageIds.clear();
+        selectAllMatchingCheck.setSelected(false);
+        updateSelectionSummary();
+    }
+    
+    private int selectedCount() {
+        return selectAllMatchingCheck.isSelected() ? Math.max(matchingMessageCount, 0) : selectedMessageIds.size();
+    }
+    
+    private void updateSelectionSummary() {
+        int count = selectedCount();
+        selectionLabel.setText(count == 0 ? "No messages selected" : count + " messages selected");
+        selectAllMatchingCheck.setText(matchingMessageCount < 0
+            ? "Select all matching" : "Select all " + matchingMessageCount + " matching");
+        boolean disabled = count == 0 || bulkRunning;
+        bulkReadButton.setDisable(disabled);
+        bulkReplyButton.setDisable(disabled);
+        bulkDeleteButton.setDisable(disabled);
+        selectAllMatchingCheck.setDisable(bulkRunning);
+    }
+    
+    /**
+     * Apply a bulk action to the selected messages in one transaction,
+     * showing progress per batch, then reload the inbox.
+     */
+    private void runBulkAction(String verb,
+                               BiFunction<List<Integer>, BiConsumer<Integer, Integer>, BulkUpdateResult> action) {
+        boolean allMatching = selectAllMatchingCheck.isSelected();
+        List<Integer> chosen = new ArrayList<>(selectedMessageIds);
+        String status = statusFilterCombo != null ? statusFilterCombo.getSelectionModel().getSelectedItem() : null;
+        String searchTerm = searchField.getText() != null ? searchField.getText().trim() : "";
+        
+        bulkRunning = true;
+        updateSelectionSummary();
+        bulkProgress.setProgress(0);
+        bulkProgress.setVisible(true);
+        bulkProgressLabel.setText("Starting...");
+        
+        try {
+            TaskExecutor.getInstance().execute(TaskExecutor.Pool.DB_IO, () -> {
+                BulkUpdateResult result;
+                try {
+                    // "All matching" is resolved now, so messages beyond the loaded pages are included
+                    List<Integer> messageIds = allMatching ? databaseService.getMessageIds(status, searchTerm) : chosen;
+                    result = action.apply(messageIds, (done, total) -> Platform.runLater(() -> {
+                        bulkProgress.setProgress(done / (double) total);
+                        bulkProgressLabel.setText(done + " / " + total);
+                    }));
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    result = BulkUpdateResult.failed(chosen.size(), e.getMessage());
+                }
+                BulkUpdateResult outcome = result;
+                Platform.runLater(() -> finishBulkAction(verb, outcome));
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Bulk message action rejected: " + e.getMessage());
+            finishBulkAction(verb, BulkUpdateResult.failed(chosen.size(), "the database is busy, please try again"));
+        }
+    }
+    
+    // Re-enable the bulk controls and report the outcome; always called once per runBulkAction()
+    private void finishBulkAction(String verb, BulkUpdateResult result) {
+        bulkRunning = false;
+        bulkProgress.setVisible(false);
+        bulkProgressLabel.setText("");
+        
+        if (result.isSuccess()) {
+            clearSelection();
+            Alert done = new Alert(Alert.AlertType.INFORMATION);
+            done.setTitle("Bulk Action Complete");
+            done.setHeaderText(result.getUpdated() + " messages " + verb);
+            done.setContentText(result.getSkipped() == 0 ? "All selected messages were updated."
+                : result.getSkipped() + " messages were skipped because the action didn't apply to them.");
+            done.show();
+        } else {
+            updateSelectionSummary();
+            showError("Bulk Action Failed", "No messages were changed: " + result.getError());
+        }
+        
+        loadAllMessages(false);
+    }
+    
+    /** Count unread, total and matching messages in the background, then update the labels. */
+    private void updateStatistics(int generation, String status, String searchTerm) {
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                int unreadCount = databaseService.getUnreadMessageCount();
+                int totalMessages = databaseService.countMessages(null, null);
+                boolean filtered = (status != null && !"ALL".equalsIgnoreCase(status)) || !searchTerm.isEmpty();
+                int matching = filtered ? databaseService.countMessages(status, searchTerm) : totalMessages;
+                
+                Platform.runLater(() -> {
+                    unreadCountLabel.setText(String.valueOf(unreadCount));
+                    totalCountLabel.setText(String.valueOf(totalMessages));
+                    if (generation == queryGeneration) {
+                        matchingMessageCount = matching;
+                        updateSummary();
+                        updateSelectionSummary();
+                    }
+                    
+                    System.out.println("DEBUG: Statistics updated - Total: " + totalMessages + ", Unread: " + unreadCount);
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // The labels keep their last values until the next reload
+            System.err.println("Message statistics rejected: " + e.getMessage());
+        }
     }
     
     private void showLoadingState() {
@@ -947,6 +1298,7 @@ public class AdminMessagesController implements Initializable {
     
     @FXML
     private void handleFilter() {
+        clearSelection();
         applyFilters();
     }
     
@@ -11,16 +11,28 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.GridPane;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.util.Duration;
+import models.BulkUpdateResult;
+import models.ChangeEvent;
 import models.Order;
+import models.OrderChanges;
 import models.OrderItem;
+import models.OrderPage;
+import models.OrderSort;
+import models.OrderStatistics;
 import services.DatabaseService;
+import services.EventBus;
+import services.TaskExecutor;
+import utils.LatestQuery;
 
 import java.net.URL;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 public class AdminOrdersController implements Initializable {
     
@@ -34,9 +46,44 @@ public class AdminOrdersController implements Initializable {
     @FXML private ComboBox<String> statusFilterCombo;
     @FXML private ComboBox<String> sortCombo;
     @FXML private TextField searchField;
+    @FXML private ScrollPane ordersScrollPane;
+    
+    @FXML private CheckBox selectAllMatchingCheck;
+    @FXML private Label selectionLabel;
+    @FXML private ComboBox<String> bulkStatusCombo;
+    @FXML private Button bulkApplyButton;
+    @FXML private Button bulkShipButton;
+    @FXML private Button bulkCancelButton;
+    @FXML private ProgressBar bulkProgress;
+    @FXML private Label bulkProgressLabel;
+    
+    private static final int PAGE_SIZE = 50;
     
     private DatabaseService databaseService;
-    private List<Order> allOrders = new ArrayList<>();
+    
+    // Orders fetched so far for the current filters; more pages load on scroll
+    private final List<Order> loadedOrders = new ArrayList<>();
+    private OrderPage.Cursor nextCursor;
+    private boolean loadingPage;
+    private int matchingOrderCount;
+    // Bumped whenever the filters change so late results from an old query are dropped
+    private int queryGeneration;
+    // Reads for this screen; cancelled when its window closes
+    private final TaskExecutor.Group tasks = TaskExecutor.getInstance().newGroup();
+    // Typing waits this long for a pause before querying; older searches are cancelled
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(300);
+    private final LatestQuery<FirstPage> ordersQuery = new LatestQuery<>(tasks, TaskExecutor.Pool.DB_IO, SEARCH_DEBOUNCE);
+    
+    // orders.updated_at as of the last load; a refresh only asks for orders changed since
+    private Timestamp ordersWatermark;
+    // Card of each loaded order by order id, so a refresh can replace just the changed ones
+    private final Map<String, VBox> cardsByOrderId = new HashMap<>();
+    
+    // Orders ticked on their cards; "select all matching" selects every order matching the filters instead
+    private final Set<Integer> selectedOrderIds = new LinkedHashSet<>();
+    private boolean bulkRunning;
+    // Only orders that haven't shipped or been closed yet can be shipped or cancelled in bulk
+    private static final Set<String> OPEN_STATUSES = Set.of("PENDING", "PROCESSING");
     
     // Status options for dropdown
     private final ObservableList<String> statusOptions = FXCollections.observableArrayList(
@@ -49,17 +96,28 @@ public class AdminOrdersController implements Initializable {
         
         try {
             databaseService = new DatabaseService();
+            tasks.cancelWhenClosed(ordersContainer);
+            // New orders and status changes from any screen or app instance show up without a refresh
+            EventBus.Subscription orderEvents = EventBus.getInstance().subscribeOnFxThread(
+                    EnumSet.of(ChangeEvent.Type.ORDER_PLACED, ChangeEvent.Type.ORDER_STATUS_CHANGED),
+                    null, events -> refreshChangedOrders(false));
+            tasks.onClose(orderEvents::cancel);
             
             // Populate combo boxes
             statusFilterCombo.getItems().addAll("ALL", "PENDING", "PROCESSING", "SHIPPED", "DELIVERED", "CANCELLED");
-            sortCombo.getItems().addAll("Newest First", "Oldest First", "Total (High-Low)", "Total (Low-High)");
+            for (OrderSort sort : OrderSort.values()) {
+                sortCombo.getItems().add(sort.getLabel());
+            }
             
             // Set default selections
             statusFilterCombo.getSelectionModel().selectFirst();
             sortCombo.getSelectionModel().selectFirst();
+            bulkStatusCombo.setItems(statusOptions);
+            updateSelectionSummary();
             
             loadAllOrders();
             setupFilters();
+            setupLazyLoading();
         } catch (Exception e) {
             System.err.println("Failed to initialize: " + e.getMessage());
             e.printStackTrace();
@@ -79,105 +137,117 @@ public class AdminOrdersController implements Initializable {
         
         searchField.textProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal.isEmpty() || newVal.length() > 2) {
-                applyFilters();
+                applyFilters(true);
+            }
+        });
+        
+        ordersQuery.setOnError(e -> {
+            loadingPage = false;
+            showErrorInUI("Database Error", "Failed to load orders: " + e.getMessage());
+        });
+    }
+    
+    private void setupLazyLoading() {
+        // Fetch the next page when the admin scrolls near the bottom
+        ordersScrollPane.vvalueProperty().addListener((obs, oldVal, newVal) -> {
+            if (newVal.doubleValue() >= ordersScrollPane.getVmax() * 0.9) {
+                loadNextPage();
             }
         });
     }
     
     private void loadAllOrders() {
-        System.out.println("Loading all orders...");
+        System.out.println("Loading orders...");
         
         // Show loading
         showLoadingState();
         
-        // Load in background thread
-        new Thread(() -> {
-            try {
-                allOrders = databaseService.getAllOrders();
-                System.out.println("Loaded " + allOrders.size() + " orders from database");
-                
-                Platform.runLater(() -> {
-                    applyFilters();
-                    updateStatistics();
-                });
-                
-            } catch (Exception e) {
-                System.err.println("Error loading orders: " + e.getMessage());
-                e.printStackTrace();
-                
-                Platform.runLater(() -> {
-                    showErrorInUI("Database Error", "Failed to load orders: " + e.getMessage());
-                });
-            }
-        }).start();
+        updateStatistics();
+        applyFilters();
     }
     
+    /**
+     * Restart the order list from the first page using the current filters.
+     * Filtering, searching and sorting all happen in SQL.
+     */
     private void applyFilters() {
-        if (allOrders.isEmpty()) return;
-        
-        List<Order> filteredOrders = new ArrayList<>(allOrders);
-        
-        // Apply status filter
-        String selectedStatus = statusFilterCombo.getSelectionModel().getSelectedItem();
-        if (selectedStatus != null && !selectedStatus.equals("ALL")) {
-            filteredOrders = filteredOrders.stream()
-                .filter(order -> order.getStatus() != null && 
-                        order.getStatus().equalsIgnoreCase(selectedStatus))
-                .collect(Collectors.toList());
-        }
-        
-        // Apply search filter
-        String searchTerm = searchField.getText().trim().toLowerCase();
-        if (!searchTerm.isEmpty()) {
-            filteredOrders = filteredOrders.stream()
-                .filter(order -> 
-                    (order.getOrderId() != null && order.getOrderId().toLowerCase().contains(searchTerm)) ||
-                    (order.getCustomerName() != null && order.getCustomerName().toLowerCase().contains(searchTerm)) ||
-                    (order.getCustomerEmail() != null && order.getCustomerEmail().toLowerCase().contains(searchTerm))
-                )
-                .collect(Collectors.toList());
-        }
-        
-        // Apply sorting
-        String sortOption = sortCombo.getSelectionModel().getSelectedItem();
-        if (sortOption != null) {
-            switch (sortOption) {
-                case "Newest First":
-                    filteredOrders.sort((o1, o2) -> {
-                        Object d1 = o1.getOrderDate();
-                        Object d2 = o2.getOrderDate();
-                        if (d1 instanceof Timestamp && d2 instanceof Timestamp) {
-                            return ((Timestamp) d2).compareTo((Timestamp) d1);
-                        }
-                        return 0;
-                    });
-                    break;
-                case "Oldest First":
-                    filteredOrders.sort((o1, o2) -> {
-                        Object d1 = o1.getOrderDate();
-                        Object d2 = o2.getOrderDate();
-                        if (d1 instanceof Timestamp && d2 instanceof Timestamp) {
-                            return ((Timestamp) d1).compareTo((Timestamp) d2);
-                        }
-                        return 0;
-                    });
-                    break;
-                case "Total (High-Low)":
-                    filteredOrders.sort((o1, o2) -> 
-                        Double.compare(o2.getTotalAmount(), o1.getTotalAmount()));
-                    break;
-                case "Total (Low-High)":
-                    filteredOrders.sort((o1, o2) -> 
-                        Double.compare(o1.getTotalAmount(), o2.getTotalAmount()));
-                    break;
-            }
+        applyFilters(false);
+    }
+    
+    private void applyFilters(boolean debounce) {
+        // Also makes any next-page load of the previous filters drop its result
+        ++queryGeneration;
+        clearSelection();
+        loadedOrders.clear();
+        nextCursor = null;
+        loadingPage = true;
+        
+        String status = statusFilterCombo.getSelectionModel().getSelectedItem();
+        String searchTerm = searchField.getText() != null ? searchField.getText().trim() : "";
+        OrderSort sort = OrderSort.fromLabel(sortCombo.getSelectionModel().getSelectedItem());
+        
+        // Only the latest query's result is shown
+        Callable<FirstPage> query = () -> {
+            // Read before the page, so a change made meanwhile is picked up by the next refresh
+            Timestamp watermark = databaseService.getOrdersWatermark(null);
+            OrderPage page = databaseService.getOrdersPage(status, searchTerm, sort, null, PAGE_SIZE);
+            int matching = databaseService.countOrders(status, searchTerm);
+            System.out.println("Loaded " + page.getOrders().size() + " of " + matching + " orders from database");
+            return new FirstPage(page, matching, watermark);
+        };
+        Consumer<FirstPage> show = result -> {
+            loadingPage = false;
+            ordersWatermark = result.watermark;
+            matchingOrderCount = result.matching;
+            updateSelectionSummary();
+            loadedOrders.addAll(result.page.getOrders());
+            nextCursor = result.page.getNextCursor();
+            displayOrders(loadedOrders);
+            ordersScrollPane.setVvalue(0);
+        };
+        if (debounce) {
+            ordersQuery.submit(query, show);
+        } else {
+            ordersQuery.submitNow(query, show);
+        }
+    }
+    
+    private void loadNextPage() {
+        if (loadingPage || nextCursor == null) {
+            return;
         }
+        loadingPage = true;
+        
+        int generation = queryGeneration;
+        OrderPage.Cursor cursor = nextCursor;
+        String status = statusFilterCombo.getSelectionModel().getSelectedItem();
+        String searchTerm = searchField.getText() != null ? searchField.getText().trim() : "";
+        OrderSort sort = OrderSort.fromLabel(sortCombo.getSelectionModel().getSelectedItem());
         
-        displayOrders(filteredOrders);
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                OrderPage page = databaseService.getOrdersPage(status, searchTerm, sort, cursor, PAGE_SIZE);
+            
+                Platform.runLater(() -> {
+                    if (generation != queryGeneration) {
+                        return;
+                    }
+                    loadingPage = false;
+                    loadedOrders.addAll(page.getOrders());
+                    nextCursor = page.getNextCursor();
+                    appendOrderCards(page.getOrders());
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // DB pool is saturated; the next scroll to the end tries again
+            System.err.println("Next orders page rejected: " + e.getMessage());
+            loadingPage = false;
+        }
     }
     
     private void displayOrders(List<Order> orders) {
         ordersContainer.getChildren().clear();
+        cardsByOrderId.clear();
         
         if (orders.isEmpty()) {
             VBox noOrdersBox = new VBox(20);
@@ -204,17 +274,35 @@ public class AdminOrdersController implements Initializable {
             return;
         }
         
+        appendOrderCards(orders);
+    }
+    
+    private void appendOrderCards(List<Order> orders) {
+        // Drop the "load more" footer; it is re-added below if more pages remain
+        ordersContainer.getChildren().removeIf(node -> "loadMoreFooter".equals(node.getId()));
+        
         // Add each order
         for (Order order : orders) {
             try {
                 VBox orderCard = createOrderCard(order);
                 ordersContainer.getChildren().add(orderCard);
+                cardsByOrderId.put(order.getOrderId(), orderCard);
             } catch (Exception e) {
                 System.err.println("Error displaying order " + order.getOrderId() + ": " + e.getMessage());
             }
         }
         
-        summaryLabel.setText("Showing " + orders.size() + " of " + allOrders.size() + " orders");
+        if (nextCursor != null) {
+            // Fallback for when the first page doesn't fill the viewport and can't be scrolled
+            Button loadMore = new Button("Load more orders");
+            loadMore.setId("loadMoreFooter");
+            loadMore.setStyle("-fx-background-color: #ecf0f1; -fx-text-fill: #2c3e50; -fx-padding: 8 20;");
+            loadMore.setMaxWidth(Double.MAX_VALUE);
+            loadMore.setOnAction(e -> loadNextPage());
+            ordersContainer.getChildren().add(loadMore);
+        }
+        
+        summaryLabel.setText("Showing " + loadedOrders.size() + " of " + matchingOrderCount + " orders");
     }
     
     private VBox createOrderCard(Order order) {
@@ -265,7 +353,25 @@ public class AdminOrdersController implements Initializable {
                                          "-fx-background-color: %s20; -fx-background-radius: 10;", 
                                          statusColor, statusColor));
         
-        topRow.getChildren().addAll(orderIdLabel, spacer1, dateLabel, spacer2, statusLabel);
+        // Selection for bulk actions
+        CheckBox selectBox = new CheckBox();
+        selectBox.getStyleClass().add("order-select");
+        selectBox.setUserData(order.getId());
+        selectBox.setSelected(selectAllMatchingCheck.isSelected() || selectedOrderIds.contains(order.getId()));
+        selectBox.setDisable(selectAllMatchingCheck.isSelected() || bulkRunning);
+        selectBox.selectedProperty().addListener((obs, wasSelected, isSelected) -> {
+            if (selectAllMatchingCheck.isSelected()) {
+                return;
+            }
+            if (isSelected) {
+                selectedOrderIds.add(order.getId());
+            } else {
+                selectedOrderIds.remove(order.getId());
+            }
+            updateSelectionSummary();
+        });
+        
+        topRow.getChildren().addAll(selectBox, orderIdLabel, spacer1, dateLabel, spacer2, statusLabel);
         
         // Customer Info
         HBox customerRow = new HBox(10);
@@ -503,83 +609,222 @@ public class AdminOrdersController implements Initializable {
     private void updateOrderStatus(Order order, String newStatus, String notes) {
         System.out.println("Updating order " + order.getOrderId() + " to status: " + newStatus);
         
-        new Thread(() -> {
-            try {
-                // Use DatabaseService connection
-                String sql = "UPDATE orders SET status = ? WHERE order_id = ?";
-                try (PreparedStatement pstmt = databaseService.getConnection().prepareStatement(sql)) {
-                    pstmt.setString(1, newStatus);
-                    pstmt.setString(2, order.getOrderId());
-                    int rowsUpdated = pstmt.executeUpdate();
-                    
-                    if (rowsUpdated > 0) {
-                        // Update local order object
-                        order.setStatus(newStatus);
-                        
-                        Platform.runLater(() -> {
-                            // Show success message
-                            Alert success = new Alert(Alert.AlertType.INFORMATION);
-                            success.setTitle("Success");
-                            success.setHeaderText("Status Updated");
-                            success.setContentText("Order " + order.getOrderId() + " status changed to: " + newStatus);
-                            success.show();
-                            
-                            // Refresh the display
-                            applyFilters();
-                            updateStatistics();
-                        });
-                    } else {
-                        Platform.runLater(() -> {
-                            Alert error = new Alert(Alert.AlertType.ERROR);
-                            error.setTitle("Update Failed");
-                            error.setHeaderText("Could not update order status");
-                            error.setContentText("No rows were affected. Order might not exist.");
-                            error.show();
-                        });
-                    }
-                }
+        // Status plus tracking row, written by the shared write-behind queue
+        databaseService.queueOrderStatus(order.getId(), newStatus, notes).thenAccept(updated -> Platform.runLater(() -> {
+            if (updated) {
+                // Update local order object
+                order.setStatus(newStatus);
                 
-            } catch (SQLException e) {
-                System.err.println("Error updating status: " + e.getMessage());
-                e.printStackTrace();
+                // Show success message
+                Alert success = new Alert(Alert.AlertType.INFORMATION);
+                success.setTitle("Success");
+                success.setHeaderText("Status Updated");
+                success.setContentText("Order " + order.getOrderId() + " status changed to: " + newStatus);
+                success.show();
                 
-                Platform.runLater(() -> {
-                    Alert error = new Alert(Alert.AlertType.ERROR);
-                    error.setTitle("Update Failed");
-                    error.setHeaderText("Could not update order status");
-                    error.setContentText("Database error: " + e.getMessage());
-                    error.show();
-                });
+                // Only this card changes; the status change event brings in anything else
+                showUpdatedOrder(order);
+                updateStatistics();
+            } else {
+                Alert error = new Alert(Alert.AlertType.ERROR);
+                error.setTitle("Update Failed");
+                error.setHeaderText("Could not update order status");
+                error.setContentText("The order might not exist, or the database could not be reached.");
+                error.show();
             }
-        }).start();
+        }));
     }
     
-    private void updateStatistics() {
-        if (allOrders.isEmpty()) {
-            totalOrdersLabel.setText("0");
-            totalRevenueLabel.setText("USD 0.00");
-            processingLabel.setText("0");
-            pendingLabel.setText("0");
+    /**
+     * Redraw one order's card after its status changed here, or drop it if it
+     * no longer matches the status filter. The status isn't a sort column, so
+     * the order keeps its position.
+     */
+    private void showUpdatedOrder(Order order) {
+        int index = indexOfLoaded(order.getOrderId());
+        if (index < 0) {
             return;
         }
+        VBox oldCard = cardsByOrderId.remove(order.getOrderId());
+        int childIndex = oldCard == null ? -1 : ordersContainer.getChildren().indexOf(oldCard);
+        if (childIndex >= 0) {
+            ordersContainer.getChildren().remove(childIndex);
+        }
         
-        int totalOrders = allOrders.size();
-        double totalRevenue = allOrders.stream().mapToDouble(Order::getTotalAmount).sum();
+        String status = statusFilterCombo.getSelectionModel().getSelectedItem();
+        String searchTerm = searchField.getText() != null ? searchField.getText().trim().toLowerCase() : "";
+        if (matchesFilters(order, status, searchTerm)) {
+            if (childIndex >= 0) {
+                VBox card = createOrderCard(order);
+                cardsByOrderId.put(order.getOrderId(), card);
+                ordersContainer.getChildren().add(childIndex, card);
+            } else {
+                insertCard(order, index);
+            }
+        } else {
+            loadedOrders.remove(index);
+            selectedOrderIds.remove(order.getId());
+            matchingOrderCount = Math.max(0, matchingOrderCount - 1);
+            if (loadedOrders.isEmpty()) {
+                displayOrders(loadedOrders);
+            } else {
+                summaryLabel.setText("Showing " + loadedOrders.size() + " of " + matchingOrderCount + " orders");
+            }
+        }
+        updateSelectionSummary();
+    }
+    
+    // ========== BULK ACTIONS ==========
+    
+    @FXML
+    private void handleSelectAllMatching() {
+        selectedOrderIds.clear();
+        boolean all = selectAllMatchingCheck.isSelected();
+        for (javafx.scene.Node node : ordersContainer.lookupAll(".order-select")) {
+            CheckBox box = (CheckBox) node;
+            box.setSelected(all);
+            box.setDisable(all || bulkRunning);
+        }
+        updateSelectionSummary();
+    }
+    
+    @FXML
+    private void handleBulkStatusChange() {
+        String status = bulkStatusCombo.getValue();
+        if (status == null) {
+            showErrorDialog("No Status Selected", "Choose the new status for the selected orders first.");
+            return;
+        }
+        runBulkAction(status, null, "Status changed in bulk by admin");
+    }
+    
+    @FXML
+    private void handleBulkMarkShipped() {
+        runBulkAction("SHIPPED", OPEN_STATUSES, "Marked shipped in bulk by admin");
+    }
+    
+    @FXML
+    private void handleBulkCancel() {
+        runBulkAction("CANCELLED", OPEN_STATUSES, "Cancelled in bulk by admin");
+    }
+    
+    private void clearSelection() {
+        selectedOrderIds.clear();
+        selectAllMatchingCheck.setSelected(false);
+        updateSelectionSummary();
+    }
+    
+    private int selectedCount() {
+        return selectAllMatchingCheck.isSelected() ? matchingOrderCount : selectedOrderIds.size();
+    }
+    
+    private void updateSelectionSummary() {
+        int count = selectedCount();
+        selectionLabel.setText(count == 0 ? "No orders selected" : count + " orders selected");
+        selectAllMatchingCheck.setText("Select all " + matchingOrderCount + " matching");
+        boolean disabled = count == 0 || bulkRunning;
+        bulkApplyButton.setDisable(disabled);
+        bulkShipButton.setDisable(disabled);
+        bulkCancelButton.setDisable(disabled);
+        selectAllMatchingCheck.setDisable(bulkRunning);
+    }
+    
+    /**
+     * Change the status of the selected orders in one transaction, showing
+     * progress per batch. With allowedFrom set, orders in other statuses are
+     * skipped rather than changed.
+     */
+    private void runBulkAction(String status, Set<String> allowedFrom, String notes) {
+        int count = selectedCount();
+        if (count == 0 || bulkRunning) {
+            return;
+        }
         
-        long processingCount = allOrders.stream()
-            .filter(o -> o.getStatus() != null && "PROCESSING".equalsIgnoreCase(o.getStatus()))
-            .count();
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Bulk Status Change");
+        confirm.setHeaderText("Set " + count + " orders to " + status + "?");
+        confirm.setContentText(allowedFrom == null
+            ? "Every selected order will be changed."
+            : "Only selected orders that are still " + String.join(" or ", new TreeSet<>(allowedFrom)) +
+              " will be changed; the rest are skipped.");
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
         
-        long pendingCount = allOrders.stream()
-            .filter(o -> o.getStatus() != null && "PENDING".equalsIgnoreCase(o.getStatus()))
-            .count();
+        boolean allMatching = selectAllMatchingCheck.isSelected();
+        List<Integer> chosen = new ArrayList<>(selectedOrderIds);
+        String filterStatus = statusFilterCombo.getSelectionModel().getSelectedItem();
+        String searchTerm = searchField.getText() != null ? searchField.getText().trim() : "";
         
-        Platform.runLater(() -> {
-            totalOrdersLabel.setText(String.valueOf(totalOrders));
-            totalRevenueLabel.setText(String.format("USD %.2f", totalRevenue));
-            processingLabel.setText(String.valueOf(processingCount));
-            pendingLabel.setText(String.valueOf(pendingCount));
-        });
+        bulkRunning = true;
+        updateSelectionSummary();
+        bulkProgress.setProgress(0);
+        bulkProgress.setVisible(true);
+        bulkProgressLabel.setText("Starting...");
+        
+        try {
+            TaskExecutor.getInstance().execute(TaskExecutor.Pool.DB_IO, () -> {
+                BulkUpdateResult result;
+                try {
+                    // "All matching" is resolved now, so orders beyond the loaded pages are included
+                    List<Integer> orderIds = allMatching ? databaseService.getOrderIds(filterStatus, searchTerm) : chosen;
+                    result = databaseService.bulkUpdateOrderStatus(orderIds, status, notes, allowedFrom,
+                        (done, total) -> Platform.runLater(() -> {
+                            bulkProgress.setProgress(done / (double) total);
+                            bulkProgressLabel.setText(done + " / " + total);
+                        }));
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    result = BulkUpdateResult.failed(chosen.size(), e.getMessage());
+                }
+                BulkUpdateResult outcome = result;
+                Platform.runLater(() -> finishBulkAction(status, outcome));
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Bulk status change rejected: " + e.getMessage());
+            finishBulkAction(status, BulkUpdateResult.failed(chosen.size(), "the database is busy, please try again"));
+        }
+    }
+    
+    // Re-enable the bulk controls and report the outcome; always called once per runBulkAction()
+    private void finishBulkAction(String status, BulkUpdateResult result) {
+        bulkRunning = false;
+        bulkProgress.setVisible(false);
+        bulkProgressLabel.setText("");
+        
+        if (result.isSuccess()) {
+            Alert done = new Alert(Alert.AlertType.INFORMATION);
+            done.setTitle("Bulk Update Complete");
+            done.setHeaderText(result.getUpdated() + " orders set to " + status);
+            done.setContentText(result.getSkipped() == 0 ? "All selected orders were updated."
+                : result.getSkipped() + " orders were skipped because their status didn't allow the change.");
+            done.show();
+        } else {
+            updateSelectionSummary();
+            showErrorDialog("Bulk Update Failed", "No orders were changed: " + result.getError());
+        }
+        
+        applyFilters();
+        updateStatistics();
+    }
+    
+    private void updateStatistics() {
+        // Aggregated in SQL so the cards don't depend on how many pages are loaded
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                OrderStatistics stats = databaseService.getOrderStatistics();
+                
+                Platform.runLater(() -> {
+                    totalOrdersLabel.setText(String.valueOf(stats.getTotalOrders()));
+                    totalRevenueLabel.setText(String.format("USD %.2f", stats.getTotalRevenue()));
+                    processingLabel.setText(String.valueOf(stats.getProcessingCount()));
+                    pendingLabel.setText(String.valueOf(stats.getPendingCount()));
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // The cards keep their last values until the next reload
+            System.err.println("Order statistics rejected: " + e.getMessage());
+        }
     }
     
     private void showLoadingState() {
@@ -636,15 +881,182 @@ public class AdminOrdersController implements Initializable {
     
     @FXML
     private void handleRefresh() {
-        loadAllOrders();
+        refreshChangedOrders(true);
+    }
+    
+    /**
+     * Merge orders created or changed since the last load into the list,
+     * replacing only their cards, so a refresh costs as much as the number
+     * of changes rather than the number of orders. Falls back to a full
+     * reload while the first page is still loading or when too many orders
+     * changed. A refresh that isn't announced (one started by a change
+     * event) leaves a load or bulk change in progress alone, since that
+     * picks the change up anyway, and reports nothing.
+     */
+    private void refreshChangedOrders(boolean announce) {
+        Timestamp watermark = ordersWatermark;
+        if (!announce && (watermark == null || loadingPage || bulkRunning)) {
+            return;
+        }
+        if (watermark == null || loadingPage) {
+            loadAllOrders();
+            return;
+        }
         
-        Platform.runLater(() -> {
-            Alert info = new Alert(Alert.AlertType.INFORMATION);
-            info.setTitle("Refreshed");
-            info.setHeaderText(null);
-            info.setContentText("Orders list has been refreshed");
-            info.show();
-        });
+        int generation = queryGeneration;
+        String status = statusFilterCombo.getSelectionModel().getSelectedItem();
+        String searchTerm = searchField.getText() != null ? searchField.getText().trim() : "";
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                OrderChanges changes = databaseService.getOrderChangesSince(watermark);
+                // Only recount when something changed
+                int matching = changes != null && !changes.getOrders().isEmpty()
+                    ? databaseService.countOrders(status, searchTerm) : matchingOrderCount;
+                
+                Platform.runLater(() -> {
+                    if (generation != queryGeneration) {
+                        return;  // the filters changed meanwhile and the list was reloaded anyway
+                    }
+                    if (changes == null) {
+                        if (announce) {
+                            showErrorDialog("Refresh Failed", "Could not check for changed orders.");
+                        }
+                        return;
+                    }
+                    if (changes.isTruncated()) {
+                        loadAllOrders();
+                        return;
+                    }
+                    ordersWatermark = changes.getWatermark();
+                    matchingOrderCount = matching;
+                    int merged = mergeChangedOrders(changes.getOrders());
+                    if (merged > 0) {
+                        updateStatistics();
+                    }
+                    if (!announce) {
+                        return;
+                    }
+                    
+                    Alert info = new Alert(Alert.AlertType.INFORMATION);
+                    info.setTitle("Refreshed");
+                    info.setHeaderText(null);
+                    info.setContentText(merged == 0 ? "No orders have changed" : merged + " orders updated");
+                    info.show();
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // Not retried here; the next change event or refresh checks again
+            System.err.println("Order refresh rejected: " + e.getMessage());
+            if (announce) {
+                showErrorDialog("Refresh Failed", "The database is busy, please try again.");
+            }
+        }
+    }
+    
+    /** Apply changed orders to the loaded list; returns how many affected it. */
+    private int mergeChangedOrders(List<Order> changed) {
+        String status = statusFilterCombo.getSelectionModel().getSelectedItem();
+        String searchTerm = searchField.getText() != null ? searchField.getText().trim().toLowerCase() : "";
+        Comparator<Order> listOrder = OrderSort.fromLabel(sortCombo.getSelectionModel().getSelectedItem()).comparator();
+        boolean wasEmpty = loadedOrders.isEmpty();
+        int merged = 0;
+        
+        for (Order order : changed) {
+            boolean matches = matchesFilters(order, status, searchTerm);
+            int index = indexOfLoaded(order.getOrderId());
+            if (index >= 0) {
+                Timestamp shownVersion = loadedOrders.get(index).getUpdatedAt();
+                if (shownVersion != null && order.getUpdatedAt() != null && !order.getUpdatedAt().after(shownVersion)) {
+                    continue;  // re-read from the overlap window, unchanged since it was loaded
+                }
+                loadedOrders.remove(index);
+                VBox oldCard = cardsByOrderId.remove(order.getOrderId());
+                if (oldCard != null) {
+                    ordersContainer.getChildren().remove(oldCard);
+                }
+                merged++;
+                if (!matches) {
+                    // e.g. its status changed away from the status filter
+                    selectedOrderIds.remove(order.getId());
+                    continue;
+                }
+            } else if (matches) {
+                merged++;
+            } else {
+                continue;
+            }
+            
+            int position = 0;
+            while (position < loadedOrders.size() && listOrder.compare(loadedOrders.get(position), order) < 0) {
+                position++;
+            }
+            if (position == loadedOrders.size() && nextCursor != null) {
+                continue;  // sorts after the loaded pages; it arrives with a later page
+            }
+            loadedOrders.add(position, order);
+            if (!wasEmpty) {
+                insertCard(order, position);
+            }
+        }
+        
+        if (merged > 0) {
+            if (wasEmpty || loadedOrders.isEmpty()) {
+                // Switch between the "no orders" placeholder and cards
+                displayOrders(loadedOrders);
+            } else {
+                summaryLabel.setText("Showing " + loadedOrders.size() + " of " + matchingOrderCount + " orders");
+            }
+            updateSelectionSummary();
+        }
+        return merged;
+    }
+    
+    private void insertCard(Order order, int position) {
+        VBox card = createOrderCard(order);
+        cardsByOrderId.put(order.getOrderId(), card);
+        
+        // Before the card of the next loaded order, else before the "load more" footer
+        int childIndex = ordersContainer.getChildren().size();
+        if (position + 1 < loadedOrders.size()) {
+            VBox next = cardsByOrderId.get(loadedOrders.get(position + 1).getOrderId());
+            if (next != null) {
+                childIndex = ordersContainer.getChildren().indexOf(next);
+            }
+        } else {
+            for (int i = 0; i < ordersContainer.getChildren().size(); i++) {
+                if ("loadMoreFooter".equals(ordersContainer.getChildren().get(i).getId())) {
+                    childIndex = i;
+                    break;
+                }
+            }
+        }
+        ordersContainer.getChildren().add(childIndex, card);
+    }
+    
+    private int indexOfLoaded(String orderId) {
+        for (int i = 0; i < loadedOrders.size(); i++) {
+            if (loadedOrders.get(i).getOrderId().equals(orderId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // The same filters as DatabaseService.getOrdersPage(), applied to one order
+    private static boolean matchesFilters(Order order, String status, String searchTerm) {
+        if (status != null && !status.isEmpty() && !"ALL".equalsIgnoreCase(status) &&
+            !status.equalsIgnoreCase(order.getStatus())) {
+            return false;
+        }
+        if (searchTerm.isEmpty()) {
+            return true;
+        }
+        return contains(order.getOrderId(), searchTerm) || contains(order.getCustomerName(), searchTerm) ||
+               contains(order.getCustomerEmail(), searchTerm);
+    }
+    
+    private static boolean contains(String value, String lowerCaseTerm) {
+        return value != null && value.toLowerCase().contains(lowerCaseTerm);
     }
     
     @FXML
@@ -670,4 +1082,17 @@ public class AdminOrdersController implements Initializable {
             databaseService.close();
         }
     }
-}
\ No newline at end of file
+    
+    /** First page of a filter query, how many orders match in total, and the watermark before it. */
+    private static final class FirstPage {
+        final OrderPage page;
+        final int matching;
+        final Timestamp watermark;
+        
+        FirstPage(OrderPage page, int matching, Timestamp watermark) {
+            this.page = page;
+            this.matching = matching;
+            this.watermark = watermark;
+        }
+    }
+}
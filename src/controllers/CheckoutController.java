@@ -7,9 +7,12 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.GridPane;
 import javafx.geometry.Insets;
 import models.CartItem;
+import services.CheckoutAttempt;
 import services.DatabaseService;
+import services.OrderIdGenerator;
 import models.Order;
 import models.OrderItem;
+import models.OrderPlacementResult;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -29,6 +32,8 @@ public class CheckoutController {
     private int currentCustomerId;
     private String currentCustomerName;
     private DatabaseService databaseService;
+    // One attempt per checkout window: resubmitting it returns the order already placed
+    private final CheckoutAttempt checkoutAttempt = new CheckoutAttempt();
     
     @FXML
     public void initialize() {
@@ -96,7 +101,7 @@ public class CheckoutController {
         
         try {
             // Generate order ID
-            String orderId = "ORD-" + System.currentTimeMillis();
+            String orderId = OrderIdGenerator.getInstance().nextOrderId();
             
             // Create order
             Order order = new Order();
@@ -109,6 +114,7 @@ public class CheckoutController {
             order.setCurrency("USD");
             order.setPaymentMethod(paymentMethod);
             order.setStatus("Processing");
+            order.setIdempotencyKey(checkoutAttempt.keyFor(currentCustomerId, cartItems));
             
             // Create order items
             List<OrderItem> orderItems = new ArrayList<>();
@@ -123,13 +129,17 @@ public class CheckoutController {
                 orderItems.add(orderItem);
             }
             
-            // Save to database
-            boolean success = databaseService.saveOrder(order, orderItems);
+            // Reserve stock and save the order in one transaction
+            OrderPlacementResult result = databaseService.placeOrder(order, orderItems);
             
-            if (success) {
-                // Show success message
-                showSuccessAlert(orderId);
+            if (result.isPlaced()) {
+                // Show success message (the original order's id if this was a repeated submit)
+                showSuccessAlert(result.getOrderId());
                 return true;
+            } else if (result.getStatus() == OrderPlacementResult.Status.OUT_OF_STOCK) {
+                errorLabel.setText(result.getMessage() + ". Please update your cart.");
+                errorLabel.setVisible(true);
+                return false;
             } else {
                 errorLabel.setText("Failed to save order. Please try again.");
                 errorLabel.setVisible(true);
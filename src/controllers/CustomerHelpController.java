@@ -1,33 +1,63 @@
 package controllers;
 
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
+import javafx.scene.Node;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.scene.layout.HBox;
 import javafx.geometry.Insets;
 import javafx.geometry.Pos;
+import javafx.util.Duration;
+import models.ChangeEvent;
 import models.Message;
+import models.MessageThread;
+import models.ThreadPage;
 import services.DatabaseService;
+import services.EventBus;
+import services.TaskExecutor;
 
 import java.net.URL;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.RejectedExecutionException;
 
 public class CustomerHelpController implements Initializable {
+    // Messages shown when a conversation opens; older ones load on request
+    private static final int THREAD_PAGE_SIZE = 30;
+    private static final int THREAD_LIST_LIMIT = 20;
+    private static final DateTimeFormatter THREAD_DATE_FORMAT = DateTimeFormatter.ofPattern("MMM d, HH:mm");
     
     @FXML private Label customerInfoLabel;
     @FXML private Label statusLabel;
     @FXML private TextArea messageInput;
     @FXML private VBox messagesContainer;
+    @FXML private ScrollPane messagesScrollPane;
+    @FXML private ComboBox<MessageThread> threadChoice;
     
     private DatabaseService databaseService;
     private int customerId;
     private String customerName;
     private String customerEmail;
+
+    // Reads for this screen; cancelled when its window closes
+    private final TaskExecutor.Group tasks = TaskExecutor.getInstance().newGroup();
+    // Admin replies to this customer, from any app instance
+    private EventBus.Subscription replyEvents;
+    
+    // Conversation being shown, or NEW_THREAD while the customer starts one
+    private int currentThreadId = DatabaseService.NEW_THREAD;
+    private ThreadPage.Cursor olderCursor;
+    private Button loadEarlierButton;
+    // Bumped whenever another conversation is opened, so late pages are dropped
+    private int threadGeneration;
+    private boolean updatingThreadChoice;
     
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -35,6 +65,9 @@ public class CustomerHelpController implements Initializable {
         
         try {
             databaseService = new DatabaseService();
+            tasks.cancelWhenClosed(messagesContainer);
+            tasks.onClose(this::stopWatchingReplies);
+            setupThreadChoice();
         } catch (Exception e) {
             System.err.println("Failed to initialize: " + e.getMessage());
             e.printStackTrace();
@@ -48,43 +81,186 @@ public class CustomerHelpController implements Initializable {
         
         customerInfoLabel.setText("Customer: " + customerName);
         
-        // Load all messages
-        loadMessages();
+        // Open the latest conversation, and refresh it whenever an admin replies
+        watchReplies();
+        loadThreads(DatabaseService.NEW_THREAD);
+    }
+    
+    private void setupThreadChoice() {
+        threadChoice.setCellFactory(list -> new ThreadCell());
+        threadChoice.setButtonCell(new ThreadCell());
+        threadChoice.getSelectionModel().selectedItemProperty().addListener((obs, oldThread, thread) -> {
+            if (!updatingThreadChoice && thread != null) {
+                openThread(thread.getId());
+            }
+        });
+    }
+    
+    private void watchReplies() {
+        stopWatchingReplies();
+        replyEvents = EventBus.getInstance().subscribeOnFxThread(
+                EnumSet.of(ChangeEvent.Type.MESSAGE_REPLIED, ChangeEvent.Type.MESSAGE_DELETED), customerId,
+                events -> loadMessages());
+    }
+    
+    private void stopWatchingReplies() {
+        if (replyEvents != null) {
+            replyEvents.cancel();
+            replyEvents = null;
+        }
     }
     
+    // Reload the conversation list and the open conversation's newest messages
     private void loadMessages() {
-        new Thread(() -> {
-            try {
-                List<Message> messages = databaseService.getCustomerMessages(customerId);
-                
+        loadThreads(currentThreadId);
+    }
+    
+    /**
+     * Load the conversation summaries, then open selectThreadId if it is
+     * among them, else the most recently active one.
+     */
+    private void loadThreads(int selectThreadId) {
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                List<MessageThread> threads = databaseService.getCustomerThreads(customerId, THREAD_LIST_LIMIT);
                 Platform.runLater(() -> {
-                    messagesContainer.getChildren().clear();
+                    MessageThread selected = threads.isEmpty() ? null : threads.get(0);
+                    for (MessageThread thread : threads) {
+                        if (thread.getId() == selectThreadId) {
+                            selected = thread;
+                        }
+                    }
+                    
+                    updatingThreadChoice = true;
+                    try {
+                        threadChoice.getItems().setAll(threads);
+                        threadChoice.getSelectionModel().select(selected);
+                    } finally {
+                        updatingThreadChoice = false;
+                    }
                     
-                    if (messages.isEmpty()) {
-                        // Show empty state
+                    if (selected == null) {
+                        startNewThread();
+                    } else {
+                        openThread(selected.getId());
+                    }
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Conversation list load rejected: " + e.getMessage());
+            showStatus("Too busy to load your messages, please try again", "red");
+        }
+    }
+    
+    private void openThread(int threadId) {
+        currentThreadId = threadId;
+        int generation = ++threadGeneration;
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                ThreadPage page = databaseService.getThreadMessages(customerId, threadId, null, THREAD_PAGE_SIZE);
+                Platform.runLater(() -> {
+                    if (generation != threadGeneration) {
+                        return;
+                    }
+                    messagesContainer.getChildren().clear();
+                    olderCursor = page.getOlderCursor();
+                    if (page.getMessages().isEmpty()) {
                         showEmptyState();
                         return;
                     }
-                    
-                    // Display all messages
-                    for (Message msg : messages) {
-                        // Show customer message
-                        showCustomerMessage(msg);
-                        
-                        // Show admin reply if exists
-                        if (msg.hasReply()) {
-                            showAdminReply(msg);
-                        }
+                    if (page.hasOlder()) {
+                        messagesContainer.getChildren().add(loadEarlierButton());
                     }
+                    messagesContainer.getChildren().addAll(messageRows(page.getMessages()));
+                    scrollToBottom();
                 });
-                
-            } catch (Exception e) {
-                e.printStackTrace();
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Conversation load rejected: " + e.getMessage());
+            showStatus("Too busy to load this conversation, please try again", "red");
+        }
+    }
+    
+    @FXML
+    private void handleNewConversation() {
+        updatingThreadChoice = true;
+        try {
+            threadChoice.getSelectionModel().clearSelection();
+        } finally {
+            updatingThreadChoice = false;
+        }
+        startNewThread();
+        messageInput.requestFocus();
+    }
+    
+    private void startNewThread() {
+        currentThreadId = DatabaseService.NEW_THREAD;
+        threadGeneration++;
+        olderCursor = null;
+        messagesContainer.getChildren().clear();
+        showEmptyState();
+    }
+    
+    // Prepend the page of messages before the oldest one shown
+    private void loadEarlierMessages() {
+        if (olderCursor == null) {
+            return;
+        }
+        int threadId = currentThreadId;
+        int generation = threadGeneration;
+        ThreadPage.Cursor before = olderCursor;
+        loadEarlierButton.setDisable(true);
+        loadEarlierButton.setText("Loading...");
+        
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                ThreadPage page = databaseService.getThreadMessages(customerId, threadId, before, THREAD_PAGE_SIZE);
                 Platform.runLater(() -> {
-                    showError("Error loading messages", e.getMessage());
+                    if (generation != threadGeneration) {
+                        return;
+                    }
+                    olderCursor = page.getOlderCursor();
+                    messagesContainer.getChildren().remove(loadEarlierButton);
+                    messagesContainer.getChildren().addAll(0, messageRows(page.getMessages()));
+                    if (page.hasOlder()) {
+                        messagesContainer.getChildren().add(0, loadEarlierButton());
+                    }
                 });
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Earlier messages load rejected: " + e.getMessage());
+            loadEarlierButton.setText("Load earlier messages");
+            loadEarlierButton.setDisable(false);
+        }
+    }
+    
+    private Button loadEarlierButton() {
+        if (loadEarlierButton == null) {
+            loadEarlierButton = new Button();
+            loadEarlierButton.setMaxWidth(Double.MAX_VALUE);
+            loadEarlierButton.setStyle("-fx-background-color: transparent; -fx-text-fill: #0084ff; -fx-cursor: hand;");
+            loadEarlierButton.setOnAction(event -> loadEarlierMessages());
+        }
+        loadEarlierButton.setText("Load earlier messages");
+        loadEarlierButton.setDisable(false);
+        return loadEarlierButton;
+    }
+    
+    private List<Node> messageRows(List<Message> messages) {
+        List<Node> rows = new ArrayList<>();
+        for (Message msg : messages) {
+            // Customer message, then the admin reply if there is one
+            rows.add(customerMessageRow(msg));
+            if (msg.hasReply()) {
+                rows.add(adminReplyRow(msg));
             }
-        }).start();
+        }
+        return rows;
+    }
+    
+    private void scrollToBottom() {
+        // After layout, so the new rows count towards the content height
+        Platform.runLater(() -> messagesScrollPane.setVvalue(1.0));
     }
     
     private void showEmptyState() {
@@ -105,7 +281,7 @@ public class CustomerHelpController implements Initializable {
         messagesContainer.getChildren().add(emptyBox);
     }
     
-    private void showCustomerMessage(Message msg) {
+    private HBox customerMessageRow(Message msg) {
         HBox messageRow = new HBox();
         messageRow.setAlignment(Pos.CENTER_RIGHT);
         messageRow.setPadding(new Insets(5, 0, 5, 0));
@@ -123,7 +299,8 @@ public class CustomerHelpController implements Initializable {
         HBox footer = new HBox(10);
         footer.setAlignment(Pos.CENTER_RIGHT);
         
-        String timeStr = msg.getCreatedAt().format(DateTimeFormatter.ofPattern("HH:mm"));
+        String timeStr = msg.getCreatedAt() != null
+                ? msg.getCreatedAt().format(DateTimeFormatter.ofPattern("HH:mm")) : "";
         Label timeLabel = new Label(timeStr);
         timeLabel.setStyle("-fx-text-fill: rgba(255,255,255,0.8); -fx-font-size: 11px;");
         
@@ -144,10 +321,10 @@ public class CustomerHelpController implements Initializable {
         messageBubble.getChildren().addAll(messageText, footer);
         messageRow.getChildren().add(messageBubble);
         
-        messagesContainer.getChildren().add(messageRow);
+        return messageRow;
     }
     
-    private void showAdminReply(Message msg) {
+    private HBox adminReplyRow(Message msg) {
         HBox messageRow = new HBox();
         messageRow.setAlignment(Pos.CENTER_LEFT);
         messageRow.setPadding(new Insets(5, 0, 5, 0));
@@ -183,7 +360,7 @@ public class CustomerHelpController implements Initializable {
         messageBubble.getChildren().addAll(header, replyText, timeLabel);
         messageRow.getChildren().add(messageBubble);
         
-        messagesContainer.getChildren().add(messageRow);
+        return messageRow;
     }
     
     @FXML
@@ -195,35 +372,53 @@ public class CustomerHelpController implements Initializable {
             return;
         }
         
+        // A new conversation is titled after the start of its first message
+        int threadId = currentThreadId;
+        MessageThread thread = threadChoice.getSelectionModel().getSelectedItem();
+        String subject = threadId != DatabaseService.NEW_THREAD && thread != null
+                ? thread.getSubject() : conversationTitle(message);
+        
         // Clear input immediately
         messageInput.clear();
         showStatus("Sending...", "blue");
         
         // Save to database
-        new Thread(() -> {
-            try {
-                boolean success = databaseService.saveCustomerMessage(
-                    customerId, customerName, customerEmail, 
-                    "Support Request", message
-                );
-                
-                Platform.runLater(() -> {
-                    if (success) {
-                        showStatus("Message sent!", "green");
-                        // Reload messages to show the new one
-                        loadMessages();
-                    } else {
-                        showStatus("Failed to send", "red");
-                    }
-                });
-                
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    showStatus("Error: " + e.getMessage(), "red");
-                    e.printStackTrace();
-                });
-            }
-        }).start();
+        try {
+            TaskExecutor.getInstance().execute(TaskExecutor.Pool.DB_IO, () -> {
+                try {
+                    boolean success = databaseService.saveCustomerMessage(
+                        customerId, customerName, customerEmail, 
+                        subject, message, threadId
+                    );
+                    
+                    Platform.runLater(() -> {
+                        if (success) {
+                            showStatus("Message sent!", "green");
+                            // Reload to show the new one; a new conversation is now the most recent
+                            loadThreads(threadId);
+                        } else {
+                            showStatus("Failed to send", "red");
+                        }
+                    });
+                    
+                } catch (Exception e) {
+                    Platform.runLater(() -> {
+                        showStatus("Error: " + e.getMessage(), "red");
+                        e.printStackTrace();
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Nothing was sent; give the customer their text back
+            System.err.println("Message send rejected: " + e.getMessage());
+            messageInput.setText(message);
+            showStatus("Too busy to send right now, please try again", "red");
+        }
+    }
+    
+    private static String conversationTitle(String message) {
+        String firstLine = message.split("\\R", 2)[0].trim();
+        return firstLine.length() > 60 ? firstLine.substring(0, 57) + "..." : firstLine;
     }
     
     private void showStatus(String text, String color) {
@@ -245,18 +440,28 @@ public class CustomerHelpController implements Initializable {
         }
         
         // Clear after 3 seconds
-        new Thread(() -> {
-            try {
-                Thread.sleep(3000);
-                Platform.runLater(() -> {
-                    if (statusLabel.getText().equals(text)) {
-                        statusLabel.setText("");
-                    }
-                });
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+        PauseTransition clear = new PauseTransition(Duration.seconds(3));
+        clear.setOnFinished(event -> {
+            if (statusLabel.getText().equals(text)) {
+                statusLabel.setText("");
             }
-        }).start();
+        });
+        clear.play();
+    }
+    
+    // One line per conversation: subject, message count and last activity
+    private static class ThreadCell extends ListCell<MessageThread> {
+        @Override
+        protected void updateItem(MessageThread thread, boolean empty) {
+            super.updateItem(thread, empty);
+            if (empty || thread == null) {
+                setText("New conversation");
+                return;
+            }
+            String when = thread.getLastActivityAt() != null
+                    ? " · " + thread.getLastActivityAt().format(THREAD_DATE_FORMAT) : "";
+            setText(thread.getSubject() + " (" + thread.getMessageCount() + ")" + when);
+        }
     }
     
     private void showError(String title, String message) {
@@ -1,12 +1,21 @@
 package controllers;
 
+import services.CheckoutAttempt;
 import services.DatabaseService;
+import services.OrderIdGenerator;
+import services.ImageService;
+import services.TaskExecutor;
+import models.CatalogPage;
+import models.CatalogSort;
 import models.Product;
 import models.UserSession;
 import models.Category;
 import models.CartItem;
 import models.Order;
 import models.OrderItem;
+import models.OrderPlacementResult;
+import utils.LatestQuery;
+import utils.VirtualGrid;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
@@ -18,7 +27,6 @@ import javafx.beans.property.SimpleIntegerProperty;
 import javafx.collections.ObservableList;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.scene.layout.FlowPane;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.StackPane;
@@ -50,11 +58,13 @@ import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.Optional;
 import java.util.ResourceBundle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 import javafx.animation.KeyFrame;
 import javafx.animation.ScaleTransition;
 import javafx.animation.Timeline;
-import javafx.concurrent.Task;
 import javafx.util.Duration;
 
 public class CustomerStoreController {
@@ -69,7 +79,7 @@ public class CustomerStoreController {
 	    @FXML private Button helpButton;
 	    @FXML private Button logoutButton;
 	    @FXML private Label welcomeLabel;
-	    @FXML private FlowPane productGrid;
+	    @FXML private VirtualGrid<Product> productGrid;
 	    @FXML private ComboBox<String> currencyComboBox;
 	    @FXML private Label currencyInfoLabel;
 	    
@@ -77,9 +87,28 @@ public class CustomerStoreController {
 	    private DatabaseService databaseService;
 	    private ObservableList<Product> productList;
 	    private List<CartItem> cartItems = new ArrayList<>(); // Changed from Product to CartItem
+	    // Same key for every submit of this cart, so a repeated submit can't place a second order
+	    private final CheckoutAttempt checkoutAttempt = new CheckoutAttempt();
 	    private String currentCustomerName = "Guest";
 	    private int currentCustomerId;
 	    private Map<String, Double> currencyRates = new HashMap<>();
+	    
+	    // Catalog paging: products are fetched a page at a time as the grid is scrolled
+	    private static final int CATALOG_PAGE_SIZE = 48;
+	    private static final double PRODUCT_IMAGE_WIDTH = 200;
+	    private static final double PRODUCT_IMAGE_HEIGHT = 140;
+	    private final Map<String, Integer> categoryIdsByName = new HashMap<>();
+	    private CatalogPage.Cursor nextProductCursor;
+	    private boolean loadingCatalogPage;
+	    private int catalogGeneration;
+	    // Reads for this screen; cancelled when its window closes
+	    private final TaskExecutor.Group tasks = TaskExecutor.getInstance().newGroup();
+	    // Typing waits this long for a pause before querying; older searches are cancelled
+	    private static final Duration SEARCH_DEBOUNCE = Duration.millis(250);
+	    private final LatestQuery<CatalogPage> catalogQuery = new LatestQuery<>(tasks, TaskExecutor.Pool.DB_IO, SEARCH_DEBOUNCE);
+	    // Products shown per chunk while the first page is still being read
+	    private static final int FIRST_PAGE_CHUNK_SIZE = 12;
+	    private boolean updatingCategoryOptions;
     
     
     
@@ -103,6 +132,7 @@ public void initialize() {
     try {
         // Initialize database service
         databaseService = new DatabaseService();
+        tasks.cancelWhenClosed(productGrid);
         currentCustomerId = userSession.getUserId();
         // Update welcome message
         welcomeLabel.setText("Welcome to our store 🎉");
@@ -145,6 +175,7 @@ public void initialize() {
         
         // Setup search functionality
         setupSearchFunctionality();
+        setupProductGrid();
         
         // Update cart count
         updateCartCount();
@@ -201,7 +232,7 @@ private void showLoading(boolean show) {
     
     if (show) {
         // Clear product grid
-        productGrid.getChildren().clear();
+        productGrid.getGridItems().clear();
         
         // Start animations
         if (dotAnimation != null) {
@@ -247,109 +278,102 @@ private void retryLoading() {
 }
 
 private void loadDataAsync() {
-    // Run database operations in background thread
-    new Thread(() -> {
-        try {
-            // Simulate loading delay (remove in production)
-            Thread.sleep(1000);
-            
-            // Load products
-            List<Product> products = databaseService.getAllProducts();
-            productList = FXCollections.observableArrayList(products);
-            
-            // Load categories for filter
-            List<Category> categories = databaseService.getAllCategories();
-            ObservableList<String> categoryOptions = FXCollections.observableArrayList("All");
-            
-            for (Category category : categories) {
-                categoryOptions.add(category.getName());
-            }
-            
-            // Update UI on JavaFX Application Thread
-            Platform.runLater(() -> {
-                // Update category filter
-                categoryFilter.setItems(categoryOptions);
-                categoryFilter.setValue("All");
-                
-                // Hide loading overlay
-                showLoading(false);
+    int generation = ++catalogGeneration;
+    loadingCatalogPage = true;
+    productList = FXCollections.observableArrayList();
+    loadingProgress.setProgress(ProgressBar.INDETERMINATE_PROGRESS);
+    
+    // Categories only feed the filter, so they load alongside the products
+    try {
+        tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+            try {
+                List<Category> categories = databaseService.getAllCategories();
+                ObservableList<String> categoryOptions = FXCollections.observableArrayList("All");
+                Map<String, Integer> categoryIds = new HashMap<>();
                 
-                // Display products in batches
-                displayProductsInBatches(productList);
+                for (Category category : categories) {
+                    categoryOptions.add(category.getName());
+                    categoryIds.put(category.getName(), category.getId());
+                }
                 
-                System.out.println("Loaded " + products.size() + " products from database");
-            });
-            
-        } catch (Exception e) {
-            System.err.println("Error loading data: " + e.getMessage());
-            Platform.runLater(() -> {
-                showError("Failed to load products: " + e.getMessage());
-            });
-        }
-    }).start();
-}
-
-// Update your displayProductsInBatches method to hide loading when done
-private void displayProductsInBatches(List<Product> products) {
-    if (products.isEmpty()) {
-        Label noProductsLabel = new Label("No products available");
-        noProductsLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: #7f8c8d;");
-        productGrid.getChildren().add(noProductsLabel);
-        return;
+                Platform.runLater(() -> showCategories(categoryOptions, categoryIds));
+            } catch (Exception e) {
+                System.err.println("Error loading categories: " + e.getMessage());
+                e.printStackTrace();
+            }
+        });
+    } catch (RejectedExecutionException e) {
+        // The filter keeps the categories it has; the products still load below
+        System.err.println("Category load rejected: " + e.getMessage());
     }
     
-    // Show loading with different message
-    Platform.runLater(() -> {
-        loadingLabel.setText("Rendering Products");
-    });
-    
-    // Use Task for better performance with large product lists
-    Task<Void> displayTask = new Task<Void>() {
-        @Override
-        protected Void call() throws Exception {
-            int batchSize = 12; // Display 12 products per batch
-            int totalProducts = products.size();
+    // The first page goes to the grid a chunk at a time as rows are read
+    try {
+        tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+            try {
+                CatalogPage page = databaseService.getCatalogPage(null, 0, CatalogSort.NEWEST, null,
+                        CATALOG_PAGE_SIZE, FIRST_PAGE_CHUNK_SIZE,
+                        chunk -> Platform.runLater(() -> showProductChunk(generation, chunk)));
             
-            for (int i = 0; i < totalProducts; i += batchSize) {
-                final int start = i;
-                final int end = Math.min(i + batchSize, totalProducts);
-                List<Product> batch = products.subList(start, end);
+                Platform.runLater(() -> {
+                    if (generation != catalogGeneration) {
+                        return;
+                    }
+                    loadingCatalogPage = false;
+                    nextProductCursor = page.getNextCursor();
+                    loadingProgress.setProgress(1);
+                    // Still showing if the catalog is empty
+                    showLoading(false);
                 
+                    System.out.println("Loaded " + page.getProducts().size() + " of " + page.getTotalCount() + " products from database");
+                });
+            
+            } catch (Exception e) {
+                System.err.println("Error loading data: " + e.getMessage());
                 Platform.runLater(() -> {
-                    for (Product product : batch) {
-                        try {
-                            VBox productCard = createProductCard(product);
-                            productGrid.getChildren().add(productCard);
-                        } catch (Exception e) {
-                            System.err.println("Error creating product card: " + e.getMessage());
-                            VBox simpleCard = createSimpleProductCard(product);
-                            productGrid.getChildren().add(simpleCard);
-                        }
+                    if (generation != catalogGeneration) {
+                        return;
                     }
+                    loadingCatalogPage = false;
+                    showError("Failed to load products: " + e.getMessage());
                 });
-                
-                // Update progress
-                updateProgress(i + batchSize, totalProducts);
-                
-                // Small delay between batches
-                Thread.sleep(30);
             }
-            
-            Platform.runLater(() -> {
-                showLoading(false);
-            });
-            
-            return null;
-        }
-    };
-    
-    // Bind progress bar to task progress
-    loadingProgress.progressProperty().bind(displayTask.progressProperty());
-    
-    // Start task in new thread
-    new Thread(displayTask).start();
+        });
+    } catch (RejectedExecutionException e) {
+        System.err.println("Catalog load rejected: " + e.getMessage());
+        loadingCatalogPage = false;
+        showError("Failed to load products: the database is busy, please try again.");
+    }
 }
+
+private void showProductChunk(int generation, List<Product> chunk) {
+    // A search or filter started meanwhile; its results replace this load
+    if (generation != catalogGeneration) {
+        return;
+    }
+    if (productList.isEmpty()) {
+        showLoading(false);
+    }
+    productList.addAll(chunk);
+    productGrid.getGridItems().addAll(chunk);
+    loadingProgress.setProgress(Math.min(1.0, productList.size() / (double) CATALOG_PAGE_SIZE));
+}
+
+private void showCategories(ObservableList<String> categoryOptions, Map<String, Integer> categoryIds) {
+    categoryIdsByName.clear();
+    categoryIdsByName.putAll(categoryIds);
     
+    // Replacing the options isn't a filter change; don't reload the products being streamed in
+    String selected = categoryFilter.getValue();
+    updatingCategoryOptions = true;
+    try {
+        categoryFilter.setItems(categoryOptions);
+        categoryFilter.setValue(selected != null && categoryOptions.contains(selected) ? selected : "All");
+    } finally {
+        updatingCategoryOptions = false;
+    }
+}
+
     private void openCustomerLogin(ActionEvent event) {
         try {
         	Node source = (Node) event.getSource();
@@ -454,220 +478,150 @@ private void displayProductsInBatches(List<Product> products) {
     }
     
     private void refreshProductDisplay() {
-        // Refresh all product cards with new currency
-        for (Node node : productGrid.getChildren()) {
-            if (node instanceof VBox) {
-                updateProductCard((VBox) node);
-            }
-        }
+        // Re-render the visible cards with the new currency
+        productGrid.refresh();
     }
-
-    private void updateProductCard(VBox card) {
-        // Find price label in card (it's at index 3 - priceContainer)
-        if (card.getChildren().size() > 3) {
-            Node priceNode = card.getChildren().get(3);
-            if (priceNode instanceof HBox) {
-                HBox priceContainer = (HBox) priceNode;
-                // Get the product from card's user data
-                Product product = (Product) card.getUserData();
-                if (product != null) {
-                    updatePriceContainer(priceContainer, product);
-                }
-            }
-        }
+    
+    private void displayProducts(List<Product> products) {
+        productGrid.getGridItems().setAll(products);
     }
-
-    private void updatePriceContainer(HBox priceContainer, Product product) {
-        // Convert price to current currency
-        double priceInUSD = product.getFinalPrice();
-        double convertedPrice = convertPrice(priceInUSD, currentCurrency);
-        String formattedPrice = formatPrice(convertedPrice, currentCurrency);
-        
-        // Clear existing price labels
-        priceContainer.getChildren().clear();
+    
+    /**
+     * A storefront product card. The grid builds only as many of these as
+     * fit on screen and re-points them at other products while scrolling,
+     * so update() must reset everything a previous product may have set.
+     */
+    private class ProductCardCell implements VirtualGrid.Card<Product> {
+        private final VBox card = new VBox(10);
+        private final ImageView productImage = new ImageView();
+        private final Label discountLabel = new Label();
+        private final Label nameLabel = new Label();
+        private final Label categoryLabel = new Label();
+        private final HBox priceContainer = new HBox(8);
+        private final Label stockLabel = new Label();
+        private final Button cartBtn = new Button("🛒 Add");
+        private final Button buyButton = new Button("🚀 BUY NOW");
+        private Product product;
         
-        if (product.getDiscountPercentage() > 0) {
-            // Show original price with strikethrough
-            double originalConverted = convertPrice(product.getPrice(), currentCurrency);
-            String originalFormatted = formatPrice(originalConverted, currentCurrency);
+        ProductCardCell() {
+            card.setStyle("-fx-background-color: white; -fx-border-color: #e0e0e0; -fx-border-radius: 12; " +
+                         "-fx-padding: 15; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.15), 10, 0, 0, 2);");
+            card.setPrefWidth(240);
+            card.setMinWidth(240);
+            card.setPrefHeight(380);
             
-            Label originalLabel = new Label(originalFormatted);
-            originalLabel.setStyle("-fx-font-size: 13px; -fx-text-fill: #95a5a6; -fx-strikethrough: true;");
+            // Product Image Container with Badge
+            StackPane imageContainer = new StackPane();
+            productImage.setFitWidth(PRODUCT_IMAGE_WIDTH);
+            productImage.setFitHeight(PRODUCT_IMAGE_HEIGHT);
+            productImage.setPreserveRatio(true);
+            productImage.setStyle("-fx-background-color: #f8f9fa; -fx-background-radius: 8;");
             
-            Label discountedLabel = new Label(formattedPrice);
-            discountedLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #27ae60;");
+            // Discount Badge
+            VBox badgeContainer = new VBox();
+            badgeContainer.setAlignment(javafx.geometry.Pos.TOP_RIGHT);
+            discountLabel.setStyle("-fx-background-color: #e74c3c; -fx-text-fill: white; -fx-font-weight: bold; " +
+                                 "-fx-font-size: 12px; -fx-padding: 3 8; -fx-background-radius: 0 0 0 8;");
+            badgeContainer.getChildren().add(discountLabel);
+            imageContainer.getChildren().addAll(productImage, badgeContainer);
             
-            priceContainer.getChildren().addAll(originalLabel, new Label(" → "), discountedLabel);
-        } else {
-            // Show regular price
-            Label priceLabel = new Label(formattedPrice);
-            priceLabel.setStyle("-fx-font-size: 18px; -fx-font-weight: bold; -fx-text-fill: #27ae60;");
-            priceContainer.getChildren().add(priceLabel);
+            // Product Name
+            nameLabel.setStyle("-fx-font-size: 15px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
+            nameLabel.setWrapText(true);
+            nameLabel.setMaxWidth(200);
+            nameLabel.setTextAlignment(javafx.scene.text.TextAlignment.CENTER);
+            
+            // Product Category
+            categoryLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #7f8c8d; -fx-font-style: italic;");
+            
+            priceContainer.setAlignment(javafx.geometry.Pos.CENTER);
+            
+            // Action Buttons Container
+            HBox buttonContainer = new HBox(10);
+            buttonContainer.setAlignment(javafx.geometry.Pos.CENTER);
+            
+            Button viewButton = new Button("👁️ Details");
+            viewButton.setStyle("-fx-background-color: #3498db; -fx-text-fill: white; -fx-font-size: 12px; " +
+                               "-fx-font-weight: bold; -fx-background-radius: 6;");
+            viewButton.setPrefWidth(95);
+            viewButton.setPrefHeight(32);
+            viewButton.setOnAction(e -> showProductDetails(product, e));
+            
+            cartBtn.setPrefWidth(95);
+            cartBtn.setPrefHeight(32);
+            cartBtn.setOnAction(e -> addToCart(product, e));
+            
+            buttonContainer.getChildren().addAll(viewButton, cartBtn);
+            
+            buyButton.setPrefWidth(200);
+            buyButton.setPrefHeight(38);
+            buyButton.setOnAction(e -> buyNow(product, e));
+            
+            card.getChildren().addAll(
+                imageContainer, nameLabel, categoryLabel,
+                priceContainer, stockLabel, buttonContainer, buyButton
+            );
+            card.setAlignment(javafx.geometry.Pos.TOP_CENTER);
+            VBox.setMargin(imageContainer, new Insets(0, 0, 10, 0));
         }
-    }
-    
-    private void displayProducts(List<Product> products) {
-        // Clear existing products
-        productGrid.getChildren().clear();
         
-        // Create product cards for each product
-        for (Product product : products) {
-            try {
-                VBox productCard = createProductCard(product);
-                productGrid.getChildren().add(productCard);
-            } catch (Exception e) {
-                System.err.println("Error creating product card for " + product.getName() + ": " + e.getMessage());
-                e.printStackTrace();
-                // Create a simple card as fallback
-                VBox simpleCard = createSimpleProductCard(product);
-                productGrid.getChildren().add(simpleCard);
-            }
+        @Override
+        public Node getNode() {
+            return card;
         }
-    }
-    
-    private VBox createProductCard(Product product) {
-    // Create product card container
-    VBox card = new VBox(10);
-    card.setStyle("-fx-background-color: white; -fx-border-color: #e0e0e0; -fx-border-radius: 12; " +
-                 "-fx-padding: 15; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.15), 10, 0, 0, 2);");
-    card.setPrefWidth(240);
-    card.setPrefHeight(380);
-    
-    // Store product reference in the card (IMPORTANT FOR CURRENCY UPDATES)
-    card.setUserData(product);
-    
-    // Product Image Container with Badge
-    StackPane imageContainer = new StackPane();
-    
-    // Product Image
-    ImageView productImage = new ImageView();
-    try {
-        // Try to load product image
-        if (product.getImageUrl() != null && !product.getImageUrl().isEmpty()) {
-            File imageFile = new File(product.getImageUrl());
-            if (imageFile.exists()) {
-                Image image = new Image(imageFile.toURI().toString());
-                productImage.setImage(image);
+        
+        @Override
+        public void update(Product product) {
+            this.product = product;
+            card.setUserData(product);
+            
+            loadProductImage(productImage, product);
+            
+            boolean discounted = product.getDiscountPercentage() > 0;
+            discountLabel.setText(discounted ? String.format("-%.0f%%", product.getDiscountPercentage()) : "");
+            discountLabel.setVisible(discounted);
+            
+            nameLabel.setText(product.getName());
+            categoryLabel.setText(product.getCategoryName());
+            updatePriceDisplay(priceContainer, product);
+            
+            // Stock Status
+            int stock = product.getStockQuantity();
+            if (stock > 10) {
+                stockLabel.setText("✅ In Stock");
+                stockLabel.setStyle("-fx-text-fill: #27ae60; -fx-font-size: 12px; -fx-font-weight: bold;");
+            } else if (stock > 0) {
+                stockLabel.setText("🔥 Only " + stock + " left!");
+                stockLabel.setStyle("-fx-text-fill: #f39c12; -fx-font-size: 12px; -fx-font-weight: bold;");
             } else {
-                // Try URL or use default
-                try {
-                    Image image = new Image(product.getImageUrl());
-                    productImage.setImage(image);
-                } catch (Exception e) {
-                    loadDefaultImage(productImage);
-                }
+                stockLabel.setText("⛔ Out of Stock");
+                stockLabel.setStyle("-fx-text-fill: #e74c3c; -fx-font-size: 12px; -fx-font-weight: bold;");
+            }
+            
+            // Disable buttons if out of stock
+            boolean outOfStock = stock <= 0;
+            cartBtn.setDisable(outOfStock);
+            buyButton.setDisable(outOfStock);
+            if (outOfStock) {
+                cartBtn.setStyle("-fx-background-color: #95a5a6; -fx-text-fill: white; -fx-font-size: 12px; " +
+                               "-fx-font-weight: bold; -fx-background-radius: 6;");
+                buyButton.setStyle("-fx-background-color: #95a5a6; -fx-text-fill: white; " +
+                                 "-fx-font-size: 13px; -fx-font-weight: bold; -fx-background-radius: 8;");
+            } else {
+                cartBtn.setStyle("-fx-background-color: #2ecc71; -fx-text-fill: white; -fx-font-size: 12px; " +
+                                "-fx-font-weight: bold; -fx-background-radius: 6;");
+                buyButton.setStyle("-fx-background-color: linear-gradient(to right, #f39c12, #e67e22); " +
+                                  "-fx-text-fill: white; -fx-font-size: 13px; -fx-font-weight: bold; " +
+                                  "-fx-background-radius: 8; -fx-effect: dropshadow(gaussian, rgba(243, 156, 18, 0.3), 5, 0, 0, 2);");
             }
-        } else {
-            loadDefaultImage(productImage);
         }
-    } catch (Exception e) {
-        loadDefaultImage(productImage);
-    }
-    productImage.setFitWidth(200);
-    productImage.setFitHeight(140);
-    productImage.setPreserveRatio(true);
-    productImage.setStyle("-fx-background-color: #f8f9fa; -fx-background-radius: 8;");
-    
-    // Discount Badge
-    VBox badgeContainer = new VBox();
-    badgeContainer.setAlignment(javafx.geometry.Pos.TOP_RIGHT);
-    Label discountLabel = new Label();
-    discountLabel.setStyle("-fx-background-color: #e74c3c; -fx-text-fill: white; -fx-font-weight: bold; " +
-                         "-fx-font-size: 12px; -fx-padding: 3 8; -fx-background-radius: 0 0 0 8;");
-    
-    if (product.getDiscountPercentage() > 0) {
-        discountLabel.setText(String.format("-%.0f%%", product.getDiscountPercentage()));
-        badgeContainer.getChildren().add(discountLabel);
     }
     
-    imageContainer.getChildren().addAll(productImage, badgeContainer);
-    
-    // Product Name
-    Label nameLabel = new Label(product.getName());
-    nameLabel.setStyle("-fx-font-size: 15px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
-    nameLabel.setWrapText(true);
-    nameLabel.setMaxWidth(200);
-    nameLabel.setTextAlignment(javafx.scene.text.TextAlignment.CENTER);
-    
-    // Product Category
-    Label categoryLabel = new Label(product.getCategoryName());
-    categoryLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #7f8c8d; -fx-font-style: italic;");
-    
-    // Price Container - UPDATED FOR CURRENCY SUPPORT
-    HBox priceContainer = new HBox(8);
-    priceContainer.setAlignment(javafx.geometry.Pos.CENTER);
-    
-    // Create price display based on current currency
-    updatePriceDisplay(priceContainer, product);
-    
-    // Stock Status
-    Label stockLabel = new Label();
-    int stock = product.getStockQuantity();
-    if (stock > 10) {
-        stockLabel.setText("✅ In Stock");
-        stockLabel.setStyle("-fx-text-fill: #27ae60; -fx-font-size: 12px; -fx-font-weight: bold;");
-    } else if (stock > 0) {
-        stockLabel.setText("🔥 Only " + stock + " left!");
-        stockLabel.setStyle("-fx-text-fill: #f39c12; -fx-font-size: 12px; -fx-font-weight: bold;");
-    } else {
-        stockLabel.setText("⛔ Out of Stock");
-        stockLabel.setStyle("-fx-text-fill: #e74c3c; -fx-font-size: 12px; -fx-font-weight: bold;");
+    private void loadProductImage(ImageView productImage, Product product) {
+        // Decoded in the background at card size and shared with the admin table
+        ImageService.getInstance().loadInto(productImage, product.getImageUrl(),
+                PRODUCT_IMAGE_WIDTH, PRODUCT_IMAGE_HEIGHT, () -> loadDefaultImage(productImage));
     }
-    
-    // Action Buttons Container
-    HBox buttonContainer = new HBox(10);
-    buttonContainer.setAlignment(javafx.geometry.Pos.CENTER);
-    
-    Button viewButton = new Button("👁️ Details");
-    viewButton.setStyle("-fx-background-color: #3498db; -fx-text-fill: white; -fx-font-size: 12px; " +
-                       "-fx-font-weight: bold; -fx-background-radius: 6;");
-    viewButton.setPrefWidth(95);
-    viewButton.setPrefHeight(32);
-    viewButton.setOnAction(e -> showProductDetails(product,e));
-    
-    Button cartBtn = new Button("🛒 Add");
-    cartBtn.setStyle("-fx-background-color: #2ecc71; -fx-text-fill: white; -fx-font-size: 12px; " +
-                    "-fx-font-weight: bold; -fx-background-radius: 6;");
-    cartBtn.setPrefWidth(95);
-    cartBtn.setPrefHeight(32);
-    cartBtn.setOnAction(e -> addToCart(product,e));
-    
-    // Disable buttons if out of stock
-    if (stock <= 0) {
-        cartBtn.setDisable(true);
-        cartBtn.setStyle("-fx-background-color: #95a5a6; -fx-text-fill: white; -fx-font-size: 12px; " +
-                       "-fx-font-weight: bold; -fx-background-radius: 6;");
-    }
-    
-    buttonContainer.getChildren().addAll(viewButton, cartBtn);
-    
-    // Buy Now Button
-    Button buyButton = new Button("🚀 BUY NOW");
-    buyButton.setStyle("-fx-background-color: linear-gradient(to right, #f39c12, #e67e22); " +
-                      "-fx-text-fill: white; -fx-font-size: 13px; -fx-font-weight: bold; " +
-                      "-fx-background-radius: 8; -fx-effect: dropshadow(gaussian, rgba(243, 156, 18, 0.3), 5, 0, 0, 2);");
-    buyButton.setPrefWidth(200);
-    buyButton.setPrefHeight(38);
-    buyButton.setOnAction(e -> buyNow(product,e));
-    
-    if (stock <= 0) {
-        buyButton.setDisable(true);
-        buyButton.setStyle("-fx-background-color: #95a5a6; -fx-text-fill: white; " +
-                         "-fx-font-size: 13px; -fx-font-weight: bold; -fx-background-radius: 8;");
-    }
-    
-    // Add all elements to card
-    card.getChildren().addAll(
-        imageContainer, nameLabel, categoryLabel, 
-        priceContainer, stockLabel, buttonContainer, buyButton
-    );
-    
-    // Set alignment
-    card.setAlignment(javafx.geometry.Pos.TOP_CENTER);
-    VBox.setMargin(imageContainer, new Insets(0, 0, 10, 0));
-    
-    return card;
-	}
 	
 	// NEW METHOD: Update price display based on currency
 	private void updatePriceDisplay(HBox priceContainer, Product product) {
@@ -702,100 +656,30 @@ private void displayProductsInBatches(List<Product> products) {
 	}
     
     private void loadDefaultImage(ImageView imageView) {
-        try {
-            Image defaultImage = new Image(getClass().getResourceAsStream("/images/default_product.png"));
+        Image defaultImage = ImageService.getInstance().getResourceImage("/images/default_product.png",
+                PRODUCT_IMAGE_WIDTH, PRODUCT_IMAGE_HEIGHT);
+        if (defaultImage != null) {
             imageView.setImage(defaultImage);
-        } catch (Exception e) {
+        } else {
             // Use placeholder if default image not found
             imageView.setStyle("-fx-background-color: #ecf0f1; -fx-min-width: 200; -fx-min-height: 140; " +
                              "-fx-background-radius: 8;");
         }
     }
     
-    private VBox createSimpleProductCard(Product product) {
-	    // Create a simple card as fallback when FXML loading fails
-	    VBox card = new VBox(10);
-	    card.setStyle("-fx-background-color: white; -fx-border-color: #e0e0e0; -fx-border-radius: 8; " +
-	                 "-fx-padding: 15; -fx-effect: dropshadow(three-pass-box, rgba(0,0,0,0.1), 10, 0, 0, 0);");
-	    card.setPrefWidth(220);
-	    card.setPrefHeight(280);
-	    
-	    // Store product reference (for currency updates)
-	    card.setUserData(product);
-	    
-	    // Product name
-	    Label nameLabel = new Label(product.getName());
-	    nameLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold; -fx-text-fill: #2c3e50;");
-	    nameLabel.setWrapText(true);
-	    nameLabel.setMaxWidth(180);
-	    
-	    // Price label with currency support
-	    HBox priceBox = new HBox(5);
-	    priceBox.setAlignment(javafx.geometry.Pos.CENTER);
-	    
-	    if (product.getDiscountPercentage() > 0) {
-	        // Show original price with strikethrough
-	        double originalConverted = convertPrice(product.getPrice(), currentCurrency);
-	        String originalFormatted = formatPrice(originalConverted, currentCurrency);
-	        
-	        Label originalLabel = new Label(originalFormatted);
-	        originalLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #95a5a6; -fx-strikethrough: true;");
-	        
-	        // Show discounted price
-	        double discountedConverted = convertPrice(product.getFinalPrice(), currentCurrency);
-	        String discountedFormatted = formatPrice(discountedConverted, currentCurrency);
-	        
-	        Label discountedLabel = new Label(discountedFormatted);
-	        discountedLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #27ae60;");
-	        
-	        priceBox.getChildren().addAll(originalLabel, new Label("→"), discountedLabel);
-	    } else {
-	        // Show regular price
-	        double priceConverted = convertPrice(product.getFinalPrice(), currentCurrency);
-	        String priceFormatted = formatPrice(priceConverted, currentCurrency);
-	        
-	        Label priceLabel = new Label(priceFormatted);
-	        priceLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold; -fx-text-fill: #27ae60;");
-	        priceBox.getChildren().add(priceLabel);
-	    }
-	    
-	    // Category
-	    Label categoryLabel = new Label(product.getCategoryName());
-	    categoryLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #7f8c8d;");
-	    
-	    // Stock info
-	    Label stockLabel = new Label("Stock: " + product.getStockQuantity());
-	    stockLabel.setStyle("-fx-font-size: 11px; -fx-text-fill: #27ae60;");
-	    
-	    // Buttons
-	    HBox buttonBox = new HBox(10);
-	    buttonBox.setAlignment(javafx.geometry.Pos.CENTER);
-	    
-	    Button addButton = new Button("Add to Cart");
-	    addButton.setStyle("-fx-background-color: #2ecc71; -fx-text-fill: white; -fx-font-size: 12px;");
-	    addButton.setOnAction(e -> addToCart(product,e));
-	    
-	    Button buyButton = new Button("Buy Now");
-	    buyButton.setStyle("-fx-background-color: #3498db; -fx-text-fill: white; -fx-font-size: 12px;");
-	    buyButton.setOnAction(e -> buyNow(product,e));
-	    
-	    buttonBox.getChildren().addAll(addButton, buyButton);
-	    
-	    card.getChildren().addAll(nameLabel, categoryLabel, priceBox, stockLabel, buttonBox);
-	    card.setAlignment(javafx.geometry.Pos.CENTER);
-	    
-	    return card;
-	}
-    
     private void setupSearchFunctionality() {
+        catalogQuery.setOnError(error -> loadingCatalogPage = false);
+        
         // Search field listener
         searchField.textProperty().addListener((observable, oldValue, newValue) -> {
-            filterProducts();
+            filterProducts(true);
         });
         
         // Category filter listener
         categoryFilter.valueProperty().addListener((observable, oldValue, newValue) -> {
-            filterProducts();
+            if (!updatingCategoryOptions) {
+                filterProducts();
+            }
         });
         
         // Sort listener
@@ -804,51 +688,104 @@ private void displayProductsInBatches(List<Product> products) {
         });
     }
     
-    private void filterProducts() {
-        String searchText = searchField.getText().toLowerCase();
-        String selectedCategory = categoryFilter.getValue();
+    private void setupProductGrid() {
+        productGrid.setCardWidth(240);
+        productGrid.setCardFactory(ProductCardCell::new);
         
-        List<Product> filtered = new ArrayList<>();
+        Label noProductsLabel = new Label("No products found");
+        noProductsLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: #7f8c8d;");
+        productGrid.setPlaceholder(noProductsLabel);
         
-        for (Product product : productList) {
-            boolean matchesSearch = searchText.isEmpty() ||
-                product.getName().toLowerCase().contains(searchText) ||
-                (product.getDescription() != null && product.getDescription().toLowerCase().contains(searchText));
-            
-            boolean matchesCategory = selectedCategory.equals("All Categories") ||
-                (product.getCategoryName() != null && product.getCategoryName().equals(selectedCategory));
-            
-            if (matchesSearch && matchesCategory) {
-                filtered.add(product);
-            }
+        // Fetch the next page when the last rows scroll into view
+        productGrid.setOnNearEnd(this::loadNextProductPage);
+    }
+    
+    private void filterProducts() {
+        filterProducts(false);
+    }
+    
+    private void filterProducts(boolean debounce) {
+        String searchText = searchField.getText() != null ? searchField.getText().trim() : "";
+        int categoryId = getSelectedCategoryId();
+        CatalogSort sort = getSelectedCatalogSort();
+        // Also makes any next-page load of the previous filters drop its result
+        ++catalogGeneration;
+        loadingCatalogPage = true;
+        
+        // Filtering and sorting run in SQL; only the first page of the latest query is shown
+        Callable<CatalogPage> query = () -> databaseService.getCatalogPage(searchText, categoryId, sort, null, CATALOG_PAGE_SIZE);
+        Consumer<CatalogPage> show = page -> {
+            loadingCatalogPage = false;
+            productList = FXCollections.observableArrayList(page.getProducts());
+            nextProductCursor = page.getNextCursor();
+            displayProducts(productList);
+            productGrid.scrollTo(0);
+        };
+        if (debounce) {
+            catalogQuery.submit(query, show);
+        } else {
+            catalogQuery.submitNow(query, show);
         }
+    }
+    
+    private void loadNextProductPage() {
+        if (loadingCatalogPage || nextProductCursor == null) {
+            return;
+        }
+        
+        String searchText = searchField.getText() != null ? searchField.getText().trim() : "";
+        int categoryId = getSelectedCategoryId();
+        CatalogSort sort = getSelectedCatalogSort();
+        CatalogPage.Cursor after = nextProductCursor;
+        int generation = catalogGeneration;
+        loadingCatalogPage = true;
         
-        // Apply sorting
-        sortProducts(filtered);
-        displayProducts(filtered);
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                CatalogPage page = databaseService.getCatalogPage(searchText, categoryId, sort, after, CATALOG_PAGE_SIZE);
+                Platform.runLater(() -> {
+                    if (generation != catalogGeneration) {
+                        return;
+                    }
+                    loadingCatalogPage = false;
+                    productList.addAll(page.getProducts());
+                    nextProductCursor = page.getNextCursor();
+                    productGrid.getGridItems().addAll(page.getProducts());
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            // DB pool is saturated; the next scroll to the end tries again
+            System.err.println("Next catalog page rejected: " + e.getMessage());
+            loadingCatalogPage = false;
+        }
     }
     
-    private void sortProducts(List<Product> products) {
+    private int getSelectedCategoryId() {
+        String selectedCategory = categoryFilter.getValue();
+        if (selectedCategory == null || selectedCategory.equals("All") || selectedCategory.equals("All Categories")) {
+            return 0;
+        }
+        return categoryIdsByName.getOrDefault(selectedCategory, 0);
+    }
+    
+    private CatalogSort getSelectedCatalogSort() {
         String sortOption = sortComboBox.getValue();
-        if (sortOption == null) return;
+        if (sortOption == null) return CatalogSort.NEWEST;
         
         switch (sortOption) {
             case "Price: Low to High":
-                products.sort((p1, p2) -> Double.compare(p1.getFinalPrice(), p2.getFinalPrice()));
-                break;
+                return CatalogSort.FINAL_PRICE_ASC;
             case "Price: High to Low":
-                products.sort((p1, p2) -> Double.compare(p2.getFinalPrice(), p1.getFinalPrice()));
-                break;
+                return CatalogSort.FINAL_PRICE_DESC;
             case "Name: A-Z":
-                products.sort((p1, p2) -> p1.getName().compareToIgnoreCase(p2.getName()));
-                break;
+                return CatalogSort.NAME_ASC;
             case "Name: Z-A":
-                products.sort((p1, p2) -> p2.getName().compareToIgnoreCase(p1.getName()));
-                break;
+                return CatalogSort.NAME_DESC;
             case "Discount: High to Low":
-                products.sort((p1, p2) -> Double.compare(p2.getDiscountPercentage(), p1.getDiscountPercentage()));
-                break;
-            // Featured - default order
+                return CatalogSort.DISCOUNT_DESC;
+            default:
+                // Featured - best matches first when searching, otherwise newest first
+                return CatalogSort.RELEVANCE;
         }
     }
     
@@ -1087,8 +1024,7 @@ private Button createStyledButton(String text, String color) {
             String address, String paymentMethod, double total) {
 			try {
 			// Generate unique order ID
-			String orderId = "ORD-" + System.currentTimeMillis() + "-" + 
-			 (int)(Math.random() * 1000);
+			String orderId = OrderIdGenerator.getInstance().nextOrderId();
 			
 			System.out.println("Creating order: " + orderId);
 			System.out.println("Customer: " + customerName);
@@ -1111,6 +1047,7 @@ private Button createStyledButton(String text, String color) {
 			order.setCurrency("USD");
 			order.setPaymentMethod(paymentMethod);
 			order.setStatus("Processing");
+			order.setIdempotencyKey(checkoutAttempt.keyFor(currentCustomerId, cartItems));
 			
 			// Create order items from cart items
 			List<OrderItem> orderItems = new ArrayList<>();
@@ -1131,11 +1068,16 @@ private Button createStyledButton(String text, String color) {
 			      " @ $" + cartItem.getPrice());
 			}
 			
-			// Save to database
-			boolean success = databaseService.saveOrder(order, orderItems);
+			// Reserve stock and save the order in one transaction
+			OrderPlacementResult result = databaseService.placeOrder(order, orderItems);
 			
-			if (success) {
+			if (result.isPlaced()) {
+			if (result.isDuplicate()) {
+			System.out.println("Order was already placed as " + result.getOrderId());
+			} else {
 			System.out.println("Order saved successfully to database!");
+			}
+			orderId = result.getOrderId();
 			
 			// Show success message with order details
 			StringBuilder orderDetails = new StringBuilder();
@@ -1152,6 +1094,9 @@ private Button createStyledButton(String text, String color) {
 			
 			showAlert("Order Confirmation", orderDetails.toString());
 			return true;
+			} else if (result.getStatus() == OrderPlacementResult.Status.OUT_OF_STOCK) {
+			showAlert("Out of Stock", result.getMessage() + ".\nPlease update your cart and try again.");
+			return false;
 			} else {
 			System.err.println("Failed to save order to database!");
 			showAlert("Error", "Failed to save order. Please try again.");
@@ -1791,8 +1736,9 @@ private void addButtonHoverEffect(Button button, String hoverColor) {
             // Step 2: Show checkout dialog
             boolean orderConfirmed = showCheckoutDialog(paymentMethod);
             if (orderConfirmed) {
-                // Clear cart and show success
+                // Clear cart and show success; the next cart is a new checkout attempt
                 cartItems.clear();
+                checkoutAttempt.completed();
                 updateCartCount();
                 showAlert("Success", "Order placed successfully!\nYou can view your orders in the Orders section.");
             }
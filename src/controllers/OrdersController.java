@@ -1,5 +1,6 @@
 package controllers;
 
+import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
@@ -214,10 +215,8 @@ public class OrdersController {
             return;
         }
         
-        try {
-            boolean success = dbService.updateOrderStatus(
-                selectedOrder.getId(), newStatus, notes);
-            
+        // Written by the shared write-behind queue; the FX thread doesn't wait for it
+        dbService.queueOrderStatus(selectedOrder.getId(), newStatus, notes).thenAccept(success -> Platform.runLater(() -> {
             if (success) {
                 showAlert("Success", "Order status updated successfully!", 
                           Alert.AlertType.INFORMATION);
@@ -229,10 +228,7 @@ public class OrdersController {
                 showAlert("Error", "Failed to update order status", 
                           Alert.AlertType.ERROR);
             }
-        } catch (Exception e) {
-            showAlert("Error", "Database error: " + e.getMessage(), 
-                      Alert.AlertType.ERROR);
-        }
+        }));
     }
     
     private void showQuickStatusUpdateDialog(Order order) {
@@ -261,16 +257,17 @@ public class OrdersController {
         });
         
         dialog.showAndWait().ifPresent(newStatus -> {
-            try {
-                dbService.updateOrderStatus(order.getId(), newStatus, 
-                    "Status updated via quick update");
-                order.setStatus(newStatus);
-                ordersTable.refresh();
-                showOrderDetails(order);
-            } catch (Exception e) {
-                showAlert("Error", "Failed to update status: " + e.getMessage(), 
-                          Alert.AlertType.ERROR);
-            }
+            dbService.queueOrderStatus(order.getId(), newStatus, "Status updated via quick update")
+                .thenAccept(success -> Platform.runLater(() -> {
+                    if (success) {
+                        order.setStatus(newStatus);
+                        ordersTable.refresh();
+                        showOrderDetails(order);
+                    } else {
+                        showAlert("Error", "Failed to update order status", 
+                                  Alert.AlertType.ERROR);
+                    }
+                }));
         });
     }
     
@@ -7,17 +7,28 @@ import javafx.scene.control.*;
 import javafx.scene.layout.VBox;
 import javafx.scene.layout.HBox;
 import javafx.geometry.Insets;
+import models.ChangeEvent;
 import models.Order;
+import models.OrderChanges;
 import models.OrderItem;
+import models.OrderSort;
 import models.UserSession;
 import services.DatabaseService;
+import services.EventBus;
+import services.TaskExecutor;
 
 import java.net.URL;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.RejectedExecutionException;
 
 public class OrdersDialogController implements Initializable {
     
@@ -29,6 +40,15 @@ public class OrdersDialogController implements Initializable {
     
     private DatabaseService databaseService;
     private int currentUserId ;
+    // Reads for this screen; cancelled when its window closes
+    private final TaskExecutor.Group tasks = TaskExecutor.getInstance().newGroup();
+    // Orders shown, newest first, and the card of each by order id
+    private final List<Order> shownOrders = new ArrayList<>();
+    private final Map<String, VBox> cardsByOrderId = new HashMap<>();
+    // orders.updated_at as of the last load; a refresh only asks for orders changed since
+    private Timestamp ordersWatermark;
+    // Changes to this customer's orders, from any screen or app instance
+    private EventBus.Subscription orderEvents;
     
     @Override
     public void initialize(URL location, ResourceBundle resources) {
@@ -37,6 +57,8 @@ public class OrdersDialogController implements Initializable {
         try {
         	currentUserId=UserSession.getUserId();
             databaseService = new DatabaseService();
+            tasks.cancelWhenClosed(ordersContainer);
+            tasks.onClose(this::stopWatchingOrders);
             System.out.println("✓ DatabaseService initialized successfully");
         } catch (Exception e) {
             System.err.println("✗ Failed to initialize DatabaseService: " + e.getMessage());
@@ -51,6 +73,7 @@ public class OrdersDialogController implements Initializable {
         this.currentUserId = userId;
         
         if (databaseService != null) {
+            watchOrders();
             loadOrders();
         } else {
             System.err.println("DatabaseService is null!");
@@ -87,32 +110,40 @@ public class OrdersDialogController implements Initializable {
         });
         
         // Load orders in background thread
-        new Thread(() -> {
-            try {
-                System.out.println("Querying database for orders...");
-                List<Order> orders = databaseService.getCustomerOrders(currentUserId);
-                
-                Platform.runLater(() -> {
-                    if (orders == null) {
-                    	showErrorInUI("Database Error", "Failed to retrieve orders (null returned)");
-                    } else {
-                        System.out.println("Retrieved " + orders.size() + " orders from database");
-                        displayOrders(orders);
-                    }
-                });
-                
-            } catch (Exception e) {
-                System.err.println("✗ ERROR loading orders:");
-                e.printStackTrace();
-                
-                Platform.runLater(() -> {
-                    showErrorInUI("Database Error", 
-                        "Failed to load orders:\n" + 
-                        "Error: " + e.getClass().getSimpleName() + "\n" +
-                        "Message: " + e.getMessage());
-                });
-            }
-        }).start();
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                try {
+                    System.out.println("Querying database for orders...");
+                    // Read before the orders, so a change made meanwhile is picked up by the next refresh
+                    Timestamp watermark = databaseService.getOrdersWatermark(currentUserId);
+                    List<Order> orders = databaseService.getCustomerOrders(currentUserId);
+                    
+                    Platform.runLater(() -> {
+                        if (orders == null) {
+                        	showErrorInUI("Database Error", "Failed to retrieve orders (null returned)");
+                        } else {
+                            System.out.println("Retrieved " + orders.size() + " orders from database");
+                            ordersWatermark = watermark;
+                            displayOrders(orders);
+                        }
+                    });
+                    
+                } catch (Exception e) {
+                    System.err.println("✗ ERROR loading orders:");
+                    e.printStackTrace();
+                    
+                    Platform.runLater(() -> {
+                        showErrorInUI("Database Error", 
+                            "Failed to load orders:\n" + 
+                            "Error: " + e.getClass().getSimpleName() + "\n" +
+                            "Message: " + e.getMessage());
+                    });
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Order load rejected: " + e.getMessage());
+            showErrorInUI("Database Busy", "Failed to load orders: the database is busy, please try again.");
+        }
     }
     
     private void displayOrders(List<Order> orders) {
@@ -120,6 +151,11 @@ public class OrdersDialogController implements Initializable {
         System.out.println("Number of orders to display: " + orders.size());
         
         ordersContainer.getChildren().clear();
+        cardsByOrderId.clear();
+        if (orders != shownOrders) {
+            shownOrders.clear();
+            shownOrders.addAll(orders);
+        }
         
         if (orders.isEmpty()) {
             System.out.println("No orders found in database for user " + currentUserId);
@@ -145,12 +181,6 @@ public class OrdersDialogController implements Initializable {
             return;
         }
         
-        // Statistics
-        int totalOrders = orders.size();
-        double totalSpent = 0;
-        int processingCount = 0;
-        int deliveredCount = 0;
-        
         DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
         
         // Display each order
@@ -162,21 +192,7 @@ public class OrdersDialogController implements Initializable {
                 
                 VBox orderCard = createOrderCard(order, dateFormatter);
                 ordersContainer.getChildren().add(orderCard);
-                
-                // Update statistics
-                totalSpent += order.getTotalAmount();
-                
-                String status = order.getStatus();
-                if (status != null) {
-                    switch (status.toUpperCase()) {
-                        case "PROCESSING":
-                            processingCount++;
-                            break;
-                        case "DELIVERED":
-                            deliveredCount++;
-                            break;
-                    }
-                }
+                cardsByOrderId.put(order.getOrderId(), orderCard);
                 
             } catch (Exception e) {
                 System.err.println("Error creating card for order " + order.getOrderId() + ": " + e.getMessage());
@@ -184,10 +200,35 @@ public class OrdersDialogController implements Initializable {
             }
         }
         
-        updateSummaryLabels(totalOrders, totalSpent, processingCount, deliveredCount);
+        updateSummary();
         System.out.println("✓ Successfully displayed " + orders.size() + " orders");
     }
     
+    // Summary cards, computed from the orders shown
+    private void updateSummary() {
+        double totalSpent = 0;
+        int processingCount = 0;
+        int deliveredCount = 0;
+        
+        for (Order order : shownOrders) {
+            totalSpent += order.getTotalAmount();
+            
+            String status = order.getStatus();
+            if (status != null) {
+                switch (status.toUpperCase()) {
+                    case "PROCESSING":
+                        processingCount++;
+                        break;
+                    case "DELIVERED":
+                        deliveredCount++;
+                        break;
+                }
+            }
+        }
+        
+        updateSummaryLabels(shownOrders.size(), totalSpent, processingCount, deliveredCount);
+    }
+    
     private VBox createOrderCard(Order order, DateTimeFormatter dateFormatter) {
         VBox card = new VBox(12);
         card.setStyle("-fx-padding: 15; -fx-background-color: white; " +
@@ -335,25 +376,139 @@ public class OrdersDialogController implements Initializable {
         });
     }
     
+    /** Refresh quietly whenever one of this customer's orders is placed or changes status. */
+    private void watchOrders() {
+        stopWatchingOrders();
+        if (currentUserId <= 0) {
+            return;
+        }
+        orderEvents = EventBus.getInstance().subscribeOnFxThread(
+                EnumSet.of(ChangeEvent.Type.ORDER_PLACED, ChangeEvent.Type.ORDER_STATUS_CHANGED),
+                currentUserId, events -> refreshChangedOrders(false));
+    }
+    
+    private void stopWatchingOrders() {
+        if (orderEvents != null) {
+            orderEvents.cancel();
+            orderEvents = null;
+        }
+    }
+    
     @FXML
     private void handleRefresh() {
         System.out.println("=== Refresh button clicked ===");
         
         if (currentUserId > 0) {
-            loadOrders();
-            
-            Platform.runLater(() -> {
-                Alert alert = new Alert(Alert.AlertType.INFORMATION);
-                alert.setTitle("Refresh");
-                alert.setHeaderText(null);
-                alert.setContentText("Orders list refreshed!");
-                alert.show();
-            });
+            refreshChangedOrders(true);
         } else {
             showErrorInUI("Error", "Cannot refresh: User not set");
         }
     }
     
+    /**
+     * Fetch only this customer's orders created or changed since the last
+     * load and swap in their cards; the rest of the list is left alone.
+     * announce says whether to tell the user how many changed.
+     */
+    private void refreshChangedOrders(boolean announce) {
+        Timestamp watermark = ordersWatermark;
+        if (watermark == null) {
+            loadOrders();
+            return;
+        }
+        
+        try {
+            tasks.execute(TaskExecutor.Pool.DB_IO, () -> {
+                OrderChanges changes = databaseService.getCustomerOrderChangesSince(currentUserId, watermark);
+                
+                Platform.runLater(() -> {
+                    if (changes == null || changes.isTruncated()) {
+                        loadOrders();
+                        return;
+                    }
+                    ordersWatermark = changes.getWatermark();
+                    int merged = mergeChangedOrders(changes.getOrders());
+                    if (!announce) {
+                        return;
+                    }
+                    
+                    Alert alert = new Alert(Alert.AlertType.INFORMATION);
+                    alert.setTitle("Refresh");
+                    alert.setHeaderText(null);
+                    alert.setContentText(merged == 0 ? "Your orders are up to date" : merged + " orders updated");
+                    alert.show();
+                });
+            });
+        } catch (RejectedExecutionException e) {
+            System.err.println("Order refresh rejected: " + e.getMessage());
+            if (announce) {
+                showErrorInUI("Refresh Failed", "The database is busy, please try again.");
+            }
+        }
+    }
+    
+    /** Replace changed orders' cards and add new ones in date order; returns how many changed. */
+    private int mergeChangedOrders(List<Order> changed) {
+        boolean wasEmpty = shownOrders.isEmpty();
+        DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
+        Comparator<Order> newestFirst = OrderSort.NEWEST_FIRST.comparator();
+        int merged = 0;
+        
+        for (Order order : changed) {
+            int index = -1;
+            for (int i = 0; i < shownOrders.size(); i++) {
+                if (shownOrders.get(i).getOrderId().equals(order.getOrderId())) {
+                    index = i;
+                    break;
+                }
+            }
+            
+            if (index >= 0) {
+                Timestamp shownVersion = shownOrders.get(index).getUpdatedAt();
+                if (shownVersion != null && order.getUpdatedAt() != null && !order.getUpdatedAt().after(shownVersion)) {
+                    continue;  // re-read from the overlap window, unchanged since it was loaded
+                }
+                shownOrders.set(index, order);
+                if (!wasEmpty) {
+                    VBox oldCard = cardsByOrderId.remove(order.getOrderId());
+                    VBox card = createOrderCard(order, dateFormatter);
+                    cardsByOrderId.put(order.getOrderId(), card);
+                    int childIndex = oldCard != null ? ordersContainer.getChildren().indexOf(oldCard) : -1;
+                    if (childIndex >= 0) {
+                        ordersContainer.getChildren().set(childIndex, card);
+                    } else {
+                        ordersContainer.getChildren().add(card);
+                    }
+                }
+            } else {
+                int position = 0;
+                while (position < shownOrders.size() && newestFirst.compare(shownOrders.get(position), order) < 0) {
+                    position++;
+                }
+                shownOrders.add(position, order);
+                if (!wasEmpty) {
+                    VBox card = createOrderCard(order, dateFormatter);
+                    cardsByOrderId.put(order.getOrderId(), card);
+                    VBox next = position + 1 < shownOrders.size()
+                        ? cardsByOrderId.get(shownOrders.get(position + 1).getOrderId()) : null;
+                    int childIndex = next != null ? ordersContainer.getChildren().indexOf(next) : -1;
+                    ordersContainer.getChildren().add(childIndex >= 0 ? childIndex : ordersContainer.getChildren().size(), card);
+                }
+            }
+            merged++;
+        }
+        
+        if (merged > 0) {
+            if (wasEmpty) {
+                // Replace the "no orders yet" placeholder
+                displayOrders(shownOrders);
+            } else {
+                updateSummary();
+            }
+        }
+        return merged;
+    }
+    
     private void showErrorInUI(String title, String message) {
         Platform.runLater(() -> {
             ordersContainer.getChildren().clear();
@@ -0,0 +1,394 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool shared by every DatabaseService instance.
+ *
+ * Callers borrow a connection per operation with try-with-resources:
+ * closing the handed-out connection returns it to the pool instead of
+ * closing the physical session. Idle connections are validated before
+ * being handed out again, and statements a caller forgot to close are
+ * closed when the connection comes back.
+ *
+ * Each physical connection keeps an LRU cache of prepared statements keyed
+ * by SQL text (see StatementCache), so hot queries are parsed once per
+ * connection rather than once per call.
+ */
+public class ConnectionPool {
+    private static final String URL = "jdbc:mysql://localhost:3306/ecommerce_db";
+    private static final String USERNAME = "root";
+    private static final String PASSWORD = ""; // Your password here
+
+    private static final int MAX_POOL_SIZE = 10;
+    private static final long CHECKOUT_TIMEOUT_MS = 10_000;
+    private static final long VALIDATION_INTERVAL_MS = 30_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final int STATEMENT_CACHE_SIZE = 64;
+
+    private static volatile ConnectionPool instance;
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final int maxSize;
+
+    private final Semaphore permits;
+    private final Deque<PhysicalConnection> idle = new ArrayDeque<>();
+    private final AtomicInteger activeCount = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    // Metrics
+    private final LongAdder checkouts = new LongAdder();
+    private final LongAdder checkoutTimeouts = new LongAdder();
+    private final LongAdder connectionsCreated = new LongAdder();
+    private final LongAdder connectionsDiscarded = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder totalCheckoutNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Long::max, 0);
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final LongAdder statementCacheEvictions = new LongAdder();
+
+    public ConnectionPool(String url, String username, String password, int maxSize) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    public static ConnectionPool getInstance() {
+        ConnectionPool pool = instance;
+        if (pool == null) {
+            synchronized (ConnectionPool.class) {
+                pool = instance;
+                if (pool == null) {
+                    pool = new ConnectionPool(URL, USERNAME, PASSWORD, MAX_POOL_SIZE);
+                    Runtime.getRuntime().addShutdownHook(new Thread(pool::shutdown, "connection-pool-shutdown"));
+                    instance = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Borrow a connection. The caller must close it (ideally with
+     * try-with-resources) to hand it back to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(CHECKOUT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                checkoutTimeouts.increment();
+                throw new SQLException("Timed out after " + CHECKOUT_TIMEOUT_MS +
+                                       " ms waiting for a database connection (pool size " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        long waited = System.nanoTime() - start;
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulate(waited);
+
+        try {
+            PhysicalConnection physical = takeIdleOrCreate();
+            activeCount.incrementAndGet();
+            checkouts.increment();
+            totalCheckoutNanos.add(System.nanoTime() - start);
+            return wrap(physical);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private PhysicalConnection takeIdleOrCreate() throws SQLException {
+        while (true) {
+            PhysicalConnection candidate;
+            synchronized (idle) {
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                Connection created = DriverManager.getConnection(url, username, password);
+                connectionsCreated.increment();
+                return new PhysicalConnection(created, new StatementCache(created, STATEMENT_CACHE_SIZE,
+                        statementCacheHits, statementCacheMisses, statementCacheEvictions));
+            }
+            if (isUsable(candidate)) {
+                return candidate;
+            }
+            discard(candidate);
+        }
+    }
+
+    private boolean isUsable(PhysicalConnection candidate) {
+        try {
+            if (candidate.connection.isClosed()) {
+                return false;
+            }
+            long idleFor = System.currentTimeMillis() - candidate.returnedAt;
+            return idleFor < VALIDATION_INTERVAL_MS
+                    || candidate.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PhysicalConnection physical) {
+        activeCount.decrementAndGet();
+        try {
+            if (shutdown || physical.connection.isClosed()) {
+                discard(physical);
+                return;
+            }
+            // Leave the session the way the next borrower expects it
+            physical.statements.releaseAll();
+            if (!physical.connection.getAutoCommit()) {
+                physical.connection.rollback();
+                physical.connection.setAutoCommit(true);
+            }
+            physical.returnedAt = System.currentTimeMillis();
+            synchronized (idle) {
+                // Most recently used first keeps the hot connections warm
+                idle.addFirst(physical);
+            }
+        } catch (SQLException e) {
+            System.err.println("Discarding broken pooled connection: " + e.getMessage());
+            discard(physical);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void discard(PhysicalConnection physical) {
+        connectionsDiscarded.increment();
+        physical.statements.close();
+        try {
+            physical.connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled connection: " + e.getMessage());
+        }
+    }
+
+    private Connection wrap(PhysicalConnection physical) {
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new PooledConnectionHandler(physical));
+    }
+
+    /**
+     * Close all idle connections and refuse further checkouts. Connections
+     * still on loan are closed as they come back.
+     */
+    public void shutdown() {
+        shutdown = true;
+        synchronized (idle) {
+            PhysicalConnection entry;
+            while ((entry = idle.pollFirst()) != null) {
+                discard(entry);
+            }
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /** Threads currently blocked waiting for a connection. */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public long getTotalCheckouts() {
+        return checkouts.sum();
+    }
+
+    public long getCheckoutTimeouts() {
+        return checkoutTimeouts.sum();
+    }
+
+    public long getConnectionsCreated() {
+        return connectionsCreated.sum();
+    }
+
+    public long getConnectionsDiscarded() {
+        return connectionsDiscarded.sum();
+    }
+
+    /** Average time spent waiting for a free slot in the pool. */
+    public double getAverageWaitMillis() {
+        long count = checkouts.sum();
+        return count == 0 ? 0 : totalWaitNanos.sum() / 1_000_000.0 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    /** Average end-to-end checkout latency (wait + validation/creation). */
+    public double getAverageCheckoutMillis() {
+        long count = checkouts.sum();
+        return count == 0 ? 0 : totalCheckoutNanos.sum() / 1_000_000.0 / count;
+    }
+
+    /** prepareStatement() calls served from a connection's statement cache. */
+    public long getStatementCacheHits() {
+        return statementCacheHits.sum();
+    }
+
+    /** prepareStatement() calls that had to prepare a new statement. */
+    public long getStatementCacheMisses() {
+        return statementCacheMisses.sum();
+    }
+
+    public long getStatementCacheEvictions() {
+        return statementCacheEvictions.sum();
+    }
+
+    public double getStatementCacheHitRatio() {
+        long hits = statementCacheHits.sum();
+        long total = hits + statementCacheMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[active=%d, idle=%d, waiting=%d, max=%d, checkouts=%d, " +
+                             "timeouts=%d, avgWait=%.2fms, maxWait=%.2fms, avgCheckout=%.2fms, " +
+                             "stmtCache hits=%d misses=%d evictions=%d hitRatio=%.1f%%]",
+                getActiveCount(), getIdleCount(), getWaitingCount(), maxSize, getTotalCheckouts(),
+                getCheckoutTimeouts(), getAverageWaitMillis(), getMaxWaitMillis(), getAverageCheckoutMillis(),
+                getStatementCacheHits(), getStatementCacheMisses(), getStatementCacheEvictions(),
+                getStatementCacheHitRatio() * 100);
+    }
+
+    /** A physical connection plus its statement cache; lives in the idle deque between borrows. */
+    private static final class PhysicalConnection {
+        final Connection connection;
+        final StatementCache statements;
+        long returnedAt;
+
+        PhysicalConnection(Connection connection, StatementCache statements) {
+            this.connection = connection;
+            this.statements = statements;
+        }
+    }
+
+    /**
+     * Hands calls through to the physical connection, except close() which
+     * returns it to the pool. A handle can only be closed once.
+     */
+    private final class PooledConnectionHandler implements InvocationHandler {
+        private final PhysicalConnection pooled;
+        private final Connection physical;
+        private final List<Statement> openStatements = new ArrayList<>();
+        private boolean closed;
+
+        PooledConnectionHandler(PhysicalConnection pooled) {
+            this.pooled = pooled;
+            this.physical = pooled.connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (!closed) {
+                            closed = true;
+                            closeStatements();
+                            release(pooled);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    synchronized (this) {
+                        return closed || physical.isClosed();
+                    }
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                default:
+                    synchronized (this) {
+                        if (closed) {
+                            throw new SQLException("Connection has already been returned to the pool");
+                        }
+                    }
+                    Object result;
+                    if (isCacheablePrepare(method, args)) {
+                        result = pooled.statements.prepare((String) args[0]);
+                    } else {
+                        try {
+                            result = method.invoke(physical, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    }
+                    if (result instanceof Statement) {
+                        synchronized (this) {
+                            openStatements.add((Statement) result);
+                        }
+                    }
+                    return result;
+            }
+        }
+
+        // Only the plain prepareStatement(String) overload is cached
+        private boolean isCacheablePrepare(Method method, Object[] args) {
+            return method.getName().equals("prepareStatement") && args != null && args.length == 1;
+        }
+
+        private void closeStatements() {
+            for (Statement statement : openStatements) {
+                try {
+                    if (!statement.isClosed()) {
+                        statement.close();
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Error closing leaked statement: " + e.getMessage());
+                }
+            }
+            openStatements.clear();
+        }
+    }
+}
@@ -1,36 +1,23 @@
 package database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class Database {
-    
-    
-    private static final String URL = "jdbc:mysql://localhost:3306/your_database_name";
-    private static final String USERNAME = "your_username";
-    private static final String PASSWORD = "your_password";
-    
-    private static Connection connection;
-    
+
+    /**
+     * Borrow a pooled connection. Close it when done to return it to the pool.
+     */
     public static Connection getConnection() {
         try {
-            if (connection == null || connection.isClosed()) {
-                connection = DriverManager.getConnection(URL, USER, PASSWORD);
-            }
+            return ConnectionPool.getInstance().getConnection();
         } catch (SQLException e) {
             System.out.println("Database connection failed: " + e.getMessage());
         }
-        return connection;
+        return null;
     }
-    
+
     public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-            }
-        } catch (SQLException e) {
-            System.out.println("Error closing connection: " + e.getMessage());
-        }
+        ConnectionPool.getInstance().shutdown();
     }
-}
\ No newline at end of file
+}
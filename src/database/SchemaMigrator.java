@@ -0,0 +1,543 @@
+package database;
+
+import utils.PasswordHasher;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Versioned schema bootstrap.
+ *
+ * Each migration runs at most once per database and is recorded in the
+ * schema_version table. The check itself runs at most once per process, so
+ * constructing a DatabaseService after startup costs nothing here.
+ */
+public class SchemaMigrator {
+
+    /** Full-text index over the messages' text columns, if the database could build it. */
+    public static final String MESSAGE_TEXT_INDEX = "ft_messages_text";
+
+    private static final List<Migration> MIGRATIONS = new ArrayList<>();
+
+    static {
+        MIGRATIONS.add(new Migration(1, "Create base tables", SchemaMigrator::createBaseTables));
+        MIGRATIONS.add(new Migration(2, "Insert default categories, admin and sample products", SchemaMigrator::insertDefaultData));
+        MIGRATIONS.add(new Migration(3, "Hash plain text passwords", SchemaMigrator::migratePlainPasswordsToHashed));
+        MIGRATIONS.add(new Migration(4, "Index orders for keyset pagination", SchemaMigrator::createOrderPagingIndexes));
+        MIGRATIONS.add(new Migration(5, "Index products for catalog queries", SchemaMigrator::createCatalogIndexes));
+        MIGRATIONS.add(new Migration(6, "Record checkout idempotency keys", SchemaMigrator::createOrderIdempotencyKeys));
+        MIGRATIONS.add(new Migration(7, "Track when orders change for delta refresh", SchemaMigrator::addOrderUpdatedAt));
+        MIGRATIONS.add(new Migration(8, "Create change log for live screen updates", SchemaMigrator::createChangeLog));
+        MIGRATIONS.add(new Migration(9, "Index messages for the paged admin inbox", SchemaMigrator::createMessageIndexes));
+        MIGRATIONS.add(new Migration(10, "Index unread messages by customer", SchemaMigrator::createUnreadMessageIndex));
+        MIGRATIONS.add(new Migration(11, "Group messages into conversation threads", SchemaMigrator::createMessageThreads));
+    }
+
+    private static volatile boolean migrated;
+
+    /**
+     * Bring the schema up to date. Only the first successful call per
+     * process touches the database; a failed run is retried on the next call.
+     */
+    public static void migrate(ConnectionPool pool) {
+        if (migrated) {
+            return;
+        }
+        synchronized (SchemaMigrator.class) {
+            if (migrated) {
+                return;
+            }
+            try (Connection conn = pool.getConnection()) {
+                System.out.println("Database connected successfully!");
+                applyPending(conn);
+                migrated = true;
+            } catch (SQLException e) {
+                System.err.println("Error initializing database: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Highest applied schema version, or 0 if none has been recorded. */
+    public static int getCurrentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void applyPending(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS schema_version (" +
+                         "version INT PRIMARY KEY," +
+                         "description VARCHAR(200) NOT NULL," +
+                         "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                         ")");
+        }
+
+        int current = getCurrentVersion(conn);
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) {
+                continue;
+            }
+            long start = System.currentTimeMillis();
+            migration.step.apply(conn);
+            recordVersion(conn, migration);
+            System.out.println("✓ Schema migrated to version " + migration.version + " (" +
+                               migration.description + ") in " + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
+    private static void recordVersion(Connection conn, Migration migration) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, description) VALUES (?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, migration.version);
+            pstmt.setString(2, migration.description);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // ========== MIGRATIONS ==========
+
+    private static void createBaseTables(Connection conn) throws SQLException {
+        Statement stmt = conn.createStatement();
+        
+        // Create tables if they don't exist (simplified version)
+        String[] createTables = {
+            // Users table
+            "CREATE TABLE IF NOT EXISTS users (" +
+            "id INT PRIMARY KEY AUTO_INCREMENT," +
+            "username VARCHAR(50) UNIQUE NOT NULL," +
+            "password VARCHAR(100) NOT NULL," +
+            "email VARCHAR(100) UNIQUE NOT NULL," +
+            "role VARCHAR(20) DEFAULT 'CUSTOMER'," +
+            "full_name VARCHAR(100)," +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+            ")",
+            
+            // Categories table
+            "CREATE TABLE IF NOT EXISTS categories (" +
+            "id INT PRIMARY KEY AUTO_INCREMENT," +
+            "name VARCHAR(100) NOT NULL UNIQUE," +
+            "description TEXT," +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+            ")",
+            
+            // Products table with category_id foreign key
+            "CREATE TABLE IF NOT EXISTS products (" +
+            "id INT PRIMARY KEY AUTO_INCREMENT," +
+            "name VARCHAR(200) NOT NULL," +
+            "description TEXT," +
+            "price DECIMAL(10,2) NOT NULL," +
+            "category_id INT NOT NULL," +
+            "image_url VARCHAR(500)," +
+            "stock_quantity INT DEFAULT 0," +
+            "discount_percentage DECIMAL(5,2) DEFAULT 0," +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+            "FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE CASCADE" +
+            ")",
+         // Orders table
+            "CREATE TABLE IF NOT EXISTS orders (" +
+            "id INT PRIMARY KEY AUTO_INCREMENT," +
+            "customer_id INT NOT NULL," +
+            "order_number VARCHAR(50) UNIQUE NOT NULL," +
+            "order_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+            "total_amount DECIMAL(10,2) NOT NULL," +
+            "shipping_address TEXT NOT NULL," +
+            "payment_method VARCHAR(50) NOT NULL," +
+            "payment_status VARCHAR(20) DEFAULT 'PENDING'," +
+            "order_status VARCHAR(20) DEFAULT 'PENDING'," +
+            "notes TEXT," +
+            "FOREIGN KEY (customer_id) REFERENCES users(id) ON DELETE CASCADE" +
+            ")",
+
+            // Order items table
+            "CREATE TABLE IF NOT EXISTS order_items (" +
+            "id INT PRIMARY KEY AUTO_INCREMENT," +
+            "order_id INT NOT NULL," +
+            "product_id INT NOT NULL," +
+            "quantity INT NOT NULL," +
+            "unit_price DECIMAL(10,2) NOT NULL," +
+            "total_price DECIMAL(10,2) NOT NULL," +
+            "FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE," +
+            "FOREIGN KEY (product_id) REFERENCES products(id)" +
+            ")",
+
+            // Order tracking table
+            "CREATE TABLE IF NOT EXISTS order_tracking (" +
+            "id INT PRIMARY KEY AUTO_INCREMENT," +
+            "order_id INT NOT NULL," +
+            "status VARCHAR(50) NOT NULL," +
+            "update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+            "notes TEXT," +
+            "FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE" +
+            ")",
+
+            // Messages table for customer support
+            "CREATE TABLE IF NOT EXISTS messages (" +
+            "id INT PRIMARY KEY AUTO_INCREMENT," +
+            "customer_id INT NOT NULL," +
+            "subject VARCHAR(200) NOT NULL," +
+            "message TEXT NOT NULL," +
+            "admin_reply TEXT," +
+            "status VARCHAR(20) DEFAULT 'UNREAD'," +
+            "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+            "replied_at TIMESTAMP NULL," +
+            "FOREIGN KEY (customer_id) REFERENCES users(id) ON DELETE CASCADE" +
+            ")",
+
+            // Payment methods table
+            "CREATE TABLE IF NOT EXISTS payment_methods (" +
+            "id INT PRIMARY KEY AUTO_INCREMENT," +
+            "name VARCHAR(50) NOT NULL UNIQUE," +
+            "description TEXT," +
+            "is_active BOOLEAN DEFAULT true" +
+            ")"
+        };
+        
+        for (String sql : createTables) {
+            stmt.execute(sql);
+        }
+        
+        stmt.close();
+    }
+    
+    private static void insertDefaultData(Connection conn) throws SQLException {
+        Statement stmt = conn.createStatement();
+        
+        // Insert categories if empty
+        ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM categories");
+        rs.next();
+        if (rs.getInt(1) == 0) {
+            String[] categories = {
+                "INSERT INTO categories (name, description) VALUES ('Electronics', 'Electronic devices and gadgets')",
+                "INSERT INTO categories (name, description) VALUES ('Clothing', 'Fashion and apparel')",
+                "INSERT INTO categories (name, description) VALUES ('Books', 'Books and educational materials')",
+                "INSERT INTO categories (name, description) VALUES ('Home & Garden', 'Home improvement supplies')",
+                "INSERT INTO categories (name, description) VALUES ('Accessories', 'Fashion accessories')"
+            };
+            
+            for (String sql : categories) {
+                stmt.executeUpdate(sql);
+            }
+        }
+        
+        // Insert admin user if not exists
+        rs = stmt.executeQuery("SELECT COUNT(*) FROM users WHERE username = 'admin'");
+        rs.next();
+        if (rs.getInt(1) == 0) {
+            // Hash the admin password
+            String hashedPassword = PasswordHasher.hashPassword("admin123");
+            
+            stmt.executeUpdate("INSERT INTO users (username, password, email, role, full_name) " +
+                               "VALUES ('admin', '" + hashedPassword + "', 'admin@store.com', 'ADMIN', 'System Administrator')");
+            System.out.println("✓ Default admin created with hashed password");
+        }
+        
+        // Insert sample products if empty
+        rs = stmt.executeQuery("SELECT COUNT(*) FROM products");
+        rs.next();
+        if (rs.getInt(1) == 0) {
+            insertSampleProducts(conn);
+        }
+        
+        stmt.close();
+    }
+    
+    /**
+     * Migrate existing plain passwords to hashed passwords
+     */
+    private static void migratePlainPasswordsToHashed(Connection conn) throws SQLException {
+        String query = "SELECT id, password FROM users";
+        PreparedStatement selectStmt = conn.prepareStatement(query);
+        ResultSet rs = selectStmt.executeQuery();
+        
+        int migratedCount = 0;
+        while (rs.next()) {
+            String password = rs.getString("password");
+            int userId = rs.getInt("id");
+            
+            // Check if password is not hashed (short password = likely plain text)
+            if (password != null && password.length() < 50) {
+                // Hash the plain password
+                String hashedPassword = PasswordHasher.hashPassword(password);
+                
+                String updateQuery = "UPDATE users SET password = ? WHERE id = ?";
+                PreparedStatement updateStmt = conn.prepareStatement(updateQuery);
+                updateStmt.setString(1, hashedPassword);
+                updateStmt.setInt(2, userId);
+                updateStmt.executeUpdate();
+                updateStmt.close();
+                
+                migratedCount++;
+                System.out.println("Migrated password for user ID: " + userId);
+            }
+        }
+        
+        rs.close();
+        selectStmt.close();
+        if (migratedCount > 0) {
+            System.out.println("✓ Migrated " + migratedCount + " passwords to hashed format");
+        }
+    }
+    
+    private static void insertSampleProducts(Connection conn) throws SQLException {
+        // Get category IDs
+        Statement stmt = conn.createStatement();
+        
+        // Create map of category names to IDs
+        ResultSet categoryRs = stmt.executeQuery("SELECT id, name FROM categories");
+        java.util.Map<String, Integer> categoryMap = new java.util.HashMap<>();
+        while (categoryRs.next()) {
+            categoryMap.put(categoryRs.getString("name"), categoryRs.getInt("id"));
+        }
+        
+        // Sample products with category IDs
+        String[][] sampleProducts = {
+            // name, price, category_id, description, stock
+            {"iPhone 15 Pro", "999.99", String.valueOf(categoryMap.get("Electronics")), 
+             "Latest iPhone with advanced camera", "50"},
+            {"MacBook Pro", "2399.99", String.valueOf(categoryMap.get("Electronics")), 
+             "Apple laptop for professionals", "30"},
+            {"Nike Air Max", "149.99", String.valueOf(categoryMap.get("Clothing")), 
+             "Comfortable running shoes", "100"},
+            {"Levis 501 Jeans", "79.99", String.valueOf(categoryMap.get("Clothing")), 
+             "Classic straight fit jeans", "120"},
+            {"The Psychology of Money", "19.99", String.valueOf(categoryMap.get("Books")), 
+             "Wealth and happiness lessons", "200"},
+            {"Atomic Habits", "16.99", String.valueOf(categoryMap.get("Books")), 
+             "Build good habits", "180"},
+            {"Dyson Vacuum", "699.99", String.valueOf(categoryMap.get("Home & Garden")), 
+             "Cordless vacuum cleaner", "40"},
+            {"KitchenAid Mixer", "429.99", String.valueOf(categoryMap.get("Home & Garden")), 
+             "Stand mixer for baking", "35"},
+            {"Ray-Ban Sunglasses", "159.99", String.valueOf(categoryMap.get("Accessories")), 
+             "Classic aviator sunglasses", "80"},
+            {"Fossil Watch", "129.99", String.valueOf(categoryMap.get("Accessories")), 
+             "Leather strap watch", "60"}
+        };
+        
+        for (String[] product : sampleProducts) {
+            String sql = String.format(
+                "INSERT INTO products (name, price, category_id, description, stock_quantity) " +
+                "VALUES ('%s', %s, %s, '%s', %s)",
+                product[0], product[1], product[2], product[3], product[4]
+            );
+            stmt.executeUpdate(sql);
+        }
+        
+        System.out.println("Sample products inserted successfully!");
+        stmt.close();
+    }
+
+
+    private static void createOrderPagingIndexes(Connection conn) throws SQLException {
+        createIndexIfMissing(conn, "orders", "idx_orders_date_id", "order_date", "id");
+        createIndexIfMissing(conn, "orders", "idx_orders_total_id", "total_amount", "id");
+        createIndexIfMissing(conn, "orders", "idx_orders_status_date_id", "status", "order_date", "id");
+    }
+    
+    private static void createCatalogIndexes(Connection conn) throws SQLException {
+        createIndexIfMissing(conn, "products", "idx_products_category_price", "category_id", "price");
+        createIndexIfMissing(conn, "products", "idx_products_name", "name");
+    }
+    
+    private static void createOrderIdempotencyKeys(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS order_idempotency_keys (" +
+                         "idempotency_key CHAR(64) PRIMARY KEY," +
+                         "order_id VARCHAR(50) NOT NULL," +
+                         "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                         ")");
+        }
+    }
+    
+    private static void addOrderUpdatedAt(Connection conn) throws SQLException {
+        if (!columnExists(conn, "orders", "updated_at")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE orders ADD COLUMN updated_at TIMESTAMP(3) NOT NULL " +
+                             "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)");
+                // Existing orders last changed, as far as we know, when they were placed
+                if (columnExists(conn, "orders", "order_date")) {
+                    stmt.executeUpdate("UPDATE orders SET updated_at = COALESCE(order_date, updated_at)");
+                }
+            }
+        }
+        createIndexIfMissing(conn, "orders", "idx_orders_updated_id", "updated_at", "id");
+        createIndexIfMissing(conn, "orders", "idx_orders_customer_updated", "customer_id", "updated_at");
+    }
+    
+    private static void createChangeLog(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS change_log (" +
+                         "id BIGINT AUTO_INCREMENT PRIMARY KEY," +
+                         "event_type VARCHAR(40) NOT NULL," +
+                         "entity_id INT NOT NULL," +
+                         "customer_id INT NULL," +
+                         "payload VARCHAR(255) NULL," +
+                         "origin INT NOT NULL DEFAULT 0," +
+                         "created_at TIMESTAMP(3) DEFAULT CURRENT_TIMESTAMP(3)" +
+                         ")");
+        }
+        createIndexIfMissing(conn, "change_log", "idx_change_log_created", "created_at");
+    }
+    
+    private static void createMessageIndexes(Connection conn) throws SQLException {
+        // The inbox lists unread, then read, then replied messages; a stored copy of that rank
+        // can be indexed, where ORDER BY CASE status ... can't use an index at all
+        if (!columnExists(conn, "messages", "status_rank")) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE messages ADD COLUMN status_rank TINYINT AS " +
+                             "(CASE status WHEN 'UNREAD' THEN 1 WHEN 'READ' THEN 2 ELSE 3 END) STORED");
+            }
+        }
+        createIndexIfMissing(conn, "messages", "idx_messages_rank_created", "status_rank", "created_at", "id");
+        createIndexIfMissing(conn, "messages", "idx_messages_status_created", "status", "created_at", "id");
+        createIndexIfMissing(conn, "messages", "idx_messages_customer_created", "customer_id", "created_at", "id");
+        
+        // Optional: search falls back to LIKE without it
+        List<String> textColumns = new ArrayList<>();
+        for (String column : new String[] {"customer_name", "customer_email", "subject", "message"}) {
+            if (columnExists(conn, "messages", column)) {
+                textColumns.add(column);
+            }
+        }
+        if (!indexExists(conn, "messages", MESSAGE_TEXT_INDEX) && !textColumns.isEmpty()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE FULLTEXT INDEX " + MESSAGE_TEXT_INDEX + " ON messages (" +
+                             String.join(", ", textColumns) + ")");
+            } catch (SQLException e) {
+                System.err.println("Skipping full-text index on messages: " + e.getMessage());
+            }
+        }
+    }
+    
+    private static void createUnreadMessageIndex(Connection conn) throws SQLException {
+        // Covers the unread counts per customer (WHERE status = 'UNREAD' GROUP BY customer_id)
+        createIndexIfMissing(conn, "messages", "idx_messages_status_customer", "status", "customer_id");
+    }
+    
+    private static void createMessageThreads(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS message_threads (" +
+                         "id INT PRIMARY KEY AUTO_INCREMENT," +
+                         "customer_id INT NOT NULL," +
+                         "subject VARCHAR(200) NOT NULL," +
+                         "message_count INT NOT NULL DEFAULT 0," +
+                         "last_preview VARCHAR(200) NULL," +
+                         "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                         "last_activity_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
+                         "FOREIGN KEY (customer_id) REFERENCES users(id) ON DELETE CASCADE" +
+                         ")");
+            if (!columnExists(conn, "messages", "thread_id")) {
+                stmt.execute("ALTER TABLE messages ADD COLUMN thread_id INT NULL");
+            }
+        }
+        createIndexIfMissing(conn, "message_threads", "idx_threads_customer_activity", "customer_id", "last_activity_at");
+        createIndexIfMissing(conn, "messages", "idx_messages_thread_created", "thread_id", "created_at", "id");
+        
+        // Each customer's existing messages become one conversation. Both statements commit
+        // together, and a rerun skips customers who already have a thread, so retrying after
+        // a failure never gives a customer a second "Support" thread.
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO message_threads " +
+                               "(customer_id, subject, message_count, created_at, last_activity_at) " +
+                               "SELECT m.customer_id, 'Support', COUNT(*), MIN(m.created_at), " +
+                               "MAX(COALESCE(m.replied_at, m.created_at)) " +
+                               "FROM messages m WHERE m.thread_id IS NULL AND NOT EXISTS " +
+                               "(SELECT 1 FROM message_threads t WHERE t.customer_id = m.customer_id) " +
+                               "GROUP BY m.customer_id");
+            // The customer's first thread, should an earlier run have left more than one
+            stmt.executeUpdate("UPDATE messages m JOIN " +
+                               "(SELECT customer_id, MIN(id) AS id FROM message_threads GROUP BY customer_id) t " +
+                               "ON t.customer_id = m.customer_id " +
+                               "SET m.thread_id = t.id WHERE m.thread_id IS NULL");
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+    
+    // ========== HELPERS ==========
+    
+    /**
+     * MySQL has no CREATE INDEX IF NOT EXISTS, so check information_schema
+     * first. Indexes over columns this database doesn't have are skipped.
+     */
+    static void createIndexIfMissing(Connection conn, String table, String indexName, String... columns)
+            throws SQLException {
+        if (indexExists(conn, table, indexName)) {
+            return;
+        }
+        
+        for (String column : columns) {
+            if (!columnExists(conn, table, column)) {
+                System.err.println("Skipping index " + indexName + ": " + table + "." + column + " does not exist");
+                return;
+            }
+        }
+        
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE INDEX " + indexName + " ON " + table + " (" + String.join(", ", columns) + ")");
+        }
+    }
+    
+    /** Columns of an index in index order; empty if there is no such index. */
+    public static List<String> indexColumns(Connection conn, String table, String indexName) throws SQLException {
+        String sql = "SELECT column_name FROM information_schema.statistics " +
+                     "WHERE table_schema = DATABASE() AND table_name = ? AND index_name = ? ORDER BY seq_in_index";
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, indexName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(rs.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+    
+    static boolean indexExists(Connection conn, String table, String indexName) throws SQLException {
+        return !indexColumns(conn, table, indexName).isEmpty();
+    }
+    
+    static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        String sql = "SELECT COUNT(*) FROM information_schema.columns " +
+                     "WHERE table_schema = DATABASE() AND table_name = ? AND column_name = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, column);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface MigrationStep {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Migration {
+        final int version;
+        final String description;
+        final MigrationStep step;
+
+        Migration(int version, String description, MigrationStep step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+}
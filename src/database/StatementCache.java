@@ -0,0 +1,199 @@
+package database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by
+ * SQL text.
+ *
+ * Callers get a handle whose close() hands the statement back to the cache
+ * (reset as if freshly prepared, see reset()) instead of closing it, so the next prepareStatement()
+ * with the same SQL skips parsing and planning. Statements pushed out of
+ * the cache are closed, or closed as soon as their current user is done
+ * with them.
+ */
+class StatementCache {
+    private final Connection connection;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    private final LinkedHashMap<String, PreparedStatement> statements;
+    private final Set<PreparedStatement> inUse = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<PreparedStatement> evictedInUse = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    StatementCache(Connection connection, int capacity, LongAdder hits, LongAdder misses, LongAdder evictions) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        // Access order makes iteration order least-recently-used first
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Prepare (or reuse) a statement for the given SQL. If the cached
+     * statement for this SQL is already open in the same borrow, a plain
+     * uncached statement is returned instead.
+     */
+    synchronized PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement cached = statements.get(sql);
+        if (cached != null && !inUse.contains(cached)) {
+            hits.increment();
+            inUse.add(cached);
+            return wrap(cached);
+        }
+
+        misses.increment();
+        if (cached != null) {
+            // Same SQL nested inside itself: don't share one statement between two users
+            return connection.prepareStatement(sql);
+        }
+
+        PreparedStatement created = connection.prepareStatement(sql);
+        statements.put(sql, created);
+        inUse.add(created);
+        evictOverflow();
+        return wrap(created);
+    }
+
+    private void evictOverflow() {
+        Iterator<PreparedStatement> iterator = statements.values().iterator();
+        while (statements.size() > capacity && iterator.hasNext()) {
+            PreparedStatement eldest = iterator.next();
+            iterator.remove();
+            evictions.increment();
+            if (inUse.contains(eldest)) {
+                evictedInUse.add(eldest);
+            } else {
+                closeQuietly(eldest);
+            }
+        }
+    }
+
+    private synchronized void giveBack(PreparedStatement statement) {
+        if (!inUse.remove(statement)) {
+            return;
+        }
+        if (evictedInUse.remove(statement)) {
+            closeQuietly(statement);
+            return;
+        }
+        try {
+            reset(statement);
+        } catch (SQLException e) {
+            // A statement that can't be reset can't be reused
+            statements.values().remove(statement);
+            closeQuietly(statement);
+        }
+    }
+
+    /**
+     * Undo what the last user may have left behind: parameters, a batch that
+     * was added to but never executed (say, after an exception), and per-use
+     * settings, which are put back to the JDBC defaults.
+     */
+    private static void reset(PreparedStatement statement) throws SQLException {
+        statement.clearParameters();
+        statement.clearBatch();
+        statement.setFetchSize(0);
+        statement.setMaxRows(0);
+        statement.setQueryTimeout(0);
+    }
+
+    /** Statements still marked in use when their connection comes back are reclaimed. */
+    synchronized void releaseAll() {
+        for (PreparedStatement statement : inUse.toArray(new PreparedStatement[0])) {
+            giveBack(statement);
+        }
+    }
+
+    /** Close every cached statement; called before the physical connection is closed. */
+    synchronized void close() {
+        for (PreparedStatement statement : statements.values()) {
+            closeQuietly(statement);
+        }
+        for (PreparedStatement statement : evictedInUse) {
+            closeQuietly(statement);
+        }
+        statements.clear();
+        inUse.clear();
+        evictedInUse.clear();
+    }
+
+    synchronized int size() {
+        return statements.size();
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing cached statement: " + e.getMessage());
+        }
+    }
+
+    private PreparedStatement wrap(PreparedStatement physical) {
+        return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new CachedStatementHandler(physical));
+    }
+
+    /**
+     * Passes calls through to the cached statement, except close() which
+     * returns it to the cache. A handle can only be closed once.
+     */
+    private final class CachedStatementHandler implements InvocationHandler {
+        private final PreparedStatement physical;
+        private boolean closed;
+
+        CachedStatementHandler(PreparedStatement physical) {
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        giveBack(physical);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + physical + "]";
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement has already been returned to the cache");
+                    }
+                    try {
+                        return method.invoke(physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package models;
+
+/**
+ * Outcome of a bulk change to orders or messages: how many were asked for,
+ * changed, and left alone because their status didn't allow the change
+ * (or they no longer exist). When the change failed, nothing was written
+ * and getError() says why.
+ */
+public class BulkUpdateResult {
+    private final int requested;
+    private final int updated;
+    private final int skipped;
+    private final String error;
+
+    private BulkUpdateResult(int requested, int updated, int skipped, String error) {
+        this.requested = requested;
+        this.updated = updated;
+        this.skipped = skipped;
+        this.error = error;
+    }
+
+    public static BulkUpdateResult completed(int requested, int updated, int skipped) {
+        return new BulkUpdateResult(requested, updated, skipped, null);
+    }
+
+    public static BulkUpdateResult failed(int requested, String error) {
+        return new BulkUpdateResult(requested, 0, 0, error);
+    }
+
+    public int getRequested() { return requested; }
+    public int getUpdated() { return updated; }
+    public int getSkipped() { return skipped; }
+    public boolean isSuccess() { return error == null; }
+    public String getError() { return error; }
+}
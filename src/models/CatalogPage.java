@@ -0,0 +1,45 @@
+package models;
+
+import java.util.List;
+
+/**
+ * One page of catalog products, the number of products matching the query
+ * and the cursor needed to fetch the next page.
+ */
+public class CatalogPage {
+    private final List<Product> products;
+    private final int totalCount;
+    private final Cursor nextCursor;
+    
+    public CatalogPage(List<Product> products, int totalCount, Cursor nextCursor) {
+        this.products = products;
+        this.totalCount = totalCount;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<Product> getProducts() { return products; }
+    
+    /** Matching products across all pages; only computed for the first page (-1 otherwise). */
+    public int getTotalCount() { return totalCount; }
+    
+    /** Cursor positioned after the last product of this page, or null on the last page. */
+    public Cursor getNextCursor() { return nextCursor; }
+    
+    public boolean hasMore() { return nextCursor != null; }
+    
+    /**
+     * Keyset position: the sort value and id of the last product already seen.
+     */
+    public static class Cursor {
+        private final Object sortValue;
+        private final int id;
+        
+        public Cursor(Object sortValue, int id) {
+            this.sortValue = sortValue;
+            this.id = id;
+        }
+        
+        public Object getSortValue() { return sortValue; }
+        public int getId() { return id; }
+    }
+}
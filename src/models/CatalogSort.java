@@ -0,0 +1,58 @@
+package models;
+
+import java.util.Locale;
+
+/**
+ * Sort keys for catalog queries. Each key orders on one SQL expression plus
+ * the product id as a tie-breaker so pages can use a keyset cursor.
+ */
+public enum CatalogSort {
+    NEWEST("p.id", true),
+    // Best search matches first; without search text this is the same as NEWEST
+    RELEVANCE("p.id", true),
+    NAME_ASC("p.name", false),
+    NAME_DESC("p.name", true),
+    PRICE_ASC("p.price", false),
+    PRICE_DESC("p.price", true),
+    FINAL_PRICE_ASC("(p.price * (100 - p.discount_percentage) / 100)", false),
+    FINAL_PRICE_DESC("(p.price * (100 - p.discount_percentage) / 100)", true),
+    DISCOUNT_DESC("p.discount_percentage", true),
+    STOCK_DESC("p.stock_quantity", true);
+    
+    private final String expression;
+    private final boolean descending;
+    
+    CatalogSort(String expression, boolean descending) {
+        this.expression = expression;
+        this.descending = descending;
+    }
+    
+    public String getExpression() { return expression; }
+    public boolean isDescending() { return descending; }
+    
+    /**
+     * The in-memory equivalent of the SQL expression, for catalog pages
+     * served from the cache. Names compare case-insensitively like the
+     * database collation. RELEVANCE has no product value; the caller
+     * supplies the search score.
+     */
+    public Comparable<?> valueOf(Product product) {
+        switch (this) {
+            case NAME_ASC:
+            case NAME_DESC:
+                return product.getName() == null ? "" : product.getName().toLowerCase(Locale.ROOT);
+            case PRICE_ASC:
+            case PRICE_DESC:
+                return product.getPrice();
+            case FINAL_PRICE_ASC:
+            case FINAL_PRICE_DESC:
+                return product.getFinalPrice();
+            case DISCOUNT_DESC:
+                return product.getDiscountPercentage();
+            case STOCK_DESC:
+                return product.getStockQuantity();
+            default:
+                return product.getId();
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package models;
+
+import java.time.LocalDateTime;
+
+/**
+ * One row of the change log: something changed that open screens may want
+ * to show. entityId is the order, message, product or category that changed;
+ * customerId is the customer it concerns, if any, so a customer's screens
+ * can ignore everyone else's changes. payload is a short detail such as
+ * the new order status.
+ */
+public class ChangeEvent {
+    public enum Type {
+        ORDER_PLACED,
+        ORDER_STATUS_CHANGED,
+        MESSAGE_CREATED,
+        MESSAGE_REPLIED,
+        MESSAGE_READ,
+        MESSAGE_DELETED,
+        PRODUCT_UPDATED,
+        PRODUCT_DELETED,
+        CATEGORY_CHANGED
+    }
+
+    private final long id;
+    private final Type type;
+    private final int entityId;
+    private final Integer customerId;
+    private final String payload;
+    private final int origin;
+    private final LocalDateTime createdAt;
+
+    public ChangeEvent(long id, Type type, int entityId, Integer customerId, String payload,
+                       int origin, LocalDateTime createdAt) {
+        this.id = id;
+        this.type = type;
+        this.entityId = entityId;
+        this.customerId = customerId;
+        this.payload = payload;
+        this.origin = origin;
+        this.createdAt = createdAt;
+    }
+
+    /** An event to append; the log assigns the id, origin and time. */
+    public ChangeEvent(Type type, int entityId, Integer customerId, String payload) {
+        this(0, type, entityId, customerId, payload, 0, null);
+    }
+
+    public long getId() { return id; }
+    /** Null for an event type this version of the app doesn't know. */
+    public Type getType() { return type; }
+    public int getEntityId() { return entityId; }
+    public Integer getCustomerId() { return customerId; }
+    public String getPayload() { return payload; }
+    /** The app instance that made the change (see ChangeLog.ORIGIN). */
+    public int getOrigin() { return origin; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent[" + id + " " + type + " " + entityId +
+               (customerId != null ? " customer=" + customerId : "") +
+               (payload != null ? " " + payload : "") + "]";
+    }
+}
@@ -13,6 +13,7 @@ public class Message {
     private String status; // UNREAD, READ, REPLIED
     private LocalDateTime createdAt;
     private LocalDateTime repliedAt;
+    private int threadId; // conversation it belongs to; 0 if not loaded
     
     // Constructors
     public Message() {}
@@ -59,6 +60,9 @@ public class Message {
     public LocalDateTime getRepliedAt() { return repliedAt; }
     public void setRepliedAt(LocalDateTime repliedAt) { this.repliedAt = repliedAt; }
     
+    public int getThreadId() { return threadId; }
+    public void setThreadId(int threadId) { this.threadId = threadId; }
+    
     // Helper methods
     public boolean hasReply() {
         return adminReply != null && !adminReply.trim().isEmpty();
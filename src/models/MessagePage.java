@@ -0,0 +1,44 @@
+package models;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * One page of the admin inbox plus the cursor needed to fetch the next one.
+ */
+public class MessagePage {
+    private final List<Message> messages;
+    private final Cursor nextCursor;
+
+    public MessagePage(List<Message> messages, Cursor nextCursor) {
+        this.messages = messages;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Message> getMessages() { return messages; }
+
+    /** Cursor positioned after the last message of this page, or null on the last page. */
+    public Cursor getNextCursor() { return nextCursor; }
+
+    public boolean hasMore() { return nextCursor != null; }
+
+    /**
+     * Keyset position: status rank (unread, read, everything else), creation
+     * time and id of the last message already seen.
+     */
+    public static class Cursor {
+        private final int statusRank;
+        private final Timestamp createdAt;
+        private final int id;
+
+        public Cursor(int statusRank, Timestamp createdAt, int id) {
+            this.statusRank = statusRank;
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        public int getStatusRank() { return statusRank; }
+        public Timestamp getCreatedAt() { return createdAt; }
+        public int getId() { return id; }
+    }
+}
@@ -0,0 +1,43 @@
+package models;
+
+import java.time.LocalDateTime;
+
+/**
+ * Summary of one support conversation: what the thread list shows without
+ * reading any of its messages. The counts and preview are kept up to date
+ * by the writes that add to the thread.
+ */
+public class MessageThread {
+    private final int id;
+    private final int customerId;
+    private final String subject;
+    private final int messageCount;
+    private final String lastPreview;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime lastActivityAt;
+
+    public MessageThread(int id, int customerId, String subject, int messageCount, String lastPreview,
+                         LocalDateTime createdAt, LocalDateTime lastActivityAt) {
+        this.id = id;
+        this.customerId = customerId;
+        this.subject = subject;
+        this.messageCount = messageCount;
+        this.lastPreview = lastPreview;
+        this.createdAt = createdAt;
+        this.lastActivityAt = lastActivityAt;
+    }
+
+    public int getId() { return id; }
+    public int getCustomerId() { return customerId; }
+    public String getSubject() { return subject; }
+    public int getMessageCount() { return messageCount; }
+    /** Start of the latest message or reply; null for threads migrated from before previews were kept. */
+    public String getLastPreview() { return lastPreview; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getLastActivityAt() { return lastActivityAt; }
+
+    @Override
+    public String toString() {
+        return subject + " (" + messageCount + ")";
+    }
+}
@@ -16,7 +16,9 @@ public class Order {
     private String paymentMethod;
     private String status;
     private Timestamp orderDate;
+    private Timestamp updatedAt;
     private List<OrderItem> items;
+    private String idempotencyKey;
     
     // Constructors
     public Order() {
@@ -74,8 +76,16 @@ public class Order {
     public Timestamp getOrderDate() { return orderDate; }
     public void setOrderDate(Timestamp orderDate) { this.orderDate = orderDate; }
     
+    /** When the order row last changed (orders.updated_at); used by delta refresh. */
+    public Timestamp getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Timestamp updatedAt) { this.updatedAt = updatedAt; }
+    
     public List<OrderItem> getItems() { return items; }
     public void setItems(List<OrderItem> items) { this.items = items; }
+
+    /** Identifies the checkout attempt this order came from; see CheckoutAttempt. */
+    public String getIdempotencyKey() { return idempotencyKey; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
     
     // Helper method to get formatted order date
     public String getFormattedOrderDate() {
@@ -0,0 +1,28 @@
+package models;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Orders created or changed since a watermark, plus the watermark to ask
+ * from next time. When more orders changed than one delta may return,
+ * isTruncated() is set and the screen should reload instead.
+ */
+public class OrderChanges {
+    private final List<Order> orders;
+    private final Timestamp watermark;
+    private final boolean truncated;
+    
+    public OrderChanges(List<Order> orders, Timestamp watermark, boolean truncated) {
+        this.orders = orders;
+        this.watermark = watermark;
+        this.truncated = truncated;
+    }
+    
+    public List<Order> getOrders() { return orders; }
+    
+    /** Latest updated_at seen; pass it to the next delta query. */
+    public Timestamp getWatermark() { return watermark; }
+    
+    public boolean isTruncated() { return truncated; }
+}
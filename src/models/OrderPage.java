@@ -0,0 +1,44 @@
+package models;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * One page of orders plus the cursor needed to fetch the next one.
+ */
+public class OrderPage {
+    private final List<Order> orders;
+    private final Cursor nextCursor;
+    
+    public OrderPage(List<Order> orders, Cursor nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+    }
+    
+    public List<Order> getOrders() { return orders; }
+    
+    /** Cursor positioned after the last order of this page, or null on the last page. */
+    public Cursor getNextCursor() { return nextCursor; }
+    
+    public boolean hasMore() { return nextCursor != null; }
+    
+    /**
+     * Keyset position: the sort value and id of the last order already seen.
+     */
+    public static class Cursor {
+        private final Timestamp orderDate;
+        private final BigDecimal totalAmount;
+        private final int id;
+        
+        public Cursor(Timestamp orderDate, BigDecimal totalAmount, int id) {
+            this.orderDate = orderDate;
+            this.totalAmount = totalAmount;
+            this.id = id;
+        }
+        
+        public Timestamp getOrderDate() { return orderDate; }
+        public BigDecimal getTotalAmount() { return totalAmount; }
+        public int getId() { return id; }
+    }
+}
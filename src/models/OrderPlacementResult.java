@@ -0,0 +1,56 @@
+package models;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of placing an order: placed, refused because some products no
+ * longer have enough stock, or failed for another reason. A repeated
+ * submit of a checkout that was already placed comes back as PLACED with
+ * the original order's id and isDuplicate() set.
+ */
+public class OrderPlacementResult {
+    public enum Status { PLACED, OUT_OF_STOCK, FAILED }
+
+    private final Status status;
+    private final String orderId;
+    private final List<String> unavailableProducts;
+    private final String message;
+    private final boolean duplicate;
+
+    private OrderPlacementResult(Status status, String orderId, List<String> unavailableProducts, String message,
+                                 boolean duplicate) {
+        this.status = status;
+        this.orderId = orderId;
+        this.unavailableProducts = unavailableProducts;
+        this.message = message;
+        this.duplicate = duplicate;
+    }
+
+    public static OrderPlacementResult placed(String orderId) {
+        return new OrderPlacementResult(Status.PLACED, orderId, Collections.emptyList(), null, false);
+    }
+
+    public static OrderPlacementResult alreadyPlaced(String originalOrderId) {
+        return new OrderPlacementResult(Status.PLACED, originalOrderId, Collections.emptyList(), null, true);
+    }
+
+    public static OrderPlacementResult outOfStock(String orderId, List<String> unavailableProducts) {
+        return new OrderPlacementResult(Status.OUT_OF_STOCK, orderId, Collections.unmodifiableList(unavailableProducts),
+                "Not enough stock for: " + String.join(", ", unavailableProducts), false);
+    }
+
+    public static OrderPlacementResult failed(String orderId, String message) {
+        return new OrderPlacementResult(Status.FAILED, orderId, Collections.emptyList(), message, false);
+    }
+
+    public Status getStatus() { return status; }
+    public boolean isPlaced() { return status == Status.PLACED; }
+    public String getOrderId() { return orderId; }
+    /** True when this checkout had already been placed and no new order was created. */
+    public boolean isDuplicate() { return duplicate; }
+    /** Names of the products that couldn't be reserved; empty unless OUT_OF_STOCK. */
+    public List<String> getUnavailableProducts() { return unavailableProducts; }
+    /** Why the order wasn't placed, for showing to the customer; null when placed. */
+    public String getMessage() { return message; }
+}
@@ -0,0 +1,57 @@
+package models;
+
+import java.util.Comparator;
+
+/**
+ * Sort options offered on the admin orders screen. Each option sorts on one
+ * column plus the order id as a tie-breaker, so pages can be fetched with a
+ * keyset cursor instead of OFFSET.
+ */
+public enum OrderSort {
+    NEWEST_FIRST("Newest First", "o.order_date", true),
+    OLDEST_FIRST("Oldest First", "o.order_date", false),
+    TOTAL_HIGH_LOW("Total (High-Low)", "o.total_amount", true),
+    TOTAL_LOW_HIGH("Total (Low-High)", "o.total_amount", false);
+    
+    private final String label;
+    private final String column;
+    private final boolean descending;
+    
+    OrderSort(String label, String column, boolean descending) {
+        this.label = label;
+        this.column = column;
+        this.descending = descending;
+    }
+    
+    public String getLabel() { return label; }
+    public String getColumn() { return column; }
+    public boolean isDescending() { return descending; }
+    
+    public boolean sortsByDate() {
+        return "o.order_date".equals(column);
+    }
+    
+    /** The same order as the SQL sort, for placing orders in an already loaded list. */
+    public Comparator<Order> comparator() {
+        Comparator<Order> byColumn = sortsByDate()
+            ? Comparator.comparing(Order::getOrderDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+            : Comparator.comparingDouble(Order::getTotalAmount);
+        Comparator<Order> ascending = byColumn.thenComparingInt(Order::getId);
+        return descending ? ascending.reversed() : ascending;
+    }
+    
+    /** Look up an option by its combo box label, defaulting to newest first. */
+    public static OrderSort fromLabel(String label) {
+        for (OrderSort sort : values()) {
+            if (sort.label.equals(label)) {
+                return sort;
+            }
+        }
+        return NEWEST_FIRST;
+    }
+    
+    @Override
+    public String toString() {
+        return label;
+    }
+}
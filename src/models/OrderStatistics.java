@@ -0,0 +1,23 @@
+package models;
+
+/**
+ * Aggregate order figures for the admin dashboard cards.
+ */
+public class OrderStatistics {
+    private final int totalOrders;
+    private final double totalRevenue;
+    private final int processingCount;
+    private final int pendingCount;
+    
+    public OrderStatistics(int totalOrders, double totalRevenue, int processingCount, int pendingCount) {
+        this.totalOrders = totalOrders;
+        this.totalRevenue = totalRevenue;
+        this.processingCount = processingCount;
+        this.pendingCount = pendingCount;
+    }
+    
+    public int getTotalOrders() { return totalOrders; }
+    public double getTotalRevenue() { return totalRevenue; }
+    public int getProcessingCount() { return processingCount; }
+    public int getPendingCount() { return pendingCount; }
+}
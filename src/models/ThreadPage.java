@@ -0,0 +1,39 @@
+package models;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * A run of consecutive messages from one conversation, oldest first, plus
+ * the cursor needed to fetch the ones before it.
+ */
+public class ThreadPage {
+    private final List<Message> messages;
+    private final Cursor olderCursor;
+
+    public ThreadPage(List<Message> messages, Cursor olderCursor) {
+        this.messages = messages;
+        this.olderCursor = olderCursor;
+    }
+
+    public List<Message> getMessages() { return messages; }
+
+    /** Cursor positioned at the first message of this page, or null if nothing is older. */
+    public Cursor getOlderCursor() { return olderCursor; }
+
+    public boolean hasOlder() { return olderCursor != null; }
+
+    /** Keyset position: creation time and id of the oldest message already shown. */
+    public static class Cursor {
+        private final Timestamp createdAt;
+        private final int id;
+
+        public Cursor(Timestamp createdAt, int id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        public Timestamp getCreatedAt() { return createdAt; }
+        public int getId() { return id; }
+    }
+}
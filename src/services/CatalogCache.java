@@ -0,0 +1,480 @@
+package services;
+
+import models.CatalogPage;
+import models.CatalogSort;
+import models.Category;
+import models.ChangeEvent;
+import models.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide in-memory copy of the product catalog (products and
+ * categories), shared by every DatabaseService instance.
+ *
+ * The catalog is loaded in one go and held as an immutable snapshot indexed
+ * by product id and by category, plus a ProductSearchIndex for text search.
+ * Writes made through DatabaseService patch or invalidate the snapshot;
+ * product and category changes made by other app instances arrive through
+ * EventBus and invalidate it, and changes made outside the app are picked
+ * up once the snapshot is older than the TTL. Readers always get copies of
+ * the cached products, so editing a product in the UI can't change the
+ * cache behind DatabaseService's back.
+ */
+public class CatalogCache {
+    private static final long TTL_MS = 5 * 60 * 1000;
+
+    private static final CatalogCache INSTANCE = new CatalogCache();
+
+    /** Reads the catalog from the database when the cache is empty or stale. */
+    public interface Loader {
+        List<Product> loadProducts() throws SQLException;
+        List<Category> loadCategories() throws SQLException;
+    }
+
+    private final Object loadLock = new Object();
+    private volatile Snapshot snapshot;
+    // Bumped on every invalidation so a load that raced with a write isn't installed
+    private long version;
+    private boolean watchingOtherInstances;
+
+    // Metrics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private CatalogCache() {}
+
+    public static CatalogCache getInstance() {
+        return INSTANCE;
+    }
+
+    // ========== READS ==========
+
+    /** All products, newest first. */
+    public List<Product> getAllProducts(Loader loader) {
+        Snapshot current = get(loader);
+        return current == null ? new ArrayList<>() : copyAll(Arrays.asList(current.products));
+    }
+
+    /** Products of one category, oldest first. */
+    public List<Product> getProductsByCategory(int categoryId, Loader loader) {
+        Snapshot current = get(loader);
+        if (current == null) {
+            return new ArrayList<>();
+        }
+        return copyAll(current.productsInCategory(categoryId));
+    }
+
+    /** A single product, or null if it doesn't exist. */
+    public Product getProduct(int productId, Loader loader) {
+        Snapshot current = get(loader);
+        if (current == null) {
+            return null;
+        }
+        Product product = current.product(productId);
+        return product == null ? null : copyOf(product);
+    }
+
+    /** All categories, by name. */
+    public List<Category> getAllCategories(Loader loader) {
+        Snapshot current = get(loader);
+        if (current == null) {
+            return new ArrayList<>();
+        }
+        List<Category> copies = new ArrayList<>(current.categories.size());
+        for (Category category : current.categories) {
+            copies.add(new Category(category.getId(), category.getName(), category.getDescription()));
+        }
+        return copies;
+    }
+
+    /**
+     * One page of products matching a text search, answered from the search
+     * index instead of a LIKE scan. Takes the same arguments and returns the
+     * same kind of keyset page as DatabaseService.getCatalogPage().
+     */
+    public CatalogPage searchPage(String searchText, int categoryId, CatalogSort sort,
+                                  CatalogPage.Cursor after, int pageSize, Loader loader) {
+        Snapshot current = get(loader);
+        if (current == null) {
+            return new CatalogPage(new ArrayList<>(), 0, null);
+        }
+        
+        ProductSearchIndex.Result matches = current.searchIndex.search(searchText);
+        Comparator<SearchHit> order = searchOrder(sort.isDescending());
+        SearchHit cursor = after == null ? null
+                : new SearchHit(null, (Comparable<?>) after.getSortValue(), after.getId());
+        
+        // Keep only the best pageSize + 1 hits past the cursor; no need to sort every match
+        PriorityQueue<SearchHit> best = new PriorityQueue<>(pageSize + 1, order.reversed());
+        int totalCount = 0;
+        for (int i = 0; i < matches.size(); i++) {
+            Product product = current.product(matches.productId(i));
+            if (product == null || (categoryId > 0 && product.getCategoryId() != categoryId)) {
+                continue;
+            }
+            totalCount++;
+            Comparable<?> sortValue = sort == CatalogSort.RELEVANCE ? matches.score(i) : sort.valueOf(product);
+            SearchHit hit = new SearchHit(product, sortValue, product.getId());
+            if (cursor != null && order.compare(hit, cursor) <= 0) {
+                continue;
+            }
+            best.add(hit);
+            if (best.size() > pageSize + 1) {
+                best.poll();
+            }
+        }
+        
+        List<SearchHit> hits = new ArrayList<>(best);
+        hits.sort(order);
+        
+        List<Product> products = new ArrayList<>(Math.min(pageSize, hits.size()));
+        for (int i = 0; i < hits.size() && i < pageSize; i++) {
+            products.add(copyOf(hits.get(i).product));
+        }
+        CatalogPage.Cursor nextCursor = null;
+        if (hits.size() > pageSize) {
+            SearchHit last = hits.get(pageSize - 1);
+            nextCursor = new CatalogPage.Cursor(last.sortValue, last.id);
+        }
+        return new CatalogPage(products, after == null ? totalCount : -1, nextCursor);
+    }
+    
+    // Same ordering as the SQL keyset: sort value, then id, both in the sort's direction
+    @SuppressWarnings("unchecked")
+    private static Comparator<SearchHit> searchOrder(boolean descending) {
+        Comparator<SearchHit> ascending = (a, b) -> {
+            int result = ((Comparable<Object>) a.sortValue).compareTo(b.sortValue);
+            return result != 0 ? result : Integer.compare(a.id, b.id);
+        };
+        return descending ? ascending.reversed() : ascending;
+    }
+
+    private Snapshot get(Loader loader) {
+        Snapshot current = snapshot;
+        if (current != null && !current.isExpired()) {
+            hits.increment();
+            return current;
+        }
+
+        // Only one thread reloads; the others wait for its result
+        synchronized (loadLock) {
+            current = snapshot;
+            if (current != null && !current.isExpired()) {
+                hits.increment();
+                return current;
+            }
+
+            long loadVersion;
+            synchronized (this) {
+                loadVersion = version;
+            }
+            try {
+                Snapshot loaded = new Snapshot(loader.loadProducts(), loader.loadCategories());
+                loads.increment();
+                watchOtherInstances();
+                synchronized (this) {
+                    if (version == loadVersion) {
+                        snapshot = loaded;
+                    }
+                }
+                return loaded;
+            } catch (SQLException e) {
+                System.err.println("Error loading product catalog: " + e.getMessage());
+                e.printStackTrace();
+                return null;
+            }
+        }
+    }
+
+    // ========== WRITES ==========
+
+    /** Drop the snapshot; the next read reloads it from the database. */
+    public synchronized void invalidate() {
+        version++;
+        snapshot = null;
+        invalidations.increment();
+    }
+
+    /** Replace a product after a successful update. */
+    public synchronized void productUpdated(Product product) {
+        Snapshot current = snapshot;
+        if (current == null || current.product(product.getId()) == null) {
+            invalidate();
+            return;
+        }
+
+        Product updated = copyOf(product);
+        // The caller may have changed the category without updating its name
+        Category category = current.categoriesById.get(updated.getCategoryId());
+        if (category == null) {
+            invalidate();
+            return;
+        }
+        updated.setCategoryName(category.getName());
+
+        current.searchIndex.update(updated);
+        replace(current.withReplaced(Collections.singletonList(updated)));
+    }
+
+    /** Remove a product after a successful delete. */
+    public synchronized void productDeleted(int productId) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        List<Product> products = new ArrayList<>(current.products.length);
+        for (Product existing : current.products) {
+            if (existing.getId() != productId) {
+                products.add(existing);
+            }
+        }
+        current.searchIndex.remove(productId);
+        replace(new Snapshot(products, current.categories, current.searchIndex, current.loadedAt));
+    }
+
+    /** Apply a relative stock change (e.g. after a restock) to the cached product. */
+    public void stockChanged(int productId, int quantityChange) {
+        stockChanged(Collections.singletonMap(productId, quantityChange));
+    }
+
+    /**
+     * Apply relative stock changes (product id -> change) to the cached
+     * products in one snapshot swap, so an order with many lines costs one
+     * patch instead of one per line.
+     */
+    public synchronized void stockChanged(Map<Integer, Integer> quantityChanges) {
+        Snapshot current = snapshot;
+        if (current == null || quantityChanges.isEmpty()) {
+            return;
+        }
+        List<Product> updated = new ArrayList<>(quantityChanges.size());
+        for (Map.Entry<Integer, Integer> change : quantityChanges.entrySet()) {
+            Product existing = current.product(change.getKey());
+            if (existing != null) {
+                Product product = copyOf(existing);
+                product.setStockQuantity(existing.getStockQuantity() + change.getValue());
+                updated.add(product);
+            }
+        }
+        if (!updated.isEmpty()) {
+            replace(current.withReplaced(updated));
+        }
+    }
+
+    // Subscribes on the first load, so the change log poller only starts once the catalog is in use
+    private synchronized void watchOtherInstances() {
+        if (watchingOtherInstances) {
+            return;
+        }
+        watchingOtherInstances = true;
+        EventBus.getInstance().subscribe(
+                EnumSet.of(ChangeEvent.Type.PRODUCT_UPDATED, ChangeEvent.Type.PRODUCT_DELETED,
+                           ChangeEvent.Type.CATEGORY_CHANGED), null,
+                this::productsChangedElsewhere);
+    }
+
+    // Local writes have already patched the snapshot; only another instance's changes need a reload
+    private void productsChangedElsewhere(List<ChangeEvent> events) {
+        boolean reload = false;
+        for (ChangeEvent event : events) {
+            if (event.getOrigin() == ChangeLog.ORIGIN) {
+                continue;
+            }
+            if (event.getType() == ChangeEvent.Type.PRODUCT_DELETED) {
+                productDeleted(event.getEntityId());
+            } else {
+                reload = true;
+            }
+        }
+        if (reload) {
+            invalidate();
+        }
+    }
+
+    private void replace(Snapshot patched) {
+        // A patch is a write too: a load already in flight must not overwrite it
+        version++;
+        snapshot = patched;
+    }
+
+    // ========== METRICS ==========
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getLoadCount() {
+        return loads.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    public boolean isLoaded() {
+        Snapshot current = snapshot;
+        return current != null && !current.isExpired();
+    }
+
+    @Override
+    public String toString() {
+        Snapshot current = snapshot;
+        return String.format("CatalogCache[products=%d, categories=%d, terms=%d, hits=%d, loads=%d, invalidations=%d]",
+                current == null ? 0 : current.products.length,
+                current == null ? 0 : current.categories.size(),
+                current == null ? 0 : current.searchIndex.termCount(),
+                getHitCount(), getLoadCount(), getInvalidationCount());
+    }
+
+    // ========== HELPERS ==========
+
+    private static List<Product> copyAll(List<Product> products) {
+        List<Product> copies = new ArrayList<>(products.size());
+        for (Product product : products) {
+            copies.add(copyOf(product));
+        }
+        return copies;
+    }
+
+    private static Product copyOf(Product product) {
+        return new Product(
+            product.getId(),
+            product.getName(),
+            product.getPrice(),
+            product.getCategoryId(),
+            product.getCategoryName(),
+            product.getDescription(),
+            product.getImageUrl(),
+            product.getStockQuantity(),
+            product.getDiscountPercentage()
+        );
+    }
+
+    private static final class SearchHit {
+        final Product product;
+        final Comparable<?> sortValue;
+        final int id;
+
+        SearchHit(Product product, Comparable<?> sortValue, int id) {
+            this.product = product;
+            this.sortValue = sortValue;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Immutable view of the catalog at one point in time. The Product objects
+     * inside are never handed out or modified; patches build a new snapshot.
+     * The search index is the exception: it is built with the first snapshot
+     * of a load and patched in place, then carried over to the next one.
+     *
+     * Products are held in an array (newest first) and the id and category
+     * indexes store positions in it. Replacing products leaves every position
+     * where it was, so a patch only copies the array and shares the indexes;
+     * they are rebuilt only when a product moves to another category or is
+     * removed.
+     */
+    private static final class Snapshot {
+        final Product[] products;
+        final Map<Integer, Integer> positionById;
+        // Positions per category, oldest product first
+        final Map<Integer, int[]> positionsByCategory;
+        final List<Category> categories;
+        final Map<Integer, Category> categoriesById;
+        final ProductSearchIndex searchIndex;
+        final long loadedAt;
+
+        Snapshot(List<Product> products, List<Category> categories) {
+            this(products, categories, null, System.currentTimeMillis());
+        }
+
+        Snapshot(List<Product> products, List<Category> categories, ProductSearchIndex searchIndex, long loadedAt) {
+            this.products = products.toArray(new Product[0]);
+            this.categories = Collections.unmodifiableList(new ArrayList<>(categories));
+            this.searchIndex = searchIndex != null ? searchIndex : ProductSearchIndex.build(Arrays.asList(this.products));
+            this.loadedAt = loadedAt;
+
+            Map<Integer, Integer> byId = new HashMap<>();
+            for (int i = 0; i < this.products.length; i++) {
+                byId.put(this.products[i].getId(), i);
+            }
+            this.positionById = Collections.unmodifiableMap(byId);
+            this.positionsByCategory = groupByCategory(this.products);
+
+            Map<Integer, Category> categoryIndex = new LinkedHashMap<>();
+            for (Category category : this.categories) {
+                categoryIndex.put(category.getId(), category);
+            }
+            this.categoriesById = Collections.unmodifiableMap(categoryIndex);
+        }
+
+        private Snapshot(Snapshot base, Product[] products, Map<Integer, int[]> positionsByCategory) {
+            this.products = products;
+            this.positionById = base.positionById;
+            this.positionsByCategory = positionsByCategory;
+            this.categories = base.categories;
+            this.categoriesById = base.categoriesById;
+            this.searchIndex = base.searchIndex;
+            this.loadedAt = base.loadedAt;
+        }
+
+        Product product(int productId) {
+            Integer position = positionById.get(productId);
+            return position == null ? null : products[position];
+        }
+
+        List<Product> productsInCategory(int categoryId) {
+            int[] positions = positionsByCategory.get(categoryId);
+            if (positions == null) {
+                return Collections.emptyList();
+            }
+            List<Product> inCategory = new ArrayList<>(positions.length);
+            for (int position : positions) {
+                inCategory.add(products[position]);
+            }
+            return inCategory;
+        }
+
+        /** A copy with the given products (already in this snapshot) swapped in. */
+        Snapshot withReplaced(List<Product> replacements) {
+            Product[] patched = products.clone();
+            boolean categoryChanged = false;
+            for (Product replacement : replacements) {
+                int position = positionById.get(replacement.getId());
+                categoryChanged |= patched[position].getCategoryId() != replacement.getCategoryId();
+                patched[position] = replacement;
+            }
+            return new Snapshot(this, patched, categoryChanged ? groupByCategory(patched) : positionsByCategory);
+        }
+
+        private static Map<Integer, int[]> groupByCategory(Product[] products) {
+            Map<Integer, List<Integer>> grouped = new HashMap<>();
+            // products is newest first; per-category lists are served oldest first
+            for (int i = products.length - 1; i >= 0; i--) {
+                grouped.computeIfAbsent(products[i].getCategoryId(), k -> new ArrayList<>()).add(i);
+            }
+            Map<Integer, int[]> byCategory = new HashMap<>();
+            for (Map.Entry<Integer, List<Integer>> entry : grouped.entrySet()) {
+                byCategory.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            return Collections.unmodifiableMap(byCategory);
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - loadedAt > TTL_MS;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package services;
+
+import models.ChangeEvent;
+
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The change_log table: an append-only list of what changed, with an
+ * AUTO_INCREMENT id that EventBus tails to tell open screens.
+ *
+ * Writers append on the connection of the change itself, inside its
+ * transaction, so an event exists exactly when the change was committed.
+ * Nothing here commits or closes the connection.
+ */
+public final class ChangeLog {
+    /** Identifies this app instance in the events it writes. */
+    public static final int ORIGIN = new SecureRandom().nextInt(Integer.MAX_VALUE - 1) + 1;
+
+    private static final String SELECT_COLUMNS =
+        "SELECT id, event_type, entity_id, customer_id, payload, origin, created_at FROM change_log";
+
+    private ChangeLog() {}
+
+    public static void append(Connection conn, ChangeEvent.Type type, int entityId, Integer customerId,
+                              String payload) throws SQLException {
+        appendAll(conn, Collections.singletonList(new ChangeEvent(type, entityId, customerId, payload)));
+    }
+
+    /** Append many events with one multi-row INSERT. */
+    public static void appendAll(Connection conn, List<ChangeEvent> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        String sql = "INSERT INTO change_log (event_type, entity_id, customer_id, payload, origin) VALUES " +
+                     String.join(", ", Collections.nCopies(events.size(), "(?, ?, ?, ?, ?)"));
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (ChangeEvent event : events) {
+                pstmt.setString(index++, event.getType().name());
+                pstmt.setInt(index++, event.getEntityId());
+                if (event.getCustomerId() != null) {
+                    pstmt.setInt(index++, event.getCustomerId());
+                } else {
+                    pstmt.setNull(index++, Types.INTEGER);
+                }
+                pstmt.setString(index++, truncate(event.getPayload()));
+                pstmt.setInt(index++, ORIGIN);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    /** Append an event about a message, taking its customer from the messages table. */
+    public static void appendForMessage(Connection conn, ChangeEvent.Type type, int messageId, String payload)
+            throws SQLException {
+        String sql = "INSERT INTO change_log (event_type, entity_id, customer_id, payload, origin) " +
+                     "SELECT ?, id, customer_id, ?, ? FROM messages WHERE id = ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, type.name());
+            pstmt.setString(2, truncate(payload));
+            pstmt.setInt(3, ORIGIN);
+            pstmt.setInt(4, messageId);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Delete up to limit events older than the given number of days, oldest
+     * first, using idx_change_log_created. Returns how many were deleted.
+     */
+    static int purgeOlderThan(Connection conn, int days, int limit) throws SQLException {
+        String sql = "DELETE FROM change_log WHERE created_at < NOW() - INTERVAL ? DAY ORDER BY created_at LIMIT ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, days);
+            pstmt.setInt(2, limit);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /** Highest id written so far, or 0 if the log is empty. */
+    static long latestId(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM change_log")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /** Up to limit events after afterId, oldest first. */
+    static List<ChangeEvent> readAfter(Connection conn, long afterId, int limit) throws SQLException {
+        String sql = SELECT_COLUMNS + " WHERE id > ? ORDER BY id LIMIT ?";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setLong(1, afterId);
+            pstmt.setInt(2, limit);
+            return read(pstmt);
+        }
+    }
+
+    /** The events with these ids that exist by now, oldest first. */
+    static List<ChangeEvent> readIds(Connection conn, Collection<Long> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = SELECT_COLUMNS + " WHERE id IN (" +
+                     String.join(", ", Collections.nCopies(ids.size(), "?")) + ") ORDER BY id";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (long id : ids) {
+                pstmt.setLong(index++, id);
+            }
+            return read(pstmt);
+        }
+    }
+
+    private static List<ChangeEvent> read(PreparedStatement pstmt) throws SQLException {
+        List<ChangeEvent> events = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ChangeEvent.Type type;
+                try {
+                    type = ChangeEvent.Type.valueOf(rs.getString("event_type"));
+                } catch (IllegalArgumentException e) {
+                    // Written by a newer version of the app; kept so the reader moves past it
+                    type = null;
+                }
+                int customerId = rs.getInt("customer_id");
+                Integer customer = rs.wasNull() ? null : customerId;
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                events.add(new ChangeEvent(rs.getLong("id"), type, rs.getInt("entity_id"), customer,
+                        rs.getString("payload"), rs.getInt("origin"),
+                        createdAt != null ? createdAt.toLocalDateTime() : null));
+            }
+        }
+        return events;
+    }
+
+    private static String truncate(String payload) {
+        return payload != null && payload.length() > 255 ? payload.substring(0, 255) : payload;
+    }
+}
@@ -0,0 +1,60 @@
+package services;
+
+import models.CartItem;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Idempotency keys for a screen's checkouts.
+ *
+ * The key is a hash of the customer, the cart lines and a random token for
+ * the current attempt. Submitting the same cart again (a double click, or
+ * a retry after a save that looked like it failed) gives the same key, so
+ * OrderPlacementService returns the order that was already placed instead
+ * of inserting a second one. Changing the cart gives a new key. Call
+ * completed() when the cart is emptied after an order, so that buying the
+ * same items again later counts as a new order.
+ *
+ * Use from the FX thread only.
+ */
+public class CheckoutAttempt {
+    private String token = UUID.randomUUID().toString();
+
+    public String keyFor(int customerId, List<CartItem> cart) {
+        List<CartItem> lines = new ArrayList<>(cart);
+        lines.sort(Comparator.comparingInt(CartItem::getProductId));
+
+        StringBuilder sb = new StringBuilder();
+        sb.append(customerId).append('|').append(token);
+        for (CartItem line : lines) {
+            sb.append('|').append(line.getProductId())
+              .append('x').append(line.getQuantity())
+              .append('@').append(line.getPrice());
+        }
+        return sha256Hex(sb.toString());
+    }
+
+    /** The order was placed; the next checkout starts a new attempt. */
+    public void completed() {
+        token = UUID.randomUUID().toString();
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,374 +1,264 @@
 package services;
 
+import models.BulkUpdateResult;
 import models.Product;
+import models.CatalogPage;
+import models.CatalogSort;
 import models.User;
 import utils.PasswordHasher;
 import models.Category;
+import models.ChangeEvent;
 import models.Message;
+import models.MessagePage;
+import models.MessageThread;
 import models.Order;
+import models.OrderChanges;
 import models.OrderItem;
+import models.OrderPage;
+import models.OrderPlacementResult;
+import models.OrderSort;
+import models.OrderStatistics;
 import models.OrderTracking;
+import models.ThreadPage;
+import database.ConnectionPool;
+import database.SchemaMigrator;
 
+import java.math.BigDecimal;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class DatabaseService {
-    private static final String URL = "jdbc:mysql://localhost:3306/ecommerce_db";
-    private static final String USERNAME = "root";
-    private static final String PASSWORD = ""; // Your password here
+    // Most orders one delta refresh returns; past that, reloading the list is cheaper
+    public static final int ORDER_DELTA_LIMIT = 500;
+    private static final long ORDER_DELTA_OVERLAP_MS = 5000;
     
-    private Connection connection;
+    // Max order ids per "order_id IN (...)" lookup when loading order items
+    public static final int ORDER_ITEM_BATCH_SIZE = 500;
     
-    public DatabaseService() {
-        try {
-            connection = DriverManager.getConnection(URL, USERNAME, PASSWORD);
-            System.out.println("Database connected successfully!");
-            initializeDatabase();
-        } catch (SQLException e) {
-            System.err.println("Database connection failed: " + e.getMessage());
-        }
-    }
+    // Shared by every DatabaseService instance; each method borrows a
+    // connection for the duration of one operation.
+    private final ConnectionPool connectionPool = ConnectionPool.getInstance();
     
-    private void initializeDatabase() {
-        try {
-            Statement stmt = connection.createStatement();
-            
-            // Create tables if they don't exist (simplified version)
-            String[] createTables = {
-                // Users table
-                "CREATE TABLE IF NOT EXISTS users (" +
-                "id INT PRIMARY KEY AUTO_INCREMENT," +
-                "username VARCHAR(50) UNIQUE NOT NULL," +
-                "password VARCHAR(100) NOT NULL," +
-                "email VARCHAR(100) UNIQUE NOT NULL," +
-                "role VARCHAR(20) DEFAULT 'CUSTOMER'," +
-                "full_name VARCHAR(100)," +
-                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ")",
-                
-                // Categories table
-                "CREATE TABLE IF NOT EXISTS categories (" +
-                "id INT PRIMARY KEY AUTO_INCREMENT," +
-                "name VARCHAR(100) NOT NULL UNIQUE," +
-                "description TEXT," +
-                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
-                ")",
-                
-                // Products table with category_id foreign key
-                "CREATE TABLE IF NOT EXISTS products (" +
-                "id INT PRIMARY KEY AUTO_INCREMENT," +
-                "name VARCHAR(200) NOT NULL," +
-                "description TEXT," +
-                "price DECIMAL(10,2) NOT NULL," +
-                "category_id INT NOT NULL," +
-                "image_url VARCHAR(500)," +
-                "stock_quantity INT DEFAULT 0," +
-                "discount_percentage DECIMAL(5,2) DEFAULT 0," +
-                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                "FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE CASCADE" +
-                ")",
-             // Orders table
-                "CREATE TABLE IF NOT EXISTS orders (" +
-                "id INT PRIMARY KEY AUTO_INCREMENT," +
-                "customer_id INT NOT NULL," +
-                "order_number VARCHAR(50) UNIQUE NOT NULL," +
-                "order_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                "total_amount DECIMAL(10,2) NOT NULL," +
-                "shipping_address TEXT NOT NULL," +
-                "payment_method VARCHAR(50) NOT NULL," +
-                "payment_status VARCHAR(20) DEFAULT 'PENDING'," +
-                "order_status VARCHAR(20) DEFAULT 'PENDING'," +
-                "notes TEXT," +
-                "FOREIGN KEY (customer_id) REFERENCES users(id) ON DELETE CASCADE" +
-                ")",
-
-                // Order items table
-                "CREATE TABLE IF NOT EXISTS order_items (" +
-                "id INT PRIMARY KEY AUTO_INCREMENT," +
-                "order_id INT NOT NULL," +
-                "product_id INT NOT NULL," +
-                "quantity INT NOT NULL," +
-                "unit_price DECIMAL(10,2) NOT NULL," +
-                "total_price DECIMAL(10,2) NOT NULL," +
-                "FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE," +
-                "FOREIGN KEY (product_id) REFERENCES products(id)" +
-                ")",
-
-                // Order tracking table
-                "CREATE TABLE IF NOT EXISTS order_tracking (" +
-                "id INT PRIMARY KEY AUTO_INCREMENT," +
-                "order_id INT NOT NULL," +
-                "status VARCHAR(50) NOT NULL," +
-                "update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                "notes TEXT," +
-                "FOREIGN KEY (order_id) REFERENCES orders(id) ON DELETE CASCADE" +
-                ")",
-
-                // Messages table for customer support
-                "CREATE TABLE IF NOT EXISTS messages (" +
-                "id INT PRIMARY KEY AUTO_INCREMENT," +
-                "customer_id INT NOT NULL," +
-                "subject VARCHAR(200) NOT NULL," +
-                "message TEXT NOT NULL," +
-                "admin_reply TEXT," +
-                "status VARCHAR(20) DEFAULT 'UNREAD'," +
-                "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP," +
-                "replied_at TIMESTAMP NULL," +
-                "FOREIGN KEY (customer_id) REFERENCES users(id) ON DELETE CASCADE" +
-                ")",
-
-                // Payment methods table
-                "CREATE TABLE IF NOT EXISTS payment_methods (" +
-                "id INT PRIMARY KEY AUTO_INCREMENT," +
-                "name VARCHAR(50) NOT NULL UNIQUE," +
-                "description TEXT," +
-                "is_active BOOLEAN DEFAULT true" +
-                ")"
-            };
-            
-            for (String sql : createTables) {
-                stmt.execute(sql);
-            }
-            
-            // Insert default data
-            insertDefaultData();
-            
-            migratePlainPasswordsToHashed();
-            
-            stmt.close();
-            
-        } catch (SQLException e) {
-            System.err.println("Error initializing database: " + e.getMessage());
+    // Products and categories are served from memory; the loader is only
+    // called when the shared cache is empty, invalidated or expired.
+    private final CatalogCache catalogCache = CatalogCache.getInstance();
+    private final EventBus eventBus = EventBus.getInstance();
+    private final UnreadMessageCounter unreadCounter = UnreadMessageCounter.getInstance();
+    private final OrderPlacementService orderPlacement = OrderPlacementService.getInstance();
+    // Status changes from every screen go through one write-behind queue
+    private final OrderStatusQueue orderStatusQueue = OrderStatusQueue.getInstance();
+    private final CatalogCache.Loader catalogLoader = new CatalogCache.Loader() {
+        @Override
+        public List<Product> loadProducts() throws SQLException {
+            return queryAllProducts();
         }
+        
+        @Override
+        public List<Category> loadCategories() throws SQLException {
+            return queryAllCategories();
+        }
+    };
+    
+    public DatabaseService() {
+        // Schema bootstrap runs once per process; later instances skip it
+        SchemaMigrator.migrate(connectionPool);
     }
     
  // Add this getter method to DatabaseService class
-    public Connection getConnection() {
-        return this.connection;
-    }
-    private void insertDefaultData() {
-        try {
-            Statement stmt = connection.createStatement();
-            
-            // Insert categories if empty
-            ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM categories");
-            rs.next();
-            if (rs.getInt(1) == 0) {
-                String[] categories = {
-                    "INSERT INTO categories (name, description) VALUES ('Electronics', 'Electronic devices and gadgets')",
-                    "INSERT INTO categories (name, description) VALUES ('Clothing', 'Fashion and apparel')",
-                    "INSERT INTO categories (name, description) VALUES ('Books', 'Books and educational materials')",
-                    "INSERT INTO categories (name, description) VALUES ('Home & Garden', 'Home improvement supplies')",
-                    "INSERT INTO categories (name, description) VALUES ('Accessories', 'Fashion accessories')"
-                };
-                
-                for (String sql : categories) {
-                    stmt.executeUpdate(sql);
-                }
-            }
-            
-            // Insert admin user if not exists
-            rs = stmt.executeQuery("SELECT COUNT(*) FROM users WHERE username = 'admin'");
-            rs.next();
-            if (rs.getInt(1) == 0) {
-                // Hash the admin password
-                String hashedPassword = PasswordHasher.hashPassword("admin123");
-                
-                stmt.executeUpdate("INSERT INTO users (username, password, email, role, full_name) " +
-                                   "VALUES ('admin', '" + hashedPassword + "', 'admin@store.com', 'ADMIN', 'System Administrator')");
-                System.out.println("✓ Default admin created with hashed password");
-            }
-            
-            // Insert sample products if empty
-            rs = stmt.executeQuery("SELECT COUNT(*) FROM products");
-            rs.next();
-            if (rs.getInt(1) == 0) {
-                insertSampleProducts();
-            }
-            
-            stmt.close();
-            
-        } catch (SQLException e) {
-            System.err.println("Error inserting default data: " + e.getMessage());
-        }
-    }
     /**
-     * Migrate existing plain passwords to hashed passwords
+     * Borrow a pooled connection for raw SQL. Close it (try-with-resources)
+     * to hand it back to the pool.
      */
-    private void migratePlainPasswordsToHashed() {
-        try {
-            String query = "SELECT id, password FROM users";
-            PreparedStatement selectStmt = connection.prepareStatement(query);
-            ResultSet rs = selectStmt.executeQuery();
-            
-            int migratedCount = 0;
-            while (rs.next()) {
-                String password = rs.getString("password");
-                int userId = rs.getInt("id");
-                
-                // Check if password is not hashed (short password = likely plain text)
-                if (password != null && password.length() < 50) {
-                    // Hash the plain password
-                    String hashedPassword = PasswordHasher.hashPassword(password);
-                    
-                    String updateQuery = "UPDATE users SET password = ? WHERE id = ?";
-                    PreparedStatement updateStmt = connection.prepareStatement(updateQuery);
-                    updateStmt.setString(1, hashedPassword);
-                    updateStmt.setInt(2, userId);
-                    updateStmt.executeUpdate();
-                    updateStmt.close();
-                    
-                    migratedCount++;
-                    System.out.println("Migrated password for user ID: " + userId);
-                }
-            }
-            
-            rs.close();
-            selectStmt.close();
-            if (migratedCount > 0) {
-                System.out.println("✓ Migrated " + migratedCount + " passwords to hashed format");
-            }
-            
-        } catch (SQLException e) {
-            System.err.println("Error migrating passwords: " + e.getMessage());
-        }
+    public Connection getConnection() throws SQLException {
+        return connectionPool.getConnection();
     }
-    private void insertSampleProducts() {
-        try {
-            // Get category IDs
-            Statement stmt = connection.createStatement();
-            
-            // Create map of category names to IDs
-            ResultSet categoryRs = stmt.executeQuery("SELECT id, name FROM categories");
-            java.util.Map<String, Integer> categoryMap = new java.util.HashMap<>();
-            while (categoryRs.next()) {
-                categoryMap.put(categoryRs.getString("name"), categoryRs.getInt("id"));
-            }
-            
-            // Sample products with category IDs
-            String[][] sampleProducts = {
-                // name, price, category_id, description, stock
-                {"iPhone 15 Pro", "999.99", String.valueOf(categoryMap.get("Electronics")), 
-                 "Latest iPhone with advanced camera", "50"},
-                {"MacBook Pro", "2399.99", String.valueOf(categoryMap.get("Electronics")), 
-                 "Apple laptop for professionals", "30"},
-                {"Nike Air Max", "149.99", String.valueOf(categoryMap.get("Clothing")), 
-                 "Comfortable running shoes", "100"},
-                {"Levis 501 Jeans", "79.99", String.valueOf(categoryMap.get("Clothing")), 
-                 "Classic straight fit jeans", "120"},
-                {"The Psychology of Money", "19.99", String.valueOf(categoryMap.get("Books")), 
-                 "Wealth and happiness lessons", "200"},
-                {"Atomic Habits", "16.99", String.valueOf(categoryMap.get("Books")), 
-                 "Build good habits", "180"},
-                {"Dyson Vacuum", "699.99", String.valueOf(categoryMap.get("Home & Garden")), 
-                 "Cordless vacuum cleaner", "40"},
-                {"KitchenAid Mixer", "429.99", String.valueOf(categoryMap.get("Home & Garden")), 
-                 "Stand mixer for baking", "35"},
-                {"Ray-Ban Sunglasses", "159.99", String.valueOf(categoryMap.get("Accessories")), 
-                 "Classic aviator sunglasses", "80"},
-                {"Fossil Watch", "129.99", String.valueOf(categoryMap.get("Accessories")), 
-                 "Leather strap watch", "60"}
-            };
-            
-            for (String[] product : sampleProducts) {
-                String sql = String.format(
-                    "INSERT INTO products (name, price, category_id, description, stock_quantity) " +
-                    "VALUES ('%s', %s, %s, '%s', %s)",
-                    product[0], product[1], product[2], product[3], product[4]
-                );
-                stmt.executeUpdate(sql);
-            }
-            
-            System.out.println("Sample products inserted successfully!");
-            stmt.close();
-            
-        } catch (SQLException e) {
-            System.err.println("Error inserting sample products: " + e.getMessage());
-        }
+    
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+    
+    public CatalogCache getCatalogCache() {
+        return catalogCache;
     }
     
     // PRODUCT METHODS
-// In getAllProducts method, ensure image_url is included:
 	public List<Product> getAllProducts() {
+	    return catalogCache.getAllProducts(catalogLoader);
+	}
+	
+    public List<Product> getProductsByCategory(int categoryId) {
+        return catalogCache.getProductsByCategory(categoryId, catalogLoader);
+    }
+    
+    public Product getProductById(int productId) {
+        return catalogCache.getProduct(productId, catalogLoader);
+    }
+    
+	// Cache loader: the full catalog, newest first
+	private List<Product> queryAllProducts() throws SQLException {
 	    List<Product> products = new ArrayList<>();
 	    
-	    try {
-	        // Join with categories to get category name
-	        String query = "SELECT p.*, c.name as category_name " +
-	                      "FROM products p " +
-	                      "JOIN categories c ON p.category_id = c.id " +
-	                      "ORDER BY p.id DESC";
-	        
-	        PreparedStatement pstmt = connection.prepareStatement(query);
-	        ResultSet rs = pstmt.executeQuery();
-	        
+	    String query = "SELECT p.*, c.name as category_name " +
+	                  "FROM products p " +
+	                  "JOIN categories c ON p.category_id = c.id " +
+	                  "ORDER BY p.id DESC";
+	    
+	    try (Connection conn = connectionPool.getConnection();
+	         PreparedStatement pstmt = conn.prepareStatement(query);
+	         ResultSet rs = pstmt.executeQuery()) {
 	        while (rs.next()) {
-	            Product product = new Product(
-	                rs.getInt("id"),
-	                rs.getString("name"),
-	                rs.getDouble("price"),
-	                rs.getInt("category_id"),
-	                rs.getString("category_name"),
-	                rs.getString("description"),
-	                rs.getString("image_url"), // This might be null
-	                rs.getInt("stock_quantity"),
-	                rs.getDouble("discount_percentage")
-	            );
-	            products.add(product);
+	            products.add(mapProduct(rs));
 	        }
-	        
-	        rs.close();
-	        pstmt.close();
-	        
-	        
-	    } catch (SQLException e) {
-	        System.err.println("Error fetching products: " + e.getMessage());
-	        e.printStackTrace();
 	    }
 	    
 	    return products;
 	}
-	
-	
     
-    public List<Product> getProductsByCategory(int categoryId) {
+    /**
+     * Get one page of the catalog. Category filter and sort run in SQL, or
+     * in memory against the catalog cache when there is search text. Paging
+     * uses a keyset cursor on (sort value, id), so the cost of a page doesn't
+     * depend on the catalog size or how deep the user has scrolled. The total
+     * count is only computed for the first page.
+     *
+     * @param searchText matched against product name, category and description through the
+     *                   catalog cache's search index; null or empty for all
+     * @param categoryId category to restrict to, or 0 for every category
+     * @param after      cursor from the previous page, or null for the first page
+     */
+    public CatalogPage getCatalogPage(String searchText, int categoryId, CatalogSort sort,
+                                      CatalogPage.Cursor after, int pageSize) {
+        return getCatalogPage(searchText, categoryId, sort, after, pageSize, pageSize, null);
+    }
+    
+    /**
+     * Same as getCatalogPage, but streams the page from the server and hands
+     * rows to onChunk as they arrive, chunkSize products at a time, so the
+     * caller can show the first products before the rest of the page (and
+     * the total count) has been fetched. onChunk runs on the calling thread
+     * while the result set is open, so it should only hand the chunk off.
+     */
+    public CatalogPage getCatalogPage(String searchText, int categoryId, CatalogSort sort,
+                                      CatalogPage.Cursor after, int pageSize,
+                                      int chunkSize, Consumer<List<Product>> onChunk) {
+        if (sort == null) {
+            sort = CatalogSort.NEWEST;
+        }
+        
+        // Text search uses the catalog cache's inverted index instead of LIKE '%...%' scans
+        if (searchText != null && !searchText.trim().isEmpty()) {
+            CatalogPage page = catalogCache.searchPage(searchText, categoryId, sort, after, pageSize, catalogLoader);
+            if (onChunk != null && !page.getProducts().isEmpty()) {
+                onChunk.accept(page.getProducts());
+            }
+            return page;
+        }
+        
+        StringBuilder where = new StringBuilder(" WHERE 1 = 1");
+        List<Object> filterParams = new ArrayList<>();
+        if (categoryId > 0) {
+            where.append(" AND p.category_id = ?");
+            filterParams.add(categoryId);
+        }
+        
+        String sortExpression = sort.getExpression();
+        String direction = sort.isDescending() ? "DESC" : "ASC";
+        
+        List<Object> pageParams = new ArrayList<>(filterParams);
+        StringBuilder query = new StringBuilder(
+            "SELECT p.*, c.name as category_name, " + sortExpression + " as sort_value " +
+            "FROM products p " +
+            "JOIN categories c ON p.category_id = c.id");
+        query.append(where);
+        if (after != null) {
+            String op = sort.isDescending() ? "<" : ">";
+            query.append(" AND (").append(sortExpression).append(' ').append(op).append(" ?")
+                 .append(" OR (").append(sortExpression).append(" = ? AND p.id ").append(op).append(" ?))");
+            pageParams.add(after.getSortValue());
+            pageParams.add(after.getSortValue());
+            pageParams.add(after.getId());
+        }
+        query.append(" ORDER BY ").append(sortExpression).append(' ').append(direction)
+             .append(", p.id ").append(direction)
+             .append(" LIMIT ?");
+        // One extra row tells us whether another page exists
+        pageParams.add(pageSize + 1);
+        
         List<Product> products = new ArrayList<>();
+        CatalogPage.Cursor nextCursor = null;
+        int totalCount = -1;
         
-        try {
-            String query = "SELECT p.*, c.name as category_name " +
-                          "FROM products p " +
-                          "JOIN categories c ON p.category_id = c.id " +
-                          "WHERE p.category_id = ? " +
-                          "ORDER BY p.id";
-            
-            PreparedStatement pstmt = connection.prepareStatement(query);
-            pstmt.setInt(1, categoryId);
-            ResultSet rs = pstmt.executeQuery();
-            
-            while (rs.next()) {
-                Product product = new Product(
-                    rs.getInt("id"),
-                    rs.getString("name"),
-                    rs.getDouble("price"),
-                    rs.getInt("category_id"),
-                    rs.getString("category_name"),
-                    rs.getString("description"),
-                    rs.getString("image_url"),
-                    rs.getInt("stock_quantity"),
-                    rs.getDouble("discount_percentage")
-                );
-                products.add(product);
+        try (Connection conn = connectionPool.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+                setParameters(pstmt, pageParams);
+                // Connector/J buffers the whole result unless the fetch size is Integer.MIN_VALUE,
+                // which streams rows as the server sends them. The connection can't run another
+                // statement until the result set is closed, so the count query waits until after.
+                if (onChunk != null) {
+                    pstmt.setFetchSize(Integer.MIN_VALUE);
+                }
+                
+                Object lastSortValue = null;
+                int chunkStart = 0;
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        if (products.size() == pageSize) {
+                            nextCursor = new CatalogPage.Cursor(lastSortValue, products.get(products.size() - 1).getId());
+                            break;
+                        }
+                        lastSortValue = rs.getObject("sort_value");
+                        products.add(mapProduct(rs));
+                        if (onChunk != null && products.size() - chunkStart == chunkSize) {
+                            onChunk.accept(new ArrayList<>(products.subList(chunkStart, products.size())));
+                            chunkStart = products.size();
+                        }
+                    }
+                }
+                if (onChunk != null && chunkStart < products.size()) {
+                    onChunk.accept(new ArrayList<>(products.subList(chunkStart, products.size())));
+                }
             }
             
-            rs.close();
-            pstmt.close();
+            if (after == null) {
+                String countQuery = "SELECT COUNT(*) FROM products p" + where;
+                try (PreparedStatement pstmt = conn.prepareStatement(countQuery)) {
+                    setParameters(pstmt, filterParams);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        totalCount = rs.next() ? rs.getInt(1) : 0;
+                    }
+                }
+            }
             
         } catch (SQLException e) {
-            System.err.println("Error fetching products by category: " + e.getMessage());
+            System.err.println("Error fetching catalog page: " + e.getMessage());
+            e.printStackTrace();
         }
         
-        return products;
+        return new CatalogPage(products, totalCount, nextCursor);
+    }
+    
+    private Product mapProduct(ResultSet rs) throws SQLException {
+        return new Product(
+            rs.getInt("id"),
+            rs.getString("name"),
+            rs.getDouble("price"),
+            rs.getInt("category_id"),
+            rs.getString("category_name"),
+            rs.getString("description"),
+            rs.getString("image_url"),
+            rs.getInt("stock_quantity"),
+            rs.getDouble("discount_percentage")
+        );
     }
  
 //    // Order Methods
@@ -459,9 +349,9 @@ public class DatabaseService {
 //	}
 //	
 	public User getUserByUsername(String username) {
-	    try {
+	    try (Connection conn = connectionPool.getConnection()) {
 	        String query = "SELECT id, username, email, full_name, role FROM users WHERE username = ? OR email = ?";
-	        PreparedStatement pstmt = connection.prepareStatement(query);
+	        PreparedStatement pstmt = conn.prepareStatement(query);
 	        pstmt.setString(1, username);
 	        pstmt.setString(2, username);
 	        
@@ -491,9 +381,9 @@ public class DatabaseService {
 	}
 
 	public int getUserIdByUsername(String username) {
-	    try {
+	    try (Connection conn = connectionPool.getConnection()) {
 	        String query = "SELECT id FROM users WHERE username = ? OR email = ?";
-	        PreparedStatement pstmt = connection.prepareStatement(query);
+	        PreparedStatement pstmt = conn.prepareStatement(query);
 	        pstmt.setString(1, username);
 	        pstmt.setString(2, username);
 	        
@@ -573,9 +463,9 @@ public class DatabaseService {
 	private List<OrderItem> getOrderItems(int orderId) {
 	    List<OrderItem> items = new ArrayList<>();
 	    
-	    try {
+	    try (Connection conn = connectionPool.getConnection()) {
 	        String query = "SELECT * FROM order_items WHERE order_id = ?";
-	        PreparedStatement pstmt = connection.prepareStatement(query);
+	        PreparedStatement pstmt = conn.prepareStatement(query);
 	        pstmt.setInt(1, orderId);
 	        ResultSet rs = pstmt.executeQuery();
 	        
@@ -608,71 +498,13 @@ public class DatabaseService {
 	}
 	
 	
-	public boolean saveOrder(Order order, List<OrderItem> orderItems) {
-        try {
-            connection.setAutoCommit(false);
-            
-            // Insert order
-            String orderSql = "INSERT INTO orders (order_id, customer_id, customer_name, " +
-                             "customer_email, customer_phone, shipping_address, total_amount, " +
-                             "currency, payment_method, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
-            
-            PreparedStatement orderStmt = connection.prepareStatement(orderSql);
-            orderStmt.setString(1, order.getOrderId());
-            orderStmt.setInt(2, order.getCustomerId());
-            orderStmt.setString(3, order.getCustomerName());
-            orderStmt.setString(4, order.getCustomerEmail());
-            orderStmt.setString(5, order.getCustomerPhone());
-            orderStmt.setString(6, order.getShippingAddress());
-            orderStmt.setDouble(7, order.getTotalAmount());
-            orderStmt.setString(8, order.getCurrency());
-            orderStmt.setString(9, order.getPaymentMethod());
-            orderStmt.setString(10, order.getStatus());
-            
-            int orderResult = orderStmt.executeUpdate();
-            System.out.println("Order saved: " + orderResult + " rows affected");
-            
-            // Insert order items
-            String itemSql = "INSERT INTO order_items (order_id, product_id, product_name, " +
-                            "quantity, unit_price, subtotal) VALUES (?, ?, ?, ?, ?, ?)";
-            
-            PreparedStatement itemStmt = connection.prepareStatement(itemSql);
-            int itemCount = 0;
-            
-            for (OrderItem item : orderItems) {
-                itemStmt.setString(1, item.getOrderId());
-                itemStmt.setInt(2, item.getProductId());
-                itemStmt.setString(3, item.getProductName());
-                itemStmt.setInt(4, item.getQuantity());
-                itemStmt.setDouble(5, item.getUnitPrice());
-                itemStmt.setDouble(6, item.getSubtotal());
-                itemStmt.addBatch();
-                itemCount++;
-            }
-            
-            int[] itemResults = itemStmt.executeBatch();
-            System.out.println("Order items saved: " + itemCount + " items");
-            
-            connection.commit();
-            return true;
-            
-        } catch (SQLException e) {
-            try {
-                connection.rollback();
-                System.err.println("Order save failed, rolling back: " + e.getMessage());
-            } catch (SQLException ex) {
-                System.err.println("Rollback failed: " + ex.getMessage());
-            }
-            e.printStackTrace();
-            return false;
-        } finally {
-            try {
-                connection.setAutoCommit(true);
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
-        }
-    }
+	/**
+	 * Place an order: reserve stock for every item, then insert the order and
+	 * its items, all in one transaction (see OrderPlacementService).
+	 */
+	public OrderPlacementResult placeOrder(Order order, List<OrderItem> orderItems) {
+	    return orderPlacement.placeOrder(order, orderItems);
+	}
     
     // Get orders by customer ID
     public List<Order> getCustomerOrders(int customerId) throws SQLException {
@@ -680,29 +512,17 @@ public class DatabaseService {
     
     String query = "SELECT * FROM orders WHERE customer_id = ? ORDER BY order_date DESC";
     
-    try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+    try (Connection conn = connectionPool.getConnection();
+         PreparedStatement pstmt = conn.prepareStatement(query)) {
         pstmt.setInt(1, customerId); // Filter by customer ID
         ResultSet rs = pstmt.executeQuery();
         
         while (rs.next()) {
-            Order order = new Order();
-            order.setOrderId(rs.getString("order_id"));
-            order.setCustomerId(rs.getInt("customer_id"));
-            order.setCustomerName(rs.getString("customer_name"));
-            order.setCustomerEmail(rs.getString("customer_email"));
-            order.setCustomerPhone(rs.getString("customer_phone"));
-            order.setShippingAddress(rs.getString("shipping_address"));
-            order.setTotalAmount(rs.getDouble("total_amount"));
-            order.setCurrency(rs.getString("currency"));
-            order.setPaymentMethod(rs.getString("payment_method"));
-            order.setStatus(rs.getString("status"));
-            order.setOrderDate(rs.getTimestamp("order_date"));
-            
-            // Load order items for this order
-            order.setItems(getOrderItems(order.getOrderId()));
-            
-            orders.add(order);
+            orders.add(mapCustomerOrder(rs));
         }
+        
+        // Load items for all orders in batches on the same connection
+        attachOrderItems(conn, orders);
     }
     
     return orders;
@@ -712,51 +532,25 @@ public class DatabaseService {
 	   public List<Order> getAllOrders() {
 	    List<Order> orders = new ArrayList<>();
 	    
-	    try {
+	    try (Connection conn = connectionPool.getConnection()) {
 	        String query = "SELECT o.*, u.full_name as customer_name, u.email as customer_email " +
 	                      "FROM orders o " +
 	                      "JOIN users u ON o.customer_id = u.id " +
 	                      "ORDER BY o.order_date DESC";
 	        
-	        PreparedStatement pstmt = connection.prepareStatement(query);
+	        PreparedStatement pstmt = conn.prepareStatement(query);
 	        ResultSet rs = pstmt.executeQuery();
 	        
 	        while (rs.next()) {
-	            Order order = new Order();
-	            order.setId(rs.getInt("id"));
-	            order.setOrderId(rs.getString("order_id"));
-	            order.setCustomerId(rs.getInt("customer_id"));
-	            order.setCustomerName(rs.getString("customer_name"));
-	            order.setCustomerEmail(rs.getString("customer_email"));
-	            order.setShippingAddress(rs.getString("shipping_address"));
-	            order.setTotalAmount(rs.getDouble("total_amount"));
-	            order.setCurrency(rs.getString("currency"));
-	            order.setPaymentMethod(rs.getString("payment_method"));
-	            order.setStatus(rs.getString("status"));
-	            order.setOrderDate(rs.getTimestamp("order_date"));
-	            
-	            // Load order items
-	            String itemsQuery = "SELECT * FROM order_items WHERE order_id = ?";
-	            try (PreparedStatement itemsStmt = connection.prepareStatement(itemsQuery)) {
-	                itemsStmt.setString(1, order.getOrderId());
-	                ResultSet itemsRs = itemsStmt.executeQuery();
-	                List<OrderItem> items = new ArrayList<>();
-	                while (itemsRs.next()) {
-	                    OrderItem item = new OrderItem();
-	                    item.setProductName(itemsRs.getString("product_name"));
-	                    item.setQuantity(itemsRs.getInt("quantity"));
-	                    item.setUnitPrice(itemsRs.getDouble("unit_price"));
-	                    item.setSubtotal(itemsRs.getDouble("subtotal"));
-	                    items.add(item);
-	                }
-	                order.setItems(items);
-	            }
-	            orders.add(order);
+	            orders.add(mapAdminOrder(rs));
 	        }
 	        
 	        rs.close();
 	        pstmt.close();
 	        
+	        // Load order items with one IN (...) query per batch of orders
+	        attachOrderItems(conn, orders);
+	        
 	    } catch (SQLException e) {
 	        e.printStackTrace();
 	    }
@@ -764,38 +558,357 @@ public class DatabaseService {
 	    return orders;
 		}
     
-   
+    /**
+     * Get one page of orders for the admin screen. Status, search and sort
+     * are evaluated in SQL and paging uses a keyset cursor on
+     * (sort column, id), so every page costs the same regardless of depth.
+     *
+     * @param status     status to match, or null/"ALL" for every status
+     * @param searchTerm matched against order id, customer name and email
+     * @param after      cursor from the previous page, or null for the first page
+     */
+    public OrderPage getOrdersPage(String status, String searchTerm, OrderSort sort,
+                                   OrderPage.Cursor after, int pageSize) {
+        if (sort == null) {
+            sort = OrderSort.NEWEST_FIRST;
+        }
+        
+        List<Object> params = new ArrayList<>();
+        StringBuilder query = new StringBuilder(
+            "SELECT o.*, u.full_name as customer_name, u.email as customer_email " +
+            "FROM orders o " +
+            "JOIN users u ON o.customer_id = u.id " +
+            "WHERE 1 = 1");
+        appendOrderFilters(query, params, status, searchTerm);
+        
+        String direction = sort.isDescending() ? "DESC" : "ASC";
+        if (after != null) {
+            String op = sort.isDescending() ? "<" : ">";
+            Object sortValue = sort.sortsByDate() ? after.getOrderDate() : after.getTotalAmount();
+            query.append(" AND (").append(sort.getColumn()).append(' ').append(op).append(" ?")
+                 .append(" OR (").append(sort.getColumn()).append(" = ? AND o.id ").append(op).append(" ?))");
+            params.add(sortValue);
+            params.add(sortValue);
+            params.add(after.getId());
+        }
+        query.append(" ORDER BY ").append(sort.getColumn()).append(' ').append(direction)
+             .append(", o.id ").append(direction)
+             .append(" LIMIT ?");
+        // One extra row tells us whether another page exists
+        params.add(pageSize + 1);
+        
+        List<Order> orders = new ArrayList<>();
+        OrderPage.Cursor nextCursor = null;
+        BigDecimal lastTotal = null;
+        
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            setParameters(pstmt, params);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (orders.size() == pageSize) {
+                        Order last = orders.get(orders.size() - 1);
+                        nextCursor = new OrderPage.Cursor(last.getOrderDate(), lastTotal, last.getId());
+                        break;
+                    }
+                    lastTotal = rs.getBigDecimal("total_amount");
+                    orders.add(mapAdminOrder(rs));
+                }
+            }
+            
+            attachOrderItems(conn, orders);
+            
+        } catch (SQLException e) {
+            System.err.println("Error fetching orders page: " + e.getMessage());
+            e.printStackTrace();
+        }
+        
+        return new OrderPage(orders, nextCursor);
+    }
+    
+    /** Number of orders matching the same filters as getOrdersPage(). */
+    public int countOrders(String status, String searchTerm) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder query = new StringBuilder(
+            "SELECT COUNT(*) FROM orders o " +
+            "JOIN users u ON o.customer_id = u.id " +
+            "WHERE 1 = 1");
+        appendOrderFilters(query, params, status, searchTerm);
+        
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            setParameters(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting orders: " + e.getMessage());
+            return 0;
+        }
+    }
+    
+    /** Ids of every order matching the same filters as getOrdersPage(), for bulk actions. */
+    public List<Integer> getOrderIds(String status, String searchTerm) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder query = new StringBuilder(
+            "SELECT o.id FROM orders o " +
+            "JOIN users u ON o.customer_id = u.id " +
+            "WHERE 1 = 1");
+        appendOrderFilters(query, params, status, searchTerm);
+        
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+            setParameters(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching order ids: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return ids;
+    }
+    
+    // ========== ORDER DELTA REFRESH ==========
+    
+    /**
+     * Latest orders.updated_at, over all orders (customerId null) or one
+     * customer's. Take it before loading a list and pass it to the delta
+     * methods below on refresh.
+     */
+    public Timestamp getOrdersWatermark(Integer customerId) {
+        String query = customerId == null
+            ? "SELECT MAX(updated_at) FROM orders"
+            : "SELECT MAX(updated_at) FROM orders WHERE customer_id = ?";
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            if (customerId != null) {
+                pstmt.setInt(1, customerId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Timestamp latest = rs.next() ? rs.getTimestamp(1) : null;
+                return latest != null ? latest : new Timestamp(0);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error reading the orders watermark: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Every order (any status, any customer) created or changed since the
+     * watermark, for the admin list, which decides itself whether a changed
+     * order still matches its filters. Mapped like getOrdersPage().
+     */
+    public OrderChanges getOrderChangesSince(Timestamp watermark) {
+        String query = "SELECT o.*, u.full_name as customer_name, u.email as customer_email " +
+                       "FROM orders o " +
+                       "JOIN users u ON o.customer_id = u.id " +
+                       "WHERE o.updated_at >= ? " +
+                       "ORDER BY o.updated_at, o.id LIMIT ?";
+        return queryOrderChanges(query, null, watermark, true);
+    }
+    
+    /** One customer's orders created or changed since the watermark, mapped like getCustomerOrders(). */
+    public OrderChanges getCustomerOrderChangesSince(int customerId, Timestamp watermark) {
+        String query = "SELECT * FROM orders WHERE customer_id = ? AND updated_at >= ? " +
+                       "ORDER BY updated_at, id LIMIT ?";
+        return queryOrderChanges(query, customerId, watermark, false);
+    }
+    
+    private OrderChanges queryOrderChanges(String query, Integer customerId, Timestamp watermark, boolean admin) {
+        // Look a little behind the watermark: a transaction that commits late can carry an
+        // updated_at older than rows already seen. Re-reading an order is harmless.
+        Timestamp from = new Timestamp(Math.max(0, watermark.getTime() - ORDER_DELTA_OVERLAP_MS));
+        List<Order> orders = new ArrayList<>();
+        Timestamp latest = watermark;
+        boolean truncated = false;
+        
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
+            int index = 1;
+            if (customerId != null) {
+                pstmt.setInt(index++, customerId);
+            }
+            pstmt.setTimestamp(index++, from);
+            pstmt.setInt(index, ORDER_DELTA_LIMIT + 1);
+            
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (orders.size() == ORDER_DELTA_LIMIT) {
+                        truncated = true;
+                        break;
+                    }
+                    Order order = admin ? mapAdminOrder(rs) : mapCustomerOrder(rs);
+                    orders.add(order);
+                    if (order.getUpdatedAt() != null && order.getUpdatedAt().after(latest)) {
+                        latest = order.getUpdatedAt();
+                    }
+                }
+            }
+            
+            attachOrderItems(conn, orders);
+            
+        } catch (SQLException e) {
+            System.err.println("Error fetching changed orders: " + e.getMessage());
+            e.printStackTrace();
+            return null;
+        }
+        
+        return new OrderChanges(orders, latest, truncated);
+    }
+    
+    /** Totals for the admin statistics cards, computed in one aggregate query. */
+    public OrderStatistics getOrderStatistics() {
+        String query = "SELECT COUNT(*), COALESCE(SUM(total_amount), 0), " +
+                       "COALESCE(SUM(status = 'PROCESSING'), 0), COALESCE(SUM(status = 'PENDING'), 0) " +
+                       "FROM orders";
+        
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                return new OrderStatistics(rs.getInt(1), rs.getDouble(2), rs.getInt(3), rs.getInt(4));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching order statistics: " + e.getMessage());
+        }
+        
+        return new OrderStatistics(0, 0, 0, 0);
+    }
+    
+    private void appendOrderFilters(StringBuilder query, List<Object> params, String status, String searchTerm) {
+        if (status != null && !status.isEmpty() && !"ALL".equalsIgnoreCase(status)) {
+            query.append(" AND o.status = ?");
+            params.add(status);
+        }
+        if (searchTerm != null && !searchTerm.trim().isEmpty()) {
+            String pattern = "%" + escapeLike(searchTerm.trim()) + "%";
+            query.append(" AND (o.order_id LIKE ? OR u.full_name LIKE ? OR u.email LIKE ?)");
+            params.add(pattern);
+            params.add(pattern);
+            params.add(pattern);
+        }
+    }
+    
+    private Order mapCustomerOrder(ResultSet rs) throws SQLException {
+        Order order = new Order();
+        order.setId(rs.getInt("id"));
+        order.setOrderId(rs.getString("order_id"));
+        order.setCustomerId(rs.getInt("customer_id"));
+        order.setCustomerName(rs.getString("customer_name"));
+        order.setCustomerEmail(rs.getString("customer_email"));
+        order.setCustomerPhone(rs.getString("customer_phone"));
+        order.setShippingAddress(rs.getString("shipping_address"));
+        order.setTotalAmount(rs.getDouble("total_amount"));
+        order.setCurrency(rs.getString("currency"));
+        order.setPaymentMethod(rs.getString("payment_method"));
+        order.setStatus(rs.getString("status"));
+        order.setOrderDate(rs.getTimestamp("order_date"));
+        order.setUpdatedAt(rs.getTimestamp("updated_at"));
+        return order;
+    }
+    
+    private Order mapAdminOrder(ResultSet rs) throws SQLException {
+        Order order = new Order();
+        order.setId(rs.getInt("id"));
+        order.setOrderId(rs.getString("order_id"));
+        order.setCustomerId(rs.getInt("customer_id"));
+        order.setCustomerName(rs.getString("customer_name"));
+        order.setCustomerEmail(rs.getString("customer_email"));
+        order.setShippingAddress(rs.getString("shipping_address"));
+        order.setTotalAmount(rs.getDouble("total_amount"));
+        order.setCurrency(rs.getString("currency"));
+        order.setPaymentMethod(rs.getString("payment_method"));
+        order.setStatus(rs.getString("status"));
+        order.setOrderDate(rs.getTimestamp("order_date"));
+        order.setUpdatedAt(rs.getTimestamp("updated_at"));
+        return order;
+    }
+    
+    private static void setParameters(PreparedStatement pstmt, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            pstmt.setObject(i + 1, params.get(i));
+        }
+    }
+    
+    // Treat %, _ and \ typed by the user literally in LIKE patterns
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+    
 
-    private List<OrderItem> getOrderItems(String orderId) throws SQLException {
-        List<OrderItem> items = new ArrayList<>();
+    /**
+     * Get the items of many orders at once, keyed by order_id. Uses one
+     * query per ORDER_ITEM_BATCH_SIZE orders instead of one per order.
+     */
+    public Map<String, List<OrderItem>> getOrderItemsForOrders(List<String> orderIds) {
+        try (Connection conn = connectionPool.getConnection()) {
+            return getOrderItemsForOrders(conn, orderIds);
+        } catch (SQLException e) {
+            System.err.println("Error fetching order items: " + e.getMessage());
+            e.printStackTrace();
+            return Collections.emptyMap();
+        }
+    }
+    
+    private void attachOrderItems(Connection conn, List<Order> orders) throws SQLException {
+        List<String> orderIds = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            orderIds.add(order.getOrderId());
+        }
         
-        String query = "SELECT * FROM order_items WHERE order_id = ?";
+        Map<String, List<OrderItem>> itemsByOrder = getOrderItemsForOrders(conn, orderIds);
+        for (Order order : orders) {
+            List<OrderItem> items = itemsByOrder.get(order.getOrderId());
+            order.setItems(items != null ? items : new ArrayList<>());
+        }
+    }
+    
+    private Map<String, List<OrderItem>> getOrderItemsForOrders(Connection conn, List<String> orderIds)
+            throws SQLException {
+        Map<String, List<OrderItem>> itemsByOrder = new HashMap<>();
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setString(1, orderId);
-            ResultSet rs = pstmt.executeQuery();
+        for (int from = 0; from < orderIds.size(); from += ORDER_ITEM_BATCH_SIZE) {
+            List<String> batch = orderIds.subList(from, Math.min(from + ORDER_ITEM_BATCH_SIZE, orderIds.size()));
             
-            while (rs.next()) {
-                OrderItem item = new OrderItem();
-                item.setId(rs.getInt("id"));
-                item.setOrderId(rs.getString("order_id"));
-                item.setProductId(rs.getInt("product_id"));
-                item.setProductName(rs.getString("product_name"));
-                item.setQuantity(rs.getInt("quantity"));
-                item.setUnitPrice(rs.getDouble("unit_price"));
-                item.setSubtotal(rs.getDouble("subtotal"));
+            String query = "SELECT * FROM order_items WHERE order_id IN (" +
+                           String.join(",", Collections.nCopies(batch.size(), "?")) + ") ORDER BY id";
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(query)) {
+                for (int i = 0; i < batch.size(); i++) {
+                    pstmt.setString(i + 1, batch.get(i));
+                }
                 
-                items.add(item);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        OrderItem item = new OrderItem();
+                        item.setId(rs.getInt("id"));
+                        item.setOrderId(rs.getString("order_id"));
+                        item.setProductId(rs.getInt("product_id"));
+                        item.setProductName(rs.getString("product_name"));
+                        item.setQuantity(rs.getInt("quantity"));
+                        item.setUnitPrice(rs.getDouble("unit_price"));
+                        item.setSubtotal(rs.getDouble("subtotal"));
+                        
+                        itemsByOrder.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item);
+                    }
+                }
             }
         }
         
-        return items;
+        return itemsByOrder;
     }
 
     public boolean updateOrderStatus(String orderId, String newStatus) throws SQLException {
         String query = "UPDATE orders SET status = ? WHERE order_id = ?";
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query)) {
             pstmt.setString(1, newStatus);
             pstmt.setString(2, orderId);
             
@@ -807,9 +920,9 @@ public class DatabaseService {
 	private List<OrderTracking> getOrderTracking(int orderId) {
 	    List<OrderTracking> tracking = new ArrayList<>();
 	    
-	    try {
+	    try (Connection conn = connectionPool.getConnection()) {
 	        String query = "SELECT * FROM order_tracking WHERE order_id = ? ORDER BY update_time";
-	        PreparedStatement pstmt = connection.prepareStatement(query);
+	        PreparedStatement pstmt = conn.prepareStatement(query);
 	        pstmt.setInt(1, orderId);
 	        ResultSet rs = pstmt.executeQuery();
 	        
@@ -836,31 +949,21 @@ public class DatabaseService {
 	    return tracking;
 	}
 
-	public boolean updateOrderStatus(int orderId, String status, String notes) {
-	    try {
-	        // Update main order status
-	        String orderSql = "UPDATE orders SET order_status = ? WHERE id = ?";
-	        PreparedStatement orderStmt = connection.prepareStatement(orderSql);
-	        orderStmt.setString(1, status);
-	        orderStmt.setInt(2, orderId);
-	        orderStmt.executeUpdate();
-	        orderStmt.close();
-	        
-	        // Add tracking record
-	        String trackingSql = "INSERT INTO order_tracking (order_id, status, notes) VALUES (?, ?, ?)";
-	        PreparedStatement trackingStmt = connection.prepareStatement(trackingSql);
-	        trackingStmt.setInt(1, orderId);
-	        trackingStmt.setString(2, status);
-	        trackingStmt.setString(3, notes);
-	        trackingStmt.executeUpdate();
-	        trackingStmt.close();
-	        
-	        return true;
-	        
-	    } catch (SQLException e) {
-	        e.printStackTrace();
-	        return false;
-	    }
+	/**
+	 * Change the status of many orders in one transaction, with a tracking
+	 * row each. Blocks; call it off the FX thread. See OrderStatusQueue.applyAll().
+	 */
+	public BulkUpdateResult bulkUpdateOrderStatus(Collection<Integer> orderIds, String status, String notes,
+	                                              Set<String> allowedFrom, BiConsumer<Integer, Integer> onProgress) {
+	    return orderStatusQueue.applyAll(orderIds, status, notes, allowedFrom, onProgress);
+	}
+	
+	/**
+	 * Queue a status change (status plus tracking row) for the write-behind
+	 * queue; the future completes with true once it is committed.
+	 */
+	public CompletableFuture<Boolean> queueOrderStatus(int orderId, String status, String notes) {
+	    return orderStatusQueue.submit(orderId, status, notes);
 	}
 	
 	
@@ -883,7 +986,8 @@ public class DatabaseService {
 	public User getCustomerById(int customerId) throws SQLException {
 	    String query = "SELECT id, username, email FROM users WHERE id = ?";
 	    
-	    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+	    try (Connection conn = connectionPool.getConnection();
+	         PreparedStatement stmt = conn.prepareStatement(query)) {
 	        stmt.setInt(1, customerId);
 	        ResultSet rs = stmt.executeQuery();
 	        
@@ -907,45 +1011,40 @@ public class DatabaseService {
 	    }
 	    
 	    String query = "INSERT INTO messages (customer_id, customer_name, customer_email, " +
-	                   "subject, message, admin_reply, status, replied_at) " +
-	                   "VALUES (?, ?, ?, ?, ?, ?, 'REPLIED', NOW())";
+	                   "subject, message, admin_reply, status, replied_at, thread_id) " +
+	                   "VALUES (?, ?, ?, ?, ?, ?, 'REPLIED', NOW(), ?)";
 	    
-	    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+	    try (Connection conn = connectionPool.getConnection();
+	         PreparedStatement stmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS)) {
+	        conn.setAutoCommit(false);
+	        // A message the admin starts is a conversation of its own
+	        int threadId = resolveThread(conn, customerId, NEW_THREAD, subject);
 	        stmt.setInt(1, customerId);
 	        stmt.setString(2, customer.getUsername());
 	        stmt.setString(3, customer.getEmail());
 	        stmt.setString(4, subject);
 	        stmt.setString(5, message);  // Original message (could be empty for admin-initiated)
 	        stmt.setString(6, message);  // Admin's reply
+	        stmt.setInt(7, threadId);
 	        
 	        int rowsAffected = stmt.executeUpdate();
+	        if (rowsAffected > 0) {
+	            recordThreadActivity(conn, threadId, 1, message);
+	            try (ResultSet keys = stmt.getGeneratedKeys()) {
+	                if (keys.next()) {
+	                    ChangeLog.append(conn, ChangeEvent.Type.MESSAGE_REPLIED, keys.getInt(1), customerId, subject);
+	                }
+	            }
+	        }
+	        conn.commit();
+	        eventBus.wakeUp();
 	        return rowsAffected > 0;
 	    }
 	}
 
-	// FIXED: Get unread message count for customer
+	/** Unread messages from one customer, from UnreadMessageCounter; no query once it is seeded. */
 	public int getCustomerUnreadMessageCount(int customerId) {
-	    try {
-	        // FIX: Changed from 'REPLIED' to 'UNREAD'
-	        String query = "SELECT COUNT(*) FROM messages WHERE customer_id = ? AND status = 'UNREAD'";
-	        
-	        PreparedStatement pstmt = connection.prepareStatement(query);
-	        pstmt.setInt(1, customerId);
-	        ResultSet rs = pstmt.executeQuery();
-	        
-	        if (rs.next()) {
-	            return rs.getInt(1);
-	        }
-	        
-	        rs.close();
-	        pstmt.close();
-	        
-	    } catch (SQLException e) {
-	        System.err.println("Error getting customer unread message count: " + e.getMessage());
-	        e.printStackTrace();
-	    }
-	    
-	    return 0;
+	    return unreadCounter.getForCustomer(customerId);
 	}
 	
 	
@@ -958,7 +1057,8 @@ public List<User> getAllCustomers() throws SQLException {
     // Try this query first - gets all users
     String query = "SELECT id, username, email, created_at FROM users ORDER BY username ASC";
     
-    try (PreparedStatement stmt = connection.prepareStatement(query);
+    try (Connection conn = connectionPool.getConnection();
+         PreparedStatement stmt = conn.prepareStatement(query);
          ResultSet rs = stmt.executeQuery()) {
         
         int count = 0;
@@ -1002,28 +1102,68 @@ public List<User> getAllCustomers() throws SQLException {
 	public boolean deleteMessage(int messageId) throws SQLException {
 	    String query = "DELETE FROM messages WHERE id = ?";
 	    
-	    try (PreparedStatement stmt = connection.prepareStatement(query)) {
+	    try (Connection conn = connectionPool.getConnection();
+	         PreparedStatement stmt = conn.prepareStatement(query)) {
+	        conn.setAutoCommit(false);
+	        Message before = lockMessage(conn, messageId);
 	        stmt.setInt(1, messageId);
 	        
 	        int rowsAffected = stmt.executeUpdate();
+	        if (rowsAffected > 0 && before != null) {
+	            recordThreadDeletions(conn, Collections.singletonMap(before.getThreadId(), 1));
+	            ChangeLog.append(conn, ChangeEvent.Type.MESSAGE_DELETED, messageId, before.getCustomerId(), null);
+	        }
+	        unreadCounter.commit(conn, () -> {
+	            if (rowsAffected > 0 && before != null && "UNREAD".equalsIgnoreCase(before.getStatus())) {
+	                unreadCounter.messageNoLongerUnread(before.getCustomerId());
+	            }
+	        });
+	        eventBus.wakeUp();
 	        return rowsAffected > 0;
 	    }
 	}
 	public boolean saveCustomerMessage(int customerId, String customerName, String customerEmail, 
 	                                   String subject, String message) {
-	    try {
-	        String sql = "INSERT INTO messages (customer_id, customer_name, customer_email, subject, message, status) " +
-	                    "VALUES (?, ?, ?, ?, ?, 'UNREAD')";
+	    // Continues the customer's latest conversation unless it has gone quiet
+	    return saveCustomerMessage(customerId, customerName, customerEmail, subject, message, LATEST_THREAD);
+	}
+	
+	/**
+	 * Save a customer message into the given conversation, or into a new one
+	 * (with subject as its title) for NEW_THREAD.
+	 */
+	public boolean saveCustomerMessage(int customerId, String customerName, String customerEmail, 
+	                                   String subject, String message, int threadId) {
+	    try (Connection conn = connectionPool.getConnection()) {
+	        String sql = "INSERT INTO messages (customer_id, customer_name, customer_email, subject, message, status, thread_id) " +
+	                    "VALUES (?, ?, ?, ?, ?, 'UNREAD', ?)";
 	        
-	        PreparedStatement pstmt = connection.prepareStatement(sql);
+	        conn.setAutoCommit(false);
+	        int thread = resolveThread(conn, customerId, threadId, subject);
+	        PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
 	        pstmt.setInt(1, customerId);
 	        pstmt.setString(2, customerName);
 	        pstmt.setString(3, customerEmail);
 	        pstmt.setString(4, subject);
 	        pstmt.setString(5, message);
+	        pstmt.setInt(6, thread);
 	        
 	        int rows = pstmt.executeUpdate();
+	        if (rows > 0) {
+	            recordThreadActivity(conn, thread, 1, message);
+	            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+	                if (keys.next()) {
+	                    ChangeLog.append(conn, ChangeEvent.Type.MESSAGE_CREATED, keys.getInt(1), customerId, subject);
+	                }
+	            }
+	        }
 	        pstmt.close();
+	        unreadCounter.commit(conn, () -> {
+	            if (rows > 0) {
+	                unreadCounter.messageAdded(customerId);
+	            }
+	        });
+	        eventBus.wakeUp();
 	        
 	        return rows > 0;
 	        
@@ -1043,10 +1183,10 @@ public List<User> getAllCustomers() throws SQLException {
 public List<Message> getCustomerMessages(int customerId) {
     List<Message> messages = new ArrayList<>();
     
-    try {
+    try (Connection conn = connectionPool.getConnection()) {
         String query = "SELECT * FROM messages WHERE customer_id = ? ORDER BY created_at ASC";
         
-        PreparedStatement pstmt = connection.prepareStatement(query);
+        PreparedStatement pstmt = conn.prepareStatement(query);
         pstmt.setInt(1, customerId);
         ResultSet rs = pstmt.executeQuery();
         
@@ -1092,42 +1232,39 @@ public List<Message> getCustomerMessages(int customerId) {
 	public List<Message> getAllMessages() {
     List<Message> messages = new ArrayList<>();
     
-    try {
+    try (Connection conn = connectionPool.getConnection()) {
         String query = "SELECT * FROM messages ORDER BY " +
                       "CASE status WHEN 'UNREAD' THEN 1 WHEN 'READ' THEN 2 ELSE 3 END, " +
                       "created_at DESC";
         
-        PreparedStatement pstmt = connection.prepareStatement(query);
-        ResultSet rs = pstmt.executeQuery();
-        
-        while (rs.next()) {
-            Message msg = new Message();
-            msg.setId(rs.getInt("id"));
-            msg.setCustomerId(rs.getInt("customer_id"));
-            msg.setCustomerName(rs.getString("customer_name"));
-            msg.setCustomerEmail(rs.getString("customer_email"));
-            msg.setSubject(rs.getString("subject"));
-            msg.setMessage(rs.getString("message"));
-            msg.setAdminReply(rs.getString("admin_reply"));
-            msg.setStatus(rs.getString("status"));
+        try (PreparedStatement pstmt = conn.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                Message msg = new Message();
+                msg.setId(rs.getInt("id"));
+                msg.setCustomerId(rs.getInt("customer_id"));
+                msg.setCustomerName(rs.getString("customer_name"));
+                msg.setCustomerEmail(rs.getString("customer_email"));
+                msg.setSubject(rs.getString("subject"));
+                msg.setMessage(rs.getString("message"));
+                msg.setAdminReply(rs.getString("admin_reply"));
+                msg.setStatus(rs.getString("status"));
+            
+                // FIX: Convert Timestamp to LocalDateTime
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                if (createdAt != null) {
+                    msg.setCreatedAt(createdAt.toLocalDateTime());
+                }
             
-            // FIX: Convert Timestamp to LocalDateTime
-            Timestamp createdAt = rs.getTimestamp("created_at");
-            if (createdAt != null) {
-                msg.setCreatedAt(createdAt.toLocalDateTime());
-            }
+                Timestamp repliedAt = rs.getTimestamp("replied_at");
+                if (repliedAt != null) {
+                    msg.setRepliedAt(repliedAt.toLocalDateTime());
+                }
             
-            Timestamp repliedAt = rs.getTimestamp("replied_at");
-            if (repliedAt != null) {
-                msg.setRepliedAt(repliedAt.toLocalDateTime());
+                messages.add(msg);
             }
-            
-            messages.add(msg);
         }
         
-        rs.close();
-        pstmt.close();
-        
     } catch (SQLException e) {
         System.err.println("Error fetching all messages: " + e.getMessage());
         e.printStackTrace();
@@ -1135,21 +1272,599 @@ public List<Message> getCustomerMessages(int customerId) {
     
     return messages;
 }
+    
+    // ========== ADMIN INBOX ==========
+    
+    // Ranks the inbox lists in order: unread, read, then everything else (messages.status_rank)
+    private static final int MESSAGE_STATUS_RANKS = 3;
+    // Columns of the messages full-text index; empty when there is none. Looked up once.
+    private static volatile List<String> messageTextColumns;
+    // InnoDB's defaults (innodb_ft_min_token_size, INNODB_FT_DEFAULT_STOPWORD); such words are never indexed
+    private static final int FULL_TEXT_MIN_WORD_LENGTH = 3;
+    private static final Set<String> FULL_TEXT_STOPWORDS = Set.of(
+        "about", "are", "com", "for", "from", "how", "that", "the", "this", "was", "what", "when", "where",
+        "who", "will", "with", "und", "www");
+    
+    /**
+     * Get one page of the admin inbox: unread messages first, then read, then
+     * replied, newest first within each. Status and search are evaluated in
+     * SQL and paging uses a keyset cursor, so every page is an index range
+     * read however deep it is.
+     *
+     * With a status, one range of (status, created_at, id) is read. For all
+     * statuses, the ranges of (status_rank, created_at, id) are read one
+     * rank after another until the page is full. Search uses the full-text
+     * index when there is one, matching words that start with each search
+     * word of three letters or more; otherwise a substring match on name,
+     * email, subject and body.
+     *
+     * @param status     status to match, or null/"ALL" for every status
+     * @param searchTerm matched against customer name, email, subject and body
+     * @param after      cursor from the previous page, or null for the first page
+     */
+    public MessagePage getMessagesPage(String status, String searchTerm, MessagePage.Cursor after, int pageSize) {
+        boolean allStatuses = status == null || status.isEmpty() || "ALL".equalsIgnoreCase(status);
+        List<Message> messages = new ArrayList<>();
+        // Keyset position of each message read, for the next page's cursor
+        List<MessagePage.Cursor> positions = new ArrayList<>();
+        
+        try (Connection conn = connectionPool.getConnection()) {
+            int firstRank = allStatuses && after != null ? after.getStatusRank() : 1;
+            int lastRank = allStatuses ? MESSAGE_STATUS_RANKS : 1;
+            // One extra row tells us whether another page exists
+            for (int rank = firstRank; rank <= lastRank && messages.size() <= pageSize; rank++) {
+                List<Object> params = new ArrayList<>();
+                StringBuilder query = new StringBuilder("SELECT * FROM messages WHERE ");
+                if (allStatuses) {
+                    query.append("status_rank = ?");
+                    params.add(rank);
+                } else {
+                    query.append("status = ?");
+                    params.add(status);
+                }
+                if (after != null && rank == firstRank) {
+                    query.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+                    params.add(after.getCreatedAt());
+                    params.add(after.getCreatedAt());
+                    params.add(after.getId());
+                }
+                appendMessageSearch(conn, query, params, searchTerm);
+                query.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+                params.add(pageSize + 1 - messages.size());
+                
+                try (PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+                    setParameters(pstmt, params);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            messages.add(mapMessage(rs));
+                            positions.add(new MessagePage.Cursor(rs.getInt("status_rank"),
+                                    rs.getTimestamp("created_at"), rs.getInt("id")));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching messages page: " + e.getMessage());
+            e.printStackTrace();
+            return new MessagePage(new ArrayList<>(), null);
+        }
+        
+        MessagePage.Cursor nextCursor = null;
+        if (messages.size() > pageSize) {
+            messages.remove(pageSize);
+            nextCursor = positions.get(pageSize - 1);
+        }
+        return new MessagePage(messages, nextCursor);
+    }
+    
+    /** Number of messages matching the same filters as getMessagesPage(). */
+    public int countMessages(String status, String searchTerm) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder query = new StringBuilder("SELECT COUNT(*) FROM messages WHERE 1 = 1");
+        if (status != null && !status.isEmpty() && !"ALL".equalsIgnoreCase(status)) {
+            query.append(" AND status = ?");
+            params.add(status);
+        }
+        
+        try (Connection conn = connectionPool.getConnection()) {
+            appendMessageSearch(conn, query, params, searchTerm);
+            try (PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+                setParameters(pstmt, params);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting messages: " + e.getMessage());
+            return 0;
+        }
+    }
+    
+    /** Ids of every message matching the same filters as getMessagesPage(), for bulk actions. */
+    public List<Integer> getMessageIds(String status, String searchTerm) {
+        List<Object> params = new ArrayList<>();
+        StringBuilder query = new StringBuilder("SELECT id FROM messages WHERE 1 = 1");
+        if (status != null && !status.isEmpty() && !"ALL".equalsIgnoreCase(status)) {
+            query.append(" AND status = ?");
+            params.add(status);
+        }
+        
+        List<Integer> ids = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection()) {
+            appendMessageSearch(conn, query, params, searchTerm);
+            try (PreparedStatement pstmt = conn.prepareStatement(query.toString())) {
+                setParameters(pstmt, params);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching message ids: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return ids;
+    }
+    
+    private void appendMessageSearch(Connection conn, StringBuilder query, List<Object> params, String searchTerm)
+            throws SQLException {
+        if (searchTerm == null || searchTerm.trim().isEmpty()) {
+            return;
+        }
+        List<String> textColumns = getMessageTextColumns(conn);
+        String words = fullTextQuery(searchTerm);
+        if (!textColumns.isEmpty() && words != null) {
+            query.append(" AND MATCH(").append(String.join(", ", textColumns)).append(") AGAINST (? IN BOOLEAN MODE)");
+            params.add(words);
+            return;
+        }
+        String pattern = "%" + escapeLike(searchTerm.trim()) + "%";
+        query.append(" AND (customer_name LIKE ? OR customer_email LIKE ? OR subject LIKE ? OR message LIKE ?)");
+        params.add(pattern);
+        params.add(pattern);
+        params.add(pattern);
+        params.add(pattern);
+    }
+    
+    private static List<String> getMessageTextColumns(Connection conn) throws SQLException {
+        List<String> columns = messageTextColumns;
+        if (columns == null) {
+            columns = SchemaMigrator.indexColumns(conn, "messages", SchemaMigrator.MESSAGE_TEXT_INDEX);
+            messageTextColumns = columns;
+        }
+        return columns;
+    }
+    
+    /**
+     * "+word*" for each word of the search, or null to search with LIKE
+     * instead. The full-text index finds indexed words by prefix, so plain
+     * words match the start of a word rather than anywhere inside one. Terms
+     * it can't answer at all keep LIKE: words shorter than the minimum or on
+     * the stopword list (never indexed, so they would match nothing), and
+     * anything with digits or punctuation, such as an email address or an
+     * order number, which the parser splits into separate words.
+     */
+    private static String fullTextQuery(String searchTerm) {
+        StringBuilder words = new StringBuilder();
+        for (String word : searchTerm.trim().toLowerCase().split("\\s+")) {
+            if (word.length() < FULL_TEXT_MIN_WORD_LENGTH || FULL_TEXT_STOPWORDS.contains(word) ||
+                !word.matches("\\p{L}+")) {
+                return null;
+            }
+            if (words.length() > 0) {
+                words.append(' ');
+            }
+            words.append('+').append(word).append('*');
+        }
+        return words.length() == 0 ? null : words.toString();
+    }
+    
+    // Customer and status of a message, locking its row until the transaction ends; null if it doesn't exist
+    private Message lockMessage(Connection conn, int messageId) throws SQLException {
+        List<Message> locked = lockMessages(conn, Collections.singletonList(messageId));
+        return locked.isEmpty() ? null : locked.get(0);
+    }
+    
+    // As lockMessage(), for many messages in one statement; ids that don't exist are left out
+    private List<Message> lockMessages(Connection conn, List<Integer> messageIds) throws SQLException {
+        List<Message> locked = new ArrayList<>();
+        if (messageIds.isEmpty()) {
+            return locked;
+        }
+        String sql = "SELECT id, customer_id, status, thread_id FROM messages WHERE id IN (" +
+                     String.join(", ", Collections.nCopies(messageIds.size(), "?")) + ") ORDER BY id FOR UPDATE";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            setParameters(pstmt, new ArrayList<Object>(messageIds));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Message msg = new Message();
+                    msg.setId(rs.getInt("id"));
+                    msg.setCustomerId(rs.getInt("customer_id"));
+                    msg.setStatus(rs.getString("status"));
+                    msg.setThreadId(rs.getInt("thread_id"));
+                    locked.add(msg);
+                }
+            }
+        }
+        return locked;
+    }
+    
+    private Message mapMessage(ResultSet rs) throws SQLException {
+        Message msg = new Message();
+        msg.setId(rs.getInt("id"));
+        msg.setCustomerId(rs.getInt("customer_id"));
+        msg.setCustomerName(rs.getString("customer_name"));
+        msg.setCustomerEmail(rs.getString("customer_email"));
+        msg.setSubject(rs.getString("subject"));
+        msg.setMessage(rs.getString("message"));
+        msg.setAdminReply(rs.getString("admin_reply"));
+        msg.setStatus(rs.getString("status"));
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        if (createdAt != null) {
+            msg.setCreatedAt(createdAt.toLocalDateTime());
+        }
+        Timestamp repliedAt = rs.getTimestamp("replied_at");
+        if (repliedAt != null) {
+            msg.setRepliedAt(repliedAt.toLocalDateTime());
+        }
+        msg.setThreadId(rs.getInt("thread_id"));
+        return msg;
+    }
+    
+    // ========== CONVERSATIONS ==========
+    
+    /** Pass as threadId to start a new conversation. */
+    public static final int NEW_THREAD = 0;
+    // Continue the customer's latest conversation if it is recent enough, else start one
+    private static final int LATEST_THREAD = -1;
+    private static final long THREAD_IDLE_MS = 7L * 24 * 60 * 60 * 1000;
+    private static final int THREAD_PREVIEW_LENGTH = 120;
+    private static final int THREAD_SUBJECT_LENGTH = 200;
+    
+    /**
+     * The customer's most recently active conversations, newest first. Read
+     * from the thread summaries alone, so it costs the same however long
+     * the conversations are.
+     */
+    public List<MessageThread> getCustomerThreads(int customerId, int limit) {
+        List<MessageThread> threads = new ArrayList<>();
+        String sql = "SELECT id, customer_id, subject, message_count, last_preview, created_at, last_activity_at " +
+                     "FROM message_threads WHERE customer_id = ? ORDER BY last_activity_at DESC, id DESC LIMIT ?";
+        
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, customerId);
+            pstmt.setInt(2, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp createdAt = rs.getTimestamp("created_at");
+                    Timestamp lastActivityAt = rs.getTimestamp("last_activity_at");
+                    threads.add(new MessageThread(rs.getInt("id"), rs.getInt("customer_id"),
+                            rs.getString("subject"), rs.getInt("message_count"), rs.getString("last_preview"),
+                            createdAt != null ? createdAt.toLocalDateTime() : null,
+                            lastActivityAt != null ? lastActivityAt.toLocalDateTime() : null));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching message threads: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return threads;
+    }
+    
+    /**
+     * The newest pageSize messages of a conversation older than the cursor
+     * (or the newest overall if before is null), returned oldest first. The
+     * customer id guards against reading someone else's thread.
+     */
+    public ThreadPage getThreadMessages(int customerId, int threadId, ThreadPage.Cursor before, int pageSize) {
+        List<Message> messages = new ArrayList<>();
+        List<ThreadPage.Cursor> positions = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("SELECT * FROM messages WHERE thread_id = ? AND customer_id = ?");
+        if (before != null) {
+            sql.append(" AND (created_at < ? OR (created_at = ? AND id < ?))");
+        }
+        // One extra row tells us whether anything older exists
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ?");
+        
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            pstmt.setInt(index++, threadId);
+            pstmt.setInt(index++, customerId);
+            if (before != null) {
+                pstmt.setTimestamp(index++, before.getCreatedAt());
+                pstmt.setTimestamp(index++, before.getCreatedAt());
+                pstmt.setInt(index++, before.getId());
+            }
+            pstmt.setInt(index, pageSize + 1);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    messages.add(mapMessage(rs));
+                    positions.add(new ThreadPage.Cursor(rs.getTimestamp("created_at"), rs.getInt("id")));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error fetching thread messages: " + e.getMessage());
+            e.printStackTrace();
+            return new ThreadPage(new ArrayList<>(), null);
+        }
+        
+        ThreadPage.Cursor olderCursor = null;
+        if (messages.size() > pageSize) {
+            messages.remove(pageSize);
+            olderCursor = positions.get(pageSize - 1);
+        }
+        Collections.reverse(messages);
+        return new ThreadPage(messages, olderCursor);
+    }
+    
+    /**
+     * The thread a new message from or to this customer goes into: threadId
+     * if it is theirs, a new thread for NEW_THREAD (or a thread that isn't
+     * theirs), or for LATEST_THREAD their latest one unless it has been idle
+     * longer than THREAD_IDLE_MS. An existing thread's row stays locked until
+     * the transaction ends, so its summary can be updated safely.
+     */
+    private int resolveThread(Connection conn, int customerId, int threadId, String subject) throws SQLException {
+        if (threadId != NEW_THREAD) {
+            String sql = threadId == LATEST_THREAD
+                    ? "SELECT id, last_activity_at FROM message_threads WHERE customer_id = ? " +
+                      "ORDER BY last_activity_at DESC, id DESC LIMIT 1 FOR UPDATE"
+                    : "SELECT id, last_activity_at FROM message_threads WHERE customer_id = ? AND id = ? FOR UPDATE";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setInt(1, customerId);
+                if (threadId != LATEST_THREAD) {
+                    pstmt.setInt(2, threadId);
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        Timestamp lastActivityAt = rs.getTimestamp("last_activity_at");
+                        boolean idle = threadId == LATEST_THREAD && lastActivityAt != null &&
+                                       System.currentTimeMillis() - lastActivityAt.getTime() > THREAD_IDLE_MS;
+                        if (!idle) {
+                            return rs.getInt("id");
+                        }
+                    }
+                }
+            }
+        }
+        
+        String title = subject == null || subject.trim().isEmpty() ? "Support Request" : subject.trim();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO message_threads (customer_id, subject) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setInt(1, customerId);
+            pstmt.setString(2, truncate(title, THREAD_SUBJECT_LENGTH));
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Creating message thread returned no id");
+                }
+                return keys.getInt(1);
+            }
+        }
+    }
+    
+    // Keep a thread's summary current after messages were added to it or a reply was written
+    private void recordThreadActivity(Connection conn, int threadId, int addedMessages, String latestText)
+            throws SQLException {
+        if (threadId <= 0) {
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE message_threads SET message_count = message_count + ?, " +
+                "last_activity_at = CURRENT_TIMESTAMP, last_preview = COALESCE(?, last_preview) WHERE id = ?")) {
+            pstmt.setInt(1, addedMessages);
+            pstmt.setString(2, latestText == null ? null : truncate(latestText.trim(), THREAD_PREVIEW_LENGTH));
+            pstmt.setInt(3, threadId);
+            pstmt.executeUpdate();
+        }
+    }
+    
+    // Messages were deleted from these threads: thread id -> how many
+    private void recordThreadDeletions(Connection conn, Map<Integer, Integer> deletedByThread) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "UPDATE message_threads SET message_count = GREATEST(message_count - ?, 0) WHERE id = ?")) {
+            boolean batched = false;
+            for (Map.Entry<Integer, Integer> entry : deletedByThread.entrySet()) {
+                if (entry.getKey() <= 0) {
+                    continue;
+                }
+                pstmt.setInt(1, entry.getValue());
+                pstmt.setInt(2, entry.getKey());
+                pstmt.addBatch();
+                batched = true;
+            }
+            if (batched) {
+                pstmt.executeBatch();
+            }
+        }
+    }
+    
+    private static String truncate(String text, int maxLength) {
+        return text.length() > maxLength ? text.substring(0, maxLength) : text;
+    }
+    
+    // ========== BULK MESSAGE TRIAGE ==========
+    
+    // Max message ids per "id IN (...)" statement in a bulk action
+    public static final int MESSAGE_BATCH_SIZE = 500;
+    
+    private enum MessageBulkAction { MARK_READ, REPLY, DELETE }
+    
+    /** Mark the unread ones among these messages read; the rest are skipped. */
+    public BulkUpdateResult bulkMarkMessagesRead(Collection<Integer> messageIds, BiConsumer<Integer, Integer> onProgress) {
+        return applyToMessages(messageIds, MessageBulkAction.MARK_READ, null, onProgress);
+    }
+    
+    /** Send the same reply to every message not replied to yet; replied ones keep their reply. */
+    public BulkUpdateResult bulkReplyToMessages(Collection<Integer> messageIds, String reply,
+                                                BiConsumer<Integer, Integer> onProgress) {
+        return applyToMessages(messageIds, MessageBulkAction.REPLY, reply, onProgress);
+    }
+    
+    public BulkUpdateResult bulkDeleteMessages(Collection<Integer> messageIds, BiConsumer<Integer, Integer> onProgress) {
+        return applyToMessages(messageIds, MessageBulkAction.DELETE, null, onProgress);
+    }
+    
+    /**
+     * Apply one triage action to many messages in a single transaction, a
+     * batch of MESSAGE_BATCH_SIZE rows per statement. Each batch locks its
+     * rows in id order (as the single-message methods lock theirs), skips
+     * messages the action doesn't apply to, and reports progress after it
+     * is written. Either every batch commits or nothing does.
+     */
+    private BulkUpdateResult applyToMessages(Collection<Integer> messageIds, MessageBulkAction action, String reply,
+                                             BiConsumer<Integer, Integer> onProgress) {
+        List<Integer> ids = new ArrayList<>(new TreeSet<>(messageIds));
+        // Customer id -> messages of theirs that were unread before this action
+        Map<Integer, Integer> noLongerUnread = new HashMap<>();
+        int applied = 0;
+        
+        try (Connection conn = connectionPool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < ids.size(); from += MESSAGE_BATCH_SIZE) {
+                    List<Integer> batch = ids.subList(from, Math.min(from + MESSAGE_BATCH_SIZE, ids.size()));
+                    List<Message> eligible = new ArrayList<>();
+                    for (Message msg : lockMessages(conn, batch)) {
+                        String status = msg.getStatus() != null ? msg.getStatus().toUpperCase() : "";
+                        if (action == MessageBulkAction.DELETE ||
+                            (action == MessageBulkAction.MARK_READ && "UNREAD".equals(status)) ||
+                            (action == MessageBulkAction.REPLY && !"REPLIED".equals(status))) {
+                            eligible.add(msg);
+                        }
+                    }
+                    if (!eligible.isEmpty()) {
+                        writeMessageBatch(conn, action, reply, eligible);
+                        for (Message msg : eligible) {
+                            if ("UNREAD".equalsIgnoreCase(msg.getStatus())) {
+                                noLongerUnread.merge(msg.getCustomerId(), 1, Integer::sum);
+                            }
+                        }
+                        applied += eligible.size();
+                    }
+                    if (onProgress != null) {
+                        onProgress.accept(from + batch.size(), ids.size());
+                    }
+                }
+                unreadCounter.commit(conn, () -> unreadCounter.messagesNoLongerUnread(noLongerUnread));
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error applying " + action + " to " + ids.size() + " messages: " + e.getMessage());
+            e.printStackTrace();
+            return BulkUpdateResult.failed(ids.size(), e.getMessage());
+        }
+        
+        if (applied > 0) {
+            eventBus.wakeUp();
+        }
+        System.out.println("Bulk " + action + ": " + applied + " of " + ids.size() + " messages changed");
+        return BulkUpdateResult.completed(ids.size(), applied, ids.size() - applied);
+    }
+    
+    // One batch of a bulk action, on rows already locked by lockMessages()
+    private void writeMessageBatch(Connection conn, MessageBulkAction action, String reply, List<Message> messages)
+            throws SQLException {
+        List<Object> ids = new ArrayList<>();
+        Map<Integer, Integer> countByThread = new HashMap<>();
+        for (Message msg : messages) {
+            ids.add(msg.getId());
+            countByThread.merge(msg.getThreadId(), 1, Integer::sum);
+        }
+        String idList = "(" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+        
+        switch (action) {
+            case MARK_READ:
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE messages SET status = 'READ' WHERE id IN " + idList)) {
+                    setParameters(pstmt, ids);
+                    pstmt.executeUpdate();
+                }
+                ChangeLog.appendAll(conn, messageEvents(ChangeEvent.Type.MESSAGE_READ, messages));
+                break;
+                
+            case REPLY:
+                List<Object> params = new ArrayList<>();
+                params.add(reply);
+                params.addAll(ids);
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE messages SET admin_reply = ?, status = 'REPLIED', replied_at = CURRENT_TIMESTAMP " +
+                        "WHERE id IN " + idList)) {
+                    setParameters(pstmt, params);
+                    pstmt.executeUpdate();
+                }
+                
+                List<Object> threadParams = new ArrayList<>();
+                threadParams.add(truncate(reply.trim(), THREAD_PREVIEW_LENGTH));
+                for (int threadId : countByThread.keySet()) {
+                    if (threadId > 0) {
+                        threadParams.add(threadId);
+                    }
+                }
+                if (threadParams.size() > 1) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "UPDATE message_threads SET last_activity_at = CURRENT_TIMESTAMP, last_preview = ? " +
+                            "WHERE id IN (" + String.join(", ", Collections.nCopies(threadParams.size() - 1, "?")) + ")")) {
+                        setParameters(pstmt, threadParams);
+                        pstmt.executeUpdate();
+                    }
+                }
+                
+                ChangeLog.appendAll(conn, messageEvents(ChangeEvent.Type.MESSAGE_REPLIED, messages));
+                break;
+                
+            case DELETE:
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM messages WHERE id IN " + idList)) {
+                    setParameters(pstmt, ids);
+                    pstmt.executeUpdate();
+                }
+                recordThreadDeletions(conn, countByThread);
+                ChangeLog.appendAll(conn, messageEvents(ChangeEvent.Type.MESSAGE_DELETED, messages));
+                break;
+        }
+    }
+    
+    private static List<ChangeEvent> messageEvents(ChangeEvent.Type type, List<Message> messages) {
+        List<ChangeEvent> events = new ArrayList<>(messages.size());
+        for (Message msg : messages) {
+            events.add(new ChangeEvent(type, msg.getId(), msg.getCustomerId(), null));
+        }
+        return events;
+    }
 
 	/**
 	 * Admin replies to a message
 	 */
 	public boolean adminReplyToMessage(int messageId, String adminReply) {
-	    try {
+	    try (Connection conn = connectionPool.getConnection()) {
 	        String sql = "UPDATE messages SET admin_reply = ?, status = 'REPLIED', " +
 	                    "replied_at = CURRENT_TIMESTAMP WHERE id = ?";
 	        
-	        PreparedStatement pstmt = connection.prepareStatement(sql);
+	        conn.setAutoCommit(false);
+	        Message before = lockMessage(conn, messageId);
+	        PreparedStatement pstmt = conn.prepareStatement(sql);
 	        pstmt.setString(1, adminReply);
 	        pstmt.setInt(2, messageId);
 	        
 	        int rows = pstmt.executeUpdate();
 	        pstmt.close();
+	        if (rows > 0) {
+	            if (before != null) {
+	                recordThreadActivity(conn, before.getThreadId(), 0, adminReply);
+	            }
+	            ChangeLog.appendForMessage(conn, ChangeEvent.Type.MESSAGE_REPLIED, messageId, null);
+	        }
+	        unreadCounter.commit(conn, () -> {
+	            if (rows > 0 && before != null && "UNREAD".equalsIgnoreCase(before.getStatus())) {
+	                unreadCounter.messageNoLongerUnread(before.getCustomerId());
+	            }
+	        });
+	        eventBus.wakeUp();
 	        
 	        return rows > 0;
 	        
@@ -1164,16 +1879,25 @@ public List<Message> getCustomerMessages(int customerId) {
 	 * Mark message as read
 	 */
 	public boolean markMessageAsRead(int messageId) {
-	    try {
+	    try (Connection conn = connectionPool.getConnection()) {
 	        String sql = "UPDATE messages SET status = 'READ' WHERE id = ? AND status = 'UNREAD'";
 	        
-	        PreparedStatement pstmt = connection.prepareStatement(sql);
-	        pstmt.setInt(1, messageId);
-	        
-	        int rows = pstmt.executeUpdate();
-	        pstmt.close();
-	        
-	        return rows > 0;
+	        conn.setAutoCommit(false);
+	        Message before = lockMessage(conn, messageId);
+	        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+	            pstmt.setInt(1, messageId);
+	            boolean marked = pstmt.executeUpdate() > 0;
+	            if (marked) {
+	                ChangeLog.appendForMessage(conn, ChangeEvent.Type.MESSAGE_READ, messageId, null);
+	            }
+	            unreadCounter.commit(conn, () -> {
+	                if (marked && before != null) {
+	                    unreadCounter.messageNoLongerUnread(before.getCustomerId());
+	                }
+	            });
+	            eventBus.wakeUp();
+	            return marked;
+	        }
 	        
 	    } catch (SQLException e) {
 	        System.err.println("Error marking message as read: " + e.getMessage());
@@ -1186,25 +1910,8 @@ public List<Message> getCustomerMessages(int customerId) {
 	 * Get count of unread messages for admin
 	 */
 	public int getUnreadMessageCount() {
-	    try {
-	        String query = "SELECT COUNT(*) FROM messages WHERE status = 'UNREAD'";
-	        
-	        PreparedStatement pstmt = connection.prepareStatement(query);
-	        ResultSet rs = pstmt.executeQuery();
-	        
-	        if (rs.next()) {
-	            return rs.getInt(1);
-	        }
-	        
-	        rs.close();
-	        pstmt.close();
-	        
-	    } catch (SQLException e) {
-	        System.err.println("Error getting unread message count: " + e.getMessage());
-	        e.printStackTrace();
-	    }
-	    
-	    return 0;
+	    // Kept in memory by UnreadMessageCounter; no query once it is seeded
+	    return unreadCounter.getTotal();
 	}
 
 	/**
@@ -1234,12 +1941,12 @@ public List<Message> getCustomerMessages(int customerId) {
 //	}
 	// Add this method to DatabaseService.java to debug messages table
 	public void debugMessagesTable() {
-	    try {
+	    try (Connection conn = connectionPool.getConnection()) {
 	        System.out.println("=== DEBUG MESSAGES TABLE ===");
 	        
 	        // Check if table exists
 	        String checkTableSql = "SHOW TABLES LIKE 'messages'";
-	        PreparedStatement checkStmt = connection.prepareStatement(checkTableSql);
+	        PreparedStatement checkStmt = conn.prepareStatement(checkTableSql);
 	        ResultSet tableRs = checkStmt.executeQuery();
 	        
 	        if (tableRs.next()) {
@@ -1247,7 +1954,7 @@ public List<Message> getCustomerMessages(int customerId) {
 	            
 	            // Count messages
 	            String countSql = "SELECT COUNT(*) as message_count FROM messages";
-	            PreparedStatement countStmt = connection.prepareStatement(countSql);
+	            PreparedStatement countStmt = conn.prepareStatement(countSql);
 	            ResultSet countRs = countStmt.executeQuery();
 	            
 	            if (countRs.next()) {
@@ -1258,7 +1965,7 @@ public List<Message> getCustomerMessages(int customerId) {
 	                if (count > 0) {
 	                    System.out.println("Sample messages:");
 	                    String sampleSql = "SELECT id, customer_name, subject, status, created_at FROM messages LIMIT 5";
-	                    PreparedStatement sampleStmt = connection.prepareStatement(sampleSql);
+	                    PreparedStatement sampleStmt = conn.prepareStatement(sampleSql);
 	                    ResultSet sampleRs = sampleStmt.executeQuery();
 	                    
 	                    while (sampleRs.next()) {
@@ -1294,7 +2001,7 @@ public List<Message> getCustomerMessages(int customerId) {
 	                "FOREIGN KEY (customer_id) REFERENCES users(id) ON DELETE CASCADE" +
 	                ")";
 	            
-	            Statement stmt = connection.createStatement();
+	            Statement stmt = conn.createStatement();
 	            stmt.execute(createTableSql);
 	            stmt.close();
 	            System.out.println("✓ Messages table created successfully!");
@@ -1307,7 +2014,7 @@ public List<Message> getCustomerMessages(int customerId) {
 	                "(2, 'yohan wega', 'jo123@example.com', 'Product Quality', 'The product arrived damaged.', 'REPLIED'), " +
 	                "(2, 'yohan wega', 'jo123@example.com', 'Payment Problem', 'My payment was declined but money deducted.', 'READ')";
 	            
-	            stmt = connection.createStatement();
+	            stmt = conn.createStatement();
 	            stmt.executeUpdate(insertTestSql);
 	            stmt.close();
 	            System.out.println("✓ Test messages inserted!");
@@ -1323,38 +2030,12 @@ public List<Message> getCustomerMessages(int customerId) {
 	        e.printStackTrace();
 	    }
 	}
-    public boolean updateOrderStatus(int orderId, String status) {
-        try {
-            String sql = "INSERT INTO order_tracking (order_id, status) VALUES (?, ?)";
-            PreparedStatement pstmt = connection.prepareStatement(sql);
-            pstmt.setInt(1, orderId);
-            pstmt.setString(2, status);
-            
-            int rows = pstmt.executeUpdate();
-            pstmt.close();
-            
-            // Update main order status
-            String updateSql = "UPDATE orders SET order_status = ? WHERE id = ?";
-            PreparedStatement updateStmt = connection.prepareStatement(updateSql);
-            updateStmt.setString(1, status);
-            updateStmt.setInt(2, orderId);
-            updateStmt.executeUpdate();
-            updateStmt.close();
-            
-            return rows > 0;
-            
-        } catch (SQLException e) {
-            e.printStackTrace();
-            return false;
-        }
-    }
-    
     
  // Method to check if user is the only admin
     public boolean isOnlyAdmin(String email) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "SELECT COUNT(*) as admin_count FROM users WHERE role = 'ADMIN'";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             ResultSet rs = pstmt.executeQuery();
             
             if (rs.next()) {
@@ -1374,9 +2055,9 @@ public List<Message> getCustomerMessages(int customerId) {
 
     // Method to get admin count
     public int getAdminCount() {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "SELECT COUNT(*) as count FROM users WHERE role = 'ADMIN'";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             ResultSet rs = pstmt.executeQuery();
             
             if (rs.next()) {
@@ -1400,9 +2081,9 @@ public List<Message> getCustomerMessages(int customerId) {
     
  // Add this method to check if user exists by email
     public User getUserByEmail(String email) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "SELECT * FROM users WHERE email = ?";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, email);
             
             ResultSet rs = pstmt.executeQuery();
@@ -1434,12 +2115,12 @@ public List<Message> getCustomerMessages(int customerId) {
    
     
     public boolean registerUser(String username, String email, String password, String fullName, String role) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             // Hash the password before storing
             String hashedPassword = PasswordHasher.hashPassword(password);
             
             String query = "INSERT INTO users (username, email, password, full_name, role) VALUES (?, ?, ?, ?, ?)";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, username);
             pstmt.setString(2, email);
             pstmt.setString(3, hashedPassword); // Store hashed password
@@ -1459,9 +2140,9 @@ public List<Message> getCustomerMessages(int customerId) {
 
     // Add this method to update user role
     public boolean updateUserRole(String email, String newRole) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "UPDATE users SET role = ? WHERE email = ?";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, newRole);
             pstmt.setString(2, email);
             
@@ -1478,9 +2159,9 @@ public List<Message> getCustomerMessages(int customerId) {
 
     // Add this method to check if username exists
     public boolean usernameExists(String username) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "SELECT COUNT(*) FROM users WHERE username = ?";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, username);
             
             ResultSet rs = pstmt.executeQuery();
@@ -1502,9 +2183,9 @@ public List<Message> getCustomerMessages(int customerId) {
     public List<User> getAllUsers() {
         List<User> users = new ArrayList<>();
         
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "SELECT id, username, email, full_name, role, created_at FROM users ORDER BY created_at DESC";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             ResultSet rs = pstmt.executeQuery();
             
             while (rs.next()) {
@@ -1530,15 +2211,33 @@ public List<Message> getCustomerMessages(int customerId) {
 
     // Message methods
     public boolean saveMessage(int customerId, String subject, String message) {
-        try {
-            String sql = "INSERT INTO messages (customer_id, subject, message) VALUES (?, ?, ?)";
-            PreparedStatement pstmt = connection.prepareStatement(sql);
+        try (Connection conn = connectionPool.getConnection()) {
+            String sql = "INSERT INTO messages (customer_id, subject, message, thread_id) VALUES (?, ?, ?, ?)";
+            conn.setAutoCommit(false);
+            int threadId = resolveThread(conn, customerId, LATEST_THREAD, subject);
+            PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
             pstmt.setInt(1, customerId);
             pstmt.setString(2, subject);
             pstmt.setString(3, message);
+            pstmt.setInt(4, threadId);
             
             int rows = pstmt.executeUpdate();
+            if (rows > 0) {
+                recordThreadActivity(conn, threadId, 1, message);
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        ChangeLog.append(conn, ChangeEvent.Type.MESSAGE_CREATED, keys.getInt(1), customerId, subject);
+                    }
+                }
+            }
             pstmt.close();
+            // New messages start out UNREAD
+            unreadCounter.commit(conn, () -> {
+                if (rows > 0) {
+                    unreadCounter.messageAdded(customerId);
+                }
+            });
+            eventBus.wakeUp();
             return rows > 0;
             
         } catch (SQLException e) {
@@ -1548,25 +2247,27 @@ public List<Message> getCustomerMessages(int customerId) {
     }
 
     private String generateOrderNumber() {
-        return "ORD" + System.currentTimeMillis() + (int)(Math.random() * 1000);
+        return OrderIdGenerator.getInstance().nextOrderId();
     }
 
     private void updateProductStock(int productId, int quantityChange) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String sql = "UPDATE products SET stock_quantity = stock_quantity + ? WHERE id = ?";
-            PreparedStatement pstmt = connection.prepareStatement(sql);
+            PreparedStatement pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, quantityChange);
             pstmt.setInt(2, productId);
-            pstmt.executeUpdate();
+            if (pstmt.executeUpdate() > 0) {
+                catalogCache.stockChanged(productId, quantityChange);
+            }
             pstmt.close();
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
     public boolean validateCustomer(String username, String password) {
-    try {
+    try (Connection conn = connectionPool.getConnection()) {
         String query = "SELECT password FROM users WHERE (username = ? OR email = ?) AND role = 'CUSTOMER'";
-        PreparedStatement pstmt = connection.prepareStatement(query);
+        PreparedStatement pstmt = conn.prepareStatement(query);
         pstmt.setString(1, username);
         pstmt.setString(2, username);
         
@@ -1603,10 +2304,10 @@ public List<Message> getCustomerMessages(int customerId) {
      * Get user by email or username
      */
     public User getUserByEmailOrUsername(String emailOrUsername) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "SELECT id, email, username, full_name, role, phone, address " +
                           "FROM users WHERE email = ? OR username = ?";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, emailOrUsername);
             pstmt.setString(2, emailOrUsername);
             
@@ -1641,9 +2342,9 @@ public List<Message> getCustomerMessages(int customerId) {
      * Check if email already exists
      */
     public boolean checkEmailExists(String email) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "SELECT COUNT(*) as count FROM users WHERE email = ?";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, email);
             
             ResultSet rs = pstmt.executeQuery();
@@ -1669,7 +2370,7 @@ public List<Message> getCustomerMessages(int customerId) {
      */
     public boolean registerCustomer(String email, String password, String fullName, 
                                    String phone, String address, boolean newsletter) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             // Generate username from email (remove @domain part)
             String username = email.split("@")[0];
             
@@ -1677,10 +2378,10 @@ public List<Message> getCustomerMessages(int customerId) {
                           "phone, address, role, newsletter_subscribed, created_at) " +
                           "VALUES (?, ?, ?, ?, ?, ?, 'CUSTOMER', ?, CURRENT_TIMESTAMP)";
             
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, username);
             pstmt.setString(2, email);
-            pstmt.setString(3, password);
+            pstmt.setString(3, PasswordHasher.hashPassword(password));
             pstmt.setString(4, fullName);
             pstmt.setString(5, phone);
             pstmt.setString(6, address);
@@ -1703,7 +2404,7 @@ public List<Message> getCustomerMessages(int customerId) {
      * Add this to your initializeDatabase() method
      */
     private void createUsersTable() {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String createTableSQL = 
                 "CREATE TABLE IF NOT EXISTS users (" +
                 "id INT PRIMARY KEY AUTO_INCREMENT," +
@@ -1719,7 +2420,7 @@ public List<Message> getCustomerMessages(int customerId) {
                 "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP" +
                 ")";
             
-            Statement stmt = connection.createStatement();
+            Statement stmt = conn.createStatement();
             stmt.execute(createTableSQL);
             stmt.close();
             
@@ -1730,9 +2431,9 @@ public List<Message> getCustomerMessages(int customerId) {
         }
     }
     public boolean customerLogin(String username, String password) {
-    try {
+    try (Connection conn = connectionPool.getConnection()) {
         String query = "SELECT password FROM users WHERE (username = ? OR email = ?) AND role = 'CUSTOMER'";
-        PreparedStatement pstmt = connection.prepareStatement(query);
+        PreparedStatement pstmt = conn.prepareStatement(query);
         pstmt.setString(1, username);
         pstmt.setString(2, username);
         
@@ -1759,9 +2460,9 @@ public List<Message> getCustomerMessages(int customerId) {
 }
 
     public String getCustomerName(String username) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "SELECT full_name FROM users WHERE username = ? OR email = ?";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, username);
             pstmt.setString(2, username);
             
@@ -1780,7 +2481,7 @@ public List<Message> getCustomerMessages(int customerId) {
         return "Customer";
     }
 public boolean registerCustomer(String username, String email, String password, String fullName) {
-    try {
+    try (Connection conn = connectionPool.getConnection()) {
         // MAKE SURE THIS LINE HASHES THE PASSWORD
         String hashedPassword = PasswordHasher.hashPassword(password);
         
@@ -1788,7 +2489,7 @@ public boolean registerCustomer(String username, String email, String password,
             (hashedPassword != null && hashedPassword.length() > 20));
         
         String query = "INSERT INTO users (username, email, password, role, full_name) VALUES (?, ?, ?, 'CUSTOMER', ?)";
-        PreparedStatement pstmt = connection.prepareStatement(query);
+        PreparedStatement pstmt = conn.prepareStatement(query);
         pstmt.setString(1, username);
         pstmt.setString(2, email);
         pstmt.setString(3, hashedPassword); // Make sure this is hashed
@@ -1807,12 +2508,13 @@ public boolean registerCustomer(String username, String email, String password,
 }
     
     public boolean addProduct(Product product) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "INSERT INTO products (name, price, category_id, description, " +
                           "image_url, stock_quantity, discount_percentage) " +
                           "VALUES (?, ?, ?, ?, ?, ?, ?)";
             
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            conn.setAutoCommit(false);
+            PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
             pstmt.setString(1, product.getName());
             pstmt.setDouble(2, product.getPrice());
             pstmt.setInt(3, product.getCategoryId());
@@ -1822,8 +2524,21 @@ public boolean registerCustomer(String username, String email, String password,
             pstmt.setDouble(7, product.getDiscountPercentage());
             
             int rows = pstmt.executeUpdate();
+            if (rows > 0) {
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        ChangeLog.append(conn, ChangeEvent.Type.PRODUCT_UPDATED, keys.getInt(1), null, product.getName());
+                    }
+                }
+            }
             pstmt.close();
+            conn.commit();
             
+            // The cache has no row for the new product yet, so reload the catalog on next read
+            if (rows > 0) {
+                catalogCache.invalidate();
+                eventBus.wakeUp();
+            }
             return rows > 0;
             
         } catch (SQLException e) {
@@ -1833,12 +2548,13 @@ public boolean registerCustomer(String username, String email, String password,
     }
     
     public boolean updateProduct(Product product) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "UPDATE products SET name = ?, price = ?, category_id = ?, " +
                           "description = ?, image_url = ?, stock_quantity = ?, " +
                           "discount_percentage = ? WHERE id = ?";
             
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            conn.setAutoCommit(false);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, product.getName());
             pstmt.setDouble(2, product.getPrice());
             pstmt.setInt(3, product.getCategoryId());
@@ -1850,7 +2566,15 @@ public boolean registerCustomer(String username, String email, String password,
             
             int rows = pstmt.executeUpdate();
             pstmt.close();
+            if (rows > 0) {
+                ChangeLog.append(conn, ChangeEvent.Type.PRODUCT_UPDATED, product.getId(), null, product.getName());
+            }
+            conn.commit();
             
+            if (rows > 0) {
+                catalogCache.productUpdated(product);
+                eventBus.wakeUp();
+            }
             return rows > 0;
             
         } catch (SQLException e) {
@@ -1860,14 +2584,23 @@ public boolean registerCustomer(String username, String email, String password,
     }
     
     public boolean deleteProduct(int productId) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "DELETE FROM products WHERE id = ?";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            conn.setAutoCommit(false);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setInt(1, productId);
             
             int rows = pstmt.executeUpdate();
             pstmt.close();
+            if (rows > 0) {
+                ChangeLog.append(conn, ChangeEvent.Type.PRODUCT_DELETED, productId, null, null);
+            }
+            conn.commit();
             
+            if (rows > 0) {
+                catalogCache.productDeleted(productId);
+                eventBus.wakeUp();
+            }
             return rows > 0;
             
         } catch (SQLException e) {
@@ -1878,13 +2611,17 @@ public boolean registerCustomer(String username, String email, String password,
     
     // CATEGORY METHODS
     public List<Category> getAllCategories() {
+        return catalogCache.getAllCategories(catalogLoader);
+    }
+    
+    // Cache loader: every category, by name
+    private List<Category> queryAllCategories() throws SQLException {
         List<Category> categories = new ArrayList<>();
         
-        try {
-            String query = "SELECT * FROM categories ORDER BY name";
-            PreparedStatement pstmt = connection.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery();
-            
+        String query = "SELECT * FROM categories ORDER BY name";
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
             while (rs.next()) {
                 Category category = new Category(
                     rs.getInt("id"),
@@ -1893,27 +2630,35 @@ public boolean registerCustomer(String username, String email, String password,
                 );
                 categories.add(category);
             }
-            
-            rs.close();
-            pstmt.close();
-            
-        } catch (SQLException e) {
-            System.err.println("Error fetching categories: " + e.getMessage());
         }
         
         return categories;
     }
     
     public boolean addCategory(Category category) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "INSERT INTO categories (name, description) VALUES (?, ?)";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            conn.setAutoCommit(false);
+            PreparedStatement pstmt = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
             pstmt.setString(1, category.getName());
             pstmt.setString(2, category.getDescription());
             
             int rows = pstmt.executeUpdate();
+            if (rows > 0) {
+                try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                    if (keys.next()) {
+                        ChangeLog.append(conn, ChangeEvent.Type.CATEGORY_CHANGED, keys.getInt(1), null, category.getName());
+                    }
+                }
+            }
             pstmt.close();
+            conn.commit();
             
+            // Category names are denormalised into every cached product
+            if (rows > 0) {
+                catalogCache.invalidate();
+                eventBus.wakeUp();
+            }
             return rows > 0;
             
         } catch (SQLException e) {
@@ -1923,16 +2668,26 @@ public boolean registerCustomer(String username, String email, String password,
     }
     
     public boolean updateCategory(Category category) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             String query = "UPDATE categories SET name = ?, description = ? WHERE id = ?";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            conn.setAutoCommit(false);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setString(1, category.getName());
             pstmt.setString(2, category.getDescription());
             pstmt.setInt(3, category.getId());
             
             int rows = pstmt.executeUpdate();
             pstmt.close();
+            if (rows > 0) {
+                ChangeLog.append(conn, ChangeEvent.Type.CATEGORY_CHANGED, category.getId(), null, category.getName());
+            }
+            conn.commit();
             
+            // Category names are denormalised into every cached product
+            if (rows > 0) {
+                catalogCache.invalidate();
+                eventBus.wakeUp();
+            }
             return rows > 0;
             
         } catch (SQLException e) {
@@ -1942,15 +2697,25 @@ public boolean registerCustomer(String username, String email, String password,
     }
     
     public boolean deleteCategory(int categoryId) {
-        try {
+        try (Connection conn = connectionPool.getConnection()) {
             // Note: This will fail if products reference this category due to foreign key
             String query = "DELETE FROM categories WHERE id = ?";
-            PreparedStatement pstmt = connection.prepareStatement(query);
+            conn.setAutoCommit(false);
+            PreparedStatement pstmt = conn.prepareStatement(query);
             pstmt.setInt(1, categoryId);
             
             int rows = pstmt.executeUpdate();
             pstmt.close();
+            if (rows > 0) {
+                ChangeLog.append(conn, ChangeEvent.Type.CATEGORY_CHANGED, categoryId, null, null);
+            }
+            conn.commit();
             
+            // Category names are denormalised into every cached product
+            if (rows > 0) {
+                catalogCache.invalidate();
+                eventBus.wakeUp();
+            }
             return rows > 0;
             
         } catch (SQLException e) {
@@ -1961,9 +2726,9 @@ public boolean registerCustomer(String username, String email, String password,
     
     // USER/AUTH METHODS
     public boolean validateAdmin(String username, String password) {
-    try {
+    try (Connection conn = connectionPool.getConnection()) {
         String query = "SELECT password FROM users WHERE username = ? AND role = 'ADMIN'";
-        PreparedStatement pstmt = connection.prepareStatement(query);
+        PreparedStatement pstmt = conn.prepareStatement(query);
         pstmt.setString(1, username);
         
         ResultSet rs = pstmt.executeQuery();
@@ -1988,9 +2753,9 @@ public boolean registerCustomer(String username, String email, String password,
     }
 }
 public boolean validateLogin(String emailOrUsername, String password) {
-    try {
+    try (Connection conn = connectionPool.getConnection()) {
         String query = "SELECT password FROM users WHERE (email = ? OR username = ?)";
-        PreparedStatement pstmt = connection.prepareStatement(query);
+        PreparedStatement pstmt = conn.prepareStatement(query);
         pstmt.setString(1, emailOrUsername);
         pstmt.setString(2, emailOrUsername);
         
@@ -2017,9 +2782,9 @@ public boolean validateLogin(String emailOrUsername, String password) {
 }
 	
 	public User getUserWithPasswordCheck(String username, String password) {
-	    try {
+	    try (Connection conn = connectionPool.getConnection()) {
 	        String query = "SELECT * FROM users WHERE (username = ? OR email = ?)";
-	        PreparedStatement pstmt = connection.prepareStatement(query);
+	        PreparedStatement pstmt = conn.prepareStatement(query);
 	        pstmt.setString(1, username);
 	        pstmt.setString(2, username);
 	        
@@ -2053,12 +2818,12 @@ public boolean validateLogin(String emailOrUsername, String password) {
 	    return null;
 	}
 	public boolean updateUserPassword(int userId, String newPassword) {
-	    try {
+	    try (Connection conn = connectionPool.getConnection()) {
 	        // Hash the new password
 	        String hashedPassword = PasswordHasher.hashPassword(newPassword);
 	        
 	        String query = "UPDATE users SET password = ? WHERE id = ?";
-	        PreparedStatement pstmt = connection.prepareStatement(query);
+	        PreparedStatement pstmt = conn.prepareStatement(query);
 	        pstmt.setString(1, hashedPassword);
 	        pstmt.setInt(2, userId);
 	        
@@ -2075,14 +2840,21 @@ public boolean validateLogin(String emailOrUsername, String password) {
     
     
     
+    /**
+     * Connections are returned to the shared pool after every operation, so
+     * there is nothing to release per instance. The pool itself is shut down
+     * when the application exits.
+     */
     public void close() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing connection: " + e.getMessage());
-        }
+        System.out.println("Database service released.");
+    }
+    
+    /**
+     * One line of metrics from the shared pool, caches and queues, for
+     * diagnosing performance. Not logged anywhere by default.
+     */
+    public String getDiagnostics() {
+        return connectionPool + " " + catalogCache + " " + orderPlacement + " " + orderStatusQueue + " " +
+               eventBus + " " + unreadCounter;
     }
 }
\ No newline at end of file
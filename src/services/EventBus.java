@@ -0,0 +1,329 @@
+package services;
+
+import database.ConnectionPool;
+import javafx.application.Platform;
+import models.ChangeEvent;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Tells open screens what changed, so they update themselves instead of
+ * each polling its own tables or waiting for a refresh click.
+ *
+ * Writes append an event to the change_log table in their own transaction
+ * (see ChangeLog). One daemon thread per app instance tails that table by
+ * id, a primary key range read that costs next to nothing when nothing
+ * happened, and hands each new event to the subscribers that asked for
+ * its type (and, for customer screens, its customer). Events written by
+ * other app instances arrive the same way as local ones.
+ *
+ * The poller checks every ACTIVE_POLL_MS while events are arriving and
+ * backs off to IDLE_POLL_MS when they stop; wakeUp() after a local write
+ * makes it look straight away. It only runs while someone is subscribed,
+ * and starts from the end of the log, so a screen sees changes made after
+ * it subscribed, not the history.
+ *
+ * Screens only ever read the recent end of the log, so the poller also
+ * deletes events older than RETENTION_DAYS, once every PURGE_INTERVAL_MS,
+ * PURGE_BATCH_SIZE rows per statement to keep each delete's locks short.
+ *
+ * AUTO_INCREMENT ids are handed out when a row is inserted but become
+ * visible when its transaction commits, so a later id can show up first.
+ * Ids skipped over that way are remembered and looked up again for
+ * GAP_TIMEOUT_MS; after that they are assumed to be rolled back inserts.
+ */
+public class EventBus {
+    private static final long ACTIVE_POLL_MS = 250;
+    private static final long IDLE_POLL_MS = 2000;
+    private static final long RETRY_POLL_MS = 5000;
+    private static final long GAP_TIMEOUT_MS = 10_000;
+    private static final int MAX_GAPS = 1000;
+    private static final int BATCH_SIZE = 500;
+    private static final int RETENTION_DAYS = 7;
+    private static final long PURGE_INTERVAL_MS = 60 * 60 * 1000;
+    private static final int PURGE_BATCH_SIZE = 5000;
+
+    private static final EventBus INSTANCE = new EventBus();
+
+    private final ConnectionPool connectionPool = ConnectionPool.getInstance();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final Object lock = new Object();
+    private Thread poller;
+    private boolean wakeRequested;
+    // Poller thread only
+    private long lastSeenId = -1;
+    private final Map<Long, Long> gaps = new LinkedHashMap<>(); // missing id -> when it was first skipped
+    private long purgedAt;
+
+    // Metrics
+    private final LongAdder polls = new LongAdder();
+    private final LongAdder eventsRead = new LongAdder();
+    private final LongAdder deliveries = new LongAdder();
+    private final LongAdder gapsFilled = new LongAdder();
+    private final LongAdder gapsExpired = new LongAdder();
+    private final LongAdder purged = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private EventBus() {}
+
+    public static EventBus getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Subscribe to events of the given types. customerId limits them to
+     * events about that customer; null takes everyone's. The listener runs
+     * on the poller thread with the matching events of one poll, oldest
+     * first, and must not block.
+     */
+    public Subscription subscribe(Set<ChangeEvent.Type> types, Integer customerId,
+                                  Consumer<List<ChangeEvent>> listener) {
+        Subscription subscription = new Subscription(EnumSet.copyOf(types), customerId, listener);
+        subscriptions.add(subscription);
+        synchronized (lock) {
+            if (poller == null) {
+                poller = new Thread(this::run, "change-log-poller");
+                poller.setDaemon(true);
+                poller.start();
+            }
+            lock.notifyAll();
+        }
+        return subscription;
+    }
+
+    /** As subscribe(), with the listener run on the FX thread. */
+    public Subscription subscribeOnFxThread(Set<ChangeEvent.Type> types, Integer customerId,
+                                            Consumer<List<ChangeEvent>> listener) {
+        return subscribe(types, customerId, events -> Platform.runLater(() -> listener.accept(events)));
+    }
+
+    /** Something was just written to the change log here; look for it now rather than at the next poll. */
+    public void wakeUp() {
+        synchronized (lock) {
+            wakeRequested = true;
+            lock.notifyAll();
+        }
+    }
+
+    private void run() {
+        long interval = ACTIVE_POLL_MS;
+        while (true) {
+            try {
+                if (!awaitSubscribers()) {
+                    interval = ACTIVE_POLL_MS;
+                }
+                List<ChangeEvent> events = poll();
+                if (!events.isEmpty()) {
+                    dispatch(events);
+                    interval = ACTIVE_POLL_MS;
+                } else {
+                    interval = Math.min(interval * 2, IDLE_POLL_MS);
+                }
+                purgeIfDue();
+            } catch (SQLException | RuntimeException e) {
+                failures.increment();
+                System.err.println("Error reading the change log: " + e.getMessage());
+                interval = RETRY_POLL_MS;
+            }
+            try {
+                synchronized (lock) {
+                    if (!wakeRequested) {
+                        lock.wait(interval);
+                    }
+                    wakeRequested = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Block while nobody is subscribed. Returns false if it had to wait, in
+     * which case reading starts again from the end of the log.
+     */
+    private boolean awaitSubscribers() {
+        boolean waited = false;
+        synchronized (lock) {
+            while (subscriptions.isEmpty()) {
+                waited = true;
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Change log poller interrupted", e);
+                }
+            }
+        }
+        if (waited) {
+            lastSeenId = -1;
+            gaps.clear();
+        }
+        return !waited;
+    }
+
+    private List<ChangeEvent> poll() throws SQLException {
+        polls.increment();
+        try (Connection conn = connectionPool.getConnection()) {
+            if (lastSeenId < 0) {
+                lastSeenId = ChangeLog.latestId(conn);
+                return Collections.emptyList();
+            }
+
+            List<ChangeEvent> events = new ArrayList<>();
+            if (!gaps.isEmpty()) {
+                for (ChangeEvent late : ChangeLog.readIds(conn, gaps.keySet())) {
+                    gaps.remove(late.getId());
+                    gapsFilled.increment();
+                    events.add(late);
+                }
+                expireGaps();
+            }
+
+            List<ChangeEvent> fresh = ChangeLog.readAfter(conn, lastSeenId, BATCH_SIZE);
+            for (ChangeEvent event : fresh) {
+                // A jump of more than MAX_GAPS ids (say, after a server restart) can't be all late commits
+                for (long missing = Math.max(lastSeenId + 1, event.getId() - MAX_GAPS);
+                     missing < event.getId(); missing++) {
+                    if (gaps.size() < MAX_GAPS) {
+                        gaps.put(missing, System.currentTimeMillis());
+                    }
+                }
+                lastSeenId = event.getId();
+                events.add(event);
+            }
+            eventsRead.add(events.size());
+            return events;
+        }
+    }
+
+    // Runs on the poller thread between polls, first when it starts; a failed purge waits for the next one
+    private void purgeIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - purgedAt < PURGE_INTERVAL_MS) {
+            return;
+        }
+        purgedAt = now;
+        try (Connection conn = connectionPool.getConnection()) {
+            int deleted;
+            do {
+                deleted = ChangeLog.purgeOlderThan(conn, RETENTION_DAYS, PURGE_BATCH_SIZE);
+                purged.add(deleted);
+            } while (deleted == PURGE_BATCH_SIZE);
+        } catch (SQLException e) {
+            failures.increment();
+            System.err.println("Error purging the change log: " + e.getMessage());
+        }
+    }
+
+    private void expireGaps() {
+        long cutoff = System.currentTimeMillis() - GAP_TIMEOUT_MS;
+        Iterator<Long> firstSeen = gaps.values().iterator();
+        while (firstSeen.hasNext() && firstSeen.next() < cutoff) {
+            firstSeen.remove();
+            gapsExpired.increment();
+        }
+    }
+
+    private void dispatch(List<ChangeEvent> events) {
+        for (Subscription subscription : subscriptions) {
+            List<ChangeEvent> matching = new ArrayList<>();
+            for (ChangeEvent event : events) {
+                if (subscription.accepts(event)) {
+                    matching.add(event);
+                }
+            }
+            if (matching.isEmpty()) {
+                continue;
+            }
+            deliveries.increment();
+            try {
+                subscription.listener.accept(Collections.unmodifiableList(matching));
+            } catch (RuntimeException e) {
+                System.err.println("Change listener failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /** A screen's interest in some events; cancel() it when the screen closes. */
+    public final class Subscription {
+        private final Set<ChangeEvent.Type> types;
+        private final Integer customerId;
+        private final Consumer<List<ChangeEvent>> listener;
+
+        private Subscription(Set<ChangeEvent.Type> types, Integer customerId, Consumer<List<ChangeEvent>> listener) {
+            this.types = types;
+            this.customerId = customerId;
+            this.listener = listener;
+        }
+
+        private boolean accepts(ChangeEvent event) {
+            return event.getType() != null && types.contains(event.getType()) &&
+                   (customerId == null || customerId.equals(event.getCustomerId()));
+        }
+
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    public long getPollCount() {
+        return polls.sum();
+    }
+
+    public long getEventsReadCount() {
+        return eventsRead.sum();
+    }
+
+    /** Calls to subscribers, each with one poll's matching events. */
+    public long getDeliveryCount() {
+        return deliveries.sum();
+    }
+
+    /** Events that committed after a later id had already been read. */
+    public long getGapsFilledCount() {
+        return gapsFilled.sum();
+    }
+
+    /** Skipped ids that never showed up (rolled back inserts). */
+    public long getGapsExpiredCount() {
+        return gapsExpired.sum();
+    }
+
+    /** Events deleted for being older than RETENTION_DAYS. */
+    public long getPurgedCount() {
+        return purged.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("EventBus[subscribers=%d, polls=%d, events=%d, deliveries=%d, gapsFilled=%d, " +
+                "gapsExpired=%d, purged=%d, failures=%d]", getSubscriberCount(), getPollCount(), getEventsReadCount(),
+                getDeliveryCount(), getGapsFilledCount(), getGapsExpiredCount(), getPurgedCount(), getFailureCount());
+    }
+}
@@ -0,0 +1,295 @@
+package services;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+import java.io.File;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared product image loader and cache for the storefront grid and the
+ * admin products table.
+ *
+ * Images are decoded off the FX thread (JavaFX background loading) and
+ * scaled during decode to the size the caller will display, so a 4000px
+ * photo shown as a 200x140 thumbnail only ever costs a thumbnail's worth
+ * of memory. Decoded images are kept in an LRU cache bounded by pixel
+ * bytes and keyed by source and size, so re-rendering a card or scrolling
+ * back to it reuses the same Image.
+ *
+ * Local image files go through the on-disk ThumbnailCache: the full-size
+ * photo is decoded once, ever, and later launches read the small stored
+ * thumbnail instead.
+ */
+public class ImageService {
+    private static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int BYTES_PER_PIXEL = 4;
+    // Set on an ImageView to the key of the image it is meant to show
+    private static final String VIEW_KEY = ImageService.class.getName() + ".key";
+
+    private static final ImageService INSTANCE = new ImageService();
+
+    // Access order: iteration starts at the least recently used image
+    private final LinkedHashMap<String, CachedImage> cache = new LinkedHashMap<>(64, 0.75f, true);
+    private long cachedBytes;
+
+    private final ThumbnailCache thumbnails = new ThumbnailCache();
+    // Thumbnail loads in progress, so two cards showing one image share a single load
+    private final Map<String, CompletableFuture<Image>> inFlight = new ConcurrentHashMap<>();
+
+    // Metrics
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private ImageService() {}
+
+    public static ImageService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Show an image in the view, decoding it in the background if it isn't
+     * cached yet. The view shows nothing until the image is ready. If the
+     * source is missing or can't be decoded, onError runs on the FX thread,
+     * but only while the view is still meant to show this image (cells get
+     * recycled while images load).
+     *
+     * @param source a file path or URL, as stored in products.image_url
+     */
+    public void loadInto(ImageView view, String source, double width, double height, Runnable onError) {
+        String key = source == null ? null : key(source, width, height);
+        view.getProperties().put(VIEW_KEY, key);
+
+        File file = localFile(source);
+        if (file != null) {
+            Image cached = cached(key);
+            if (cached != null) {
+                view.setImage(cached);
+                return;
+            }
+            CompletableFuture<Image> thumbnail;
+            try {
+                thumbnail = loadThumbnail(file, key, width, height);
+            } catch (RejectedExecutionException e) {
+                // Image pool is saturated (e.g. a very fast scroll): decode without the disk cache
+                loadDirectly(view, source, width, height, onError);
+                return;
+            }
+            view.setImage(null);
+            thumbnail.whenComplete((image, error) -> Platform.runLater(() -> {
+                if (!key.equals(view.getProperties().get(VIEW_KEY))) {
+                    return;  // the view moved on to another image meanwhile
+                }
+                view.setImage(image);
+                if (image == null && onError != null) {
+                    onError.run();
+                }
+            }));
+            return;
+        }
+        loadDirectly(view, source, width, height, onError);
+    }
+
+    private void loadDirectly(ImageView view, String source, double width, double height, Runnable onError) {
+        Image image = getImage(source, width, height);
+        view.setImage(image);
+        if (image == null || image.isError()) {
+            view.setImage(null);
+            if (onError != null) {
+                onError.run();
+            }
+            return;
+        }
+        if (image.getProgress() < 1) {
+            image.errorProperty().addListener((observable, wasError, isError) -> {
+                if (isError && view.getImage() == image) {
+                    Platform.runLater(() -> {
+                        if (view.getImage() == image) {
+                            view.setImage(null);
+                            if (onError != null) {
+                                onError.run();
+                            }
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    private CompletableFuture<Image> loadThumbnail(File file, String key, double width, double height) {
+        CompletableFuture<Image> future = new CompletableFuture<>();
+        CompletableFuture<Image> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            TaskExecutor.getInstance().execute(TaskExecutor.Pool.IMAGE, () -> {
+                try {
+                    Image image = thumbnails.load(file, (int) width, (int) height);
+                    if (image != null) {
+                        put(key, image, width, height);
+                    }
+                    future.complete(image);
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                    throw e;
+                } finally {
+                    inFlight.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, future);
+            throw e;
+        }
+        return future;
+    }
+
+    /**
+     * The image for a source at a display size, from the cache or started
+     * loading in the background. Null if the source is empty or not a
+     * usable file path or URL.
+     */
+    public Image getImage(String source, double width, double height) {
+        if (source == null || source.trim().isEmpty()) {
+            return null;
+        }
+        String key = key(source, width, height);
+        Image cached = cached(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        String url = resolve(source);
+        if (url == null) {
+            return null;
+        }
+        Image image;
+        try {
+            image = new Image(url, width, height, true, true, true);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Invalid image source: " + source);
+            return null;
+        }
+        put(key, image, width, height);
+        return image;
+    }
+
+    /** An image bundled on the classpath (e.g. the default product picture). */
+    public Image getResourceImage(String resourcePath, double width, double height) {
+        URL resource = ImageService.class.getResource(resourcePath);
+        return resource == null ? null : getImage(resource.toExternalForm(), width, height);
+    }
+
+    /** Drop every cached size of an image, e.g. after the product's picture was replaced. */
+    public synchronized void evict(String source) {
+        String prefix = source + "@";
+        Iterator<Map.Entry<String, CachedImage>> iterator = cache.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, CachedImage> entry = iterator.next();
+            if (entry.getKey().startsWith(prefix)) {
+                cachedBytes -= entry.getValue().bytes;
+                iterator.remove();
+            }
+        }
+    }
+
+    // Counts a hit or a miss
+    private Image cached(String key) {
+        synchronized (this) {
+            CachedImage cached = cache.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached.image;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    private synchronized void put(String key, Image image, double width, double height) {
+        // Weighted by the decoded size we asked for; the real image is at most this big
+        long bytes = (long) Math.max(1, width) * (long) Math.max(1, height) * BYTES_PER_PIXEL;
+        CachedImage previous = cache.put(key, new CachedImage(image, bytes));
+        if (previous != null) {
+            cachedBytes -= previous.bytes;
+        }
+        cachedBytes += bytes;
+
+        Iterator<CachedImage> iterator = cache.values().iterator();
+        while (cachedBytes > MAX_CACHE_BYTES && iterator.hasNext()) {
+            CachedImage eldest = iterator.next();
+            iterator.remove();
+            cachedBytes -= eldest.bytes;
+            evictions.increment();
+        }
+    }
+
+    // Same rules the cards used: an existing file wins, anything else is tried as a URL
+    private static String resolve(String source) {
+        File file = new File(source);
+        if (file.exists()) {
+            return file.toURI().toString();
+        }
+        return source;
+    }
+
+    private static File localFile(String source) {
+        if (source == null || source.trim().isEmpty()) {
+            return null;
+        }
+        File file = new File(source);
+        return file.isFile() ? file : null;
+    }
+
+    private static String key(String source, double width, double height) {
+        return source + "@" + (int) width + "x" + (int) height;
+    }
+
+    // ========== METRICS ==========
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public ThumbnailCache getThumbnailCache() {
+        return thumbnails;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ImageService[images=%d, bytes=%.1fMB, hits=%d, misses=%d, evictions=%d, %s]",
+                cache.size(), cachedBytes / (1024.0 * 1024.0), getHitCount(), getMissCount(), getEvictionCount(),
+                thumbnails);
+    }
+
+    private static final class CachedImage {
+        final Image image;
+        final long bytes;
+
+        CachedImage(Image image, long bytes) {
+            this.image = image;
+            this.bytes = bytes;
+        }
+    }
+}
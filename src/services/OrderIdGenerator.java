@@ -0,0 +1,166 @@
+package services;
+
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Mints order IDs without asking the database.
+ *
+ * Each ID is a 63-bit number: milliseconds since 2024-01-01 (41 bits),
+ * the node id of this app instance (10 bits) and a sequence within the
+ * millisecond (12 bits). Two instances never mint the same ID as long as
+ * their node ids differ, and one instance never repeats itself, so
+ * checkouts in the same millisecond no longer collide on the unique order
+ * number. IDs increase with time, which keeps inserts into the order
+ * number index at the end of the index.
+ *
+ * The last timestamp and sequence live in one AtomicLong and are advanced
+ * with compare-and-set, so minting takes no lock. If more than 4096 IDs
+ * are asked for within one millisecond, or the system clock steps back,
+ * the generator runs on from the last timestamp it used instead of waiting
+ * for the clock to catch up; IDs stay unique and ordered either way.
+ *
+ * The node id comes from -Decommerce.nodeId=0..1023. Without it one is
+ * derived from the host name and process id, which is fine for a single
+ * instance; set it explicitly when several instances share one database.
+ */
+public class OrderIdGenerator {
+    public static final String PREFIX = "ORD-";
+
+    private static final long EPOCH_MS = 1704067200000L; // 2024-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    // Fixed width, so string order matches numeric (and so creation) order
+    private static final int ENCODED_LENGTH = Long.toString(Long.MAX_VALUE, Character.MAX_RADIX).length();
+
+    private static final OrderIdGenerator INSTANCE = new OrderIdGenerator(defaultNodeId());
+
+    private final long nodeId;
+    // (milliseconds since EPOCH_MS << SEQUENCE_BITS) | sequence of the last ID minted
+    private final AtomicLong lastState = new AtomicLong();
+
+    // Metrics
+    private final LongAdder minted = new LongAdder();
+    private final LongAdder casRetries = new LongAdder();
+    private final LongAdder aheadOfClock = new LongAdder();
+
+    public OrderIdGenerator(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId);
+        }
+        this.nodeId = nodeId;
+    }
+
+    public static OrderIdGenerator getInstance() {
+        return INSTANCE;
+    }
+
+    /** A new order ID such as "ORD-0B3KZ9VQ5D0XS". */
+    public String nextOrderId() {
+        return PREFIX + encode(nextId());
+    }
+
+    public long nextId() {
+        while (true) {
+            long previous = lastState.get();
+            long now = System.currentTimeMillis() - EPOCH_MS;
+            long next;
+            if (now > (previous >>> SEQUENCE_BITS)) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // Same millisecond, or the clock went back: bump the sequence. When it
+                // overflows the carry moves the timestamp on by one millisecond.
+                next = previous + 1;
+            }
+            if (lastState.compareAndSet(previous, next)) {
+                minted.increment();
+                if ((next >>> SEQUENCE_BITS) > now) {
+                    aheadOfClock.increment();
+                }
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+            }
+            casRetries.increment();
+        }
+    }
+
+    public long getNodeId() {
+        return nodeId;
+    }
+
+    /** When an ID was minted, in epoch milliseconds. */
+    public static long timestampOf(long id) {
+        return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MS;
+    }
+
+    public static long nodeIdOf(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+    }
+
+    /** The numeric ID behind an order ID from nextOrderId(). */
+    public static long parse(String orderId) {
+        if (orderId == null || !orderId.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Not a generated order ID: " + orderId);
+        }
+        return Long.parseLong(orderId.substring(PREFIX.length()), Character.MAX_RADIX);
+    }
+
+    private static String encode(long id) {
+        String digits = Long.toString(id, Character.MAX_RADIX).toUpperCase();
+        StringBuilder sb = new StringBuilder(ENCODED_LENGTH);
+        for (int i = digits.length(); i < ENCODED_LENGTH; i++) {
+            sb.append('0');
+        }
+        return sb.append(digits).toString();
+    }
+
+    private static long defaultNodeId() {
+        String configured = System.getProperty("ecommerce.nodeId");
+        if (configured != null) {
+            try {
+                long nodeId = Long.parseLong(configured.trim());
+                if (nodeId >= 0 && nodeId <= MAX_NODE_ID) {
+                    return nodeId;
+                }
+                // Throwing here would fail the static initializer, and with it every checkout
+                System.err.println("Ignoring ecommerce.nodeId outside 0-" + MAX_NODE_ID + ": " + configured);
+            } catch (NumberFormatException e) {
+                System.err.println("Ignoring invalid ecommerce.nodeId: " + configured);
+            }
+        }
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            host = "localhost";
+        }
+        String identity = host + "/" + ProcessHandle.current().pid();
+        return (identity.hashCode() & 0x7fffffff) % (MAX_NODE_ID + 1);
+    }
+
+    // ========== METRICS ==========
+
+    public long getMintedCount() {
+        return minted.sum();
+    }
+
+    /** Times a thread lost the compare-and-set race and had to try again. */
+    public long getCasRetryCount() {
+        return casRetries.sum();
+    }
+
+    /** IDs minted ahead of the clock (sequence overflow or the clock stepping back). */
+    public long getAheadOfClockCount() {
+        return aheadOfClock.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OrderIdGenerator[node=%d, minted=%d, casRetries=%d, aheadOfClock=%d]",
+                nodeId, getMintedCount(), getCasRetryCount(), getAheadOfClockCount());
+    }
+}
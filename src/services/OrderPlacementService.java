@@ -0,0 +1,374 @@
+package services;
+
+import database.ConnectionPool;
+import models.ChangeEvent;
+import models.Order;
+import models.OrderItem;
+import models.OrderPlacementResult;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Places orders in one transaction on a pooled connection: reserve stock
+ * for every cart line, insert the order, insert its items, log an
+ * ORDER_PLACED change (see EventBus), commit.
+ *
+ * Stock is reserved with a conditional decrement
+ * (UPDATE ... SET stock_quantity = stock_quantity - ? WHERE id = ? AND
+ * stock_quantity >= ?), so two customers racing for the last units can't
+ * both get them: the second update matches no row and the whole order is
+ * rolled back as out of stock, without touching the order tables. Lines
+ * for the same product are merged and products are updated in id order,
+ * so concurrent orders lock rows in the same order. A transaction picked
+ * as a deadlock victim (or timed out on a row lock) is retried with a
+ * short randomized backoff.
+ *
+ * Orders that carry an idempotency key (see CheckoutAttempt) are placed at
+ * most once per key. The key is inserted into order_idempotency_keys in the
+ * same transaction as the order, so the unique key decides between two
+ * submits of the same checkout, and the loser gets the original order back.
+ * Keys placed recently are remembered in memory, and a submit whose key is
+ * still being placed by this process waits for that placement, so a double
+ * click doesn't even reach the database.
+ */
+public class OrderPlacementService {
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long BASE_BACKOFF_MS = 20;
+    // MySQL: ER_LOCK_DEADLOCK, ER_LOCK_WAIT_TIMEOUT
+    private static final int DEADLOCK_ERROR = 1213;
+    private static final int LOCK_WAIT_TIMEOUT_ERROR = 1205;
+    private static final int RECENT_KEYS = 1024;
+
+    private static final String RESERVE_SQL =
+            "UPDATE products SET stock_quantity = stock_quantity - ? WHERE id = ? AND stock_quantity >= ?";
+    private static final String ORDER_SQL =
+            "INSERT INTO orders (order_id, customer_id, customer_name, customer_email, customer_phone, " +
+            "shipping_address, total_amount, currency, payment_method, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String ITEM_SQL =
+            "INSERT INTO order_items (order_id, product_id, product_name, quantity, unit_price, subtotal) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String KEY_SQL =
+            "INSERT INTO order_idempotency_keys (idempotency_key, order_id) VALUES (?, ?)";
+    private static final String KEY_LOOKUP_SQL =
+            "SELECT order_id FROM order_idempotency_keys WHERE idempotency_key = ?";
+
+    private static final OrderPlacementService INSTANCE = new OrderPlacementService();
+
+    private final ConnectionPool connectionPool = ConnectionPool.getInstance();
+    private final CatalogCache catalogCache = CatalogCache.getInstance();
+
+    // Idempotency key -> order id, access order so the least recently used key goes first
+    private final LinkedHashMap<String, String> recentKeys = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > RECENT_KEYS;
+        }
+    };
+    // Keyed placements in progress, so a concurrent duplicate waits for the first
+    private final Map<String, CompletableFuture<OrderPlacementResult>> inFlight = new ConcurrentHashMap<>();
+
+    // Metrics
+    private final LongAdder placed = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder oversellAttempts = new LongAdder();
+    private final LongAdder deadlockRetries = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private OrderPlacementService() {}
+
+    public static OrderPlacementService getInstance() {
+        return INSTANCE;
+    }
+
+    public OrderPlacementResult placeOrder(Order order, List<OrderItem> items) {
+        String key = order.getIdempotencyKey();
+        if (key == null) {
+            return place(order, items);
+        }
+
+        String originalOrderId = recentOrderId(key);
+        if (originalOrderId != null) {
+            duplicates.increment();
+            System.out.println("Order " + order.getOrderId() + " is a repeat of " + originalOrderId + ", not placed again");
+            return OrderPlacementResult.alreadyPlaced(originalOrderId);
+        }
+
+        CompletableFuture<OrderPlacementResult> mine = new CompletableFuture<>();
+        CompletableFuture<OrderPlacementResult> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            OrderPlacementResult first = running.join();
+            if (first.isPlaced()) {
+                duplicates.increment();
+                return OrderPlacementResult.alreadyPlaced(first.getOrderId());
+            }
+            return first;
+        }
+
+        OrderPlacementResult result = null;
+        try {
+            result = place(order, items);
+            if (result.isPlaced()) {
+                synchronized (recentKeys) {
+                    recentKeys.put(key, result.getOrderId());
+                }
+            }
+            return result;
+        } finally {
+            inFlight.remove(key, mine);
+            mine.complete(result != null ? result
+                    : OrderPlacementResult.failed(order.getOrderId(), "The order could not be placed"));
+        }
+    }
+
+    private String recentOrderId(String key) {
+        synchronized (recentKeys) {
+            return recentKeys.get(key);
+        }
+    }
+
+    private OrderPlacementResult place(Order order, List<OrderItem> items) {
+        if (items == null || items.isEmpty()) {
+            return OrderPlacementResult.failed(order.getOrderId(), "The order has no items");
+        }
+
+        // Product id -> total quantity, in id order so every order locks rows the same way
+        Map<Integer, Integer> quantities = new TreeMap<>();
+        Map<Integer, String> names = new TreeMap<>();
+        for (OrderItem item : items) {
+            quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            names.putIfAbsent(item.getProductId(), item.getProductName());
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                OrderPlacementResult result = attempt(order, items, quantities, names);
+                if (result.isDuplicate()) {
+                    duplicates.increment();
+                    System.out.println("Order " + order.getOrderId() + " is a repeat of " + result.getOrderId() +
+                                       ", not placed again");
+                } else if (result.isPlaced()) {
+                    placed.increment();
+                    Map<Integer, Integer> stockChanges = new LinkedHashMap<>();
+                    for (Map.Entry<Integer, Integer> line : quantities.entrySet()) {
+                        stockChanges.put(line.getKey(), -line.getValue());
+                    }
+                    catalogCache.stockChanged(stockChanges);
+                } else if (result.getStatus() == OrderPlacementResult.Status.OUT_OF_STOCK) {
+                    oversellAttempts.increment();
+                    System.out.println("Order " + order.getOrderId() + " refused: " + result.getMessage());
+                } else {
+                    failures.increment();
+                    System.err.println("Order " + order.getOrderId() + " not placed: " + result.getMessage());
+                }
+                return result;
+            } catch (SQLException e) {
+                if (isRetryable(e) && attempt < MAX_ATTEMPTS) {
+                    deadlockRetries.increment();
+                    System.err.println("Order " + order.getOrderId() + " hit a lock conflict, retrying (attempt " +
+                                       attempt + "): " + e.getMessage());
+                    if (!backOff(attempt)) {
+                        failures.increment();
+                        return OrderPlacementResult.failed(order.getOrderId(), "Interrupted while placing the order");
+                    }
+                    continue;
+                }
+                failures.increment();
+                System.err.println("Order save failed: " + e.getMessage());
+                e.printStackTrace();
+                return OrderPlacementResult.failed(order.getOrderId(), "Failed to save order: " + e.getMessage());
+            }
+        }
+    }
+
+    private OrderPlacementResult attempt(Order order, List<OrderItem> items, Map<Integer, Integer> quantities,
+                                         Map<Integer, String> names) throws SQLException {
+        try (Connection conn = connectionPool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                String key = order.getIdempotencyKey();
+                if (key != null && !claimKey(conn, key, order.getOrderId())) {
+                    conn.rollback();
+                    String originalOrderId = findOrderIdForKey(conn, key);
+                    conn.rollback();
+                    if (originalOrderId == null) {
+                        // The key row was removed between the insert and the lookup
+                        return OrderPlacementResult.failed(order.getOrderId(), "The order is already being placed");
+                    }
+                    return OrderPlacementResult.alreadyPlaced(originalOrderId);
+                }
+                List<String> unavailable = reserveStock(conn, quantities, names);
+                if (!unavailable.isEmpty()) {
+                    conn.rollback();
+                    return OrderPlacementResult.outOfStock(order.getOrderId(), unavailable);
+                }
+                int id = insertOrder(conn, order);
+                insertItems(conn, items);
+                ChangeLog.append(conn, ChangeEvent.Type.ORDER_PLACED, id, order.getCustomerId(), order.getOrderId());
+                conn.commit();
+                EventBus.getInstance().wakeUp();
+                System.out.println("Order " + order.getOrderId() + " placed with " + items.size() + " items");
+                return OrderPlacementResult.placed(order.getOrderId());
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // First statement of the transaction: a second submit of the same checkout blocks here until
+    // the first commits, then fails on the primary key, before either of them locks product rows
+    private boolean claimKey(Connection conn, String key, String orderId) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(KEY_SQL)) {
+            pstmt.setString(1, key);
+            pstmt.setString(2, orderId);
+            pstmt.executeUpdate();
+            return true;
+        } catch (SQLIntegrityConstraintViolationException e) {
+            return false;
+        }
+    }
+
+    private String findOrderIdForKey(Connection conn, String key) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(KEY_LOOKUP_SQL)) {
+            pstmt.setString(1, key);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString("order_id") : null;
+            }
+        }
+    }
+
+    // Every line in one batch; an update count of 0 means the product didn't have enough stock left
+    private List<String> reserveStock(Connection conn, Map<Integer, Integer> quantities, Map<Integer, String> names)
+            throws SQLException {
+        List<Integer> productIds = new ArrayList<>(quantities.keySet());
+        int[] counts;
+        try (PreparedStatement pstmt = conn.prepareStatement(RESERVE_SQL)) {
+            for (int productId : productIds) {
+                int quantity = quantities.get(productId);
+                pstmt.setInt(1, quantity);
+                pstmt.setInt(2, productId);
+                pstmt.setInt(3, quantity);
+                pstmt.addBatch();
+            }
+            counts = pstmt.executeBatch();
+        }
+
+        // Per-statement counts: the pool's JDBC URL doesn't enable rewriteBatchedStatements
+        List<String> unavailable = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 1) {
+                unavailable.add(names.get(productIds.get(i)));
+            }
+        }
+        return unavailable;
+    }
+
+    // Returns the new row's id
+    private int insertOrder(Connection conn, Order order) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(ORDER_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            pstmt.setString(1, order.getOrderId());
+            pstmt.setInt(2, order.getCustomerId());
+            pstmt.setString(3, order.getCustomerName());
+            pstmt.setString(4, order.getCustomerEmail());
+            pstmt.setString(5, order.getCustomerPhone());
+            pstmt.setString(6, order.getShippingAddress());
+            pstmt.setDouble(7, order.getTotalAmount());
+            pstmt.setString(8, order.getCurrency());
+            pstmt.setString(9, order.getPaymentMethod());
+            pstmt.setString(10, order.getStatus());
+            pstmt.executeUpdate();
+            try (ResultSet keys = pstmt.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : 0;
+            }
+        }
+    }
+
+    private void insertItems(Connection conn, List<OrderItem> items) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(ITEM_SQL)) {
+            for (OrderItem item : items) {
+                pstmt.setString(1, item.getOrderId());
+                pstmt.setInt(2, item.getProductId());
+                pstmt.setString(3, item.getProductName());
+                pstmt.setInt(4, item.getQuantity());
+                pstmt.setDouble(5, item.getUnitPrice());
+                pstmt.setDouble(6, item.getSubtotal());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    private static boolean isRetryable(SQLException e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+            if (cause instanceof SQLException) {
+                SQLException sql = (SQLException) cause;
+                if (sql.getErrorCode() == DEADLOCK_ERROR || sql.getErrorCode() == LOCK_WAIT_TIMEOUT_ERROR ||
+                    "40001".equals(sql.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Exponential backoff with jitter so retrying transactions don't collide again in lockstep
+    private static boolean backOff(int attempt) {
+        long ceiling = BASE_BACKOFF_MS << (attempt - 1);
+        try {
+            Thread.sleep(ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public long getPlacedCount() {
+        return placed.sum();
+    }
+
+    /** Submits answered with an order that had already been placed for the same checkout. */
+    public long getDuplicateCount() {
+        return duplicates.sum();
+    }
+
+    /** Orders refused because a product didn't have enough stock left. */
+    public long getOversellAttemptCount() {
+        return oversellAttempts.sum();
+    }
+
+    public long getDeadlockRetryCount() {
+        return deadlockRetries.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OrderPlacementService[placed=%d, duplicates=%d, oversellAttempts=%d, deadlockRetries=%d, " +
+                "failures=%d]", getPlacedCount(), getDuplicateCount(), getOversellAttemptCount(), getDeadlockRetryCount(),
+                getFailureCount());
+    }
+}
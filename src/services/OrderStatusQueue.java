@@ -0,0 +1,431 @@
+package services;
+
+import database.ConnectionPool;
+import models.BulkUpdateResult;
+import models.ChangeEvent;
+import models.OrderTracking;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Write-behind queue for order status changes.
+ *
+ * Any screen can submit a status change; it returns straight away with a
+ * future that completes once the change is committed. Changes are written
+ * by one flusher on the DB_IO pool. While a flush is running, new changes
+ * pile up and go out together in the next one, and a second change to an
+ * order that is still waiting replaces the first (last status wins), so a
+ * burst of clicks or a bulk change becomes a few large writes.
+ *
+ * Each batch of up to MAX_BATCH orders is one transaction with three
+ * statements whatever its size: lock the orders that exist
+ * (SELECT ... FOR UPDATE), set every status in one UPDATE ... CASE, and add
+ * every tracking row in one multi-row INSERT. The pool's JDBC URL doesn't
+ * set rewriteBatchedStatements, so a JDBC batch would still be one round
+ * trip per row; the statements are built per batch size instead. After
+ * the commit, listeners get the changes that were applied, and an
+ * ORDER_STATUS_CHANGED event per order goes to the change log in the same
+ * transaction for EventBus to pass on. Bulk changes
+ * from the admin screen use the same statements through applyAll().
+ */
+public class OrderStatusQueue {
+    public static final int MAX_BATCH = 500;
+
+    private static final OrderStatusQueue INSTANCE = new OrderStatusQueue();
+
+    private final ConnectionPool connectionPool = ConnectionPool.getInstance();
+    private final List<Consumer<List<OrderTracking>>> listeners = new CopyOnWriteArrayList<>();
+
+    private final Object lock = new Object();
+    // Order id -> latest change not yet written, in submit order
+    private final LinkedHashMap<Integer, Pending> pending = new LinkedHashMap<>();
+    private boolean flushScheduled;
+
+    // Metrics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder missing = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private OrderStatusQueue() {}
+
+    public static OrderStatusQueue getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Queue a status change. The future completes with true once the change
+     * is committed, or false if the order doesn't exist or the write failed.
+     * A change that is replaced by a later one for the same order before it
+     * was written completes with the later change's outcome.
+     */
+    public CompletableFuture<Boolean> submit(int orderId, String status, String notes) {
+        submitted.increment();
+        CompletableFuture<Boolean> result;
+        boolean schedule = false;
+        synchronized (lock) {
+            Pending existing = pending.get(orderId);
+            if (existing != null) {
+                coalesced.increment();
+                existing.status = status;
+                existing.notes = notes;
+                result = existing.result;
+            } else {
+                Pending change = new Pending(orderId, status, notes);
+                pending.put(orderId, change);
+                result = change.result;
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                schedule = true;
+            }
+        }
+        if (schedule) {
+            scheduleFlush();
+        }
+        return result;
+    }
+
+    /** Called on the writing thread after each committed flush or bulk change. */
+    public void addListener(Consumer<List<OrderTracking>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<List<OrderTracking>> listener) {
+        listeners.remove(listener);
+    }
+
+    /** Changes submitted but not written yet. */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    private void scheduleFlush() {
+        try {
+            TaskExecutor.getInstance().execute(TaskExecutor.Pool.DB_IO, this::flush);
+        } catch (RejectedExecutionException e) {
+            // DB pool is saturated; write on this thread rather than leave the changes waiting
+            System.err.println("Order status flush rejected by the executor, writing inline");
+            flush();
+        }
+    }
+
+    private void flush() {
+        boolean drained = false;
+        List<Pending> batch = new ArrayList<>();
+        try {
+            while (true) {
+                batch = new ArrayList<>();
+                synchronized (lock) {
+                    Iterator<Pending> it = pending.values().iterator();
+                    while (it.hasNext() && batch.size() < MAX_BATCH) {
+                        batch.add(it.next());
+                        it.remove();
+                    }
+                    if (batch.isEmpty()) {
+                        flushScheduled = false;
+                        drained = true;
+                        return;
+                    }
+                }
+                write(batch);
+            }
+        } finally {
+            if (!drained) {
+                // write() let something through (an Error); don't leave this batch's callers
+                // waiting, or flushScheduled set with nothing left to clear it
+                for (Pending change : batch) {
+                    change.result.complete(false);
+                }
+                boolean reschedule;
+                synchronized (lock) {
+                    reschedule = !pending.isEmpty();
+                    flushScheduled = reschedule;
+                }
+                if (reschedule) {
+                    scheduleFlush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Set the status of many orders in one transaction, for an admin's bulk
+     * action. Runs on the calling thread, so call it off the FX thread. The
+     * orders are written MAX_BATCH at a time, three statements per batch
+     * as in a flush, and onProgress gets (orders done, total) after each
+     * batch. Orders whose current status isn't in allowedFrom (null allows
+     * any) are left alone and counted as skipped, as are orders that don't
+     * exist. If any batch fails the whole change is rolled back.
+     */
+    public BulkUpdateResult applyAll(Collection<Integer> orderIds, String status, String notes,
+                                     Set<String> allowedFrom, BiConsumer<Integer, Integer> onProgress) {
+        // Ascending ids: rows are locked in the same order as a flush locks them
+        List<Integer> ids = new ArrayList<>(new TreeSet<>(orderIds));
+        List<OrderTracking> applied = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (int from = 0; from < ids.size(); from += MAX_BATCH) {
+                    List<Pending> batch = new ArrayList<>();
+                    for (int orderId : ids.subList(from, Math.min(from + MAX_BATCH, ids.size()))) {
+                        batch.add(new Pending(orderId, status, notes));
+                    }
+                    Map<Integer, LockedOrder> current = lockOrders(conn, batch);
+                    List<Pending> allowed = new ArrayList<>();
+                    for (Pending change : batch) {
+                        LockedOrder order = current.get(change.orderId);
+                        if (order != null && (allowedFrom == null || (order.status != null &&
+                                allowedFrom.contains(order.status.toUpperCase())))) {
+                            allowed.add(change);
+                        }
+                    }
+                    if (!allowed.isEmpty()) {
+                        updateStatuses(conn, allowed);
+                        insertTracking(conn, allowed);
+                        logChanges(conn, allowed, current);
+                    }
+                    for (Pending change : allowed) {
+                        applied.add(new OrderTracking(change.orderId, change.status, change.notes));
+                    }
+                    batches.increment();
+                    if (onProgress != null) {
+                        onProgress.accept(from + batch.size(), ids.size());
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            failures.increment();
+            System.err.println("Error changing the status of " + ids.size() + " orders: " + e.getMessage());
+            e.printStackTrace();
+            return BulkUpdateResult.failed(ids.size(), e.getMessage());
+        }
+
+        submitted.add(ids.size());
+        written.add(applied.size());
+        System.out.println("Bulk status change to " + status + ": " + applied.size() + " of " + ids.size() +
+                           " orders updated");
+        if (!applied.isEmpty()) {
+            notifyListeners(Collections.unmodifiableList(applied));
+        }
+        return BulkUpdateResult.completed(ids.size(), applied.size(), ids.size() - applied.size());
+    }
+
+    private void write(List<Pending> batch) {
+        // Lock rows in id order so two flushes can't deadlock on each other
+        batch.sort((a, b) -> Integer.compare(a.orderId, b.orderId));
+        List<OrderTracking> applied = new ArrayList<>();
+        try (Connection conn = connectionPool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<Integer, LockedOrder> existing = lockOrders(conn, batch);
+                List<Pending> found = new ArrayList<>();
+                for (Pending change : batch) {
+                    if (existing.containsKey(change.orderId)) {
+                        found.add(change);
+                    }
+                }
+                if (!found.isEmpty()) {
+                    updateStatuses(conn, found);
+                    insertTracking(conn, found);
+                    logChanges(conn, found, existing);
+                }
+                conn.commit();
+                for (Pending change : found) {
+                    applied.add(new OrderTracking(change.orderId, change.status, change.notes));
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException | RuntimeException e) {
+            failures.increment();
+            System.err.println("Error writing " + batch.size() + " order status changes: " + e.getMessage());
+            e.printStackTrace();
+            for (Pending change : batch) {
+                change.result.complete(false);
+            }
+            return;
+        }
+
+        batches.increment();
+        written.add(applied.size());
+        missing.add(batch.size() - applied.size());
+        Set<Integer> appliedIds = new HashSet<>();
+        for (OrderTracking change : applied) {
+            appliedIds.add(change.getOrderId());
+        }
+        for (Pending change : batch) {
+            change.result.complete(appliedIds.contains(change.orderId));
+        }
+        if (!applied.isEmpty()) {
+            notifyListeners(Collections.unmodifiableList(applied));
+        }
+    }
+
+    // Order id -> current status and customer, for the orders in the batch that exist; locks their rows
+    private Map<Integer, LockedOrder> lockOrders(Connection conn, List<Pending> batch) throws SQLException {
+        String sql = "SELECT id, status, customer_id FROM orders WHERE id IN (" +
+                     placeholders(batch.size(), "?") + ") FOR UPDATE";
+        Map<Integer, LockedOrder> existing = new HashMap<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (Pending change : batch) {
+                pstmt.setInt(index++, change.orderId);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    int customerId = rs.getInt("customer_id");
+                    existing.put(rs.getInt("id"), new LockedOrder(rs.getString("status"),
+                            rs.wasNull() ? null : customerId));
+                }
+            }
+        }
+        return existing;
+    }
+
+    private void updateStatuses(Connection conn, List<Pending> changes) throws SQLException {
+        StringBuilder sql = new StringBuilder("UPDATE orders SET status = CASE id");
+        for (int i = 0; i < changes.size(); i++) {
+            sql.append(" WHEN ? THEN ?");
+        }
+        sql.append(" END WHERE id IN (").append(placeholders(changes.size(), "?")).append(")");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Pending change : changes) {
+                pstmt.setInt(index++, change.orderId);
+                pstmt.setString(index++, change.status);
+            }
+            for (Pending change : changes) {
+                pstmt.setInt(index++, change.orderId);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void insertTracking(Connection conn, List<Pending> changes) throws SQLException {
+        String sql = "INSERT INTO order_tracking (order_id, status, notes) VALUES " +
+                     placeholders(changes.size(), "(?, ?, ?)");
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (Pending change : changes) {
+                pstmt.setInt(index++, change.orderId);
+                pstmt.setString(index++, change.status);
+                pstmt.setString(index++, change.notes);
+            }
+            pstmt.executeUpdate();
+        }
+    }
+
+    private void logChanges(Connection conn, List<Pending> changes, Map<Integer, LockedOrder> orders)
+            throws SQLException {
+        List<ChangeEvent> events = new ArrayList<>(changes.size());
+        for (Pending change : changes) {
+            events.add(new ChangeEvent(ChangeEvent.Type.ORDER_STATUS_CHANGED, change.orderId,
+                    orders.get(change.orderId).customerId, change.status));
+        }
+        ChangeLog.appendAll(conn, events);
+    }
+
+    private void notifyListeners(List<OrderTracking> applied) {
+        EventBus.getInstance().wakeUp();
+        for (Consumer<List<OrderTracking>> listener : listeners) {
+            try {
+                listener.accept(applied);
+            } catch (RuntimeException e) {
+                System.err.println("Order status listener failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static String placeholders(int count, String group) {
+        return String.join(", ", Collections.nCopies(count, group));
+    }
+
+    private static final class LockedOrder {
+        final String status;
+        final Integer customerId;
+
+        LockedOrder(String status, Integer customerId) {
+            this.status = status;
+            this.customerId = customerId;
+        }
+    }
+
+    private static final class Pending {
+        final int orderId;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        String status;
+        String notes;
+
+        Pending(int orderId, String status, String notes) {
+            this.orderId = orderId;
+            this.status = status;
+            this.notes = notes;
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    /** Changes that replaced an earlier change to the same order before it was written. */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    /** Changes dropped because the order doesn't exist. */
+    public long getMissingCount() {
+        return missing.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OrderStatusQueue[submitted=%d, coalesced=%d, written=%d, missing=%d, batches=%d, " +
+                "failures=%d, pending=%d]", getSubmittedCount(), getCoalescedCount(), getWrittenCount(),
+                getMissingCount(), getBatchCount(), getFailureCount(), getPendingCount());
+    }
+}
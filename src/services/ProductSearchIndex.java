@@ -0,0 +1,362 @@
+package services;
+
+import models.Product;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index over product name, category name and description.
+ *
+ * Text is split into lower-case letter/digit tokens. Every query term is
+ * matched as a prefix of the indexed terms and all terms must match (AND).
+ * Matches are scored by where the term was found (name over category over
+ * description), with whole-word matches counting double, so "lap" finds
+ * "laptop" but a product actually called "Lap Desk" ranks above it.
+ *
+ * Each term's postings are a sorted array of product ids packed with their
+ * weight, so single terms need no hashing and multi-term queries intersect
+ * by binary search from the most selective term. The index is built once
+ * per catalog load and patched as products are edited or deleted. Reads and
+ * writes are guarded by a read/write lock.
+ */
+public class ProductSearchIndex {
+    private static final int NAME_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int EXACT_MATCH_BOOST = 2;
+
+    // Posting entries are (product id << WEIGHT_BITS) | weight, sorted by id
+    private static final int WEIGHT_BITS = 8;
+    private static final long WEIGHT_MASK = (1L << WEIGHT_BITS) - 1;
+
+    /** Products matching a query, in product id order, with their scores (higher is better). */
+    public static final class Result {
+        private final long[] entries;
+
+        private Result(long[] entries) {
+            this.entries = entries;
+        }
+
+        public int size() {
+            return entries.length;
+        }
+
+        public int productId(int i) {
+            return (int) (entries[i] >>> WEIGHT_BITS);
+        }
+
+        public int score(int i) {
+            return (int) (entries[i] & WEIGHT_MASK);
+        }
+    }
+
+    private static final Result EMPTY = new Result(new long[0]);
+
+    // term -> postings; sorted so prefixes are a range scan
+    private final TreeMap<String, long[]> postings;
+    // product id -> its terms, so a product can be removed without a full scan
+    private final Map<Integer, String[]> termsByProduct;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private ProductSearchIndex(TreeMap<String, long[]> postings, Map<Integer, String[]> termsByProduct) {
+        this.postings = postings;
+        this.termsByProduct = termsByProduct;
+    }
+
+    public static ProductSearchIndex build(Collection<Product> products) {
+        // Collect unsorted, then sort each posting list once
+        Map<String, PostingBuilder> builders = new HashMap<>();
+        Map<Integer, String[]> termsByProduct = new HashMap<>(products.size() * 2);
+        for (Product product : products) {
+            Map<String, Integer> weights = termWeights(product);
+            if (weights.isEmpty()) {
+                continue;
+            }
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                builders.computeIfAbsent(entry.getKey(), k -> new PostingBuilder())
+                        .add(pack(product.getId(), entry.getValue()));
+            }
+            termsByProduct.put(product.getId(), weights.keySet().toArray(new String[0]));
+        }
+
+        TreeMap<String, long[]> postings = new TreeMap<>();
+        for (Map.Entry<String, PostingBuilder> entry : builders.entrySet()) {
+            postings.put(entry.getKey(), entry.getValue().toSortedArray());
+        }
+        return new ProductSearchIndex(postings, termsByProduct);
+    }
+
+    /** Index a new product, or re-index one whose text changed. */
+    public void update(Product product) {
+        Map<String, Integer> weights = termWeights(product);
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(product.getId());
+            if (weights.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+                postings.merge(entry.getKey(), new long[] { pack(product.getId(), entry.getValue()) },
+                        ProductSearchIndex::insert);
+            }
+            termsByProduct.put(product.getId(), weights.keySet().toArray(new String[0]));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int productId) {
+        lock.writeLock().lock();
+        try {
+            removeUnlocked(productId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Products matching every term of the query. Empty if the query has no terms. */
+    public Result search(String query) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty()) {
+            return EMPTY;
+        }
+
+        lock.readLock().lock();
+        try {
+            List<long[]> perTerm = new ArrayList<>(terms.size());
+            for (String term : terms) {
+                long[] matches = matchPrefix(term);
+                if (matches.length == 0) {
+                    return EMPTY;
+                }
+                perTerm.add(matches);
+            }
+
+            // Intersect starting from the most selective term
+            perTerm.sort((a, b) -> Integer.compare(a.length, b.length));
+            long[] result = perTerm.get(0);
+            for (int i = 1; i < perTerm.size() && result.length > 0; i++) {
+                result = intersect(result, perTerm.get(i));
+            }
+            return new Result(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of indexed products. */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return termsByProduct.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of distinct indexed terms. */
+    public int termCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Best score per product over every indexed term starting with the query term
+    private long[] matchPrefix(String term) {
+        Map<String, long[]> range = postings.subMap(term, true, term + Character.MAX_VALUE, true);
+        if (range.isEmpty()) {
+            return new long[0];
+        }
+
+        long[] exact = postings.get(term);
+        if (range.size() == 1) {
+            // A single indexed term: its postings are already sorted and unique
+            return exact != null ? boosted(exact) : range.values().iterator().next();
+        }
+
+        int total = 0;
+        for (long[] list : range.values()) {
+            total += list.length;
+        }
+        long[] merged = new long[total];
+        int n = 0;
+        for (Map.Entry<String, long[]> entry : range.entrySet()) {
+            long[] list = entry.getValue() == exact ? boosted(exact) : entry.getValue();
+            System.arraycopy(list, 0, merged, n, list.length);
+            n += list.length;
+        }
+        Arrays.sort(merged);
+
+        // Same id from several terms: the entries are adjacent and the last has the highest score
+        int unique = 0;
+        for (int i = 0; i < merged.length; i++) {
+            if (i + 1 < merged.length && (merged[i] >>> WEIGHT_BITS) == (merged[i + 1] >>> WEIGHT_BITS)) {
+                continue;
+            }
+            merged[unique++] = merged[i];
+        }
+        return unique == merged.length ? merged : Arrays.copyOf(merged, unique);
+    }
+
+    private static long[] boosted(long[] list) {
+        long[] result = new long[list.length];
+        for (int i = 0; i < list.length; i++) {
+            long weight = list[i] & WEIGHT_MASK;
+            result[i] = (list[i] & ~WEIGHT_MASK) | (weight * EXACT_MATCH_BOOST);
+        }
+        return result;
+    }
+
+    // Keep the entries of the smaller list whose id is also in the larger one, adding the scores
+    private static long[] intersect(long[] smaller, long[] larger) {
+        long[] result = new long[smaller.length];
+        int n = 0;
+        int from = 0;
+        for (long entry : smaller) {
+            int found = findId(larger, from, entry >>> WEIGHT_BITS);
+            if (found >= 0) {
+                // Scores saturate at WEIGHT_MASK so a long query can't carry into the id bits
+                long score = Math.min((entry & WEIGHT_MASK) + (larger[found] & WEIGHT_MASK), WEIGHT_MASK);
+                result[n++] = (entry & ~WEIGHT_MASK) | score;
+                from = found + 1;
+            } else {
+                from = -found - 1;
+            }
+            if (from >= larger.length) {
+                break;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+
+    // Binary search by product id; returns -(insertion point) - 1 when absent
+    private static int findId(long[] list, int from, long id) {
+        int low = from;
+        int high = list.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midId = list[mid] >>> WEIGHT_BITS;
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static long[] insert(long[] list, long[] single) {
+        long entry = single[0];
+        int position = findId(list, 0, entry >>> WEIGHT_BITS);
+        if (position >= 0) {
+            // Copy rather than write in place: a Result may still be reading this array
+            long[] result = list.clone();
+            result[position] = entry;
+            return result;
+        }
+        position = -position - 1;
+        long[] result = new long[list.length + 1];
+        System.arraycopy(list, 0, result, 0, position);
+        result[position] = entry;
+        System.arraycopy(list, position, result, position + 1, list.length - position);
+        return result;
+    }
+
+    private void removeUnlocked(int productId) {
+        String[] terms = termsByProduct.remove(productId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            long[] list = postings.get(term);
+            if (list == null) {
+                continue;
+            }
+            int position = findId(list, 0, productId);
+            if (position < 0) {
+                continue;
+            }
+            if (list.length == 1) {
+                postings.remove(term);
+            } else {
+                long[] result = new long[list.length - 1];
+                System.arraycopy(list, 0, result, 0, position);
+                System.arraycopy(list, position + 1, result, position, list.length - position - 1);
+                postings.put(term, result);
+            }
+        }
+    }
+
+    // A term counts once per field; a term found in several fields adds up
+    private static Map<String, Integer> termWeights(Product product) {
+        Map<String, Integer> weights = new HashMap<>();
+        addField(weights, product.getName(), NAME_WEIGHT);
+        addField(weights, product.getCategoryName(), CATEGORY_WEIGHT);
+        addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+        return weights;
+    }
+
+    private static void addField(Map<String, Integer> weights, String text, int weight) {
+        for (String term : new LinkedHashSet<>(tokenize(text))) {
+            weights.merge(term, weight, Integer::sum);
+        }
+    }
+
+    private static long pack(int productId, int weight) {
+        return ((long) productId << WEIGHT_BITS) | weight;
+    }
+
+    /** Lower-case runs of letters and digits; everything else separates terms. */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static final class PostingBuilder {
+        private long[] entries = new long[4];
+        private int size;
+
+        void add(long entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+
+        long[] toSortedArray() {
+            long[] result = Arrays.copyOf(entries, size);
+            Arrays.sort(result);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package services;
+
+import database.ConnectionPool;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.stage.Window;
+import javafx.stage.WindowEvent;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Application-wide background execution, replacing a new Thread per action.
+ *
+ * Work goes to one of three named pools: DB_IO for anything that borrows a
+ * database connection (sized to the connection pool, since more threads
+ * would only queue for a connection), IMAGE for image decoding and CPU for
+ * in-memory work. Each pool admits a bounded number of tasks; once that
+ * many are queued or running, further submissions are rejected with a
+ * RejectedExecutionException instead of piling up without limit.
+ *
+ * Screens submit their reads through a Group, which cancels whatever is
+ * still queued or running when the screen's window closes. Writes should
+ * be submitted directly so closing a window never drops them.
+ *
+ * Run with -Decommerce.virtualDbThreads=true to run DB_IO tasks on virtual
+ * threads (still limited to the connection pool size at a time).
+ */
+public class TaskExecutor {
+    private static final String VIRTUAL_DB_THREADS_PROPERTY = "ecommerce.virtualDbThreads";
+    private static final int IMAGE_THREADS = 2;
+    private static final int MAX_QUEUED_TASKS = 256;
+    private static final long IDLE_THREAD_TIMEOUT_SECONDS = 60;
+
+    public enum Pool {
+        DB_IO("db-io"),
+        IMAGE("image"),
+        CPU("cpu");
+
+        private final String threadPrefix;
+
+        Pool(String threadPrefix) {
+            this.threadPrefix = threadPrefix;
+        }
+    }
+
+    private static volatile TaskExecutor instance;
+
+    private final Lane[] lanes = new Lane[Pool.values().length];
+
+    private TaskExecutor(boolean virtualDbThreads) {
+        int dbThreads = ConnectionPool.getInstance().getMaxSize();
+        int cpuThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        lanes[Pool.DB_IO.ordinal()] = virtualDbThreads
+                ? Lane.virtual(Pool.DB_IO, dbThreads)
+                : Lane.platform(Pool.DB_IO, dbThreads);
+        lanes[Pool.IMAGE.ordinal()] = Lane.platform(Pool.IMAGE, IMAGE_THREADS);
+        lanes[Pool.CPU.ordinal()] = Lane.platform(Pool.CPU, cpuThreads);
+    }
+
+    public static TaskExecutor getInstance() {
+        TaskExecutor executor = instance;
+        if (executor == null) {
+            synchronized (TaskExecutor.class) {
+                executor = instance;
+                if (executor == null) {
+                    executor = new TaskExecutor(Boolean.getBoolean(VIRTUAL_DB_THREADS_PROPERTY));
+                    Runtime.getRuntime().addShutdownHook(new Thread(executor::shutdown, "task-executor-shutdown"));
+                    instance = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /** Run a task in the given pool. Failures are logged; the future reports them too. */
+    public Future<?> execute(Pool pool, Runnable task) {
+        return submit(pool, Executors.callable(task));
+    }
+
+    public <T> Future<T> submit(Pool pool, Callable<T> task) {
+        return lanes[pool.ordinal()].submit(task, null);
+    }
+
+    /** A set of tasks belonging to one screen, cancelled together. */
+    public Group newGroup() {
+        return new Group();
+    }
+
+    /**
+     * Stop accepting tasks. Queued tasks are dropped; running ones are
+     * interrupted.
+     */
+    public void shutdown() {
+        for (Lane lane : lanes) {
+            lane.executor.shutdownNow();
+        }
+    }
+
+    public final class Group {
+        private final Set<Future<?>> tasks = ConcurrentHashMap.newKeySet();
+        private final List<Runnable> closeActions = new CopyOnWriteArrayList<>();
+
+        private Group() {}
+
+        public Future<?> execute(Pool pool, Runnable task) {
+            return submit(pool, Executors.callable(task));
+        }
+
+        public <T> Future<T> submit(Pool pool, Callable<T> task) {
+            return lanes[pool.ordinal()].submit(task, tasks);
+        }
+
+        /** Cancel every task of this group that hasn't finished yet. New tasks are still accepted. */
+        public void cancelAll() {
+            for (Future<?> task : tasks) {
+                task.cancel(true);
+            }
+        }
+
+        /**
+         * Run an action, such as cancelling an EventBus subscription, when
+         * the window passed to cancelWhenClosed() is closed.
+         */
+        public void onClose(Runnable action) {
+            closeActions.add(action);
+        }
+
+        /**
+         * Cancel the group's tasks, and run its close actions, when the
+         * window showing this node is closed. Can be called from
+         * initialize(), before the node is in a scene.
+         */
+        public void cancelWhenClosed(Node node) {
+            node.sceneProperty().addListener((observable, oldScene, scene) -> watch(scene));
+            watch(node.getScene());
+        }
+
+        private void watch(Scene scene) {
+            if (scene == null) {
+                return;
+            }
+            scene.windowProperty().addListener((observable, oldWindow, window) -> watch(window));
+            watch(scene.getWindow());
+        }
+
+        private void watch(Window window) {
+            if (window != null) {
+                window.addEventHandler(WindowEvent.WINDOW_HIDDEN, event -> closed());
+            }
+        }
+
+        private void closed() {
+            cancelAll();
+            for (Runnable action : closeActions) {
+                try {
+                    action.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Close action failed: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    // ========== METRICS ==========
+
+    /** Tasks waiting to start. */
+    public int getQueueDepth(Pool pool) {
+        return lanes[pool.ordinal()].queued.get();
+    }
+
+    public int getRunningCount(Pool pool) {
+        return lanes[pool.ordinal()].running.get();
+    }
+
+    public long getCompletedCount(Pool pool) {
+        return lanes[pool.ordinal()].completed.sum();
+    }
+
+    public long getFailedCount(Pool pool) {
+        return lanes[pool.ordinal()].failed.sum();
+    }
+
+    public long getRejectedCount(Pool pool) {
+        return lanes[pool.ordinal()].rejected.sum();
+    }
+
+    public long getCancelledCount(Pool pool) {
+        return lanes[pool.ordinal()].cancelled.sum();
+    }
+
+    /** Average time from submission to start. */
+    public double getAverageQueueMillis(Pool pool) {
+        Lane lane = lanes[pool.ordinal()];
+        long started = lane.started.sum();
+        return started == 0 ? 0 : lane.totalQueueNanos.sum() / 1e6 / started;
+    }
+
+    public double getMaxQueueMillis(Pool pool) {
+        return lanes[pool.ordinal()].maxQueueNanos.get() / 1e6;
+    }
+
+    /** Average time from start to finish. */
+    public double getAverageRunMillis(Pool pool) {
+        Lane lane = lanes[pool.ordinal()];
+        long started = lane.started.sum();
+        return started == 0 ? 0 : lane.totalRunNanos.sum() / 1e6 / started;
+    }
+
+    public double getMaxRunMillis(Pool pool) {
+        return lanes[pool.ordinal()].maxRunNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("TaskExecutor[");
+        for (Pool pool : Pool.values()) {
+            if (pool.ordinal() > 0) {
+                text.append(", ");
+            }
+            text.append(String.format("%s{threads=%d%s, queued=%d, running=%d, completed=%d, failed=%d, " +
+                                      "rejected=%d, cancelled=%d, avgQueue=%.2fms, maxQueue=%.2fms, " +
+                                      "avgRun=%.2fms, maxRun=%.2fms}",
+                    pool, lanes[pool.ordinal()].threads, lanes[pool.ordinal()].concurrency != null ? " virtual" : "",
+                    getQueueDepth(pool), getRunningCount(pool), getCompletedCount(pool), getFailedCount(pool),
+                    getRejectedCount(pool), getCancelledCount(pool), getAverageQueueMillis(pool),
+                    getMaxQueueMillis(pool), getAverageRunMillis(pool), getMaxRunMillis(pool)));
+        }
+        return text.append("]").toString();
+    }
+
+    /** One named pool: its threads, admission limit and metrics. */
+    private static final class Lane {
+        final Pool pool;
+        final int threads;
+        final ExecutorService executor;
+        // Only for virtual threads: a thread per task, so concurrency is capped here instead
+        final Semaphore concurrency;
+        final Semaphore admission = new Semaphore(MAX_QUEUED_TASKS);
+
+        final AtomicInteger queued = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        final LongAdder started = new LongAdder();
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder cancelled = new LongAdder();
+        final LongAdder totalQueueNanos = new LongAdder();
+        final LongAdder totalRunNanos = new LongAdder();
+        final LongAccumulator maxQueueNanos = new LongAccumulator(Long::max, 0);
+        final LongAccumulator maxRunNanos = new LongAccumulator(Long::max, 0);
+
+        private Lane(Pool pool, int threads, ExecutorService executor, Semaphore concurrency) {
+            this.pool = pool;
+            this.threads = threads;
+            this.executor = executor;
+            this.concurrency = concurrency;
+        }
+
+        static Lane platform(Pool pool, int threads) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads,
+                    IDLE_THREAD_TIMEOUT_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    new NamedThreadFactory(pool.threadPrefix));
+            executor.allowCoreThreadTimeOut(true);
+            return new Lane(pool, threads, executor, null);
+        }
+
+        static Lane virtual(Pool pool, int maxConcurrent) {
+            ThreadFactory factory = Thread.ofVirtual().name(pool.threadPrefix + "-", 1).factory();
+            return new Lane(pool, maxConcurrent, Executors.newThreadPerTaskExecutor(factory),
+                    new Semaphore(maxConcurrent, true));
+        }
+
+        <T> Future<T> submit(Callable<T> task, Set<Future<?>> group) {
+            if (!admission.tryAcquire()) {
+                rejected.increment();
+                throw new RejectedExecutionException(pool + " pool is full (" + MAX_QUEUED_TASKS + " tasks pending)");
+            }
+
+            FutureTask<T> future = new FutureTask<>(() -> {
+                try {
+                    return task.call();
+                } catch (Exception | Error e) {
+                    // Interrupts from cancellation are expected; anything else would otherwise vanish into the future
+                    if (!Thread.currentThread().isInterrupted()) {
+                        System.err.println("Background task failed in " + pool + " pool: " + e.getMessage());
+                        e.printStackTrace();
+                    }
+                    throw e;
+                }
+            }) {
+                @Override
+                protected void done() {
+                    if (group != null) {
+                        group.remove(this);
+                    }
+                }
+            };
+            if (group != null) {
+                group.add(future);
+            }
+
+            long submittedAt = System.nanoTime();
+            queued.incrementAndGet();
+            try {
+                executor.execute(() -> runTask(future, submittedAt));
+            } catch (RejectedExecutionException e) {
+                // Shut down
+                queued.decrementAndGet();
+                admission.release();
+                rejected.increment();
+                future.cancel(false);
+                throw e;
+            }
+            return future;
+        }
+
+        private void runTask(FutureTask<?> future, long submittedAt) {
+            if (concurrency != null) {
+                concurrency.acquireUninterruptibly();
+            }
+            long startedAt = System.nanoTime();
+            queued.decrementAndGet();
+            try {
+                if (future.isCancelled()) {
+                    cancelled.increment();
+                    return;
+                }
+                started.increment();
+                totalQueueNanos.add(startedAt - submittedAt);
+                maxQueueNanos.accumulate(startedAt - submittedAt);
+
+                running.incrementAndGet();
+                future.run();
+                running.decrementAndGet();
+
+                long ranFor = System.nanoTime() - startedAt;
+                totalRunNanos.add(ranFor);
+                maxRunNanos.accumulate(ranFor);
+                switch (future.state()) {
+                    case SUCCESS -> completed.increment();
+                    case FAILED -> failed.increment();
+                    default -> cancelled.increment();
+                }
+            } finally {
+                // Don't let a cancellation interrupt leak into the pool thread's next task
+                Thread.interrupted();
+                if (concurrency != null) {
+                    concurrency.release();
+                }
+                admission.release();
+            }
+        }
+    }
+
+    // Daemon threads so background work never keeps the application alive
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable task) {
+            Thread thread = new Thread(task, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package services;
+
+import javafx.scene.image.Image;
+import javafx.scene.image.WritablePixelFormat;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * On-disk cache of downscaled product images.
+ *
+ * The first time a local image is needed at a given size it is decoded
+ * once at that size and the pixels are written to the cache directory as a
+ * small PNG. Later requests, including after a restart, read the small
+ * file through a memory-mapped buffer instead of decoding the full-size
+ * photo again. The cache file name is a hash of the source path, its
+ * modification time and length, and the size, so an edited or replaced
+ * image gets a new thumbnail automatically.
+ *
+ * Blocking: call from a background thread (ImageService does).
+ */
+public class ThumbnailCache {
+    private static final Path DEFAULT_DIRECTORY =
+            Paths.get(System.getProperty("user.home"), ".ecommerce_project", "thumbnails");
+
+    private final Path directory;
+
+    // Metrics
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder generated = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public ThumbnailCache() {
+        this(DEFAULT_DIRECTORY);
+    }
+
+    public ThumbnailCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * The image scaled to fit width x height, from the cache directory if a
+     * thumbnail for this version of the file exists, otherwise decoded from
+     * the source and stored for next time. Returns null if the image can't
+     * be read.
+     */
+    public Image load(File source, int width, int height) {
+        Path thumbnail = directory.resolve(fileName(source, width, height));
+        if (Files.isRegularFile(thumbnail)) {
+            try {
+                Image image = readMapped(thumbnail);
+                diskHits.increment();
+                return image;
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Discarding unreadable thumbnail for " + source + ": " + e.getMessage());
+                failures.increment();
+            }
+        }
+
+        // Same decode-at-size the views did before; the result is also what gets stored
+        Image image = new Image(source.toURI().toString(), width, height, true, true, false);
+        if (image.isError()) {
+            return null;
+        }
+        try {
+            store(image, thumbnail);
+            generated.increment();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error storing thumbnail for " + source + ": " + e.getMessage());
+            failures.increment();
+        }
+        return image;
+    }
+
+    private void store(Image image, Path thumbnail) throws IOException {
+        int width = (int) image.getWidth();
+        int height = (int) image.getHeight();
+        int[] pixels = new int[width * height];
+        image.getPixelReader().getPixels(0, 0, width, height, WritablePixelFormat.getIntArgbInstance(),
+                pixels, 0, width);
+        BufferedImage buffered = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        buffered.setRGB(0, 0, width, height, pixels, 0, width);
+
+        Files.createDirectories(directory);
+        // Write to a temp file and rename so readers never see a half-written thumbnail
+        Path temp = Files.createTempFile(directory, "thumb", ".tmp");
+        try {
+            ImageIO.write(buffered, "png", temp.toFile());
+            Files.move(temp, thumbnail, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // The mapping is dropped once the buffer is unreachable; the decoded image doesn't keep it
+    private static Image readMapped(Path thumbnail) throws IOException {
+        try (FileChannel channel = FileChannel.open(thumbnail, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Image image = new Image(new ByteBufferInputStream(buffer));
+            if (image.isError()) {
+                throw new IOException("Corrupt thumbnail " + thumbnail.getFileName());
+            }
+            return image;
+        }
+    }
+
+    private static String fileName(File source, int width, int height) {
+        String identity = source.getAbsolutePath() + "|" + source.lastModified() + "|" + source.length() +
+                          "|" + width + "x" + height;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(identity.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder();
+            for (int i = 0; i < 16; i++) {
+                name.append(String.format("%02x", hash[i]));
+            }
+            return name.append(".png").toString();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always available; keep the name stable anyway
+            return Integer.toHexString(identity.hashCode()) + ".png";
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public long getDiskHitCount() {
+        return diskHits.sum();
+    }
+
+    public long getGeneratedCount() {
+        return generated.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ThumbnailCache[dir=%s, diskHits=%d, generated=%d, failures=%d]",
+                directory, getDiskHitCount(), getGeneratedCount(), getFailureCount());
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package services;
+
+import database.ConnectionPool;
+import models.ChangeEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Unread message counts (status UNREAD), overall and per customer, kept in
+ * memory so a badge can be drawn without a COUNT(*) query.
+ *
+ * The counts are read from the database once, on first use, and then
+ * adjusted by DatabaseService for each write that adds an unread message
+ * or takes one out of UNREAD: it commits those writes through commit(),
+ * which applies the adjustment straight after. Reads are a LongAdder sum
+ * and never touch the database once seeded.
+ *
+ * Writes made by other app instances or outside the app aren't adjusted
+ * for, so the counts are reconciled with the database in the background:
+ * when a read finds them older than RECONCILE_MS, and soon after another
+ * instance logs a message change (see EventBus). A reconcile can't tell
+ * whether its query saw a local write that was committing at the same
+ * time, so it is dropped if any commit() was in progress or finished
+ * while it counted, and the next one tries again.
+ */
+public class UnreadMessageCounter {
+    private static final long RECONCILE_MS = 60_000;
+    private static final int SEED_ATTEMPTS = 3;
+
+    private static final String COUNT_SQL =
+        "SELECT customer_id, COUNT(*) FROM messages WHERE status = 'UNREAD' GROUP BY customer_id";
+
+    private static final UnreadMessageCounter INSTANCE = new UnreadMessageCounter();
+
+    private final ConnectionPool connectionPool = ConnectionPool.getInstance();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    // Adjustments hold the read lock, so they run in parallel; installing new counts takes the write lock
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object seedLock = new Object();
+    private boolean watchingOtherInstances; // guarded by seedLock
+    private volatile Counts counts;
+    private final LongAdder localChanges = new LongAdder();
+    private final AtomicInteger committing = new AtomicInteger();
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+    private volatile long reconciledAt;
+
+    // Metrics
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder reconciles = new LongAdder();
+    private final LongAdder discardedReconciles = new LongAdder();
+    private final LongAdder corrections = new LongAdder();
+
+    private UnreadMessageCounter() {}
+
+    public static UnreadMessageCounter getInstance() {
+        return INSTANCE;
+    }
+
+    /** Unread messages from all customers. May query the database on the very first call. */
+    public int getTotal() {
+        Counts current = seeded();
+        reads.increment();
+        reconcileIfStale();
+        return (int) Math.max(0, current.total.sum());
+    }
+
+    /** Unread messages from one customer. May query the database on the very first call. */
+    public int getForCustomer(int customerId) {
+        Counts current = seeded();
+        reads.increment();
+        reconcileIfStale();
+        LongAdder count = current.byCustomer.get(customerId);
+        return count == null ? 0 : (int) Math.max(0, count.sum());
+    }
+
+    /** True once the counts have been read from the database, so reads won't query. */
+    public boolean isLoaded() {
+        return counts != null;
+    }
+
+    /** Called on the thread that changed the counts; must not block. */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    // ========== ADJUSTMENTS ==========
+
+    /**
+     * Commit a transaction that may change the unread counts, then run
+     * adjustment (calls to the methods below) for what it changed. Counted
+     * as a local change from before the commit until the adjustment is
+     * done, so a reconcile can't install counts that already include this
+     * write and then have the adjustment add it again.
+     */
+    public void commit(Connection conn, Runnable adjustment) throws SQLException {
+        committing.incrementAndGet();
+        localChanges.increment();
+        try {
+            conn.commit();
+            adjustment.run();
+        } finally {
+            committing.decrementAndGet();
+        }
+    }
+
+    /** An unread message from this customer was committed. */
+    public void messageAdded(int customerId) {
+        adjust(customerId, 1);
+    }
+
+    /** A message from this customer that was unread was committed as read, replied or deleted. */
+    public void messageNoLongerUnread(int customerId) {
+        adjust(customerId, -1);
+    }
+
+    /** Many messages stopped being unread at once: customer id -> how many. Listeners hear about it once. */
+    public void messagesNoLongerUnread(Map<Integer, Integer> countByCustomer) {
+        if (countByCustomer.isEmpty()) {
+            return;
+        }
+        swapLock.readLock().lock();
+        try {
+            localChanges.increment();
+            Counts current = counts;
+            if (current != null) {
+                countByCustomer.forEach((customerId, count) -> current.add(customerId, -count));
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        notifyListeners();
+    }
+
+    private void adjust(int customerId, int delta) {
+        swapLock.readLock().lock();
+        try {
+            localChanges.increment();
+            Counts current = counts;
+            if (current != null) {
+                current.add(customerId, delta);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        notifyListeners();
+    }
+
+    // ========== RECONCILIATION ==========
+
+    private Counts seeded() {
+        Counts current = counts;
+        if (current != null) {
+            return current;
+        }
+        synchronized (seedLock) {
+            for (int attempt = 1; counts == null && attempt <= SEED_ATTEMPTS; attempt++) {
+                // The last attempt installs its result even if a write raced with it
+                reconcile(attempt == SEED_ATTEMPTS);
+            }
+            if (counts == null) {
+                // The database is unreachable; show zeros and try again on the next read
+                return new Counts();
+            }
+            watchOtherInstances();
+            return counts;
+        }
+    }
+
+    private void reconcileIfStale() {
+        if (System.currentTimeMillis() - reconciledAt < RECONCILE_MS || !reconciling.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            TaskExecutor.getInstance().execute(TaskExecutor.Pool.DB_IO, () -> {
+                try {
+                    reconcile(false);
+                } finally {
+                    reconciling.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // DB pool is saturated; the next read tries again
+            reconciling.set(false);
+        }
+    }
+
+    private void reconcile(boolean force) {
+        long changesBefore = localChanges.sum();
+        Counts loaded;
+        try {
+            loaded = load();
+        } catch (SQLException e) {
+            System.err.println("Error counting unread messages: " + e.getMessage());
+            e.printStackTrace();
+            return;
+        }
+
+        boolean changed;
+        swapLock.writeLock().lock();
+        try {
+            if (!force && (localChanges.sum() != changesBefore || committing.get() > 0)) {
+                discardedReconciles.increment();
+                return;
+            }
+            Counts previous = counts;
+            changed = previous == null || !previous.snapshot().equals(loaded.snapshot());
+            if (previous != null && changed) {
+                corrections.increment();
+            }
+            counts = loaded;
+            reconciledAt = System.currentTimeMillis();
+            reconciles.increment();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        if (changed) {
+            notifyListeners();
+        }
+    }
+
+    private Counts load() throws SQLException {
+        Counts loaded = new Counts();
+        try (Connection conn = connectionPool.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(COUNT_SQL);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                loaded.add(rs.getInt(1), rs.getInt(2));
+            }
+        }
+        return loaded;
+    }
+
+    // Another instance's message changes weren't adjusted for here; reconcile soon instead
+    private void watchOtherInstances() {
+        if (watchingOtherInstances) {
+            return;
+        }
+        watchingOtherInstances = true;
+        EventBus.getInstance().subscribe(
+                EnumSet.of(ChangeEvent.Type.MESSAGE_CREATED, ChangeEvent.Type.MESSAGE_REPLIED,
+                           ChangeEvent.Type.MESSAGE_READ, ChangeEvent.Type.MESSAGE_DELETED), null, events -> {
+                    for (ChangeEvent event : events) {
+                        if (event.getOrigin() != ChangeLog.ORIGIN) {
+                            reconciledAt = 0;
+                            reconcileIfStale();
+                            return;
+                        }
+                    }
+                });
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                System.err.println("Unread count listener failed: " + e.getMessage());
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static final class Counts {
+        final LongAdder total = new LongAdder();
+        final ConcurrentHashMap<Integer, LongAdder> byCustomer = new ConcurrentHashMap<>();
+
+        void add(int customerId, long delta) {
+            byCustomer.computeIfAbsent(customerId, id -> new LongAdder()).add(delta);
+            total.add(delta);
+        }
+
+        // Customer id -> count, without zero entries
+        Map<Integer, Long> snapshot() {
+            Map<Integer, Long> values = new HashMap<>();
+            byCustomer.forEach((customerId, count) -> {
+                long value = count.sum();
+                if (value != 0) {
+                    values.put(customerId, value);
+                }
+            });
+            return values;
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public long getReadCount() {
+        return reads.sum();
+    }
+
+    public long getLocalChangeCount() {
+        return localChanges.sum();
+    }
+
+    public long getReconcileCount() {
+        return reconciles.sum();
+    }
+
+    /** Reconciles dropped because a local write was committed while they were counting. */
+    public long getDiscardedReconcileCount() {
+        return discardedReconciles.sum();
+    }
+
+    /** Reconciles that found the in-memory counts had drifted from the database. */
+    public long getCorrectionCount() {
+        return corrections.sum();
+    }
+
+    @Override
+    public String toString() {
+        Counts current = counts;
+        return String.format("UnreadMessageCounter[unread=%s, reads=%d, localChanges=%d, reconciles=%d, " +
+                "discarded=%d, corrections=%d]", current == null ? "-" : String.valueOf(current.total.sum()),
+                getReadCount(), getLocalChangeCount(), getReconcileCount(), getDiscardedReconcileCount(),
+                getCorrectionCount());
+    }
+}
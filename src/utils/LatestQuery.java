@@ -0,0 +1,158 @@
+package utils;
+
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.util.Duration;
+import services.TaskExecutor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * "Latest wins" background query for search boxes and filters.
+ *
+ * submit() waits until the input has been quiet for the debounce delay,
+ * so typing a word runs one query rather than one per keystroke. Starting
+ * a query cancels the one still in flight, and a result is only published
+ * if no newer query has been started since, so the screen never flips
+ * back to an older result that happened to finish late. The query runs in
+ * a TaskExecutor pool; the result callback runs on the FX thread.
+ *
+ * Use from the FX thread only.
+ */
+public class LatestQuery<R> {
+    private final TaskExecutor.Group tasks;
+    private final TaskExecutor.Pool pool;
+    private final PauseTransition debounce;
+
+    private Callable<R> pendingQuery;
+    private Consumer<R> pendingCallback;
+    private Future<?> inFlight;
+    private long generation;
+    private Consumer<Throwable> onError;
+
+    // Metrics
+    private long requested;
+    private long executed;
+    private long superseded;
+    private long published;
+
+    public LatestQuery(TaskExecutor.Group tasks, TaskExecutor.Pool pool, Duration debounceDelay) {
+        this.tasks = tasks;
+        this.pool = pool;
+        this.debounce = new PauseTransition(debounceDelay);
+        this.debounce.setOnFinished(event -> start(pendingQuery, pendingCallback));
+    }
+
+    /** Called on the FX thread if the latest query fails. */
+    public void setOnError(Consumer<Throwable> onError) {
+        this.onError = onError;
+    }
+
+    /** Run the query once the input settles; replaces any query still waiting. */
+    public void submit(Callable<R> query, Consumer<R> onResult) {
+        requested++;
+        if (pendingQuery != null) {
+            superseded++;
+        }
+        pendingQuery = query;
+        pendingCallback = onResult;
+        debounce.playFromStart();
+    }
+
+    /** Run the query straight away, e.g. for a combo box change or the initial load. */
+    public void submitNow(Callable<R> query, Consumer<R> onResult) {
+        requested++;
+        if (pendingQuery != null) {
+            superseded++;
+        }
+        debounce.stop();
+        start(query, onResult);
+    }
+
+    /** Drop the waiting query and cancel the running one; nothing more is published. */
+    public void cancel() {
+        debounce.stop();
+        pendingQuery = null;
+        pendingCallback = null;
+        generation++;
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            inFlight = null;
+        }
+    }
+
+    /** Whether a query is waiting for the input to settle or still running. */
+    public boolean isBusy() {
+        return pendingQuery != null || inFlight != null;
+    }
+
+    private void start(Callable<R> query, Consumer<R> onResult) {
+        pendingQuery = null;
+        pendingCallback = null;
+        if (inFlight != null) {
+            inFlight.cancel(true);
+            superseded++;
+        }
+        long current = ++generation;
+        executed++;
+        try {
+            inFlight = tasks.execute(pool, () -> {
+                try {
+                    R result = query.call();
+                    Platform.runLater(() -> {
+                        if (current == generation) {
+                            inFlight = null;
+                            published++;
+                            onResult.accept(result);
+                        }
+                    });
+                } catch (Exception e) {
+                    if (!Thread.currentThread().isInterrupted()) {
+                        Platform.runLater(() -> fail(current, e));
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            fail(current, e);
+        }
+    }
+
+    private void fail(long current, Throwable error) {
+        if (current != generation) {
+            return;
+        }
+        inFlight = null;
+        System.err.println("Background query failed: " + error.getMessage());
+        error.printStackTrace();
+        if (onError != null) {
+            onError.accept(error);
+        }
+    }
+
+    // ========== METRICS ==========
+
+    public long getRequestedCount() {
+        return requested;
+    }
+
+    public long getExecutedCount() {
+        return executed;
+    }
+
+    public long getSupersededCount() {
+        return superseded;
+    }
+
+    public long getPublishedCount() {
+        return published;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LatestQuery[requested=%d, executed=%d, superseded=%d, published=%d]",
+                requested, executed, superseded, published);
+    }
+}
@@ -0,0 +1,144 @@
+package utils;
+
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.geometry.Pos;
+import javafx.scene.Node;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.layout.HBox;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Virtualized grid of fixed-width cards.
+ *
+ * Items are laid out in rows of as many cards as fit the current width, and
+ * each row is a ListView cell, so only the rows in (or near) the viewport
+ * exist as nodes. Scrolling hands the same row cells, and the cards inside
+ * them, new items to display instead of creating new ones: the number of
+ * cards depends on the viewport size, not on the number of items.
+ *
+ * Usable from FXML: set the card factory and add items through
+ * getGridItems() from the controller.
+ */
+public final class VirtualGrid<T> extends ListView<List<T>> {
+
+    /** A recyclable card: built once, then pointed at different items. */
+    public interface Card<T> {
+        Node getNode();
+        void update(T item);
+    }
+
+    private static final double DEFAULT_CARD_WIDTH = 240;
+    private static final double HGAP = 20;
+    private static final double VGAP = 20;
+    // Room for the list's own padding and the vertical scroll bar
+    private static final double CHROME_WIDTH = 40;
+
+    private final ObservableList<T> gridItems = FXCollections.observableArrayList();
+    private Supplier<? extends Card<T>> cardFactory;
+    private double cardWidth = DEFAULT_CARD_WIDTH;
+    private int columns = 1;
+    private Runnable onNearEnd;
+    private int cardsCreated;
+
+    public VirtualGrid() {
+        setStyle("-fx-background-color: transparent; -fx-background-insets: 0; -fx-padding: 20;");
+        setFocusTraversable(false);
+        setCellFactory(list -> new RowCell());
+
+        gridItems.addListener((ListChangeListener<T>) change -> rebuildRows());
+        widthProperty().addListener((observable, oldValue, newValue) -> updateColumns());
+    }
+
+    /** The items shown in the grid; rows are derived from this list. */
+    public ObservableList<T> getGridItems() {
+        return gridItems;
+    }
+
+    public void setCardFactory(Supplier<? extends Card<T>> cardFactory) {
+        this.cardFactory = cardFactory;
+        refresh();
+    }
+
+    /** Width of one card, used to work out how many fit on a row. */
+    public void setCardWidth(double cardWidth) {
+        this.cardWidth = cardWidth;
+        updateColumns();
+    }
+
+    /** Called (on the FX thread) when one of the last two rows comes into view. */
+    public void setOnNearEnd(Runnable onNearEnd) {
+        this.onNearEnd = onNearEnd;
+    }
+
+    /** Cards built so far; stays bounded by the viewport however many items there are. */
+    public int getCardsCreated() {
+        return cardsCreated;
+    }
+
+    private void updateColumns() {
+        double available = getWidth() - CHROME_WIDTH;
+        int fit = Math.max(1, (int) ((available + HGAP) / (cardWidth + HGAP)));
+        if (fit != columns) {
+            columns = fit;
+            rebuildRows();
+        }
+    }
+
+    private void rebuildRows() {
+        List<List<T>> rows = new ArrayList<>((gridItems.size() + columns - 1) / columns);
+        for (int start = 0; start < gridItems.size(); start += columns) {
+            int end = Math.min(start + columns, gridItems.size());
+            rows.add(new ArrayList<>(gridItems.subList(start, end)));
+        }
+        getItems().setAll(rows);
+    }
+
+    private final class RowCell extends ListCell<List<T>> {
+        private final HBox row = new HBox(HGAP);
+        private final List<Card<T>> cards = new ArrayList<>();
+
+        RowCell() {
+            // Inline style so the ListView's selection/hover colours never show
+            setStyle("-fx-background-color: transparent; -fx-padding: 0 0 " + VGAP + " 0;");
+            row.setAlignment(Pos.TOP_LEFT);
+        }
+
+        @Override
+        protected void updateItem(List<T> items, boolean empty) {
+            super.updateItem(items, empty);
+            setText(null);
+            if (empty || items == null || cardFactory == null) {
+                setGraphic(null);
+                return;
+            }
+
+            while (cards.size() < items.size()) {
+                cards.add(cardFactory.get());
+                cardsCreated++;
+            }
+            if (row.getChildren().size() != items.size()) {
+                List<Node> nodes = new ArrayList<>(items.size());
+                for (int i = 0; i < items.size(); i++) {
+                    nodes.add(cards.get(i).getNode());
+                }
+                row.getChildren().setAll(nodes);
+            }
+            for (int i = 0; i < items.size(); i++) {
+                cards.get(i).update(items.get(i));
+            }
+            setGraphic(row);
+
+            if (onNearEnd != null && getIndex() >= getListView().getItems().size() - 2) {
+                // Not from inside layout: the callback may change the items
+                Platform.runLater(onNearEnd);
+            }
+        }
+    }
+}